@@ -2,8 +2,10 @@ package jp.co.axio.masterMentsetSystem;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MasteMentSetSystemApplication {
 
 
@@ -0,0 +1,90 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 非同期ログ出力
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * 非同期ログ出力アペンダー(件数計測付き)
+ * logback標準のAsyncAppenderに、待ち件数の最大値と、キュー溢れで破棄した件数を加えたもの。
+ * logback.xmlで ch.qos.logback.classic.AsyncAppender の代わりに指定する。
+ * neverBlock=true の場合、キューが満杯の時点で追加したログは破棄件数に数える(概算)。
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+	/** キュー溢れで破棄した件数(neverBlock=true) */
+	private final AtomicLong dropped = new AtomicLong();
+	/** discardingThreshold超過で破棄した件数 */
+	private final AtomicLong discarded = new AtomicLong();
+	/** 待ち件数の最大値 */
+	private final AtomicInteger maxQueued = new AtomicInteger();
+
+	@Override
+	protected void append(ILoggingEvent eventObject) {
+		if (isNeverBlock() && getRemainingCapacity() == 0) {
+			dropped.incrementAndGet();
+		}
+		super.append(eventObject);
+
+		int queued = getNumberOfElementsInQueue();
+		int max;
+		while (queued > (max = maxQueued.get())) {
+			if (maxQueued.compareAndSet(max, queued)) {
+				break;
+			}
+		}
+	}
+
+	@Override
+	protected boolean isDiscardable(ILoggingEvent event) {
+		// キューの残りがdiscardingThreshold未満の場合のみ呼ばれる
+		boolean discardable = super.isDiscardable(event);
+		if (discardable) {
+			discarded.incrementAndGet();
+		}
+		return discardable;
+	}
+
+	@Override
+	public void stop() {
+		if (dropped.get() > 0 || discarded.get() > 0) {
+			addWarn("Async appender [" + getName() + "] dropped " + dropped.get() + ", discarded " + discarded.get() + " events");
+		}
+		super.stop();
+	}
+
+	/**
+	 * キュー溢れで破棄した件数
+	 *
+	 * @return 件数
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * discardingThreshold超過で破棄した件数
+	 *
+	 * @return 件数
+	 */
+	public long getDiscardedCount() {
+		return discarded.get();
+	}
+
+	/**
+	 * 待ち件数の最大値
+	 *
+	 * @return 件数
+	 */
+	public int getMaxQueued() {
+		return maxQueued.get();
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * CSV文字コード変換出力
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV文字コード変換出力クラス
+ * PostgreSQLの COPY ... TO STDOUT (FORMAT csv) の出力(UTF-8)を受け取り、指定した文字コード・改行コードへ変換して出力する。
+ * 変換は固定長のバッファで順に行い、全体をメモリに保持しない。変換できない文字は代替文字で出力する(CsvWriterと同じ)。
+ * 改行コードは「"」で囲まれていない(レコード区切りの)改行のみ変換し、項目内の改行はそのまま出力する。
+ */
+public class CsvTranscodingOutputStream extends OutputStream {
+
+	/** ダブルクオーテーション */
+	private static final char DOUBLE_QUO = '"';
+
+	/** UTF-8 → 文字 */
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	/** 文字 → 出力文字コード */
+	private final Writer out;
+	/** 改行コード */
+	private final String lineFeed;
+	/** 変換前のバイト列 */
+	private final ByteBuffer bytes = ByteBuffer.allocate(16384);
+	/** 変換後の文字列 */
+	private final CharBuffer chars = CharBuffer.allocate(16384);
+	/** 「"」の内側か */
+	private boolean quoted;
+
+	/**
+	 * 出力ストリームへ指定した文字コード・改行コードで出力する
+	 *
+	 * @param os 出力先
+	 * @param charSet 文字コード(MS932、Shift_JIS、UTF-8等)
+	 * @param lineFeed 改行コード
+	 */
+	public CsvTranscodingOutputStream(OutputStream os, String charSet, String lineFeed) {
+		this.out = new OutputStreamWriter(os, Charset.forName(charSet).newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE));
+		this.lineFeed = lineFeed;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, bytes.remaining());
+			bytes.put(b, off, n);
+			off += n;
+			len -= n;
+			decode(false);
+		}
+	}
+
+	/**
+	 * 残りのバイト列を変換して出力する(出力先は閉じない)
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		decode(true);
+		decoder.flush(chars);
+		drain();
+		out.flush();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		out.close();
+	}
+
+	/**
+	 * バッファのバイト列を変換する(文字の途中で切れたバイトは次回に持ち越す)
+	 *
+	 * @param endOfInput true:入力終了
+	 * @throws IOException
+	 */
+	private void decode(boolean endOfInput) throws IOException {
+		bytes.flip();
+		while (true) {
+			boolean overflow = decoder.decode(bytes, chars, endOfInput).isOverflow();
+			drain();
+			if (!overflow) {
+				break;
+			}
+		}
+		bytes.compact();
+	}
+
+	/**
+	 * 変換後の文字列を出力する(レコード区切りの改行のみ改行コードを変換)
+	 *
+	 * @throws IOException
+	 */
+	private void drain() throws IOException {
+		char[] a = chars.array();
+		int end = chars.position();
+		int from = 0;
+		for (int i = 0; i < end; i++) {
+			char c = a[i];
+			if (c == DOUBLE_QUO) {
+				quoted = !quoted;
+			} else if (!quoted && (c == '\n' || c == '\r')) {
+				out.write(a, from, i - from);
+				if (c == '\n') {
+					out.write(lineFeed);
+				}
+				from = i + 1;
+			}
+		}
+		out.write(a, from, end - from);
+		chars.clear();
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * CSV出力
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * CSV出力クラス
+ * 項目前後のスペース(半角・全角)を除去し、「"」で囲んで出力する。項目内の「"」は「""」に変換する。
+ * 囲い文字なしを指定した場合は、項目をそのまま出力する。
+ * 正規表現・文字列連結を使用せず、出力先へ直接書き込む。
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+	/* デフォルト改行コード */
+	public static final String DEFAULT_LINEFEED = "\r\n";
+	/* デフォルト文字コード */
+	public static final String DEFAULT_CHAR_SET = "MS932";
+	/* デフォルトセパレータ */
+	public static final char DEFAULT_SEPARATOR = ',';
+	/** ダブルクオーテーション */
+	private static final char DOUBLE_QUO = '"';
+	/** 全角スペース */
+	private static final char ZENKAKU_SPACE = '　';
+
+	/** 出力先 */
+	private final Writer out;
+	/** セパレータ */
+	private final char separator;
+	/** 改行コード */
+	private final String lineFeed;
+	/** 囲い文字(「"」)を付けるか */
+	private final boolean quote;
+
+	/**
+	 * 出力ストリームへデフォルト文字コード・セパレータ・改行コードで出力する
+	 *
+	 * @param os 出力先
+	 */
+	public CsvWriter(OutputStream os) {
+		this(os, DEFAULT_CHAR_SET, DEFAULT_SEPARATOR, DEFAULT_LINEFEED);
+	}
+
+	/**
+	 * 出力ストリームへ指定した文字コードで出力する
+	 * 文字コード変換(CharsetEncoder)は1つを出力終了まで使い回す。変換できない文字は代替文字で出力する。
+	 *
+	 * @param os 出力先
+	 * @param charSet 文字コード(MS932、Shift_JIS、UTF-8等)
+	 * @param separator セパレータ
+	 * @param lineFeed 改行コード
+	 */
+	public CsvWriter(OutputStream os, String charSet, char separator, String lineFeed) {
+		this(os, charSet, separator, lineFeed, true);
+	}
+
+	/**
+	 * 出力ストリームへ指定した文字コード・囲い文字の有無で出力する
+	 *
+	 * @param os 出力先
+	 * @param charSet 文字コード(MS932、Shift_JIS、UTF-8等)
+	 * @param separator セパレータ
+	 * @param lineFeed 改行コード
+	 * @param quote true:「"」で囲む
+	 */
+	public CsvWriter(OutputStream os, String charSet, char separator, String lineFeed, boolean quote) {
+		this(new OutputStreamWriter(os, Charset.forName(charSet).newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)), separator, lineFeed, quote);
+	}
+
+	/**
+	 * Writerへ出力する
+	 *
+	 * @param writer 出力先
+	 * @param separator セパレータ
+	 * @param lineFeed 改行コード
+	 */
+	public CsvWriter(Writer writer, char separator, String lineFeed) {
+		this(writer, separator, lineFeed, true);
+	}
+
+	/**
+	 * Writerへ囲い文字の有無を指定して出力する
+	 *
+	 * @param writer 出力先
+	 * @param separator セパレータ
+	 * @param lineFeed 改行コード
+	 * @param quote true:「"」で囲む
+	 */
+	public CsvWriter(Writer writer, char separator, String lineFeed, boolean quote) {
+		this.out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 16384);
+		this.separator = separator;
+		this.lineFeed = lineFeed;
+		this.quote = quote;
+	}
+
+	/**
+	 * 項目出力
+	 * データ：ｘｘｘ"AAA"　⇒"ｘｘｘ""AAA"""
+	 *
+	 * @param val 項目値(nullの場合、空文字)
+	 * @param addSeparator true:後ろにセパレータを付ける
+	 * @return this
+	 * @throws IOException
+	 */
+	public CsvWriter write(String val, boolean addSeparator) throws IOException {
+
+		if (quote) {
+			out.write(DOUBLE_QUO);
+		}
+
+		if (val != null) {
+			// 前後のスペース(半角・全角)を除去
+			int start = 0;
+			int end = val.length();
+			while (start < end && isSpace(val.charAt(start))) {
+				start++;
+			}
+			while (end > start && isSpace(val.charAt(end - 1))) {
+				end--;
+			}
+
+			// 「"」の直後で区切りながら出力し、「"」を重ねる
+			int from = start;
+			for (int i = start; quote && i < end; i++) {
+				if (val.charAt(i) == DOUBLE_QUO) {
+					out.write(val, from, i + 1 - from);
+					out.write(DOUBLE_QUO);
+					from = i + 1;
+				}
+			}
+			out.write(val, from, end - from);
+		}
+
+		if (quote) {
+			out.write(DOUBLE_QUO);
+		}
+
+		if (addSeparator) {
+			out.write(separator);
+		}
+
+		return this;
+	}
+
+	/**
+	 * 改行出力
+	 *
+	 * @return this
+	 * @throws IOException
+	 */
+	public CsvWriter newLine() throws IOException {
+		out.write(lineFeed);
+		return this;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * スペース判定(StringUtil.trimSpaceと同じ、\s・全角スペース)
+	 *
+	 * @param c 対象文字
+	 * @return true:スペース
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == ZENKAKU_SPACE;
+	}
+}
@@ -0,0 +1,90 @@
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * スレッドプール設定
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * ユーザー詳細画面の並列検索用スレッドプール
+     * DB接続数を超えないようスレッド数・待ち件数を制限し、溢れた場合は呼び出し元スレッドで実行する。
+     *
+     * @param threads スレッド数
+     * @param queueCapacity 待ち件数
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = "userDetailExecutor")
+    public ThreadPoolTaskExecutor userDetailExecutor(
+            @Value("${config.userdetail.threads:4}") int threads,
+            @Value("${config.userdetail.queueCapacity:20}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("userDetail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 汎用CSV出力の並列実行用スレッドプール
+     * 1件ごとにDB接続を1つ使用するため、スレッド数はDB接続数より少なくする。
+     * 待ち件数を超えた場合は TaskRejectedException とし、呼び出し元で扱う
+     * (スケジュール実行は待ち行列に戻し、画面・APIからの実行は要求したスレッドで実行する)。
+     *
+     * @param threads スレッド数
+     * @param queueCapacity 待ち件数
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = "csvExportExecutor")
+    public ThreadPoolTaskExecutor csvExportExecutor(
+            @Value("${config.csvexport.threads:2}") int threads,
+            @Value("${config.csvexport.queueCapacity:50}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("csvExport-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * 汎用CSV分割出力の範囲ごとの出力用スレッドプール
+     * 分割ごとにDB接続を1つ使用するため、csvExportExecutor のスレッド数との合計はDB接続数より少なくする。
+     * 待ち件数を超えた場合は呼び出し元スレッドで実行する。
+     *
+     * @param threads スレッド数
+     * @param queueCapacity 待ち件数
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean(name = "csvExportPartExecutor")
+    public ThreadPoolTaskExecutor csvExportPartExecutor(
+            @Value("${config.csvexport.split.threads:4}") int threads,
+            @Value("${config.csvexport.split.queueCapacity:64}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("csvExportPart-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+}
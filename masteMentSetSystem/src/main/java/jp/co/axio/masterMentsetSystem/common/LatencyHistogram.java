@@ -0,0 +1,157 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 処理時間の分布
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間の分布(1処理分)
+ * 分布は対数目盛のバケット(相対誤差12.5%以内)で保持し、p50/p95/p99を概算する。
+ * 記録はロックを使用しないため、複数スレッドから呼び出してよい。
+ */
+public final class LatencyHistogram {
+
+	/** 線形区間・各2の累乗区間内の分割数(2^SUB_BITS) */
+	private static final int SUB_BITS = 3;
+	/** 線形区間の上限(マイクロ秒) */
+	private static final int LINEAR = 1 << (SUB_BITS + 1);
+	/** 最大の2の累乗(マイクロ秒、約19時間) */
+	private static final int MAX_EXPONENT = 36;
+	/** バケット数 */
+	private static final int BUCKETS = LINEAR + (MAX_EXPONENT - SUB_BITS) * (1 << SUB_BITS);
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * 1件記録
+	 *
+	 * @param nanos 処理時間(ナノ秒)
+	 * @param success true:正常終了
+	 */
+	public void record(long nanos, boolean success) {
+		counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+		count.increment();
+		totalNanos.add(nanos);
+		if (!success) {
+			errors.increment();
+		}
+		long max;
+		while (nanos > (max = maxNanos.get())) {
+			if (maxNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 合計時間
+	 *
+	 * @return 合計時間(ナノ秒)
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * 集計結果
+	 *
+	 * @return 件数, 異常終了件数, 平均・最大・p50/p95/p99(ミリ秒)
+	 */
+	public Map<String, Object> toMap() {
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		long c = count.sum();
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("count", c);
+		map.put("errors", errors.sum());
+		map.put("meanMillis", c == 0 ? 0.0 : millis(totalNanos.sum() / c));
+		map.put("maxMillis", millis(maxNanos.get()));
+		map.put("p50Millis", percentile(snapshot, n, 0.50));
+		map.put("p95Millis", percentile(snapshot, n, 0.95));
+		map.put("p99Millis", percentile(snapshot, n, 0.99));
+		return map;
+	}
+
+	/**
+	 * 百分位数(バケットの上限値)
+	 *
+	 * @param snapshot バケットごとの件数
+	 * @param n 件数合計
+	 * @param p 百分位(0～1)
+	 * @return 処理時間(ミリ秒)
+	 */
+	private static double percentile(long[] snapshot, long n, double p) {
+		if (n == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(p * n);
+		long cumulative = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			cumulative += snapshot[i];
+			if (cumulative >= rank) {
+				return upperBoundMicros(i) / 1000.0;
+			}
+		}
+		return upperBoundMicros(snapshot.length - 1) / 1000.0;
+	}
+
+	/**
+	 * 処理時間のバケット番号
+	 *
+	 * @param micros 処理時間(マイクロ秒)
+	 * @return バケット番号
+	 */
+	private static int bucket(long micros) {
+		if (micros < LINEAR) {
+			return (int) Math.max(micros, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent >= MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+	}
+
+	/**
+	 * バケットの上限値
+	 *
+	 * @param bucket バケット番号
+	 * @return 処理時間(マイクロ秒)
+	 */
+	private static long upperBoundMicros(int bucket) {
+		if (bucket < LINEAR) {
+			return bucket + 1;
+		}
+		int exponent = (bucket - LINEAR) / (1 << SUB_BITS) + SUB_BITS + 1;
+		int sub = (bucket - LINEAR) % (1 << SUB_BITS);
+		return ((long) ((1 << SUB_BITS) + sub + 1)) << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * ナノ秒 → ミリ秒(小数3桁)
+	 *
+	 * @param nanos ナノ秒
+	 * @return ミリ秒
+	 */
+	static double millis(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+}
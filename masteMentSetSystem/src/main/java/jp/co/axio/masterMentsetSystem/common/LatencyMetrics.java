@@ -0,0 +1,201 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 処理時間計測
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 処理時間計測クラス
+ * LogService.info の「開始」と「正常終了」「異常終了」の組から、(画面名, クラス名, 処理名)ごとの
+ * 処理時間の分布と異常終了件数を集計する。各処理に計測用のコードを追加する必要はない。
+ * 開始と終了は同じスレッドで出力されたものを組にする。
+ * 分布は LatencyHistogram で保持する。
+ * 処理名に埋め込まれた値(「削除(ruleId=xxx)」等の括弧内の値)は除いて集計し、集計数が上限を超えた処理は件数のみ数える。
+ */
+public final class LatencyMetrics {
+
+	/** 開始から終了までの最大時間(これを超えた開始は組にしない) */
+	private static final long MAX_PENDING_NANOS = TimeUnit.MINUTES.toNanos(30);
+
+	/** 集計する(画面名, クラス名, 処理名)の上限 */
+	private static final int MAX_TIMERS = 1000;
+
+	/** スレッドごとの終了待ちの開始の上限(超えた場合は古い開始を破棄する) */
+	private static final int MAX_PENDING = 64;
+
+	/** 処理名に埋め込まれた値(数字・「=」を含む括弧内) */
+	private static final Pattern EMBEDDED_VALUE = Pattern.compile("[(（\\[][^)）\\]]*[0-9=][^)）\\]]*[)）\\]]");
+
+	/** (画面名, クラス名, 処理名) → 集計 */
+	private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<String, Timer>();
+
+	/** 上限を超えたため集計しなかった件数 */
+	private static final AtomicLong OVERFLOW = new AtomicLong();
+
+	/** スレッドごとの開始時刻((画面名, クラス名, 処理名) → System.nanoTime) */
+	private static final ThreadLocal<Map<String, Long>> PENDING = ThreadLocal.withInitial(HashMap::new);
+
+	private LatencyMetrics() {
+	}
+
+	/**
+	 * ログ出力内容から開始・終了を判定して計測する
+	 *
+	 * @param screen 画面名
+	 * @param page クラス名
+	 * @param process 処理名
+	 * @param result 結果(開始/正常終了/異常終了)
+	 */
+	static void onLog(String screen, String page, String process, String result) {
+
+		if (result == null) {
+			return;
+		}
+		String name = normalize(process);
+		if (result.startsWith("開始")) {
+			start(key(screen, page, name));
+			return;
+		}
+		boolean success = result.contains("正常終了");
+		if (!success && !result.contains("異常終了")) {
+			return;
+		}
+		String key = key(screen, page, name);
+		Long start = PENDING.get().remove(key);
+		if (start == null) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (elapsed < 0 || elapsed > MAX_PENDING_NANOS) {
+			return;
+		}
+		Timer timer = TIMERS.get(key);
+		if (timer == null) {
+			if (TIMERS.size() >= MAX_TIMERS) {
+				OVERFLOW.incrementAndGet();
+				return;
+			}
+			timer = TIMERS.computeIfAbsent(key, k -> new Timer(screen, page, name));
+		}
+		timer.histogram.record(elapsed, success);
+	}
+
+	/**
+	 * 開始時刻の記録
+	 * 終了が出力されない開始(処理名の不一致・例外等)が残り続けないよう、上限を超えた場合は古い開始を破棄する。
+	 *
+	 * @param key 集計キー
+	 */
+	private static void start(String key) {
+		Map<String, Long> pending = PENDING.get();
+		long now = System.nanoTime();
+		if (pending.size() >= MAX_PENDING && !pending.containsKey(key)) {
+			pending.values().removeIf(t -> now - t > MAX_PENDING_NANOS);
+			if (pending.size() >= MAX_PENDING) {
+				pending.clear();
+			}
+		}
+		pending.put(key, now);
+	}
+
+	/**
+	 * 上限を超えたため集計しなかった件数
+	 *
+	 * @return 件数
+	 */
+	public static long overflowCount() {
+		return OVERFLOW.get();
+	}
+
+	/**
+	 * 集計結果の取得(合計時間の多い順)
+	 *
+	 * @return 集計結果(画面名, クラス名, 処理名, 件数, 異常終了件数, 平均・最大・p50/p95/p99(ミリ秒))
+	 */
+	public static List<Map<String, Object>> snapshot() {
+
+		List<Timer> timers = new ArrayList<Timer>(TIMERS.values());
+		timers.sort((a, b) -> Long.compare(b.histogram.getTotalNanos(), a.histogram.getTotalNanos()));
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>(timers.size());
+		for (Timer t : timers) {
+			list.add(t.toMap());
+		}
+		return list;
+	}
+
+	/**
+	 * 集計結果の消去
+	 */
+	public static void reset() {
+		TIMERS.clear();
+		OVERFLOW.set(0);
+	}
+
+	/**
+	 * 集計用の処理名(埋め込まれた値を除く)
+	 *
+	 * @param process 処理名
+	 * @return 処理名
+	 */
+	static String normalize(String process) {
+		if (process == null || process.indexOf('(') < 0 && process.indexOf('（') < 0 && process.indexOf('[') < 0) {
+			return process;
+		}
+		return EMBEDDED_VALUE.matcher(process).replaceAll("");
+	}
+
+	/**
+	 * 集計キー
+	 *
+	 * @param screen 画面名
+	 * @param page クラス名
+	 * @param process 処理名
+	 * @return キー
+	 */
+	private static String key(String screen, String page, String process) {
+		return screen + '\t' + page + '\t' + process;
+	}
+
+	/**
+	 * 処理時間の集計(1処理分)
+	 */
+	private static class Timer {
+
+		final String screen;
+		final String page;
+		final String process;
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		Timer(String screen, String page, String process) {
+			this.screen = screen;
+			this.page = page;
+			this.process = process;
+		}
+
+		/**
+		 * 集計結果
+		 *
+		 * @return 項目名 → 値
+		 */
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("screen", screen);
+			map.put("class", page);
+			map.put("process", process);
+			map.putAll(histogram.toMap());
+			return map;
+		}
+	}
+}
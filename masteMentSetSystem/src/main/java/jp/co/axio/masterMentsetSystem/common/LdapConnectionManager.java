@@ -0,0 +1,269 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * LDAP接続管理
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.unboundid.ldap.sdk.BindResult;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPConnectionPoolStatistics;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.SingleServerSet;
+
+/**
+ * LDAP接続管理クラス
+ * 管理者でバインドした検索用の接続をプールし、ログインのたびに接続・管理者バインドを行わない。
+ * 利用者のパスワード確認は、プールの接続の認証状態を変えないよう、別の短時間の接続でバインドする。
+ * プールは初回使用時に作成する(LDAPサーバー停止中でも起動できるように)。
+ */
+@Component
+public class LdapConnectionManager {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "LDAP接続プール";
+
+	/** ホスト名 */
+	@Value("${config.login.ldap.hostname}")
+	private String host;
+	/** ポート */
+	@Value("${config.login.ldap.port}")
+	private int port;
+	/** 管理者DN */
+	@Value("${config.login.ldap.managerDn}")
+	private String managerDn;
+	/** 管理者パスワード */
+	@Value("${config.login.ldap.managerPass}")
+	private String managerPass;
+	/** 最小接続数 */
+	@Value("${config.login.ldap.pool.minSize:2}")
+	private int minSize;
+	/** 最大接続数 */
+	@Value("${config.login.ldap.pool.maxSize:10}")
+	private int maxSize;
+	/** 接続待ち時間(ミリ秒) */
+	@Value("${config.login.ldap.pool.maxWaitMillis:5000}")
+	private long maxWaitMillis;
+	/** 未使用接続の確認間隔(ミリ秒) */
+	@Value("${config.login.ldap.pool.healthCheckIntervalMillis:60000}")
+	private long healthCheckIntervalMillis;
+	/** 接続の最大使用時間(ミリ秒、0:無制限) */
+	@Value("${config.login.ldap.pool.maxConnectionAgeMillis:1800000}")
+	private long maxConnectionAgeMillis;
+	/** 接続タイムアウト(ミリ秒) */
+	@Value("${config.login.ldap.connectTimeoutMillis:5000}")
+	private int connectTimeoutMillis;
+	/** 応答タイムアウト(ミリ秒) */
+	@Value("${config.login.ldap.responseTimeoutMillis:10000}")
+	private long responseTimeoutMillis;
+
+	/** 接続プール(未作成の場合null) */
+	private volatile LDAPConnectionPool pool;
+	/** 接続先 */
+	private volatile SingleServerSet serverSet;
+
+	/** 接続取得の待ち時間合計(ナノ秒) */
+	private final AtomicLong borrowWaitNanos = new AtomicLong();
+	/** 接続取得の待ち時間最大(ナノ秒) */
+	private final AtomicLong borrowWaitMaxNanos = new AtomicLong();
+	/** 使用中の接続数 */
+	private final AtomicInteger active = new AtomicInteger();
+	/** 利用者バインドの失敗件数(パスワード誤り等) */
+	private final AtomicLong userBindFailures = new AtomicLong();
+	/** プール作成の失敗件数 */
+	private final AtomicLong poolCreateFailures = new AtomicLong();
+
+	/**
+	 * 管理者接続で検索する
+	 *
+	 * @param baseDn 検索ベース
+	 * @param scope 検索スコープ
+	 * @param filter 検索条件
+	 * @param attrs 取得する属性
+	 * @return 検索結果
+	 * @throws LDAPException
+	 */
+	public SearchResult search(String baseDn, SearchScope scope, Filter filter, String... attrs) throws LDAPException {
+
+		LDAPConnectionPool p = getPool();
+
+		for (int attempt = 1; ; attempt++) {
+			long start = System.nanoTime();
+			LDAPConnection conn = p.getConnection();
+			long wait = System.nanoTime() - start;
+			borrowWaitNanos.addAndGet(wait);
+			borrowWaitMax(wait);
+			active.incrementAndGet();
+
+			try {
+				SearchResult result = conn.search(baseDn, scope, filter, attrs);
+				p.releaseConnection(conn);
+				return result;
+			} catch (LDAPException e) {
+				// 接続異常の場合は破棄し、それ以外は再利用する
+				p.releaseConnectionAfterException(conn, e);
+				// 切断済みの接続だった場合、新しい接続で1回再実行する
+				if (attempt >= 2 || e.getResultCode().isConnectionUsable()) {
+					throw e;
+				}
+			} catch (RuntimeException e) {
+				p.releaseDefunctConnection(conn);
+				throw e;
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 利用者のDN・パスワードでバインドする(短時間の接続で行い、終了後に切断する)
+	 *
+	 * @param dn バインドDN
+	 * @param password パスワード
+	 * @return バインド結果
+	 * @throws LDAPException パスワード誤り(INVALID_CREDENTIALS)等
+	 */
+	public BindResult bindUser(String dn, String password) throws LDAPException {
+
+		getPool();
+
+		try (LDAPConnection conn = serverSet.getConnection()) {
+			return conn.bind(new SimpleBindRequest(dn, password));
+		} catch (LDAPException e) {
+			userBindFailures.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * 接続プールの統計情報
+	 *
+	 * @return 項目名 → 値
+	 */
+	public Map<String, Long> getStatistics() {
+
+		Map<String, Long> stats = new LinkedHashMap<String, Long>();
+		LDAPConnectionPool p = pool;
+		stats.put("active", (long) active.get());
+		stats.put("borrowWaitTotalMillis", TimeUnit.NANOSECONDS.toMillis(borrowWaitNanos.get()));
+		stats.put("borrowWaitMaxMillis", TimeUnit.NANOSECONDS.toMillis(borrowWaitMaxNanos.get()));
+		stats.put("userBindFailures", userBindFailures.get());
+		stats.put("poolCreateFailures", poolCreateFailures.get());
+		if (p != null) {
+			LDAPConnectionPoolStatistics ps = p.getConnectionPoolStatistics();
+			stats.put("available", (long) p.getCurrentAvailableConnections());
+			stats.put("checkouts", ps.getNumSuccessfulCheckouts());
+			stats.put("checkoutsAfterWaiting", ps.getNumSuccessfulCheckoutsAfterWaiting());
+			stats.put("failedCheckouts", ps.getNumFailedCheckouts());
+			stats.put("failedConnects", ps.getNumFailedConnectionAttempts());
+			stats.put("closedDefunct", ps.getNumConnectionsClosedDefunct());
+			stats.put("closedExpired", ps.getNumConnectionsClosedExpired());
+		}
+		return stats;
+	}
+
+	/**
+	 * 接続プールの統計情報を定期的にログ出力する
+	 */
+	@Scheduled(fixedDelayString = "${config.login.ldap.pool.statsLogMillis:300000}",
+			initialDelayString = "${config.login.ldap.pool.statsLogMillis:300000}")
+	public void logStatistics() {
+		if (pool != null) {
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), "統計情報", getStatistics().toString());
+		}
+	}
+
+	/**
+	 * 終了時に接続プールを閉じる
+	 */
+	@PreDestroy
+	public void close() {
+		LDAPConnectionPool p = pool;
+		pool = null;
+		if (p != null) {
+			p.close();
+		}
+	}
+
+	/**
+	 * 接続プール取得(未作成の場合は作成する)
+	 * 管理者のバインドに失敗した場合はLDAPException(INVALID_CREDENTIALS等)を投げ、次回再作成する。
+	 *
+	 * @return 接続プール
+	 * @throws LDAPException
+	 */
+	private LDAPConnectionPool getPool() throws LDAPException {
+
+		LDAPConnectionPool p = pool;
+		if (p != null) {
+			return p;
+		}
+
+		synchronized (this) {
+			if (pool != null) {
+				return pool;
+			}
+
+			LDAPConnectionOptions options = new LDAPConnectionOptions();
+			options.setConnectTimeoutMillis(connectTimeoutMillis);
+			options.setResponseTimeoutMillis(responseTimeoutMillis);
+			options.setUseKeepAlive(true);
+			SingleServerSet servers = new SingleServerSet(host, port, options);
+
+			try {
+				p = new LDAPConnectionPool(servers, new SimpleBindRequest(managerDn, managerPass), minSize, maxSize);
+			} catch (LDAPException e) {
+				poolCreateFailures.incrementAndGet();
+				LogService.system(LOG_TITLE, this.getClass().getSimpleName(), "接続プール作成", e.getResultCode() + " " + e.getMessage());
+				throw e;
+			}
+			p.setConnectionPoolName("login");
+			p.setMaxWaitTimeMillis(maxWaitMillis);
+			p.setMaxConnectionAgeMillis(maxConnectionAgeMillis);
+			p.setMinimumAvailableConnectionGoal(minSize);
+			// 未使用接続・例外発生後の接続をルートDSEの取得で確認する
+			p.setHealthCheck(new GetEntryLDAPConnectionPoolHealthCheck("", responseTimeoutMillis,
+					false, false, false, true, true));
+			p.setHealthCheckIntervalMillis(healthCheckIntervalMillis);
+
+			serverSet = servers;
+			pool = p;
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), "接続プール作成", host + ":" + port + " (" + minSize + "-" + maxSize + ")");
+			return p;
+		}
+	}
+
+	/**
+	 * 接続取得の待ち時間最大の更新
+	 *
+	 * @param wait 待ち時間(ナノ秒)
+	 */
+	private void borrowWaitMax(long wait) {
+		long max;
+		while (wait > (max = borrowWaitMaxNanos.get())) {
+			if (borrowWaitMaxNanos.compareAndSet(max, wait)) {
+				break;
+			}
+		}
+	}
+}
@@ -6,17 +6,59 @@
  ********************************************************************/
 package jp.co.axio.masterMentsetSystem.common;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
+import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
+import org.slf4j.helpers.MessageFormatter;
 
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+
+/**
+ * ログサービス
+ * 出力対象外のログ(logback.xmlでレベルをOFF等にしたもの)は、日時・メッセージの文字列を生成しない。
+ * ログの種類ごとに以下のロガーを使用する(logback.xmlで個別に出力有無を設定可能)。
+ * <ul>
+ * <li>デバッグログ(TRACE_INFO) : jp.co.axio.masterMentsetSystem.common.LogService.TRACE_INFO</li>
+ * <li>アクセスログ(GENERAL) : jp.co.axio.masterMentsetSystem.common.LogService.GENERAL</li>
+ * <li>運用ログ(SYSTEM_ERROR) : jp.co.axio.masterMentsetSystem.common.LogService.SYSTEM_ERROR</li>
+ * </ul>
+ * アクセスログの「開始」「正常終了」「異常終了」は LatencyMetrics で処理時間として集計する。
+ */
 public class LogService {
     protected final static Logger logger = LoggerFactory.getLogger(LogService.class);
 
+    /** デバッグログ用マーカー */
+    private static final Marker TRACE_INFO_MARKER = MarkerFactory.getMarker("TRACE_INFO");
+    /** アクセスログ用マーカー */
+    private static final Marker GENERAL_MARKER = MarkerFactory.getMarker("GENERAL");
+    /** 運用ログ用マーカー */
+    private static final Marker SYSTEM_ERROR_MARKER = MarkerFactory.getMarker("SYSTEM_ERROR");
+
+    /** デバッグログ用ロガー */
+    private static final Logger traceLogger = LoggerFactory.getLogger(LogService.class.getName() + ".TRACE_INFO");
+    /** アクセスログ用ロガー */
+    private static final Logger generalLogger = LoggerFactory.getLogger(LogService.class.getName() + ".GENERAL");
+    /** 運用ログ用ロガー */
+    private static final Logger systemLogger = LoggerFactory.getLogger(LogService.class.getName() + ".SYSTEM_ERROR");
+
+    /** 日時フォーマット */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    /** 日時文字列(秒単位で再利用する) */
+    private static volatile FormattedTime formattedTime = new FormattedTime(Long.MIN_VALUE, "");
+
     /**
     * デバッグログ出力
     *
@@ -28,13 +70,55 @@ public class LogService {
     * @throws
     */
     public static void debug(String userId, String fromPage, String processContent, String result) {
-        Marker traceInfoMarker = MarkerFactory.getMarker("TRACE_INFO");
-        String infoBuilder = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime()) + ",";
-        infoBuilder += userId + ",";
-        infoBuilder += fromPage + ",";
-        infoBuilder += processContent + ",";
-        infoBuilder += result;
-        logger.info(traceInfoMarker, infoBuilder);
+        if (!isDebugEnabled()) {
+            return;
+        }
+        traceLogger.info(TRACE_INFO_MARKER, build(userId, fromPage, processContent, result));
+    }
+
+    /**
+    * デバッグログ出力(出力対象の場合のみ結果文字列を生成する)
+    * セッション内容の文字列化など、生成に時間がかかる場合に使用する。
+    *
+    * @param userId
+    * @param fromPage
+    * @param processContent
+    * @param result
+    * @return
+    * @throws
+    */
+    public static void debug(String userId, String fromPage, String processContent, Supplier<String> result) {
+        if (!isDebugEnabled()) {
+            return;
+        }
+        traceLogger.info(TRACE_INFO_MARKER, build(userId, fromPage, processContent, result.get()));
+    }
+
+    /**
+    * デバッグログ出力(結果はSLF4J形式の「{}」に引数を埋め込み、出力対象の場合のみ生成する)
+    *
+    * @param userId
+    * @param fromPage
+    * @param processContent
+    * @param format 結果(「{}」を引数で置換)
+    * @param args 引数
+    * @return
+    * @throws
+    */
+    public static void debug(String userId, String fromPage, String processContent, String format, Object... args) {
+        if (!isDebugEnabled()) {
+            return;
+        }
+        traceLogger.info(TRACE_INFO_MARKER, build(userId, fromPage, processContent, format(format, args)));
+    }
+
+    /**
+    * デバッグログの出力有無
+    *
+    * @return true:出力する
+    */
+    public static boolean isDebugEnabled() {
+        return traceLogger.isInfoEnabled(TRACE_INFO_MARKER);
     }
 
     /**
@@ -48,13 +132,30 @@ public class LogService {
     * @throws
     */
     public static void info(String userId, String fromPage, String processContent, String result) {
-        Marker runningInfoMarker = MarkerFactory.getMarker("GENERAL");
-        String infoBuilder = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime()) + ",";
-        infoBuilder += userId + ",";
-        infoBuilder += fromPage + ",";
-        infoBuilder += processContent + ",";
-        infoBuilder += result;
-        logger.info(runningInfoMarker, infoBuilder);
+        LatencyMetrics.onLog(userId, fromPage, processContent, result);
+        if (!generalLogger.isInfoEnabled(GENERAL_MARKER)) {
+            return;
+        }
+        generalLogger.info(GENERAL_MARKER, build(userId, fromPage, processContent, result));
+    }
+
+    /**
+    * アクセスログ出力(結果はSLF4J形式の「{}」に引数を埋め込み、出力対象の場合のみ生成する)
+    *
+    * @param userId
+    * @param fromPage
+    * @param processContent
+    * @param format 結果(「{}」を引数で置換)
+    * @param args 引数
+    * @return
+    * @throws
+    */
+    public static void info(String userId, String fromPage, String processContent, String format, Object... args) {
+        LatencyMetrics.onLog(userId, fromPage, processContent, format);
+        if (!generalLogger.isInfoEnabled(GENERAL_MARKER)) {
+            return;
+        }
+        generalLogger.info(GENERAL_MARKER, build(userId, fromPage, processContent, format(format, args)));
     }
 
     /**
@@ -68,13 +169,10 @@ public class LogService {
     * @throws
     */
     public static void system(String userId, String fromPage, String processContent, String result) {
-        Marker systemErrorMarker = MarkerFactory.getMarker("SYSTEM_ERROR");
-        String systemBuilder = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime()) + ",";
-        systemBuilder += userId + ",";
-        systemBuilder += fromPage + ",";
-        systemBuilder += processContent + ",";
-        systemBuilder += result;
-        logger.error(systemErrorMarker, systemBuilder);
+        if (!systemLogger.isErrorEnabled(SYSTEM_ERROR_MARKER)) {
+            return;
+        }
+        systemLogger.error(SYSTEM_ERROR_MARKER, build(userId, fromPage, processContent, result));
     }
 
     /**
@@ -85,11 +183,109 @@ public class LogService {
      * @throws
      */
     public static void system(String exceptionMessage) {
-        Marker systemErrorMarker = MarkerFactory.getMarker("SYSTEM_ERROR");
-        String systemBuilder = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(Calendar.getInstance().getTime()) + ",";
-        systemBuilder += exceptionMessage;
-        logger.error(systemErrorMarker, systemBuilder);
+        if (!systemLogger.isErrorEnabled(SYSTEM_ERROR_MARKER)) {
+            return;
+        }
+        String time = now();
+        StringBuilder sb = new StringBuilder(time.length() + 1 + (exceptionMessage == null ? 4 : exceptionMessage.length()));
+        sb.append(time).append(',').append(exceptionMessage);
+        systemLogger.error(SYSTEM_ERROR_MARKER, sb.toString());
+    }
+
+    /**
+     * 非同期出力の統計情報(logback.xmlのCountingAsyncAppenderごと)
+     *
+     * @return 「アペンダー名.項目名」 → 値
+     */
+    public static Map<String, Long> getAsyncAppenderStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+        if (!(factory instanceof LoggerContext)) {
+            return stats;
+        }
+        ch.qos.logback.classic.Logger root = ((LoggerContext) factory).getLogger(Logger.ROOT_LOGGER_NAME);
+        for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext();) {
+            Appender<ILoggingEvent> appender = it.next();
+            if (appender instanceof CountingAsyncAppender) {
+                CountingAsyncAppender async = (CountingAsyncAppender) appender;
+                stats.put(async.getName() + ".queued", (long) async.getNumberOfElementsInQueue());
+                stats.put(async.getName() + ".maxQueued", (long) async.getMaxQueued());
+                stats.put(async.getName() + ".dropped", async.getDroppedCount());
+                stats.put(async.getName() + ".discarded", async.getDiscardedCount());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 出力文字列の生成(日時,userId,fromPage,processContent,result)
+     *
+     * @param userId
+     * @param fromPage
+     * @param processContent
+     * @param result
+     * @return 出力文字列
+     */
+    private static String build(String userId, String fromPage, String processContent, String result) {
+        String time = now();
+        StringBuilder sb = new StringBuilder(time.length() + 4
+                + length(userId) + length(fromPage) + length(processContent) + length(result));
+        sb.append(time).append(',')
+                .append(userId).append(',')
+                .append(fromPage).append(',')
+                .append(processContent).append(',')
+                .append(result);
+        return sb.toString();
+    }
+
+    /**
+     * 「{}」を引数で置換
+     *
+     * @param format 書式
+     * @param args 引数
+     * @return 置換結果
+     */
+    private static String format(String format, Object... args) {
+        return MessageFormatter.arrayFormat(format, args).getMessage();
     }
 
+    /**
+     * 文字列長(nullの場合は"null"の長さ)
+     *
+     * @param str 文字列
+     * @return 長さ
+     */
+    private static int length(String str) {
+        return str == null ? 4 : str.length();
+    }
 
+    /**
+     * 現在日時の文字列(同じ秒の間は同じ文字列を返す)
+     *
+     * @return yyyy/MM/dd HH:mm:ss
+     */
+    private static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        FormattedTime cached = formattedTime;
+        if (cached.second != second) {
+            cached = new FormattedTime(second, DATE_FORMAT.format(Instant.ofEpochSecond(second)));
+            formattedTime = cached;
+        }
+        return cached.text;
+    }
+
+    /**
+     * 秒と日時文字列
+     */
+    private static class FormattedTime {
+        /** エポック秒 */
+        final long second;
+        /** 日時文字列 */
+        final String text;
+
+        FormattedTime(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
 }
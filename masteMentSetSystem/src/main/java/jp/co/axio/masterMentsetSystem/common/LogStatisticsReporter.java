@@ -0,0 +1,46 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 非同期ログ出力の統計情報
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.Map;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 非同期ログ出力の統計情報出力クラス
+ * ログの破棄件数が前回から増えた場合のみ、運用ログに統計情報を出力する。
+ */
+@Component
+public class LogStatisticsReporter {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "ログ出力";
+
+	/** 前回出力時の破棄件数合計 */
+	private long lastLost = 0;
+
+	/**
+	 * 統計情報の確認・出力
+	 */
+	@Scheduled(fixedDelayString = "${config.log.statsCheckMillis:60000}",
+			initialDelayString = "${config.log.statsCheckMillis:60000}")
+	public synchronized void report() {
+
+		Map<String, Long> stats = LogService.getAsyncAppenderStatistics();
+		long lost = 0;
+		for (Map.Entry<String, Long> e : stats.entrySet()) {
+			if (e.getKey().endsWith(".dropped") || e.getKey().endsWith(".discarded")) {
+				lost += e.getValue();
+			}
+		}
+		if (lost > lastLost) {
+			LogService.system(LOG_TITLE, this.getClass().getSimpleName(), "非同期出力", "ログ破棄あり " + stats);
+		}
+		lastLost = lost;
+	}
+}
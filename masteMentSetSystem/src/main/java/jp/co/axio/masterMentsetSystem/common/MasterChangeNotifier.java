@@ -0,0 +1,244 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * マスタ変更通知
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * マスタ変更通知クラス
+ * 複数のAPサーバーで動作する場合に、他のサーバーで更新したマスタのキャッシュを無効にする。
+ * <ul>
+ * <li>マスタを更新した処理は、更新と同じトランザクションで master_changed チャネルに「テーブル名:キー」を通知する(コミット時に送信される)。</li>
+ * <li>各サーバーはコネクションプールとは別の専用接続で LISTEN し、受信した通知を登録された処理(キャッシュの削除)に渡す。</li>
+ * <li>接続が切れた場合は再接続し、切れている間の通知は受信できないため、全テーブルの全キーの変更として扱う。</li>
+ * </ul>
+ * 通知を受信できない場合に備え、各キャッシュは従来どおり有効期間・版の確認でも読み込み直すこと。
+ * 画面以外(SQL等)でマスタを更新する運用の場合は、db/master_changed_notify.sql のトリガーをDBに登録する。
+ */
+@Component
+public class MasterChangeNotifier implements ApplicationRunner {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "マスタ変更通知";
+	/** チャネル名 */
+	public static final String CHANNEL = "master_changed";
+	/** 全キー(テーブル全体の変更) */
+	public static final String ALL_KEYS = "*";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/** 接続先 */
+	@Value("${spring.datasource.url}")
+	private String url;
+	/** ユーザー名 */
+	@Value("${spring.datasource.username}")
+	private String username;
+	/** パスワード */
+	@Value("${spring.datasource.password}")
+	private String password;
+
+	/* 変更通知を使用するか */
+	@Value("${config.masterchange.enabled:true}")
+	private boolean enabled;
+
+	/** 通知の待ち時間(ミリ秒、この間隔で停止要求・接続を確認する) */
+	@Value("${config.masterchange.waitMillis:1000}")
+	private int waitMillis;
+
+	/** 接続確認の間隔(ミリ秒) */
+	@Value("${config.masterchange.keepAliveMillis:30000}")
+	private long keepAliveMillis;
+
+	/** 再接続の間隔(ミリ秒) */
+	@Value("${config.masterchange.reconnectMillis:5000}")
+	private long reconnectMillis;
+
+	/** テーブル名(小文字) → 変更時の処理(引数はキー、全キーの場合 ALL_KEYS) */
+	private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<String, List<Consumer<String>>>();
+
+	/** 受信スレッド */
+	private Thread thread;
+	/** 受信中か(停止要求でfalse) */
+	private volatile boolean running;
+	/** 専用接続で LISTEN 中か */
+	private volatile boolean connected;
+
+	/**
+	 * 起動時に受信スレッドを開始する(DBに接続できない場合も起動は継続し、再接続を繰り返す)
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!enabled) {
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), "受信開始", "対象外(設定無効)");
+			return;
+		}
+		running = true;
+		thread = new Thread(this::listen, "masterChangeListener");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 終了時に受信スレッドを停止する
+	 */
+	@PreDestroy
+	public void close() {
+		running = false;
+		Thread t = thread;
+		if (t != null) {
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * 変更時の処理の登録
+	 * 処理は受信スレッドで呼び出すため、短時間で終わる処理(キャッシュの削除等)とすること。
+	 *
+	 * @param table テーブル名
+	 * @param listener 変更時の処理(引数はキー、全キーの場合 ALL_KEYS)
+	 */
+	public void subscribe(String table, Consumer<String> listener) {
+		listeners.computeIfAbsent(StringUtils.lowerCase(table), k -> new CopyOnWriteArrayList<Consumer<String>>()).add(listener);
+	}
+
+	/**
+	 * 変更の通知
+	 * トランザクション中の場合はコミット時に送信され、ロールバックした場合は送信されない。
+	 * 自サーバーにも通知されるが、自サーバーのキャッシュは通知を待たずに更新処理で無効にすること。
+	 *
+	 * @param table テーブル名
+	 * @param key キー(複数列の場合は呼び出し元で連結する、nullの場合は全キー)
+	 */
+	public void publish(String table, String key) {
+		if (!enabled) {
+			return;
+		}
+		jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL,
+				StringUtils.lowerCase(table) + ":" + StringUtils.defaultString(key, ALL_KEYS));
+	}
+
+	/**
+	 * 専用接続で LISTEN 中か
+	 *
+	 * @return true:受信中
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * 受信処理(停止要求まで接続・受信・再接続を繰り返す)
+	 */
+	private void listen() {
+		boolean first = true;
+		while (running) {
+			try (Connection conn = DriverManager.getConnection(url, username, password)) {
+				try (Statement st = conn.createStatement()) {
+					st.execute("LISTEN " + CHANNEL);
+				}
+				PGConnection pg = conn.unwrap(PGConnection.class);
+				connected = true;
+				LogService.info(LOG_TITLE, this.getClass().getSimpleName(), "受信開始", "正常終了");
+				if (!first) {
+					// 切断中の変更は受信できないため、すべて変更されたものとして扱う
+					dispatchAll();
+				}
+				first = false;
+				long checkedAt = System.nanoTime();
+				while (running) {
+					PGNotification[] notifications = pg.getNotifications(waitMillis);
+					if (notifications != null) {
+						for (PGNotification notification : notifications) {
+							dispatch(notification.getParameter());
+						}
+					}
+					if (System.nanoTime() - checkedAt >= keepAliveMillis * 1000000L) {
+						// 応答のない接続を検出するため、通知がない間も定期的に問い合わせる
+						try (Statement st = conn.createStatement()) {
+							st.execute("SELECT 1");
+						}
+						checkedAt = System.nanoTime();
+					}
+				}
+			} catch (SQLException e) {
+				if (running) {
+					LogService.system(LOG_TITLE, this.getClass().getSimpleName(), "受信", e.getMessage());
+				}
+			} finally {
+				connected = false;
+			}
+			if (running) {
+				try {
+					Thread.sleep(reconnectMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 受信した通知を登録された処理に渡す
+	 *
+	 * @param payload テーブル名:キー
+	 */
+	private void dispatch(String payload) {
+		String table = StringUtils.substringBefore(payload, ":");
+		String key = StringUtils.defaultIfEmpty(StringUtils.substringAfter(payload, ":"), ALL_KEYS);
+		LogService.debug(LOG_TITLE, this.getClass().getSimpleName(), "受信", "テーブル {}, キー {}", table, key);
+		List<Consumer<String>> list = listeners.get(StringUtils.lowerCase(table));
+		if (list != null) {
+			for (Consumer<String> listener : list) {
+				accept(listener, key);
+			}
+		}
+	}
+
+	/**
+	 * 全テーブルの全キーの変更として登録された処理に渡す
+	 */
+	private void dispatchAll() {
+		for (List<Consumer<String>> list : listeners.values()) {
+			for (Consumer<String> listener : list) {
+				accept(listener, ALL_KEYS);
+			}
+		}
+	}
+
+	/**
+	 * 変更時の処理の呼び出し(例外は記録し、他の処理は継続する)
+	 */
+	private void accept(Consumer<String> listener, String key) {
+		try {
+			listener.accept(key);
+		} catch (RuntimeException e) {
+			LogService.system(LOG_TITLE, this.getClass().getSimpleName(), "変更時処理", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * N-gram転置インデックス
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * N-gram(2文字)転置インデックスクラス
+ * 項目値の2文字の組ごとに、その組を含む行番号(昇順)を保持する。
+ * 部分一致検索では検索文字列の全ての2文字の組を含む行番号を候補として返すため、
+ * 候補行は呼び出し側で実際の値と照合すること。
+ * 作成後は変更しない(複数スレッドから参照可)。
+ */
+public class NgramIndex {
+
+	/** 空の行番号 */
+	private static final int[] EMPTY = new int[0];
+
+	/** 2文字の組 → 行番号(昇順) */
+	private final Map<Integer, int[]> postings;
+
+	/**
+	 * 項目値の配列(添字が行番号)からインデックスを作成する
+	 *
+	 * @param values 項目値(nullは対象外)
+	 */
+	public NgramIndex(String[] values) {
+
+		// 1回目：組ごとの行数を数える
+		Map<Integer, int[]> counts = new HashMap<Integer, int[]>();
+		for (int row = 0; row < values.length; row++) {
+			String val = values[row];
+			if (val == null) {
+				continue;
+			}
+			int prev = -1;
+			for (int i = 0; i + 1 < val.length(); i++) {
+				int key = key(val.charAt(i), val.charAt(i + 1));
+				// 同じ行で続けて同じ組の場合は数えない(残りの重複は2回目で除く)
+				if (key == prev) {
+					continue;
+				}
+				prev = key;
+				counts.computeIfAbsent(key, k -> new int[1])[0]++;
+			}
+		}
+
+		// 2回目：行番号を詰める
+		Map<Integer, int[]> lists = new HashMap<Integer, int[]>(counts.size() * 2);
+		Map<Integer, int[]> sizes = new HashMap<Integer, int[]>(counts.size() * 2);
+		for (Map.Entry<Integer, int[]> e : counts.entrySet()) {
+			lists.put(e.getKey(), new int[e.getValue()[0]]);
+			sizes.put(e.getKey(), new int[1]);
+		}
+		for (int row = 0; row < values.length; row++) {
+			String val = values[row];
+			if (val == null) {
+				continue;
+			}
+			for (int i = 0; i + 1 < val.length(); i++) {
+				int key = key(val.charAt(i), val.charAt(i + 1));
+				int[] list = lists.get(key);
+				int[] size = sizes.get(key);
+				// 行番号は昇順に追加するため、末尾と同じなら重複
+				if (size[0] > 0 && list[size[0] - 1] == row) {
+					continue;
+				}
+				list[size[0]++] = row;
+			}
+		}
+
+		this.postings = new HashMap<Integer, int[]>(lists.size() * 2);
+		for (Map.Entry<Integer, int[]> e : lists.entrySet()) {
+			int size = sizes.get(e.getKey())[0];
+			int[] list = e.getValue();
+			this.postings.put(e.getKey(), size < list.length ? Arrays.copyOf(list, size) : list);
+		}
+	}
+
+	/**
+	 * 部分一致検索の候補行番号を取得する
+	 *
+	 * @param query 検索文字列
+	 * @return 候補行番号(昇順)、検索文字列が2文字未満で絞り込めない場合null
+	 */
+	public int[] candidates(String query) {
+
+		if (query == null || query.length() < 2) {
+			return null;
+		}
+
+		int[][] lists = new int[query.length() - 1][];
+		for (int i = 0; i + 1 < query.length(); i++) {
+			lists[i] = postings.get(key(query.charAt(i), query.charAt(i + 1)));
+			if (lists[i] == null) {
+				return EMPTY;
+			}
+		}
+
+		// 行数の少ない組から絞り込む
+		Arrays.sort(lists, (x, y) -> Integer.compare(x.length, y.length));
+		int[] result = lists[0];
+		for (int i = 1; i < lists.length && result.length > 0; i++) {
+			result = intersect(result, lists[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * 昇順の行番号の積集合
+	 *
+	 * @param a 行番号(昇順)
+	 * @param b 行番号(昇順)
+	 * @return 両方に含まれる行番号(昇順)
+	 */
+	public static int[] intersect(int[] a, int[] b) {
+
+		if (a.length > b.length) {
+			int[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+
+		int[] result = new int[a.length];
+		int n = 0;
+
+		// 件数の差が大きい場合、少ない方の行番号を二分探索する
+		if (a.length * 16 < b.length) {
+			int from = 0;
+			for (int row : a) {
+				int pos = Arrays.binarySearch(b, from, b.length, row);
+				if (pos >= 0) {
+					result[n++] = row;
+					from = pos + 1;
+				} else {
+					from = -pos - 1;
+				}
+			}
+			return n == result.length ? result : Arrays.copyOf(result, n);
+		}
+
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * 昇順の行番号の和集合
+	 *
+	 * @param a 行番号(昇順)
+	 * @param b 行番号(昇順)
+	 * @return どちらかに含まれる行番号(昇順)
+	 */
+	public static int[] union(int[] a, int[] b) {
+
+		int[] result = new int[a.length + b.length];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j >= b.length || (i < a.length && a[i] < b[j])) {
+				result[n++] = a[i++];
+			} else if (i >= a.length || a[i] > b[j]) {
+				result[n++] = b[j++];
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * 2文字の組のキー
+	 *
+	 * @param c1 1文字目
+	 * @param c2 2文字目
+	 * @return キー
+	 */
+	private static int key(char c1, char c2) {
+		return (c1 << 16) | c2;
+	}
+}
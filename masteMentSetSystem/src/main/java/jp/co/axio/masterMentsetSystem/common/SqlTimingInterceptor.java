@@ -0,0 +1,421 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * SQL実行時間計測
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * SQL実行時間計測(MyBatisプラグイン)
+ * 全Mapperの実行について、Mapperの文ID(namespace.id)ごとに処理時間の分布と件数(取得件数・更新件数)を集計する。
+ * 一定時間を超えたSQLは直近の一定件数を保持する(パラメータの値は保持せず、パラメータ名のみ保持する)。
+ * 設定した場合、さらに時間を超えたSELECTについて EXPLAIN (ANALYZE, BUFFERS) の結果を別スレッドで取得する。
+ * バッチ実行(ExecutorType.BATCH)の更新は update ではSQLを実行しないため集計せず、
+ * flushStatements の処理時間と更新件数(BatchResult)を文IDごとに集計する。
+ * Interceptor のBeanは mybatis-spring-boot-starter により SqlSessionFactory に登録される。
+ */
+@Component
+@Intercepts({
+		@Signature(type = Executor.class, method = "query",
+				args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+		@Signature(type = Executor.class, method = "query",
+				args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class }),
+		@Signature(type = Executor.class, method = "update",
+				args = { MappedStatement.class, Object.class }),
+		@Signature(type = Executor.class, method = "flushStatements", args = {}) })
+public class SqlTimingInterceptor implements Interceptor {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "SQL実行";
+	/** ログ出力用処理名 */
+	private static final String OWN_NAME = "SqlTimingInterceptor";
+	/** 日時の表示形式 */
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS");
+	/** SQLの空白・改行 */
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	/** 実行計画中の文字列リテラル(パラメータの値を含むため伏せる) */
+	private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+	/** 計測の有効/無効 */
+	@Value("${config.sql.timing.enabled:true}")
+	private boolean enabled;
+	/** 低速SQLとして保持する処理時間(ミリ秒) */
+	@Value("${config.sql.slowMillis:1000}")
+	private long slowMillis;
+	/** 低速SQLの保持件数 */
+	@Value("${config.sql.slowLogSize:100}")
+	private int slowLogSize;
+	/** 実行計画を取得する処理時間(ミリ秒、0以下の場合は取得しない) */
+	@Value("${config.sql.explain.thresholdMillis:0}")
+	private long explainThresholdMillis;
+	/** 同じ文IDの実行計画を再取得するまでの間隔(ミリ秒) */
+	@Value("${config.sql.explain.intervalMillis:600000}")
+	private long explainIntervalMillis;
+
+	/** 実行計画の取得用(Interceptor は DataSource より先に生成されるため遅延取得する) */
+	@Autowired
+	private ObjectProvider<DataSource> dataSource;
+
+	/** 文ID → 集計 */
+	private final Map<String, Statement> statements = new ConcurrentHashMap<String, Statement>();
+	/** 低速SQL(古いものから) */
+	private final ArrayDeque<SlowStatement> slowStatements = new ArrayDeque<SlowStatement>();
+	/** 文ID → 前回の実行計画の取得時刻(System.nanoTime) */
+	private final Map<String, Long> lastExplain = new ConcurrentHashMap<String, Long>();
+	/** 実行計画の取得スレッド(1本、待ち件数を超えたものは取得しない) */
+	private final ExecutorService explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(10), r -> {
+				Thread t = new Thread(r, "sqlExplain");
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.AbortPolicy());
+
+	/**
+	 * 実行時間の計測
+	 *
+	 * @param invocation 実行対象
+	 * @return 実行結果
+	 * @throws Throwable
+	 */
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+
+		if (!enabled) {
+			return invocation.proceed();
+		}
+		if (invocation.getArgs().length == 0) {
+			return interceptFlush(invocation);
+		}
+		long start = System.nanoTime();
+		boolean success = false;
+		Object result = null;
+		try {
+			result = invocation.proceed();
+			success = true;
+			return result;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			Object[] args = invocation.getArgs();
+			MappedStatement ms = (MappedStatement) args[0];
+			// バッチに追加しただけの更新は集計しない(flushStatements で集計する)
+			if (!Integer.valueOf(BatchExecutor.BATCH_UPDATE_RETURN_VALUE).equals(result)) {
+				long rows = rows(result);
+				statements.computeIfAbsent(ms.getId(), Statement::new).record(elapsed, success, rows);
+				if (elapsed >= TimeUnit.MILLISECONDS.toNanos(slowMillis)) {
+					Object parameter = args[1];
+					onSlow(ms, parameter, args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(parameter), elapsed, rows, success);
+				}
+			}
+		}
+	}
+
+	/**
+	 * バッチ実行の計測
+	 * 処理時間は実行した文のパラメータ件数の比率で文IDごとに按分し、件数は更新件数(不明な件数を除く)の合計とする。
+	 * 異常終了の場合は実行した文が分からないため集計しない。
+	 *
+	 * @param invocation 実行対象(flushStatements)
+	 * @return 実行結果
+	 * @throws Throwable
+	 */
+	private Object interceptFlush(Invocation invocation) throws Throwable {
+
+		long start = System.nanoTime();
+		Object result = invocation.proceed();
+		long elapsed = System.nanoTime() - start;
+		if (!(result instanceof List) || ((List<?>) result).isEmpty()) {
+			return result;
+		}
+		List<?> batches = (List<?>) result;
+		long parameters = 0;
+		for (Object batch : batches) {
+			parameters += Math.max(((BatchResult) batch).getParameterObjects().size(), 1);
+		}
+		for (Object o : batches) {
+			BatchResult batch = (BatchResult) o;
+			long share = elapsed * Math.max(batch.getParameterObjects().size(), 1) / parameters;
+			long rows = 0;
+			for (int count : batch.getUpdateCounts()) {
+				rows += Math.max(count, 0);
+			}
+			MappedStatement ms = batch.getMappedStatement();
+			statements.computeIfAbsent(ms.getId(), Statement::new).record(share, true, rows);
+			if (share >= TimeUnit.MILLISECONDS.toNanos(slowMillis)) {
+				Object parameter = batch.getParameterObjects().isEmpty() ? null : batch.getParameterObjects().get(0);
+				onSlow(ms, parameter, ms.getBoundSql(parameter), share, rows, true);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 取得件数・更新件数
+	 *
+	 * @param result 実行結果
+	 * @return 件数(不明な場合0)
+	 */
+	private static long rows(Object result) {
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof Number) {
+			return ((Number) result).longValue();
+		}
+		return 0;
+	}
+
+	/**
+	 * 低速SQLの記録
+	 *
+	 * @param ms Mapperの文
+	 * @param parameter パラメータ
+	 * @param boundSql 実行したSQL
+	 * @param elapsed 処理時間(ナノ秒)
+	 * @param rows 件数
+	 * @param success true:正常終了
+	 */
+	private void onSlow(MappedStatement ms, Object parameter, BoundSql boundSql, long elapsed, long rows, boolean success) {
+
+		List<String> parameterNames = new ArrayList<String>();
+		for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+			parameterNames.add(mapping.getProperty());
+		}
+		SlowStatement slow = new SlowStatement(ms.getId(), LocalDateTime.now().format(TIME_FORMAT),
+				LatencyHistogram.millis(elapsed), rows, success,
+				WHITESPACE.matcher(boundSql.getSql()).replaceAll(" ").trim(), parameterNames);
+		synchronized (slowStatements) {
+			while (slowStatements.size() >= slowLogSize && !slowStatements.isEmpty()) {
+				slowStatements.pollFirst();
+			}
+			if (slowLogSize > 0) {
+				slowStatements.addLast(slow);
+			}
+		}
+		LogService.info(LOG_TITLE, OWN_NAME, ms.getId(), "低速SQL {} ms, {} 件", slow.elapsedMillis, rows);
+
+		if (explainThresholdMillis > 0 && success && ms.getSqlCommandType() == SqlCommandType.SELECT
+				&& elapsed >= TimeUnit.MILLISECONDS.toNanos(explainThresholdMillis) && claimExplain(ms.getId())) {
+			try {
+				explainExecutor.execute(() -> explain(ms, parameter, boundSql, slow));
+			} catch (RejectedExecutionException e) {
+				lastExplain.remove(ms.getId());
+			}
+		}
+	}
+
+	/**
+	 * 実行計画の取得要否(文IDごとに間隔を空ける)
+	 *
+	 * @param id 文ID
+	 * @return true:取得する
+	 */
+	private boolean claimExplain(String id) {
+		long now = System.nanoTime();
+		Long previous = lastExplain.get(id);
+		if (previous != null && now - previous < TimeUnit.MILLISECONDS.toNanos(explainIntervalMillis)) {
+			return false;
+		}
+		return previous == null ? lastExplain.putIfAbsent(id, now) == null : lastExplain.replace(id, previous, now);
+	}
+
+	/**
+	 * EXPLAIN (ANALYZE, BUFFERS) の取得
+	 * 元のSQLと同じパラメータで再実行するため、SELECTのみを対象とし、読み取り専用・ロールバックで実行する。
+	 *
+	 * @param ms Mapperの文
+	 * @param parameter パラメータ
+	 * @param boundSql 実行したSQL
+	 * @param slow 結果の格納先
+	 */
+	private void explain(MappedStatement ms, Object parameter, BoundSql boundSql, SlowStatement slow) {
+
+		DataSource ds = dataSource.getIfAvailable();
+		if (ds == null) {
+			return;
+		}
+		try (Connection con = ds.getConnection()) {
+			con.setAutoCommit(false);
+			con.setReadOnly(true);
+			try (PreparedStatement ps = con.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + boundSql.getSql())) {
+				new DefaultParameterHandler(ms, parameter, boundSql).setParameters(ps);
+				StringBuilder plan = new StringBuilder();
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						plan.append(rs.getString(1)).append('\n');
+					}
+				}
+				slow.plan = LITERAL.matcher(plan).replaceAll("'***'");
+			} finally {
+				con.rollback();
+				con.setReadOnly(false);
+				con.setAutoCommit(true);
+			}
+			LogService.debug(LOG_TITLE, OWN_NAME, ms.getId(), () -> "実行計画\n" + slow.plan);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, ms.getId(), "実行計画取得エラー " + e.getMessage());
+		}
+	}
+
+	/**
+	 * 集計結果の取得(合計時間の多い順)
+	 *
+	 * @return 文ID, 件数, 異常終了件数, 平均・最大・p50/p95/p99(ミリ秒), 取得・更新件数の合計・最大
+	 */
+	public List<Map<String, Object>> snapshot() {
+		List<Statement> list = new ArrayList<Statement>(statements.values());
+		list.sort((a, b) -> Long.compare(b.histogram.getTotalNanos(), a.histogram.getTotalNanos()));
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(list.size());
+		for (Statement s : list) {
+			result.add(s.toMap());
+		}
+		return result;
+	}
+
+	/**
+	 * 低速SQLの取得(新しい順)
+	 *
+	 * @return 文ID, 日時, 処理時間, 件数, SQL, パラメータ名, 実行計画
+	 */
+	public List<Map<String, Object>> slowStatements() {
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		synchronized (slowStatements) {
+			slowStatements.descendingIterator().forEachRemaining(s -> result.add(s.toMap()));
+		}
+		return result;
+	}
+
+	/**
+	 * 集計結果の消去
+	 */
+	public void reset() {
+		statements.clear();
+		synchronized (slowStatements) {
+			slowStatements.clear();
+		}
+		lastExplain.clear();
+	}
+
+	/**
+	 * 終了処理
+	 */
+	@PreDestroy
+	public void close() {
+		explainExecutor.shutdownNow();
+	}
+
+	/**
+	 * 文IDごとの集計
+	 */
+	private static class Statement {
+
+		final String id;
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final LongAdder rows = new LongAdder();
+		volatile long maxRows;
+
+		Statement(String id) {
+			this.id = id;
+		}
+
+		void record(long nanos, boolean success, long n) {
+			histogram.record(nanos, success);
+			rows.add(n);
+			if (n > maxRows) {
+				maxRows = n;
+			}
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("statement", id);
+			map.putAll(histogram.toMap());
+			map.put("rows", rows.sum());
+			map.put("maxRows", maxRows);
+			return map;
+		}
+	}
+
+	/**
+	 * 低速SQL
+	 */
+	private static class SlowStatement {
+
+		final String id;
+		final String time;
+		final double elapsedMillis;
+		final long rows;
+		final boolean success;
+		final String sql;
+		final List<String> parameters;
+		/** 実行計画(取得した場合) */
+		volatile String plan;
+
+		SlowStatement(String id, String time, double elapsedMillis, long rows, boolean success, String sql,
+				List<String> parameters) {
+			this.id = id;
+			this.time = time;
+			this.elapsedMillis = elapsedMillis;
+			this.rows = rows;
+			this.success = success;
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("statement", id);
+			map.put("time", time);
+			map.put("elapsedMillis", elapsedMillis);
+			map.put("rows", rows);
+			map.put("success", success);
+			map.put("sql", sql);
+			map.put("parameters", parameters);
+			map.put("plan", plan);
+			return map;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 部分一致検索用インデックス管理
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 部分一致検索用インデックス管理クラス
+ * 起動時に pg_trgm 拡張と db/pg_trgm_index.sql のGINインデックスの作成状況を確認し、ログに出力する。
+ * 拡張の登録・インデックスの作成は書き込みを止めず権限も必要なため、DB管理者が db/pg_trgm_index.sql を実行する
+ * (アプリケーションからはDDLを実行しない)。
+ * 未作成の場合は通常のLIKE検索(全件走査)のまま動作し、確認に失敗しても起動は継続する。
+ */
+@Component
+public class TrigramIndexManager implements ApplicationRunner {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "部分一致検索インデックス";
+	/** ログ出力用処理名 */
+	private static final String PROCESS = "インデックス確認";
+	/** インデックス定義ファイル */
+	private static final String INDEX_SCRIPT = "db/pg_trgm_index.sql";
+	/** インデックス名(定義ファイルの CREATE INDEX 文から取得する) */
+	private static final Pattern INDEX_NAME = Pattern.compile(
+			"(?i)^CREATE\\s+INDEX\\s+(?:CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/* pg_trgmインデックスの作成状況を確認するか */
+	@Value("${config.search.trigram.enabled:true}")
+	private boolean enabled;
+
+	@Override
+	public void run(ApplicationArguments args) {
+
+		if (!enabled) {
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), PROCESS, "対象外(設定無効)");
+			return;
+		}
+
+		LogService.info(LOG_TITLE, this.getClass().getSimpleName(), PROCESS, "開始");
+		try {
+			Integer cnt = jdbcTemplate.queryForObject("select count(*) from pg_extension where extname = 'pg_trgm'", Integer.class);
+			if (cnt == null || cnt == 0) {
+				LogService.info(LOG_TITLE, this.getClass().getSimpleName(), PROCESS,
+						"正常終了 : pg_trgm拡張なし(LIKE検索で動作、" + INDEX_SCRIPT + " をDB管理者が実行する)");
+				return;
+			}
+
+			List<String> names = indexNames();
+			Map<String, Boolean> valid = selectIndexValid(names);
+			List<String> missing = new ArrayList<String>();
+			List<String> invalid = new ArrayList<String>();
+			for (String name : names) {
+				Boolean v = valid.get(name);
+				if (v == null) {
+					missing.add(name);
+				} else if (!v) {
+					invalid.add(name);
+				}
+			}
+			if (!invalid.isEmpty()) {
+				// CONCURRENTLY での作成に失敗したインデックスは検索に使用されず、更新の負荷のみかかる
+				LogService.system(LOG_TITLE, this.getClass().getSimpleName(), PROCESS,
+						"INVALID(作成し直しが必要) " + StringUtils.join(invalid, ","));
+			}
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), PROCESS, "正常終了 : 作成済み {}件, 未作成 {}, INVALID {}",
+					names.size() - missing.size() - invalid.size(), missing, invalid);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, this.getClass().getSimpleName(), PROCESS, "異常終了");
+			LogService.system(e.getMessage());
+		}
+	}
+
+	/**
+	 * インデックスの有効状態の取得
+	 *
+	 * @param names インデックス名
+	 * @return インデックス名 → 有効か(作成されていないインデックスは含まない)
+	 */
+	private Map<String, Boolean> selectIndexValid(List<String> names) {
+
+		Map<String, Boolean> valid = new HashMap<String, Boolean>();
+		if (names.isEmpty()) {
+			return valid;
+		}
+		jdbcTemplate.query("select c.relname, i.indisvalid from pg_index i join pg_class c on c.oid = i.indexrelid"
+				+ " where c.relname in (" + StringUtils.repeat("?", ",", names.size()) + ")"
+				+ " and pg_table_is_visible(c.oid)",
+				rs -> {
+					valid.put(rs.getString(1), rs.getBoolean(2));
+				}, names.toArray());
+		return valid;
+	}
+
+	/**
+	 * インデックス定義ファイルのインデックス名(「--」のコメント行を除き「;」で分割した CREATE INDEX 文)
+	 *
+	 * @return インデックス名
+	 * @throws Exception
+	 */
+	private List<String> indexNames() throws Exception {
+
+		List<String> list = new ArrayList<String>();
+		for (String sql : loadScript()) {
+			Matcher m = INDEX_NAME.matcher(sql);
+			if (m.find()) {
+				list.add(m.group(1).toLowerCase());
+			}
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * インデックス定義ファイルの読み込み(「--」のコメント行を除き「;」で分割)
+	 *
+	 * @return SQLリスト
+	 * @throws Exception
+	 */
+	private List<String> loadScript() throws Exception {
+
+		List<String> list = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(
+				new ClassPathResource(INDEX_SCRIPT).getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String trimLine = line.trim();
+				if (trimLine.isEmpty() || trimLine.startsWith("--")) {
+					continue;
+				}
+				sb.append(trimLine).append(' ');
+				if (trimLine.endsWith(";")) {
+					list.add(sb.substring(0, sb.lastIndexOf(";")).trim());
+					sb.setLength(0);
+				}
+			}
+		}
+		if (sb.toString().trim().length() > 0) {
+			list.add(sb.toString().trim());
+		}
+		return list;
+	}
+}
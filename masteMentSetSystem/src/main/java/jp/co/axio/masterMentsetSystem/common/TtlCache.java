@@ -0,0 +1,159 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * 有効期限付きキャッシュ
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有効期限付きキャッシュクラス
+ * 件数上限を超えた場合は最も長く参照されていないものから削除し、有効期限切れのものは参照時に削除する。
+ * 値にnullは保持できないため、「該当なし」を保持する場合は空のリスト等を使用すること。
+ *
+ * @param <K> キー
+ * @param <V> 値
+ */
+public class TtlCache<K, V> {
+
+	/** 件数上限 */
+	private final int maxSize;
+	/** 有効期間(ナノ秒) */
+	private final long ttlNanos;
+	/** キー → 値(参照順) */
+	private final LinkedHashMap<K, Item<V>> map;
+
+	/** ヒット件数 */
+	private final AtomicLong hits = new AtomicLong();
+	/** ミス件数(期限切れを含む) */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param maxSize 件数上限
+	 * @param ttlMillis 有効期間(ミリ秒)
+	 */
+	public TtlCache(int maxSize, long ttlMillis) {
+		this.maxSize = maxSize;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.map = new LinkedHashMap<K, Item<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Item<V>> eldest) {
+				return size() > TtlCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * 値の取得
+	 *
+	 * @param key キー
+	 * @return 値、未登録・期限切れの場合null
+	 */
+	public synchronized V get(K key) {
+		Item<V> item = map.get(key);
+		if (item == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (item.expireAt - System.nanoTime() <= 0) {
+			map.remove(key);
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return item.value;
+	}
+
+	/**
+	 * 値の登録(既定の有効期間)
+	 *
+	 * @param key キー
+	 * @param value 値
+	 */
+	public void put(K key, V value) {
+		put(key, value, TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+	}
+
+	/**
+	 * 値の登録(有効期間指定)
+	 *
+	 * @param key キー
+	 * @param value 値
+	 * @param ttlMillis 有効期間(ミリ秒)、0以下の場合は登録しない
+	 */
+	public synchronized void put(K key, V value, long ttlMillis) {
+		if (maxSize <= 0 || ttlMillis <= 0) {
+			return;
+		}
+		map.put(key, new Item<V>(value, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+	}
+
+	/**
+	 * 値の削除
+	 *
+	 * @param key キー
+	 */
+	public synchronized void remove(K key) {
+		map.remove(key);
+	}
+
+	/**
+	 * 全件削除
+	 */
+	public synchronized void clear() {
+		map.clear();
+	}
+
+	/**
+	 * 登録件数(期限切れを含む)
+	 *
+	 * @return 件数
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * ヒット件数
+	 *
+	 * @return 件数
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * ミス件数
+	 *
+	 * @return 件数
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * 値と有効期限
+	 *
+	 * @param <V> 値
+	 */
+	private static class Item<V> {
+		/** 値 */
+		final V value;
+		/** 有効期限(System.nanoTime) */
+		final long expireAt;
+
+		Item(V value, long expireAt) {
+			this.value = value;
+			this.expireAt = expireAt;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package jp.co.axio.masterMentsetSystem.common;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jp.co.axio.masterMentsetSystem.controller.LoginInterceptor;
+
+/**
+ * Spring MVC設定
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * ログイン・権限チェックインターセプタ
+     */
+    @Autowired
+    private LoginInterceptor loginInterceptor;
+
+    /**
+     * インターセプタ登録
+     * ログイン画面・静的ファイル以外の全てのパスでログインチェックを行う。
+     *
+     * @param registry InterceptorRegistry
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(loginInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(
+                        "/login",
+                        "/loginAuthentication",
+                        "/logout",
+                        "/isLogin",
+                        "/error",
+                        "/favicon.ico",
+                        "/assets/**",
+                        "/css/**",
+                        "/image/**",
+                        "/js/**",
+                        "/vendor/**");
+    }
+}
@@ -45,10 +45,6 @@ public class AuthGroupListController {
 	/** 自処理対象画面名 */
 	private static final String OWN_TITLE = "グループ一覧画面";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
     @Autowired
     AuthGroupListService authGroupListService;
 
@@ -65,27 +61,7 @@ public class AuthGroupListController {
 	public ModelAndView index(@ModelAttribute("AuthGroupListForm") AuthGroupListForm form, BindingResult result, HttpServletRequest request, RedirectAttributes redirectAttributes)  {
 		LogService.info("グループ検索一覧画面", "AuthGroupListController", "初期処理", "開始");
 
-		/**
-		 * 2022/02/07　ログインチェック追加 開始
-		 */
-		// 既存処理コメントアウト
-		// ModelAndView modelAndView = new ModelAndView();
-
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-		/**
-		 * 2022/02/07　ログインチェック追加 終了
-		 */
+		ModelAndView modelAndView = new ModelAndView();
 
 		modelAndView.addObject("AuthGroupListForm", form);
 
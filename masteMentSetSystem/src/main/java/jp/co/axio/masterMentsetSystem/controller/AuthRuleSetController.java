@@ -74,10 +74,6 @@ public class AuthRuleSetController extends accessController {
 	/** 自処理対象画面名 */
 	private static final String OWN_TITLE = "ルール条件設定画面";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
     @Autowired
     AuthRuleSetService authRuleSetService;
 
@@ -100,27 +96,7 @@ public class AuthRuleSetController extends accessController {
 		LogService.info("ルール条件設定画面", "AuthRuleSetController", "初期処理", "開始");
 
 
-		/**
-		 * 2022/02/07　ログインチェック追加 開始
-		 */
-		// 既存処理コメントアウト
-		// ModelAndView modelAndView = new ModelAndView();
-
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-		/**
-		 * 2022/02/07　ログインチェック追加 終了
-		 */
+		ModelAndView modelAndView = new ModelAndView();
 
 		//アクセストークン設定 二重送信防止
 		saveAccessToken(form);
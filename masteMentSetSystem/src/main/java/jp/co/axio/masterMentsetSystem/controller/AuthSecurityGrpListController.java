@@ -41,10 +41,6 @@ public class AuthSecurityGrpListController {
   /** 自処理対象画面名 */
   private static final String OWN_TITLE = "グループ一覧画面";
 
-  /** ログインコントローラ */
-  @Autowired
-  LoginController loginController;
-
   @Autowired
   AuthSecurityGrpListService authSecurityGrpListService;
 
@@ -63,21 +59,7 @@ public class AuthSecurityGrpListController {
       HttpServletRequest request, RedirectAttributes redirectAttributes) {
     LogService.info("グループ検索一覧画面", "AuthGroupListController", "初期処理", "開始");
 
-    /**
-     * 2022/02/07 ログインチェック追加 開始
-     */
-    // 既存処理コメントアウト
-    // ModelAndView modelAndView = new ModelAndView();
-
-    ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-    if (modelAndView != null) {
-      return modelAndView;// ログイン画面へ遷移
-    } else {
-      modelAndView = new ModelAndView();
-    }
-    /**
-     * 2022/02/07 ログインチェック追加 終了
-     */
+    ModelAndView modelAndView = new ModelAndView();
 
     modelAndView.addObject("AuthSecurityGrpListForm", form);
 
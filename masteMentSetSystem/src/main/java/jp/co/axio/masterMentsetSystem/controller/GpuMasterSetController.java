@@ -10,7 +10,10 @@ package jp.co.axio.masterMentsetSystem.controller;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 import javax.servlet.http.HttpSession;
 
@@ -18,6 +21,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -64,9 +68,11 @@ public class GpuMasterSetController extends accessController {
 	/** 自処理対象画面名 */
 	private static final String OWN_TITLE = "汎用コードマスタ設定画面";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
+	/** セッション:保存前の変更行(コードNO → 変更行) */
+	private static final String CHANGES = "gpuMasterSetChanges";
+
+	/** セッション:変更行の対象(分類コードID:値種別) */
+	private static final String CHANGES_TARGET = "gpuMasterSetChangesTarget";
 
     @Autowired
     HttpSession session;
@@ -87,27 +93,7 @@ public class GpuMasterSetController extends accessController {
 	public ModelAndView index(RedirectAttributes redirectAttributes)  {
 		LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "初期処理", "開始");
 
-		/**
-		 * 2022/02/07　ログインチェック追加 開始
-		 */
-		// 既存処理コメントアウト
-		// ModelAndView modelAndView = new ModelAndView();
-
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-		/**
-		 * 2022/02/07　ログインチェック追加 終了
-		 */
+		ModelAndView modelAndView = new ModelAndView();
 
 		GpuMasterSetForm form = new GpuMasterSetForm();
 		resetValue(form);
@@ -115,7 +101,7 @@ public class GpuMasterSetController extends accessController {
 		//アクセストークン設定 二重送信防止
 		saveAccessToken(form);
 
-		session.removeAttribute("selectClassCodeList");
+		clearChanges();
 		session.removeAttribute("classCodeValueList");
 	    try {
 
@@ -133,7 +119,6 @@ public class GpuMasterSetController extends accessController {
     		List<GpuMasterSetDto> selectClassCodeList = GpuMasterSetService.selectMgpCodeMstSearchByGpuMasterSet(selectClassCodeValue,form.getClassCodeId());
 
 		    List<GpuMasterSetDto>   selectClassCodeListSort = SelectClassCodeListSort(selectClassCodeList);
-			session.setAttribute("selectClassCodeList", selectClassCodeListSort);
 			form.setSelectClassCodeList(selectClassCodeListSort);
 		} catch (Exception e) {
 			LogService.system("汎用コードマスタ設定画面", "GpuMasterSetController", "分類コード名称リスト検索処理", "失敗した");
@@ -176,7 +161,7 @@ public class GpuMasterSetController extends accessController {
 				return OWN_PAGE;
 			}
 
-			session.removeAttribute("selectClassCodeList");
+			clearChanges();
 			// 分類コードIDで対象の分類を取得
 			List<CodeValueDto> classCodeSearchResultList;
 
@@ -192,7 +177,6 @@ public class GpuMasterSetController extends accessController {
 			List<GpuMasterSetDto> selectClassCodeList = GpuMasterSetService.selectMgpCodeMstSearchByGpuMasterSet(selectClassCodeValue,form.getClassCodeId());
 
 		    List<GpuMasterSetDto>   selectClassCodeListSort = SelectClassCodeListSort(selectClassCodeList);
-			session.setAttribute("selectClassCodeList", selectClassCodeListSort);
 			form.setSelectClassCodeList(selectClassCodeListSort);
 
 		} catch (Exception e) {
@@ -227,10 +211,10 @@ public class GpuMasterSetController extends accessController {
 		List<GpuMasterSetDto> selectClassCodeList;
 
 		try {
+			clearChanges();
 			selectClassCodeList = GpuMasterSetService.selectMgpCodeMstSearchByGpuMasterSet(selectClassCodeValue,form.getClassCodeId());
 
 		    List<GpuMasterSetDto>   selectClassCodeListSort = SelectClassCodeListSort(selectClassCodeList);
-			session.setAttribute("selectClassCodeList", selectClassCodeListSort);
 			form.setSelectClassCodeList(selectClassCodeListSort);
 
 		} catch (Exception e) {
@@ -274,23 +258,18 @@ public class GpuMasterSetController extends accessController {
 		form.setClassCodeValueList(castList2(freshAttribute(form, "classCodeValueList")));
 
 		// DB反映処理
-		// セッションからコードリストを取得
-		List<GpuMasterSetDto> selectClassCodeList = castList1(freshAttribute(form, "selectClassCodeList"));
+		// セッションから変更行を取得
+		Map<String, GpuMasterSetDto> changes = changes(form);
 
 		Boolean checkflg = false;
 		if (form.getClassCodeId().equals(classCodeId)) {
-			for (GpuMasterSetDto updateDto : selectClassCodeList) {
-				if (updateDto.codeValue.equals(classCodeId)) {
-					checkflg = true;
-					break;
-				}
-			}
+			checkflg = changes.containsKey(classCodeId) || findByCodeValue(baseList(form), classCodeId) != null;
 		} else {
 			checkflg = true;
 		}
 
 		if (!checkflg) {
-			form.setSelectClassCodeList(selectClassCodeList);
+			form.setSelectClassCodeList(currentList(form, changes));
 			String msg = ms.getMessage("CMN0007", new String[] { classCodeId }, null);
 			result.reject("", msg); // エラーメッセージ表示
 			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理関連チェック", "異常終了");
@@ -300,15 +279,11 @@ public class GpuMasterSetController extends accessController {
 
 		try {
 
-			GpuMasterSetService.saveData(form, selectClassCodeList);
+			GpuMasterSetService.saveData(form, new ArrayList<GpuMasterSetDto>(changes.values()));
+			clearChanges();
 
 			// 対象の分類コードを取得
-			List<GpuMasterSetDto> classCodeList;
-			classCodeList = GpuMasterSetService.selectMgpCodeMstSearchByGpuMasterSet(selectClassCodeValue,form.getClassCodeId());
-
-		    List<GpuMasterSetDto>   selectClassCodeListSort = SelectClassCodeListSort(classCodeList);
-			session.setAttribute("selectClassCodeList", selectClassCodeListSort);
-			form.setSelectClassCodeList(selectClassCodeListSort);
+			form.setSelectClassCodeList(SelectClassCodeListSort(baseList(form)));
 
 			// 分類コードIDで対象の分類を取得
 			List<CodeValueDto>  classCodeSearchResultList = GpuMasterSetService.selectValueSearch(form.getClassCodeId());
@@ -318,17 +293,23 @@ public class GpuMasterSetController extends accessController {
 			// 完了メッセージ
 	        String msg = ms.getMessage("CMN0003", new String[] { "保存" }, null);
 			model.addAttribute("axioMessage", msg);
+		} catch (OptimisticLockingFailureException e) {
+			LogService.system("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", e.getMessage());
+			form.setSelectClassCodeList(currentList(form, changes));
+			result.reject("", ms.getMessage("CMN002", null, null)); // エラーメッセージ表示
+			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", "異常終了");
+			return OWN_PAGE;
 		} catch (SQLException e) {
 			LogService.system("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", "失敗した");
 			LogService.system(ExceptionUtils.getStackTrace(e));
-			form.setSelectClassCodeList(castList1(freshAttribute(form,"selectClassCodeList")));
+			form.setSelectClassCodeList(currentList(form, changes));
             result.reject("", e.getMessage()); // エラーメッセージ表示
 			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", "異常終了");
 			return OWN_PAGE;
 		} catch (Exception e) {
 			LogService.system("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", "失敗した");
 			LogService.system(ExceptionUtils.getStackTrace(e));
-			form.setSelectClassCodeList(castList1(freshAttribute(form, "selectClassCodeList")));
+			form.setSelectClassCodeList(currentList(form, changes));
 			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "保存処理", "異常終了");
 			return OWN_PAGE;
 		}
@@ -367,7 +348,7 @@ public class GpuMasterSetController extends accessController {
 
 			// 項目属性チェック結果判定
 			if (result.hasErrors()) {
-				form.setSelectClassCodeList(castList1(freshAttribute(form, "selectClassCodeList")));
+				form.setSelectClassCodeList(currentList(form, changes(form)));
 				LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "値選択一覧の内容をコードリストに反映チェック処理", "NG");
 				return OWN_PAGE;
 			}
@@ -376,7 +357,7 @@ public class GpuMasterSetController extends accessController {
 
 			if (form.getClassCodeId().equals("00000")) {
 				if (GpuMasterSetService.codeValueCheck(form.getClassCodeNo(),form.getClassCodeValue())) {
-					form.setSelectClassCodeList(castList1(freshAttribute(form, "selectClassCodeList")));
+					form.setSelectClassCodeList(currentList(form, changes(form)));
 					//Integer index= new Integer(form.getClassCodeValue()) -1;
 					Integer index = Integer.parseInt(form.getClassCodeValue()) - 1;
 
@@ -396,58 +377,31 @@ public class GpuMasterSetController extends accessController {
 				}
 			}
 
-			Boolean insertflg = true;
-
-			List<GpuMasterSetDto> selectClassCodeList = castList1(freshAttribute(form, "selectClassCodeList"));
+			// 変更行のみセッションに保持する(未変更の行は汎用コードマスタから取得する)
+			Map<String, GpuMasterSetDto> changes = changes(form);
+			List<GpuMasterSetDto> baseList = baseList(form);
 			String selectClassCodeNo = form.getClassCodeNo();
-			for (GpuMasterSetDto updateDto : selectClassCodeList) {
-				if (updateDto.codeValue.equals(selectClassCodeNo)) {
-					updateDto.gpCodeMstName = form.getClassCodeName();
-					updateDto.setValue(form.getClassCodeDetail());
-
-					updateDto.dispOrder = form.getClassCodeOrder();
-					if (StringUtils.isEmpty(updateDto.editClass)) {
-						updateDto.editClass = "2";
-					insertflg = false;
-					}
-				}
-			}
-			// データがない場合：新規登録処理
-			if (insertflg) {
-
-				GpuMasterSetDto insertList = new GpuMasterSetDto();
-				insertList.classCode = form.getClassCodeId();
-				insertList.codeValue = selectClassCodeNo;
-				insertList.gpCodeMstName = form.getClassCodeName();
-				insertList.setValue(form.getClassCodeDetail());
-
-				// 表示順が入力されていない場合は、値を設定する。
-				if (StringUtils.isEmpty(form.getClassCodeOrder())) {
-					insertList.dispOrder = "";
+			GpuMasterSetDto changed = changes.get(selectClassCodeNo);
+			if (changed == null) {
+				changed = findByCodeValue(baseList, selectClassCodeNo);
+				if (changed != null) {
+					changed.editClass = "2";
 				} else {
-					insertList.dispOrder = form.getClassCodeOrder();
-				}
-
-				insertList.editClass = "1";
-				boolean cf = false;
-				for(GpuMasterSetDto e : selectClassCodeList) {
-					if (StringUtils.equals(e.classCode,insertList.classCode)
-							&& StringUtils.equals(e.codeValue,insertList.codeValue )) {
-						cf = true;
-						e.gpCodeMstName = insertList.gpCodeMstName;
-						e.value = insertList.value;
-						e.dispOrder = insertList.dispOrder;
-						break;
-					}
-				}
-				if (!cf) {
-					selectClassCodeList.add(insertList);
+					// データがない場合：新規登録処理
+					changed = new GpuMasterSetDto();
+					changed.classCode = form.getClassCodeId();
+					changed.codeValue = selectClassCodeNo;
+					changed.editClass = "1";
 				}
+				changes.put(selectClassCodeNo, changed);
 			}
+			changed.gpCodeMstName = form.getClassCodeName();
+			changed.setValue(form.getClassCodeDetail());
+			// 表示順が入力されていない場合は、空を設定する。
+			changed.dispOrder = StringUtils.defaultString(form.getClassCodeOrder());
+
 			// コードリストのソートを行う
-			selectClassCodeList = SelectClassCodeListSort(selectClassCodeList);
-			session.setAttribute("selectClassCodeList", selectClassCodeList);
-			form.setSelectClassCodeList(selectClassCodeList);
+			form.setSelectClassCodeList(mergeList(baseList, changes));
 
 			form.setEditFlg("1");
 		resetFormReflection(form);
@@ -475,30 +429,33 @@ public class GpuMasterSetController extends accessController {
 		}
 
 		form.setClassCodeValueList(castList2(freshAttribute(form, "classCodeValueList")));
-		List<GpuMasterSetDto> selectClassCodeList = castList1(freshAttribute(form, "selectClassCodeList"));
+		Map<String, GpuMasterSetDto> changes = changes(form);
+		List<GpuMasterSetDto> baseList = baseList(form);
 		// 項目属性チェック結果判定
 		if (result.hasErrors()) {
-			form.setSelectClassCodeList(selectClassCodeList);
+			form.setSelectClassCodeList(mergeList(baseList, changes));
 			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetController", "値選択一覧の内容をコードリストに反映チェック処理", "NG");
 			return OWN_PAGE;
 		}
 
-		String maxClassCode = "";
-		String listMaxClassCode = "";
 		for (String deleteClassCodeNo : form.getCheckClassCode()) {
-			for (GpuMasterSetDto deleteDto : selectClassCodeList) {
-				listMaxClassCode = deleteDto.codeValue;
-				if (maxClassCode.compareTo(listMaxClassCode) < 0) {
-					maxClassCode = listMaxClassCode;
-				}
-				if (deleteDto.codeValue.equals(deleteClassCodeNo)) {
-					deleteDto.editClass = "3";
+			GpuMasterSetDto deleteDto = changes.get(deleteClassCodeNo);
+			if (deleteDto == null) {
+				deleteDto = findByCodeValue(baseList, deleteClassCodeNo);
+				if (deleteDto == null) {
+					continue;
 				}
+				changes.put(deleteClassCodeNo, deleteDto);
+			}
+			if ("1".equals(deleteDto.editClass)) {
+				// 未保存の追加行は変更行から除く
+				changes.remove(deleteClassCodeNo);
+			} else {
+				deleteDto.editClass = "3";
 			}
 		}
 
-		session.setAttribute("selectClassCodeList", selectClassCodeList);
-		form.setSelectClassCodeList(selectClassCodeList);
+		form.setSelectClassCodeList(mergeList(baseList, changes));
 		form.setEditFlg("1");
 		resetFormDelete(form);
 			setValue(form);
@@ -623,20 +580,97 @@ public class GpuMasterSetController extends accessController {
 	 * @return selectClassCodeList
 	 */
 	public List<GpuMasterSetDto> SelectClassCodeListSort(List<GpuMasterSetDto> selectClassCodeList) {
+		// 比較のたびに表示順を変換しないよう、並び替えキーを先に設定する
+		for (GpuMasterSetDto dto : selectClassCodeList) {
+			dto.sortKey = GpuMasterSetComparator.sortKey(dto.dispOrder);
+		}
 		Collections.sort(selectClassCodeList, new GpuMasterSetComparator());
 		return selectClassCodeList;
 	}
 
 	/**
-	 * sessionオブジェクトをListにキャストする。
+	 * 保存前の変更行(コードNO → 変更行)を取得する。
+	 * 分類コードID・値種別が変わった場合は、それまでの変更行を破棄する。
 	 *
-	 * @param Object
-	 * @return List
+	 * @param form
+	 * @return 変更行
 	 */
 	@SuppressWarnings("unchecked")
-	private List<GpuMasterSetDto> castList1(Object obj) {
-		List<GpuMasterSetDto> GpuMasterSetList = (List<GpuMasterSetDto>) obj;
-		return GpuMasterSetList;
+	private Map<String, GpuMasterSetDto> changes(GpuMasterSetForm form) {
+		String target = form.getClassCodeId() + ":" + form.getSelectClassCodeValue();
+		Object changes = session.getAttribute(CHANGES);
+		if (changes == null || !target.equals(session.getAttribute(CHANGES_TARGET))) {
+			changes = new LinkedHashMap<String, GpuMasterSetDto>();
+			session.setAttribute(CHANGES, changes);
+			session.setAttribute(CHANGES_TARGET, target);
+		}
+		return (Map<String, GpuMasterSetDto>) changes;
+	}
+
+	/**
+	 * 保存前の変更行を破棄する。
+	 */
+	private void clearChanges() {
+		session.removeAttribute(CHANGES);
+		session.removeAttribute(CHANGES_TARGET);
+	}
+
+	/**
+	 * 保存済みのコードリスト(汎用コードマスタのキャッシュから作成する)
+	 *
+	 * @param form
+	 * @return コードリスト(並び替え前)
+	 */
+	private List<GpuMasterSetDto> baseList(GpuMasterSetForm form) {
+		return GpuMasterSetService.selectMgpCodeMstSearchByGpuMasterSet(form.getSelectClassCodeValue(), form.getClassCodeId());
+	}
+
+	/**
+	 * 保存済みのコードリストに変更行を反映したコードリスト
+	 *
+	 * @param form
+	 * @param changes 変更行
+	 * @return コードリスト(表示順)
+	 */
+	private List<GpuMasterSetDto> currentList(GpuMasterSetForm form, Map<String, GpuMasterSetDto> changes) {
+		return mergeList(baseList(form), changes);
+	}
+
+	/**
+	 * 保存済みのコードリストに変更行を反映する。
+	 *
+	 * @param baseList 保存済みのコードリスト
+	 * @param changes 変更行
+	 * @return コードリスト(表示順)
+	 */
+	private List<GpuMasterSetDto> mergeList(List<GpuMasterSetDto> baseList, Map<String, GpuMasterSetDto> changes) {
+		if (!changes.isEmpty()) {
+			Map<String, GpuMasterSetDto> added = new LinkedHashMap<String, GpuMasterSetDto>(changes);
+			for (ListIterator<GpuMasterSetDto> it = baseList.listIterator(); it.hasNext();) {
+				GpuMasterSetDto changed = added.remove(it.next().codeValue);
+				if (changed != null) {
+					it.set(changed);
+				}
+			}
+			baseList.addAll(added.values());
+		}
+		return SelectClassCodeListSort(baseList);
+	}
+
+	/**
+	 * コードNOで行を検索する。
+	 *
+	 * @param list コードリスト
+	 * @param codeValue コードNO
+	 * @return 行(該当なしの場合null)
+	 */
+	private GpuMasterSetDto findByCodeValue(List<GpuMasterSetDto> list, String codeValue) {
+		for (GpuMasterSetDto dto : list) {
+			if (StringUtils.equals(dto.codeValue, codeValue)) {
+				return dto;
+			}
+		}
+		return null;
 	}
 
 	/**
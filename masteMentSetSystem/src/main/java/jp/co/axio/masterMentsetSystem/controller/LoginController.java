@@ -7,7 +7,6 @@ import java.util.stream.Collectors;
 import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.ietf.ldap.LDAPException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
@@ -22,6 +21,9 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+
 import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.service.LoginService;
 import jp.co.axio.masterMentsetSystem.service.LoginService.LoginServiceException;
@@ -101,7 +103,7 @@ public class LoginController {
 	@RequestMapping("/login")
 	public ModelAndView index(Model model) {
 		LogService.info(OWN_TITLE, OWN_NAME, "初期処理", "開始");
-		LogService.debug(OWN_TITLE, OWN_NAME, "初期処理", getSessionInfoForDebugLog());
+		LogService.debug(OWN_TITLE, OWN_NAME, "初期処理", this::getSessionInfoForDebugLog);
 		ModelAndView modelAndView = new ModelAndView();
 		try {
 
@@ -132,12 +134,12 @@ public class LoginController {
 				}
 				modelAndView.addObject(OWN_FORM, loginInfo);
 				modelAndView.setViewName(OWN_PAGE);
-				LogService.debug(OWN_TITLE, OWN_NAME, "初期処理", getSessionInfoForDebugLog());
+				LogService.debug(OWN_TITLE, OWN_NAME, "初期処理", this::getSessionInfoForDebugLog);
 			}
 			LogService.info(OWN_TITLE, OWN_NAME, "初期処理", "正常終了");
 			LogService.debug(OWN_TITLE, OWN_NAME, "初期処理", "正常終了" + modelAndView.getViewName());
 		} catch (Exception e) {
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", getSessionInfoForDebugLog());
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", this::getSessionInfoForDebugLog);
 			// エラーログ出力
 			printExceptionLog(e, "ログアウト処理");
 			// エラーメッセージをセット
@@ -175,7 +177,7 @@ public class LoginController {
 		try {
 			// ログイン処理
 			LoginInfo loginInfo = loginService.authentication(form);
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログイン処理", getSessionInfoForDebugLog());
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログイン処理", this::getSessionInfoForDebugLog);
 			// LDAP認証は出来たがDBからデータが取れない場合、エラーメッセージをセットして返却
 			if (loginInfo == null) {
 				form.setErrMessage(ms.getMessage("MSTO0009M0001", null, null));// パスワードが正しくありません。入力し直してください。
@@ -204,7 +206,7 @@ public class LoginController {
 			String msg = ms.getMessage("ERR001", null, null);
 			if (e instanceof LDAPException) {
 				// 認証系の例外の場合
-				if (LDAPException.INVALID_CREDENTIALS == ((LDAPException) e).getResultCode()) {
+				if (ResultCode.INVALID_CREDENTIALS.equals(((LDAPException) e).getResultCode())) {
 					// 不正な bind ユーザ、もしくは bind パスワードを指定した際にエラーコード49が返る
 					msg = ms.getMessage("MSTO0009M0001", null, null);// パスワードが正しくありません。入力し直してください。
 				} else {
@@ -232,16 +234,16 @@ public class LoginController {
 		LoginInfo form = new LoginInfo();
 		ModelAndView modelAndView = new ModelAndView();
 		try {
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", getSessionInfoForDebugLog());
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", this::getSessionInfoForDebugLog);
 			// セッションを破棄
 			session.invalidate();
 			// メッセージをセット
 			form.setErrMessage(ms.getMessage("CMN0010", null, null));
 			LogService.info(OWN_TITLE, OWN_NAME, "ログアウト処理", "正常終了");
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", getSessionInfoForDebugLog());
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", this::getSessionInfoForDebugLog);
 
 		} catch (Exception e) {
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", getSessionInfoForDebugLog());
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログアウト処理", this::getSessionInfoForDebugLog);
 			// エラーログ出力
 			printExceptionLog(e, "ログアウト処理");
 			// エラーメッセージをセット
@@ -253,38 +255,6 @@ public class LoginController {
 
 	}
 
-	/**
-	 * ログインチェック
-	 * @param  title              呼び出し元画面名
-	 * @param  redirectAttributes リダイレクト先に値を引き渡すためのModel
-	 * @return ModelAndView       ログインしていない場合、ログイン画面を返却。
-	 */
-	public ModelAndView checkLogin(String title, RedirectAttributes redirectAttributes) {
-		ModelAndView modelAndView = new ModelAndView();
-		LoginInfo form = new LoginInfo();
-		try {
-			if (!isLogin(title)) {
-				// メッセージをセット
-				String msg = ms.getMessage("CMN0009", null, null);
-				form.setErrMessage(msg);
-				redirectAttributes.addFlashAttribute(OWN_FORM, form);
-				modelAndView.setViewName(REDIRECT_PAGE);
-				LogService.debug(title, OWN_NAME, "ログインチェック処理", "ログイン画面へ遷移");
-				return modelAndView;
-			}
-		} catch (Exception e) {
-			LogService.debug(OWN_TITLE, OWN_NAME, "ログインチェック処理", getSessionInfoForDebugLog());
-			// エラーログ出力
-			printExceptionLog(e, "ログインチェック処理");
-			// エラーメッセージをセット
-			form.setErrMessage(ms.getMessage("ERR001", null, null));
-			redirectAttributes.addFlashAttribute(OWN_FORM, form);
-			modelAndView.setViewName(REDIRECT_PAGE);
-			return modelAndView;
-		}
-		return null;
-	}
-
 	/**
 	 * ログインチェック
 	 * @param  title   呼び出し元画面名
@@ -295,7 +265,7 @@ public class LoginController {
 	public Boolean isLogin(String title) {
 		LogService.info(title, OWN_NAME, "ログインチェック(boolean)処理", "開始");
 		Boolean isLogin = false;
-		LogService.debug(title, OWN_NAME, "ログインチェック(boolean)処理", getSessionInfoForDebugLog());
+		LogService.debug(title, OWN_NAME, "ログインチェック(boolean)処理", this::getSessionInfoForDebugLog);
 		// セッションの存在チェック
 		if (session != null) {
 			if (session.getAttribute(OWN_FORM_SESSION_KEY) != null &&
@@ -309,38 +279,6 @@ public class LoginController {
 	}
 
 
-	/**
-	 * 権限チェック
-	 * @param  title              呼び出し元画面名
-	 * @param  redirectAttributes リダイレクト先に値を引き渡すためのModel
-	 * @return ModelAndView       管理者権限では場合、ログイン画面を返却。
-	 */
-	public ModelAndView checkAdmin(String title, RedirectAttributes redirectAttributes) {
-		ModelAndView modelAndView = new ModelAndView();
-		LoginInfo form = new LoginInfo();
-		try {
-			if (!isAdmin(title)) {
-				// メッセージをセット
-				String msg = ms.getMessage("CMN0011", null, null);
-				form.setErrMessage(msg);
-				redirectAttributes.addFlashAttribute(OWN_FORM, form);
-				modelAndView.setViewName(REDIRECT_PAGE);
-				LogService.debug(title, OWN_NAME, "権限チェック処理", "ログイン画面へ遷移");
-				return modelAndView;
-			}
-		} catch (Exception e) {
-			LogService.debug(OWN_TITLE, OWN_NAME, "権限チェック処理", getSessionInfoForDebugLog());
-			// エラーログ出力
-			printExceptionLog(e, "権限チェック処理");
-			// エラーメッセージをセット
-			form.setErrMessage(ms.getMessage("ERR001", null, null));
-			redirectAttributes.addFlashAttribute(OWN_FORM, form);
-			modelAndView.setViewName(REDIRECT_PAGE);
-			return modelAndView;
-		}
-		return null;
-	}
-
 	/**
 	 * 権限チェック
 	 * @param title    呼び出し元画面名
@@ -0,0 +1,158 @@
+package jp.co.axio.masterMentsetSystem.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+
+/**
+ * ログイン・権限チェックインターセプタ
+ * 各画面の処理の前にセッションのログイン情報を1回だけ取得し、
+ * 未ログインの場合、管理者用のパスに管理者以外がアクセスした場合はログイン画面へ遷移する。
+ * チェック対象外のパスは WebMvcConfig で指定する。
+ *
+ * @author sa
+ */
+@Component
+public class LoginInterceptor implements HandlerInterceptor {
+
+	/**
+	 * 自処理名
+	 */
+	private static final String OWN_NAME = "LoginInterceptor";
+	/**
+	 * ログイン画面Form名
+	 */
+	private static final String LOGIN_FORM = "loginInfo";
+	/**
+	 * ログイン情報のセッションキー
+	 */
+	private static final String LOGIN_FORM_SESSION_KEY = "LoginController.loginInfo";
+	/**
+	 * ログイン画面のパス
+	 */
+	private static final String LOGIN_PATH = "/login";
+	/**
+	 * ログイン情報のリクエスト属性名(チェック済みのログイン情報を格納する)
+	 */
+	public static final String LOGIN_INFO_ATTRIBUTE = LoginInterceptor.class.getName() + ".loginInfo";
+	/**
+	 * 管理者のみアクセス可能なパス
+	 * (一般ユーザーは menuGeneral, userListGeneral と各コード選択ダイアログのみ)
+	 */
+	private static final String[] ADMIN_PATH_PATTERNS = {
+			"/menu",
+			"/userList",
+			"/userListSearch",
+			"/userListShowNextPage",
+			"/userListShowPrePage",
+			"/userListChangeOrder",
+			"/userListDownload",
+			"/userSet*",
+			"/authGroupList*",
+			"/authGroupSet*",
+			"/authRuleList*",
+			"/authRuleSet*",
+			"/securityGrpReg*",
+			"/securityGrpSet*",
+			"/GpuMasterSet*",
+			"/mgpCsvExport*",
+			"/mgpCsvExport/**",
+			"/metrics",
+			"/metrics/**",
+	};
+
+	/**
+	 * メッセージソース
+	 */
+	@Autowired
+	MessageSource ms;
+
+	/**
+	 * パス判定
+	 */
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+	/**
+	 * リクエストパス取得
+	 */
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/**
+	 * ログイン・権限チェック
+	 * @param  request  リクエスト
+	 * @param  response レスポンス
+	 * @param  handler  ハンドラ
+	 * @return boolean  true:処理継続, false:ログイン画面へ遷移
+	 * @throws Exception
+	 */
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+
+		String path = urlPathHelper.getLookupPathForRequest(request);
+
+		// ログインチェック
+		HttpSession session = request.getSession(false);
+		LoginInfo loginInfo = session == null ? null : (LoginInfo) session.getAttribute(LOGIN_FORM_SESSION_KEY);
+		if (loginInfo == null || StringUtils.isEmpty(loginInfo.getUserId())) {
+			redirectToLogin(request, response, "CMN0009");
+			LogService.debug(path, OWN_NAME, "ログインチェック処理", "ログイン画面へ遷移");
+			return false;
+		}
+
+		// 権限チェック
+		if (!Boolean.TRUE.equals(loginInfo.getIsAdmin()) && isAdminPath(path)) {
+			redirectToLogin(request, response, "CMN0011");
+			LogService.debug(path, OWN_NAME, "権限チェック処理", "ログイン画面へ遷移 : userId = {}", loginInfo.getUserId());
+			return false;
+		}
+
+		request.setAttribute(LOGIN_INFO_ATTRIBUTE, loginInfo);
+		return true;
+	}
+
+	/**
+	 * 管理者のみアクセス可能なパスか
+	 * @param  path    リクエストパス
+	 * @return boolean true:管理者のみ
+	 */
+	private boolean isAdminPath(String path) {
+		for (String pattern : ADMIN_PATH_PATTERNS) {
+			if (pathMatcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * メッセージを引き渡してログイン画面へリダイレクト
+	 * @param request    リクエスト
+	 * @param response   レスポンス
+	 * @param messageKey メッセージキー
+	 * @throws Exception
+	 */
+	private void redirectToLogin(HttpServletRequest request, HttpServletResponse response, String messageKey)
+			throws Exception {
+		LoginInfo form = new LoginInfo();
+		form.setErrMessage(ms.getMessage(messageKey, null, null));
+
+		String url = request.getContextPath() + LOGIN_PATH;
+		FlashMap flashMap = RequestContextUtils.getOutputFlashMap(request);
+		flashMap.put(LOGIN_FORM, form);
+		RequestContextUtils.saveOutputFlashMap(url, request, response);
+		response.sendRedirect(response.encodeRedirectURL(url));
+	}
+}
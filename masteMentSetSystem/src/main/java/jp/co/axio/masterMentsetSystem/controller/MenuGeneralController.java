@@ -45,12 +45,6 @@ public class MenuGeneralController {
 	 */
 	@Autowired
 	HttpSession session;
-	/**
-	 * ログインコントローラ
-	 */
-	@Autowired
-	LoginController loginController;
-
 	/**
 	 * 初期表示
 	 * @param redirectAttributes リダイレクト先に値を引き渡すためのModel
@@ -59,14 +53,7 @@ public class MenuGeneralController {
 	@GetMapping("/menuGeneral")
 	public ModelAndView index(RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, OWN_NAME, "初期処理", "開始");
-		// ログインチェックここから
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
-		// ログインチェックここまで
+		ModelAndView modelAndView = new ModelAndView();
 		try {
 			// ログイン情報以外のsession削除
 			Collections.list(session.getAttributeNames()).stream().forEach(e -> {
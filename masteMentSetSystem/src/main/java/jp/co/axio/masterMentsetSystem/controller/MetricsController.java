@@ -0,0 +1,87 @@
+package jp.co.axio.masterMentsetSystem.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import jp.co.axio.masterMentsetSystem.common.LatencyMetrics;
+import jp.co.axio.masterMentsetSystem.common.LdapConnectionManager;
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.SqlTimingInterceptor;
+
+/**
+ * 運用監視用の統計情報(JSON)
+ * 管理者のみアクセス可能(LoginInterceptor)。
+ * 集計結果の消去は、統計情報の取得時に発行したアクセストークンを指定した場合のみ行う(他画面の保存処理と同じ二重送信・CSRF対策)。
+ *
+ * @author sa
+ */
+@Controller
+public class MetricsController extends accessController {
+
+	/**
+	 * 自処理名
+	 */
+	private static final String OWN_NAME = "MetricsController";
+	/**
+	 * 自処理対象画面名
+	 */
+	private static final String OWN_TITLE = "統計情報";
+
+	/**
+	 * LDAP接続
+	 */
+	@Autowired
+	LdapConnectionManager ldapConnectionManager;
+
+	/**
+	 * SQL実行時間計測
+	 */
+	@Autowired
+	SqlTimingInterceptor sqlTimingInterceptor;
+
+	/**
+	 * 統計情報の取得
+	 * @return 処理時間(画面・処理ごと、上限超過で集計しなかった件数)、SQL実行時間(文IDごと)、低速SQL、LDAP接続プール、非同期ログ出力の統計情報、
+	 *         集計結果の消去に指定するアクセストークン
+	 */
+	@ResponseBody
+	@GetMapping("/metrics")
+	public Map<String, Object> metrics() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("latency", LatencyMetrics.snapshot());
+		map.put("latencyOverflow", LatencyMetrics.overflowCount());
+		map.put("sql", sqlTimingInterceptor.snapshot());
+		map.put("slowSql", sqlTimingInterceptor.slowStatements());
+		map.put("ldapPool", ldapConnectionManager.getStatistics());
+		map.put("asyncLog", LogService.getAsyncAppenderStatistics());
+		map.put("accessToken", saveAccessToken());
+		return map;
+	}
+
+	/**
+	 * 処理時間・SQL実行時間の集計結果の消去
+	 * @param accessToken 統計情報の取得時に発行したアクセストークン
+	 * @return 消去後の統計情報、アクセストークンが一致しない場合は403
+	 */
+	@PostMapping("/metrics/reset")
+	public ResponseEntity<Map<String, Object>> reset(@RequestParam(name = "accessToken", required = false) String accessToken) {
+		if (!checkAccessToken(accessToken)) {
+			LogService.info(OWN_TITLE, OWN_NAME, "処理時間集計", "消去対象外 : アクセストークン不一致");
+			return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+		}
+		clearAccessToken();
+		LatencyMetrics.reset();
+		sqlTimingInterceptor.reset();
+		LogService.info(OWN_TITLE, OWN_NAME, "処理時間集計", "消去");
+		return ResponseEntity.ok(metrics());
+	}
+}
@@ -10,7 +10,9 @@ package jp.co.axio.masterMentsetSystem.controller;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,18 +27,25 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.controller.MgpCsvExportForm.saveGroup;
 import jp.co.axio.masterMentsetSystem.controller.MgpCsvExportForm.testRunGroup;
 import jp.co.axio.masterMentsetSystem.dto.CodeValueDto;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportResultDto;
+import jp.co.axio.masterMentsetSystem.dto.SqlCheckResultDto;
 import jp.co.axio.masterMentsetSystem.dto.TargetViewInfoResultListDto;
 import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+import jp.co.axio.masterMentsetSystem.service.MgpCsvExportHistoryService;
+import jp.co.axio.masterMentsetSystem.service.MgpCsvExportRunService;
+import jp.co.axio.masterMentsetSystem.service.MgpCsvExportScheduleService;
 import jp.co.axio.masterMentsetSystem.service.MgpCsvExportService;
 
 
@@ -58,13 +67,18 @@ public class MgpCsvExportController extends accessController {
 	/** 自処理対象画面名 */
 	private static final String OWN_TITLE = "グループ一覧画面";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
     @Autowired
     MgpCsvExportService mgpCsvExportService;
 
+    @Autowired
+    MgpCsvExportRunService mgpCsvExportRunService;
+
+    @Autowired
+    MgpCsvExportHistoryService mgpCsvExportHistoryService;
+
+    @Autowired
+    MgpCsvExportScheduleService mgpCsvExportScheduleService;
+
     @Autowired
     MessageSource ms;
 
@@ -88,28 +102,6 @@ public class MgpCsvExportController extends accessController {
 
 		LogService.info("汎用CSV設定画面処理", "MgpCsvExportController", "初期処理", "開始");
 
-		/**
-		 * 2022/02/07　ログインチェック追加 開始
-		 */
-		// 既存処理コメントアウト
-		// ModelAndView modelAndView = new ModelAndView();
-
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			// return modelAndView;// ログイン画面へ遷移
-			return modelAndView.getViewName();
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView.getViewName();// ログイン画面へ遷移
-			}
-
-			// modelAndView = new ModelAndView();
-		}
-		/**
-		 * 2022/02/07　ログインチェック追加 終了
-		 */
 		//アクセストークン設定 二重送信防止
 
 		saveAccessToken(form);
@@ -196,6 +188,60 @@ public class MgpCsvExportController extends accessController {
 		return OWN_PAGE;
 	}
 
+    /**
+     * 汎用CSV出力実行処理
+     * 指定したSQL番号(省略時は有効な定義すべて)を並列に出力し、終了を待って結果を返す。
+     *
+     * @param sqlNo SQL番号
+     * @return 実行結果(出力件数・処理時間・件数/秒・MB/秒)
+     */
+    @PostMapping("/mgpCsvExport/run")
+    @ResponseBody
+    public List<CsvExportResultDto> runExport(@RequestParam(name = "sqlNo", required = false) Integer[] sqlNo) {
+
+		LogService.info("汎用CSV設定画面処理", "MgpCsvExportController", "汎用CSV出力実行処理", "開始");
+		List<CsvExportResultDto> results;
+		if (sqlNo == null || sqlNo.length == 0) {
+			results = mgpCsvExportRunService.runAllValid();
+		} else {
+			results = mgpCsvExportRunService.runAll(sqlNo);
+		}
+		LogService.info("汎用CSV設定画面処理", "MgpCsvExportController", "汎用CSV出力実行処理", "正常終了");
+		return results;
+    }
+
+    /**
+     * 汎用CSV出力実行履歴の集計
+     * システム名ごとの処理時間の合計(多い順)と、スケジュール実行の待ち・実行中件数を返す。
+     *
+     * @param days 集計日数
+     * @return summary(システム名ごとの集計), schedule(スケジュール実行の状態)
+     */
+    @GetMapping("/mgpCsvExport/history/summary")
+    @ResponseBody
+    public Map<String, Object> historySummary(@RequestParam(name = "days", defaultValue = "7") int days) {
+
+		Map<String, Object> summary = new LinkedHashMap<String, Object>();
+		summary.put("summary", mgpCsvExportHistoryService.summaryBySystem(days));
+		summary.put("schedule", mgpCsvExportScheduleService.status());
+		return summary;
+    }
+
+    /**
+     * 汎用CSV出力実行履歴(定義ごとの直近)
+     *
+     * @param sqlNo SQL番号
+     * @param limit 件数
+     * @return 実行履歴(新しい順)
+     */
+    @GetMapping("/mgpCsvExport/history")
+    @ResponseBody
+    public List<Map<String, Object>> history(@RequestParam(name = "sqlNo") Integer sqlNo,
+    		@RequestParam(name = "limit", defaultValue = "50") int limit) {
+
+		return mgpCsvExportHistoryService.recent(sqlNo, limit);
+    }
+
     /**
      *　出力対象選択時処理
      *
@@ -300,10 +346,10 @@ public class MgpCsvExportController extends accessController {
             return OWN_PAGE;
         }
 
-        String cnt = "0";
+        SqlCheckResultDto checkResult = null;
         try{
 
-        	cnt = mgpCsvExportService.run(sql);
+        	checkResult = mgpCsvExportService.checkSql(sql);
 
         }catch(Exception ex){
              //例外発生時の処理
@@ -315,9 +361,15 @@ public class MgpCsvExportController extends accessController {
         }
 
     	form.setSaveFlg("1");
-        // 完了メッセージ
-    	Object p[] = {cnt};
-        String msg = ms.getMessage("MSTO0005M004",  p, null);
+        // 完了メッセージ(実件数を数えなかった場合は見積り件数)
+        String msg;
+        if (checkResult.getExactRows() != null) {
+        	Object p[] = {checkResult.getExactRows().toString()};
+        	msg = ms.getMessage("MSTO0005M004",  p, null);
+        } else {
+        	Object p[] = {String.valueOf(checkResult.getEstimatedRows())};
+        	msg = ms.getMessage("MSTO0005M006",  p, null);
+        }
         model.addAttribute("axioMessage", msg);
 		LogService.info("汎用CSV設定画面処理", "MgpCsvExportController", "SQLチェックボタン押下処理", "正常終了");
     	return OWN_PAGE;
@@ -456,7 +508,7 @@ public class MgpCsvExportController extends accessController {
        }
 
         try{
-        	mgpCsvExportService.run(sql);
+        	mgpCsvExportService.validateSql(sql);
             mgpCsvExportService.saveData(form);
 			form.setMgpCsvExportList(mgpCsvExportService.selectMgpCsvExportSearch());
 			for(MgpCsvExportDefInfo mgpCsvExportDefInfo: form.getMgpCsvExportList()){
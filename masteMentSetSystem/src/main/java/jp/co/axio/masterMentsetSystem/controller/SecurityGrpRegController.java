@@ -45,10 +45,6 @@ public class SecurityGrpRegController extends accessController {
   /** パラメータcallParameterに格納されているデータのキー（組織コード） */
   public static final String CALL_PARAMETER_DATA_KEY2 = "organizationCode";
 
-  /** ログインコントローラ */
-  @Autowired
-  LoginController loginController;
-
   @Autowired
   SecurityGrpSetService securityGrpSetService;
 
@@ -84,19 +80,7 @@ public class SecurityGrpRegController extends accessController {
       RedirectAttributes redirectAttributes) {
     LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "初期処理", "開始");
 
-    ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-    if (modelAndView != null) {
-      return modelAndView;// ログイン画面へ遷移
-    } else {
-		// 2022/06/22　権限チェック追加
-		modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
-    }
+    ModelAndView modelAndView = new ModelAndView();
 
     SecurityGrpRegForm redirectForm = (SecurityGrpRegForm) session.getAttribute(form.getClass().getSimpleName());
 
@@ -130,19 +114,7 @@ public class SecurityGrpRegController extends accessController {
       RedirectAttributes redirectAttributes) {
     LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "初期処理", "開始");
 
-    ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-    if (modelAndView != null) {
-      return modelAndView;// ログイン画面へ遷移
-    } else {
-		// 2022/06/22　権限チェック追加
-		modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
-    }
+    ModelAndView modelAndView = new ModelAndView();
 
     SecurityGrpRegForm redirectForm = (SecurityGrpRegForm) session.getAttribute(form.getClass().getSimpleName());
 
@@ -193,19 +165,7 @@ public class SecurityGrpRegController extends accessController {
 
     LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "登録ボタン押下処理", "開始");
 
-    ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-    if (modelAndView != null) {
-      return modelAndView;// ログイン画面へ遷移
-    } else {
-		// 2022/06/22　権限チェック追加
-		modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
-    }
+    ModelAndView modelAndView = new ModelAndView();
 
     // 二重送信、ページ不正アクセス防止
     if (!checkAccessToken(form)) {
@@ -331,19 +291,7 @@ public class SecurityGrpRegController extends accessController {
 
     LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "グループ無効ボタン押下処理", "開始");
 
-    ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-    if (modelAndView != null) {
-      return modelAndView;// ログイン画面へ遷移
-    } else {
-		// 2022/06/22　権限チェック追加
-		modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
-    }
+    ModelAndView modelAndView = new ModelAndView();
 
     // 二重送信、ページ不正アクセス防止
     if (!checkAccessToken(form)) {
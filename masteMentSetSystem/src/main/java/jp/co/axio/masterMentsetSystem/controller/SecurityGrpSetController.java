@@ -53,10 +53,6 @@ public class SecurityGrpSetController extends accessController {
 	/** パラメータcallParameterに格納されているデータのキー（組織コード） */
 	public static final String CALL_PARAMETER_DATA_KEY2 = "organizationCode";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
 	@Autowired
 	SecurityGrpSetService securityGrpSetService;
 
@@ -90,19 +86,7 @@ public class SecurityGrpSetController extends accessController {
 			RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "初期処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		SecurityGrpSetForm redirectForm = (SecurityGrpSetForm) session.getAttribute(form.getClass().getSimpleName());
 
@@ -159,21 +143,9 @@ public class SecurityGrpSetController extends accessController {
 			RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "画面設定処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
+		ModelAndView modelAndView = new ModelAndView();
 		SecurityGrpSetForm redirectForm = new SecurityGrpSetForm();
 
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-
 		// 組織SGIDから取得
 		List<MOrganizationAdGroupEntity> entity = null;
 		// 組織未設定セキュリティグループ
@@ -236,21 +208,9 @@ public class SecurityGrpSetController extends accessController {
 	public ModelAndView selectSecurityGrp(@ModelAttribute("SecurityGrpSetForm") SecurityGrpSetForm form,
 			RedirectAttributes redirectAttributes) throws Exception {
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
+		ModelAndView modelAndView = new ModelAndView();
 		SecurityGrpSetForm redirectForm = new SecurityGrpSetForm();
 
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-
 		// 組織SGIDから取得
 		List<MOrganizationAdGroupEntity> entity = null;
 		// 組織未設定セキュリティグループ
@@ -321,19 +281,7 @@ public class SecurityGrpSetController extends accessController {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "登録ボタン押下処理",
 				"開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 二重送信、ページ不正アクセス防止
 		if (!checkAccessToken(form)) {
@@ -463,21 +411,9 @@ public class SecurityGrpSetController extends accessController {
 		
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "画面設定処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
+		ModelAndView modelAndView = new ModelAndView();
 		SecurityGrpSetForm redirectForm = new SecurityGrpSetForm();
 
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-
 		// 組織SGIDから取得
 		List<MOrganizationAdGroupEntity> entity = null;
 		// 組織未設定セキュリティグループ
@@ -1,14 +1,10 @@
 package jp.co.axio.masterMentsetSystem.controller;
 
-import java.io.File;
-import java.io.FileInputStream;
-
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.tomcat.util.http.fileupload.IOUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -41,16 +37,9 @@ public class UserListController extends accessController {
     /** 自画面のタイトル */
     public static final String OWN_TITLE = "利用者管理機能：利用者検索";
 
-    @Value("${config.user.file.path}")
-    private String userFilePath;
-
     @Value("${config.userlist.csvname}")
     private String csvName;
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
 	@Autowired
 	UserService userListService;
 
@@ -71,19 +60,7 @@ public class UserListController extends accessController {
 	public ModelAndView init(@ModelAttribute("UserListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧初期処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		UserListForm redirectForm = (UserListForm) session.getAttribute(form.getClass().getSimpleName());
 
@@ -115,24 +92,14 @@ public class UserListController extends accessController {
     public ModelAndView userSearch(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧検索処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
 			form.setPageNo("1");
 			form.setSortCondition("");
+			// 検索ヒット件数を再取得
+			form.setCount(null);
 			userListService.selectUserList(form);
 
 		} catch (Exception e) {
@@ -165,19 +132,7 @@ public class UserListController extends accessController {
     public ModelAndView getNextPage(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧次のページへ移動処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -187,6 +142,7 @@ public class UserListController extends accessController {
 			form.setCountCheck("OK");
 			Integer offset = (currPage -1) * 10;
 			form.setOffset(offset);
+			form.setPageToken(form.getNextPageToken());
 
 			userListService.selectUserList(form);
 		} catch (Exception e) {
@@ -219,19 +175,7 @@ public class UserListController extends accessController {
     public ModelAndView getPrePage(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧前のページへ移動処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -241,6 +185,7 @@ public class UserListController extends accessController {
 			form.setCountCheck("OK");
 			Integer offset = (currPage -1) * 10;
 			form.setOffset(offset);
+			form.setPageToken(form.getPrePageToken());
 
 			userListService.selectUserList(form);
 		} catch (Exception e) {
@@ -272,19 +217,7 @@ public class UserListController extends accessController {
     public ModelAndView changeOrderBy(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧並び順変更処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		};
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -292,6 +225,8 @@ public class UserListController extends accessController {
 			form.setCountCheck("OK");
 			// 1頁目を表示
 			form.setPageNo("1");
+			// 検索ヒット件数を再取得
+			form.setCount(null);
 			// 検索実行
 			userListService.selectUserList(form);
 
@@ -324,35 +259,16 @@ public class UserListController extends accessController {
     public ModelAndView download(@ModelAttribute("userListForm") UserListForm form ,HttpServletResponse response, RedirectAttributes redirectAttributes) throws Exception {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧CSVダウンロード処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
-
-		String realPath = userFilePath;
-
-		// CSV出力情報取得
-		File csvFile = userListService.getCsvFile(form , realPath + csvName);
-
-		FileInputStream is = new FileInputStream(csvFile);
+		ModelAndView modelAndView = new ModelAndView();
 
 		response.setContentType("application/force-download"); //添付でダウンロード
-		response.addHeader("Content-Disposition", "attachment;fileName=" + csvFile.getName()); //ファイル名設定
+		response.addHeader("Content-Disposition", "attachment;fileName=" + csvName); //ファイル名設定
 
+		// CSV出力(一時ファイルを作成せず、レスポンスへ直接出力)
 		ServletOutputStream os = response.getOutputStream();
 
-		IOUtils.copy(is, os);
-		IOUtils.closeQuietly(is);
-		IOUtils.closeQuietly(os);
+		userListService.writeCsv(form, os);
+		os.flush();
 
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧CSVダウンロード処理", "正常終了");
 
@@ -369,19 +285,7 @@ public class UserListController extends accessController {
     public ModelAndView moveToUserSetPage(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者詳細画面遷移", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 遷移前の検索画面情報保存
 		session.setAttribute(form.getClass().getSimpleName(), form);
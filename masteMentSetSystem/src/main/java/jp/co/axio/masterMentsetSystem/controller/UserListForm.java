@@ -56,7 +56,31 @@ public class UserListForm extends accessForm implements Serializable {
 
 	public Integer offset;
 
-	/** 表示ページ番号 */
+	/** ページトークン(次のページ) */
+	public String nextPageToken;
+
+	/** ページトークン(前のページ) */
+	public String prePageToken;
+
+	/** ページトークン(検索用) */
+	public String pageToken;
+
+	/** キーセット検索の並び順項目(検索用) */
+	public String seekColumn;
+
+	/** キーセット検索の並び順(検索用) */
+	public String seekOrder;
+
+	/** キーセット検索の比較演算子(検索用) */
+	public String seekOperator;
+
+	/** キーセット検索の並び順項目値(検索用) */
+	public String seekValue;
+
+	/** キーセット検索のユーザID(検索用) */
+	public String seekUserId;
+
+	/** 検索ヒット件数(初回の一覧検索時に count(*) over() で同時に取得し、ページ移動・並び替えでは取得済みの件数を使用する) */
 	public String count;
 
 	/** 画面並び順 */
@@ -41,10 +41,6 @@ public class UserListGeneralController extends accessController {
     @Value("${config.userlist.defaultCnt}")
     private String defaultCnt;
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
 	@Autowired
 	UserGeneralService userListGeneralService;
 
@@ -65,13 +61,7 @@ public class UserListGeneralController extends accessController {
 	public ModelAndView init(@ModelAttribute("UserListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧初期処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		UserListForm redirectForm = (UserListForm) session.getAttribute(form.getClass().getSimpleName());
 
@@ -108,18 +98,14 @@ public class UserListGeneralController extends accessController {
     public ModelAndView userSearch(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧検索処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
 			form.setPageNo("1");
 			form.setSortCondition("");
+			// 検索ヒット件数を再取得
+			form.setCount(null);
 			form.setInvUserFlg("OFF");	// 退職者は含まない
 			userListGeneralService.selectUserList(form);
 
@@ -155,13 +141,7 @@ public class UserListGeneralController extends accessController {
     public ModelAndView getNextPage(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧次のページへ移動処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -210,13 +190,7 @@ public class UserListGeneralController extends accessController {
     public ModelAndView getPrePage(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧前のページへ移動処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -265,13 +239,7 @@ public class UserListGeneralController extends accessController {
     public ModelAndView changeOrderBy(@ModelAttribute("userListForm") UserListForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者一覧並び順変更処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			modelAndView = new ModelAndView();
-		};
+		ModelAndView modelAndView = new ModelAndView();
 
 		// 検索
 		try {
@@ -279,6 +247,8 @@ public class UserListGeneralController extends accessController {
 			form.setCountCheck("OK");
 			// 1頁目を表示
 			form.setPageNo("1");
+			// 検索ヒット件数を再取得
+			form.setCount(null);
 			form.setInvUserFlg("OFF");	// 退職者は含まない
 			// 検索実行
 			userListGeneralService.selectUserList(form);
@@ -1,15 +1,9 @@
 package jp.co.axio.masterMentsetSystem.controller;
 
-
-import java.io.File;
-import java.io.FileInputStream;
-
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.tomcat.util.http.fileupload.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
@@ -46,13 +40,6 @@ public class UserSetController extends accessController {
 	/** 検索画面URL */
 	private static final String SEARCH_PAGE = "redirect:./userList";
 
-	/** ログインコントローラ */
-	@Autowired
-	LoginController loginController;
-
-    @Value("${config.user.file.path}")
-    private String userFilePath;
-
     @Value("${config.userset.csvname}")
     private String csvName;
 
@@ -62,12 +49,6 @@ public class UserSetController extends accessController {
     @Autowired
     MessageSource ms;
 
-	@Autowired
-	HttpSession session;
-
-	// ログイン情報
-	private static final String LOGIN_FORM_SESSION_KEY = "LoginController.loginInfo";
-
 	/**
 	 * 初期処理
 	 *
@@ -75,22 +56,10 @@ public class UserSetController extends accessController {
 	 * @return ModelAndView
 	 */
 	@RequestMapping("/userSet")
-    public ModelAndView init(@ModelAttribute("model")ModelMap modelMap,  Model model, RedirectAttributes redirectAttributes)  {
+    public ModelAndView init(@ModelAttribute("model")ModelMap modelMap,  Model model, RedirectAttributes redirectAttributes, HttpServletResponse response)  {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者情報登録初期処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		/**
 		 * 2022/08/05追記
@@ -121,6 +90,11 @@ public class UserSetController extends accessController {
 	    	UserDetailDto dto = userSetService.getUserDetail(form, userId);
 
 	    	form.setUserDetailDto(dto);
+
+	    	// 検索区分ごとの所要時間(ブラウザの開発者ツールで確認可)
+	    	if (form.getSectionTimes() != null && form.getSectionTimes().length() > 0) {
+	    		response.setHeader("Server-Timing", form.getSectionTimes());
+	    	}
 		} catch (Exception e) {
 			LogService.system(OWN_TITLE, this.getClass().getSimpleName(), "利用者情報登録初期処理", "失敗した");
 			LogService.system(ExceptionUtils.getStackTrace(e));
@@ -152,24 +126,12 @@ public class UserSetController extends accessController {
     public ModelAndView save(UserSetForm form, RedirectAttributes redirectAttributes) {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者情報保存処理", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
 		ModelMap modelMap = new ModelMap();
 
 		try {
-	        LoginInfo loginInfo = (LoginInfo) session.getAttribute(LOGIN_FORM_SESSION_KEY);
+	        LoginInfo loginInfo = getLoginInfo();
 
 			userSetService.updateUserDetail(form, loginInfo.getUserId());
 
@@ -224,19 +186,7 @@ public class UserSetController extends accessController {
 			RedirectAttributes redirectAttributes) throws Exception {
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者情報CSVダイアログ", "開始");
 
-		ModelAndView modelAndView = loginController.checkLogin(OWN_TITLE, redirectAttributes);
-
-		if (modelAndView != null) {
-			return modelAndView;// ログイン画面へ遷移
-		} else {
-			// 2022/06/22　権限チェック追加
-			modelAndView = loginController.checkAdmin(OWN_TITLE, redirectAttributes);
-			if (modelAndView != null) {
-				return modelAndView;// ログイン画面へ遷移
-			} else {
-				modelAndView = new ModelAndView();
-			}
-		}
+		ModelAndView modelAndView = new ModelAndView();
 
         // CSV作成
 		String userId = form.getUserDetailDto().getUserId();
@@ -244,23 +194,16 @@ public class UserSetController extends accessController {
 
     	userSetService.getUserDetail(csvForm, userId);
 
-		String realPath = userFilePath;
 		String csvName = this.csvName + form.getUserDetailDto().getUserId() + ".csv";
 
-		// CSV出力情報取得
-		File csvFile = userSetService.getCsvFile(csvForm , realPath + csvName);
-
-		FileInputStream is = new FileInputStream(csvFile);
-
 		response.setContentType("application/force-download");//添付でダウンロード
-		response.addHeader("Content-Disposition", "attachment;fileName=" + csvFile.getName());//ファイル名設定
+		response.addHeader("Content-Disposition", "attachment;fileName=" + csvName);//ファイル名設定
 
+		// CSV出力(一時ファイルを作成せず、レスポンスへ直接出力)
 		ServletOutputStream os = response.getOutputStream();
 
-
-		IOUtils.copy(is, os);
-		IOUtils.closeQuietly(is);
-		IOUtils.closeQuietly(os);
+		userSetService.writeCsv(csvForm, os);
+		os.flush();
 
 		LogService.info(OWN_TITLE, this.getClass().getSimpleName(), "利用者情報CSVダイアログ", "正常終了");
 
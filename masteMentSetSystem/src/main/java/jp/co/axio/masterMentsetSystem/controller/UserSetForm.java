@@ -56,4 +56,7 @@ public class UserSetForm extends accessForm implements Serializable {
 	/** ユーザその他Infoリスト */
 	public List<UserOtherInfoDto> userOtherInfoList;
 
+	/** 検索区分ごとの所要時間(Server-Timing形式) */
+	public String sectionTimes;
+
 }
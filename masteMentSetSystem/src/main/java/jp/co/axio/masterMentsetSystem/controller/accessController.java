@@ -1,5 +1,6 @@
 package jp.co.axio.masterMentsetSystem.controller;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -11,6 +12,16 @@ public class accessController {
 	private final String tokenKey = "axio.accessToken";
     @Autowired
     HttpSession session;
+    @Autowired
+    HttpServletRequest request;
+
+    /**
+     * ログイン情報(LoginInterceptor がリクエストごとに1回だけセッションから取得したもの)
+     * @return ログイン情報、チェック対象外のパスの場合null
+     */
+    public LoginInfo getLoginInfo() {
+        return (LoginInfo) request.getAttribute(LoginInterceptor.LOGIN_INFO_ATTRIBUTE);
+    }
 
     public String saveAccessToken(accessForm t) {
 		//アクセストークン設定
@@ -0,0 +1,31 @@
+package jp.co.axio.masterMentsetSystem.dto;
+
+import java.sql.Timestamp;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 汎用CSV出力 差分出力設定・出力済み位置Dto(m_gp_csvexport_delta)
+ *
+ * @author axio
+ */
+
+@Setter
+@Getter
+public class CsvExportDeltaDto {
+
+	/** SQL番号 */
+	private Integer sqlNo;
+	/** キー項目(出力元の物理名) */
+	private String keyColumn;
+	/** 全件出力の間隔(日、0:定期的な全件出力なし) */
+	private int fullIntervalDays;
+	/** 出力済みの最終更新日時 */
+	private Timestamp lastUpdateTs;
+	/** 出力済みの最終更新日時の中の最終キー */
+	private String lastKey;
+	/** 前回全件出力日時 */
+	private Timestamp lastFullTs;
+
+}
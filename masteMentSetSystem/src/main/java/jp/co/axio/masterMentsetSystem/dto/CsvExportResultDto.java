@@ -0,0 +1,45 @@
+package jp.co.axio.masterMentsetSystem.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 汎用CSV出力 実行結果Dto
+ *
+ * @author axio
+ */
+
+@Setter
+@Getter
+public class CsvExportResultDto {
+
+	/** SQL番号 */
+	private Integer sqlNo;
+	/** システム名 */
+	private String systemId;
+	/** 出力区分(FULL:全件, DELTA:差分) */
+	private String exportMode;
+	/** 出力ファイル */
+	private String filePath;
+	/** 削除ファイル(差分出力の場合) */
+	private String deleteFilePath;
+	/** 結果(true:正常終了) */
+	private boolean success;
+	/** エラーメッセージ */
+	private String errorMessage;
+	/** 出力件数 */
+	private long rows;
+	/** 分割数(分割出力の場合) */
+	private int parts;
+	/** 削除件数(差分出力の場合) */
+	private long deleteRows;
+	/** 出力サイズ(バイト) */
+	private long bytes;
+	/** 処理時間(ミリ秒) */
+	private long elapsedMillis;
+	/** 件数/秒 */
+	private double rowsPerSecond;
+	/** MB/秒 */
+	private double mbPerSecond;
+
+}
@@ -0,0 +1,25 @@
+package jp.co.axio.masterMentsetSystem.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 汎用CSV出力 分割出力設定Dto(m_gp_csvexport_split)
+ *
+ * @author axio
+ */
+
+@Setter
+@Getter
+public class CsvExportSplitDto {
+
+	/** SQL番号 */
+	private Integer sqlNo;
+	/** 分割項目(出力元の物理名) */
+	private String splitColumn;
+	/** 分割数 */
+	private int parts;
+	/** 分割ファイル出力フラグ(1:分割ごとにファイルを出力, 0:1ファイルに結合) */
+	private String partFileFlag;
+
+}
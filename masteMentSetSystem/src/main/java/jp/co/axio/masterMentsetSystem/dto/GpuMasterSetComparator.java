@@ -2,25 +2,49 @@ package jp.co.axio.masterMentsetSystem.dto;
 
 import java.util.Comparator;
 
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * コードリストの表示順比較
+ * 比較の前に各行の sortKey に表示順の数値(sortKey(dispOrder))を設定しておくこと。
+ * 表示順が空の行は最後とし、空の行どうしは並び替えない。
+ */
 public class GpuMasterSetComparator implements Comparator<GpuMasterSetDto> {
     @Override
 	public int compare(GpuMasterSetDto p1, GpuMasterSetDto p2) {
-		String p1order = p1.dispOrder;
-		String p2order = p2.dispOrder;
+		Integer p1order = p1.sortKey;
+		Integer p2order = p2.sortKey;
 
 		// 表示順が両方とも空白なら並び替えない
-		if((p1order == null || p1order == "") && (p2order == null || p2order == "")){
+		if(p1order == null && p2order == null){
 		    return 0;
 		}
 
-		if(p1order == null || p1order == ""){
+		if(p1order == null){
 		    return 1;
 		}
 
-		if(p2order == null || p2order == ""){
+		if(p2order == null){
 		    return -1;
 		}
 
-		return String.valueOf(String.format("%04d", Integer.parseInt(p1order))).compareTo(String.valueOf(String.format("%04d", Integer.parseInt(p2order))));
+		return Integer.compare(p1order, p2order);
 	}
+
+    /**
+     * 並び替えキー
+     *
+     * @param dispOrder 表示順
+     * @return 表示順の数値(空・数値以外の場合null)
+     */
+    public static Integer sortKey(String dispOrder) {
+		if (StringUtils.isEmpty(dispOrder)) {
+		    return null;
+		}
+		try {
+		    return Integer.valueOf(dispOrder.trim());
+		} catch (NumberFormatException e) {
+		    return null;
+		}
+    }
 }
@@ -29,6 +29,9 @@ public class GpuMasterSetDto {
     /** 表示順 */
     public String dispOrder;
 
+    /** 表示順の並び替えキー(並び替えの前に設定する、表示順が空の場合null) */
+    public Integer sortKey;
+
     /** 登録者統一ID */
     public String registerId;
 
@@ -0,0 +1,21 @@
+package jp.co.axio.masterMentsetSystem.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 汎用CSV設定画面 SQLチェック結果Dto
+ *
+ * @author axio
+ */
+
+@Setter
+@Getter
+public class SqlCheckResultDto {
+
+	/** 実行計画の見積り件数 */
+	private long estimatedRows;
+	/** 実件数(件数を数えなかった場合、時間内に数え終わらなかった場合はnull) */
+	private Long exactRows;
+
+}
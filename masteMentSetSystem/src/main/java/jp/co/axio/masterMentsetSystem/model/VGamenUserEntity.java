@@ -98,4 +98,6 @@ public class VGamenUserEntity {
     private String hubName;
     /** 人事領域名 */
     private String companyName;
+    /** 検索ヒット件数(一覧検索時のみ) */
+    private Integer totalCount;
 }
\ No newline at end of file
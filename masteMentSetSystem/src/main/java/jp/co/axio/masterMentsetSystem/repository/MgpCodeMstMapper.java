@@ -32,4 +32,10 @@ public interface MgpCodeMstMapper {
     int updateByPrimaryKeySelective(MgpCodeMst record);
 
     int updateByPrimaryKey(MgpCodeMst record);
+
+    int upsertGpuMasterSet(@Param("classCode") String classCode, @Param("codeValue") String codeValue,
+            @Param("gpCodeMstName") String gpCodeMstName, @Param("valueNo") int valueNo, @Param("value") String value,
+            @Param("dispOrder") String dispOrder, @Param("versionNumber") Integer versionNumber);
+
+    int updateDeleteFlagByVersion(MgpCodeMst record);
 }
\ No newline at end of file
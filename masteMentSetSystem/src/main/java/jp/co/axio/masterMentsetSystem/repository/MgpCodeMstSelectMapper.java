@@ -16,6 +16,10 @@ public interface MgpCodeMstSelectMapper {
     
     List<MgpCodeMst> selectMgpCodeMstSearchByGpuMasterSet(@Param("classCodeId") String classCodeId);
 
+    List<MgpCodeMst> selectMgpCodeMstAllValid();
+
+    String selectMgpCodeMstVersion();
+
 
 	List<MgpCodeMst> selectMgpCodeMstByAuthComCodeList(
 														 @Param("companyCodeSet") Set<String> companyCodeSet
@@ -12,6 +12,8 @@ import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
 public interface TargetViewMapper {
 
     List<TargetViewInfoResultListDto> selectAllByView(@Param("sqlOutTableName") String sqlOutTableName);
+
+    String selectViewVersion(@Param("sqlOutTableName") String sqlOutTableName);
     
     long countBySystemId(MgpCsvExportDefInfo record);
     
@@ -1,10 +1,12 @@
 package jp.co.axio.masterMentsetSystem.repository;
 
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import jp.co.axio.masterMentsetSystem.controller.UserListForm;
 import jp.co.axio.masterMentsetSystem.dto.UserAnnCmbOrgDto;
@@ -21,10 +23,18 @@ public interface VUserMapper {
 
 	List<VGamenUserEntity> selectUserList(UserListForm form);
 
-	List<VGamenUserEntity> getCsvList(UserListForm form);
+	List<VGamenUserEntity> selectUserListByKeyset(UserListForm form);
+
+	void getCsvList(UserListForm form, ResultHandler<VGamenUserEntity> handler);
 
 	String getUserCount(UserListForm form);
 
+	List<VGamenUserEntity> selectUserDirectory(@Param("since") Timestamp since);
+
+	Timestamp getUserDirectoryWatermark();
+
+	String getUserDirectoryCollation();
+
 	VGamenUserEntity getUser(VGamenUserEntity entity);
 
 	List<UserGrpDto> getUserGrp(String userId);
@@ -14,7 +14,6 @@ import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.controller.AuthComCodeListController;
 import jp.co.axio.masterMentsetSystem.dto.AuthComCodeListDto;
 import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
-import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 
 /**
  * 会社コード一覧画面サービスクラス
@@ -25,9 +24,12 @@ import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 @Service
 public class AuthComCodeListService {
 
+    /** 汎用コードマスタの会社コードの分類コード */
+    private static final String CLASS_CODE = "00001";
+
     /* 汎用コードマスタ */
     @Autowired
-    MgpCodeMstSelectMapper MgpCodeMstSelectMapper;
+    CodeMasterCacheService codeMasterCacheService;
 
     /**
      * 会社情報検索処理
@@ -73,15 +75,9 @@ public class AuthComCodeListService {
         //codeSet.addAll(checkedCodeSet);
 
         if (searchFlag || codeSet.size() > 0) {
-			// 「\」「%」をエスケープ
-			if (searchCompanyCode.indexOf("\\") >= 0) searchCompanyCode = searchCompanyCode.replace("\\", "\\\\");
-			if (searchCompanyCode.indexOf("%") >= 0) searchCompanyCode = searchCompanyCode.replace("%", "\\%");
-			if (searchCompanyName.indexOf("\\") >= 0) searchCompanyName = searchCompanyName.replace("\\", "\\\\");
-			if (searchCompanyName.indexOf("%") >= 0) searchCompanyName = searchCompanyName.replace("%", "\\%");
-			mgpCodeMstList = MgpCodeMstSelectMapper.selectMgpCodeMstByAuthComCodeList(codeSet
-																						, searchFlag
-																						, searchCompanyCode
-																						, searchCompanyName);
+			mgpCodeMstList = codeMasterCacheService.searchCodeList(CLASS_CODE, codeSet, searchFlag
+																	, searchCompanyCode
+																	, searchCompanyName);
         }
 		if (mgpCodeMstList != null) {
 			List<AuthComCodeListDto> list = new ArrayList<AuthComCodeListDto>();
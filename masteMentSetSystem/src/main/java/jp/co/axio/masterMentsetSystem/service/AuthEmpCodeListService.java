@@ -15,7 +15,6 @@ import jp.co.axio.masterMentsetSystem.controller.AuthEmpCodeListController;
 import jp.co.axio.masterMentsetSystem.dto.AuthEmpCodeListDto;
 import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
 import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstMapper;
-import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 
 /**
  * 雇用区分コード一覧画面サービスクラス
@@ -26,9 +25,12 @@ import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 @Service
 public class AuthEmpCodeListService {
 
+    /** 汎用コードマスタの雇用区分コードの分類コード */
+    private static final String CLASS_CODE = "00003";
+
     /* 汎用コードマスタ */
     @Autowired
-    MgpCodeMstSelectMapper MgpCodeMstSelectMapper;
+    CodeMasterCacheService codeMasterCacheService;
 
     @Autowired
     MgpCodeMstMapper MgpCodeMstMapper;
@@ -76,15 +78,9 @@ public class AuthEmpCodeListService {
         codeSet.addAll(selectedCodeSet);
         //codeSet.addAll(checkedCodeSet);
         if (searchFlag || codeSet.size() > 0) {
-			// 「\」「%」をエスケープ
-			if (searchEmploymentCode.indexOf("\\") >= 0) searchEmploymentCode = searchEmploymentCode.replace("\\", "\\\\");
-			if (searchEmploymentCode.indexOf("%") >= 0) searchEmploymentCode = searchEmploymentCode.replace("%", "\\%");
-			if (searchEmploymentName.indexOf("\\") >= 0) searchEmploymentName = searchEmploymentName.replace("\\", "\\\\");
-			if (searchEmploymentName.indexOf("%") >= 0) searchEmploymentName = searchEmploymentName.replace("%", "\\%");
-			mgpCodeMstList = MgpCodeMstSelectMapper.selectMgpCodeMstByAuthEmpCodeList(codeSet
-																					, searchFlag
-																					, searchEmploymentCode
-																					, searchEmploymentName);
+			mgpCodeMstList = codeMasterCacheService.searchCodeList(CLASS_CODE, codeSet, searchFlag
+																	, searchEmploymentCode
+																	, searchEmploymentName);
         }
 		if (mgpCodeMstList != null) {
 			List<AuthEmpCodeListDto> list = new ArrayList<AuthEmpCodeListDto>();
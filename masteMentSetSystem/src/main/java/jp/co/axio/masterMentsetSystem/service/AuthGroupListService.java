@@ -12,6 +12,7 @@ import jp.co.axio.masterMentsetSystem.controller.AuthGroupListForm;
 import jp.co.axio.masterMentsetSystem.dto.AuthGroupListDto;
 import jp.co.axio.masterMentsetSystem.model.MGroupEntity;
 import jp.co.axio.masterMentsetSystem.repository.MGroupEntityMapper;
+import jp.co.axio.masterMentsetSystem.util.StringUtil;
 
 /**
  * グループ一覧画面サービスクラス
@@ -60,16 +61,16 @@ public class AuthGroupListService {
 		String refDate = null;
 
 		if (StringUtils.isNotBlank(form.getDailogGroupId())) {
-			groupId = "%" + StringUtils.trim(form.getDailogGroupId()) + "%";
+			groupId = StringUtil.toLikeContains(StringUtils.trim(form.getDailogGroupId()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogGroupNameEn())) {
-			groupNameEn = "%" + StringUtils.trim(form.getDailogGroupNameEn()) + "%";
+			groupNameEn = StringUtil.toLikeContains(StringUtils.trim(form.getDailogGroupNameEn()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogGroupNameJp())) {
-			groupNameJp = "%" + StringUtils.trim(form.getDailogGroupNameJp()) + "%";
+			groupNameJp = StringUtil.toLikeContains(StringUtils.trim(form.getDailogGroupNameJp()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogGroupNote())) {
-			groupNote = "%" + StringUtils.trim(form.getDailogGroupNote()) + "%";
+			groupNote = StringUtil.toLikeContains(StringUtils.trim(form.getDailogGroupNote()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogStartDate())) {
 			refDate = form.getDailogStartDate();
@@ -58,7 +58,7 @@ public class AuthGroupSetService {
     		groupRuleList.add(item);
     	}
 
-        LogService.info("グループ設定画面", "selectGroupRuleList", "グループ関連ルール検索処理", "正常終了");
+        LogService.info("グループ設定画面", "selectGroupRuleList", "グループ関連ルールリスト検索処理", "正常終了");
     	return groupRuleList;
     }
 
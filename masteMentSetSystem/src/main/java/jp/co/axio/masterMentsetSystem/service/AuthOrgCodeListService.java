@@ -96,13 +96,6 @@ public class AuthOrgCodeListService {
         }
 
         if (searchFlag || codeMapList.size() > 0) {
-			// 「\」「%」をエスケープ
-			if (searchCompanyCode.indexOf("\\") >= 0) searchCompanyCode = searchCompanyCode.replace("\\", "\\\\");
-			if (searchCompanyCode.indexOf("%") >= 0) searchCompanyCode = searchCompanyCode.replace("%", "\\%");
-			if (searchDepartmentCode.indexOf("\\") >= 0) searchDepartmentCode = searchDepartmentCode.replace("\\", "\\\\");
-			if (searchDepartmentCode.indexOf("%") >= 0) searchDepartmentCode = searchDepartmentCode.replace("%", "\\%");
-			if (searchDepartmentName.indexOf("\\") >= 0) searchDepartmentName = searchDepartmentName.replace("\\", "\\\\");
-			if (searchDepartmentName.indexOf("%") >= 0) searchDepartmentName = searchDepartmentName.replace("%", "\\%");
 			mOrganizationEntityList = mOrganizationEntityMapper.selectMOrganizationByAuthOrgCodeList(codeMapList
 																								, searchFlag
 																								, searchCompanyCode
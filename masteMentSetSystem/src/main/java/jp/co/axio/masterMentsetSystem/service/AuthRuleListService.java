@@ -14,6 +14,7 @@ import jp.co.axio.masterMentsetSystem.controller.AuthRuleListForm;
 import jp.co.axio.masterMentsetSystem.dto.RuleConditionSetDto;
 import jp.co.axio.masterMentsetSystem.model.MRuleEntity;
 import jp.co.axio.masterMentsetSystem.repository.MRuleEntityMapper;
+import jp.co.axio.masterMentsetSystem.util.StringUtil;
 
 /**
  * 権限ルール条件一覧画面サービスクラス
@@ -64,13 +65,13 @@ public class AuthRuleListService {
 		java.sql.Date refDate = null;
 
 		if (StringUtils.isNotBlank(form.getDailogRuleId())) {
-			ruleId = "%" + StringUtils.trim(form.getDailogRuleId()) + "%";
+			ruleId = StringUtil.toLikeContains(StringUtils.trim(form.getDailogRuleId()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogRuleName())) {
-			ruleName = "%" + StringUtils.trim(form.getDailogRuleName()) + "%";
+			ruleName = StringUtil.toLikeContains(StringUtils.trim(form.getDailogRuleName()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogRuleNote())) {
-			ruleNote = "%" + StringUtils.trim(form.getDailogRuleNote()) + "%";
+			ruleNote = StringUtil.toLikeContains(StringUtils.trim(form.getDailogRuleNote()));
 		}
 		if (StringUtils.isNotBlank(form.getDailogStartDate())) {
 			try {
@@ -204,11 +204,11 @@ public class AuthRuleSetService {
 	*/
 	@Transactional
 	public int deleteAuthRuleInfo (String ruleId) throws Exception {
-		LogService.info("ルール条件設定画面", "AuthRuleSetService", "ルール情報削除(ruleId="+ruleId+")", "開始");
+		LogService.info("ルール条件設定画面", "AuthRuleSetService", "ルール情報削除", "開始 : ruleId = {}", ruleId);
 
 		int rt = (int)mrMapper.deleteRule(ruleId);
 
-		LogService.info("ルール条件設定画面", "AuthRuleSetService", "ルール情報削除(ruleId="+ruleId+")", "正常終了");
+		LogService.info("ルール条件設定画面", "AuthRuleSetService", "ルール情報削除", "正常終了 : ruleId = {}", ruleId);
 		return rt;
 	}
 
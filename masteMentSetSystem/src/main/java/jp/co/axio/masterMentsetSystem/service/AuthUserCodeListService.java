@@ -32,6 +32,10 @@ public class AuthUserCodeListService {
     @Autowired
     VUserMapper vUserMapper;
 
+    /* ユーザー検索ディレクトリ */
+    @Autowired
+    UserDirectoryService userDirectoryService;
+
     /**
      * ユーザー情報検索処理
      *
@@ -94,17 +98,20 @@ public class AuthUserCodeListService {
         }
 
         if (searchFlag || codeMapList.size() > 0) {
-			// 「\」「%」をエスケープ
-			if (searchUserCode.indexOf("\\") >= 0) searchUserCode = searchUserCode.replace("\\", "\\\\");
-			if (searchUserCode.indexOf("%") >= 0) searchUserCode = searchUserCode.replace("%", "\\%");
-			if (searchUserName.indexOf("\\") >= 0) searchUserName = searchUserName.replace("\\", "\\\\");
-			if (searchUserName.indexOf("%") >= 0) searchUserName = searchUserName.replace("%", "\\%");
-			vUserListEntityList = vUserMapper.selectVUserByAuthUserCodeList(codeMapList
+			// ユーザー検索ディレクトリ(メモリ)で検索できない場合、DBを検索する
+			vUserListEntityList = userDirectoryService.selectVUserByAuthUserCodeList(codeMapList
 																			, searchFlag
 																			, searchUserCode
 																			, searchUserName
-																			, searchStartDateYmd
-																			, searchEndDateYmd);
+																			, searchStartDateYmd);
+			if (vUserListEntityList == null) {
+				vUserListEntityList = vUserMapper.selectVUserByAuthUserCodeList(codeMapList
+																				, searchFlag
+																				, searchUserCode
+																				, searchUserName
+																				, searchStartDateYmd
+																				, searchEndDateYmd);
+			}
         }
 		if (vUserListEntityList != null) {
 			List<AuthUserCodeListDto> list = new ArrayList<AuthUserCodeListDto>();
@@ -0,0 +1,231 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.MasterChangeNotifier;
+import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
+import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
+
+/**
+ * 汎用コードマスタキャッシュサービスクラス
+ * 汎用コードマスタ(m_gp_code_mst)の有効な行を1回の検索で読み込み、分類コードごとの一覧として保持する。
+ * <ul>
+ * <li>保持する一覧は変更しない(読み込み直す場合は全体を作り直して置き換える)。呼び出し元でも変更しないこと。</li>
+ * <li>確認間隔ごとにテーブルの版(件数・最大バージョン番号・行の更新)を確認し、変わっていれば読み込み直す。</li>
+ * <li>汎用コードマスタ設定画面で更新した場合は、コミット後に次回の参照で読み込み直す。</li>
+ * <li>他のサーバーで更新した場合は、変更通知(MasterChangeNotifier)の受信時に無効にし、次回の参照で読み込み直す。</li>
+ * </ul>
+ *
+ * @author axio
+ */
+@Service
+public class CodeMasterCacheService implements ApplicationRunner {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用コードマスタ";
+	/** 自処理名 */
+	private static final String OWN_NAME = "CodeMasterCacheService";
+
+	/** 値1の昇順(nullは最後、同じ値はコード値の昇順) */
+	private static final Comparator<MgpCodeMst> VALUE1_ORDER = Comparator
+			.comparing(MgpCodeMst::getValue1, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+			.thenComparing(MgpCodeMst::getCodeValue, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+	/** テーブル名(変更通知) */
+	private static final String TABLE_NAME = "m_gp_code_mst";
+
+	@Autowired
+	MgpCodeMstSelectMapper mgpCodeMstSelectMapper;
+
+	@Autowired
+	MasterChangeNotifier masterChangeNotifier;
+
+	/** キャッシュを使用するか(false:毎回DBから取得) */
+	@Value("${config.codemaster.cache.enabled:true}")
+	private boolean enabled;
+
+	/** 版の確認間隔(ミリ秒、0の場合は毎回確認する) */
+	@Value("${config.codemaster.cache.checkMillis:10000}")
+	private long checkMillis;
+
+	/** 保持している一覧(読み込み前・無効化後はnull) */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * 変更通知の受信時に無効にする(分類コードごとではなく全体を読み込み直す)
+	 */
+	@PostConstruct
+	public void init() {
+		masterChangeNotifier.subscribe(TABLE_NAME, classCode -> snapshot = null);
+	}
+
+	/**
+	 * 起動時に読み込む(失敗しても起動は継続し、参照時に読み込む)
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!enabled) {
+			return;
+		}
+		try {
+			load();
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "汎用コードマスタ読込処理", e.getMessage());
+		}
+	}
+
+	/**
+	 * 分類コードの一覧(表示順、コード値の順)
+	 *
+	 * @param classCode 分類コード
+	 * @return 汎用コードマスタ(変更不可、該当なしの場合は空)
+	 */
+	public List<MgpCodeMst> getList(String classCode) {
+		if (!enabled) {
+			return Collections.unmodifiableList(mgpCodeMstSelectMapper.selectMgpCodeMstSearchByGpuMasterSet(classCode));
+		}
+		List<MgpCodeMst> list = current().byClass.get(classCode);
+		return list == null ? Collections.<MgpCodeMst>emptyList() : list;
+	}
+
+	/**
+	 * 分類コードの一覧(値1の順)
+	 *
+	 * @param classCode 分類コード
+	 * @return 汎用コードマスタ(呼び出し元で変更してよい複製)
+	 */
+	public List<MgpCodeMst> getListOrderByValue1(String classCode) {
+		List<MgpCodeMst> list = new ArrayList<MgpCodeMst>(getList(classCode));
+		list.sort(VALUE1_ORDER);
+		return list;
+	}
+
+	/**
+	 * コード一覧画面の検索(値1:コード、値2・値3:名称)
+	 * 値1のある行のうち、選択済みのコード、または検索する場合はコード・名称を含む行を値1の順で返す。
+	 *
+	 * @param classCode 分類コード
+	 * @param codeSet 選択済みのコード
+	 * @param searchFlag true:検索条件で検索する
+	 * @param searchCode 検索するコード(部分一致)
+	 * @param searchName 検索する名称(値2または値3の部分一致)
+	 * @return 汎用コードマスタ
+	 */
+	public List<MgpCodeMst> searchCodeList(String classCode, Set<String> codeSet, boolean searchFlag,
+			String searchCode, String searchName) {
+		List<MgpCodeMst> result = new ArrayList<MgpCodeMst>();
+		for (MgpCodeMst code : getListOrderByValue1(classCode)) {
+			if (code.getValue1() == null) {
+				continue;
+			}
+			if (codeSet.contains(code.getValue1())
+					|| searchFlag && code.getValue1().contains(StringUtils.defaultString(searchCode))
+							&& (StringUtils.contains(code.getValue2(), StringUtils.defaultString(searchName))
+									|| StringUtils.contains(code.getValue3(), StringUtils.defaultString(searchName)))) {
+				result.add(code);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 保持している一覧を無効にする(トランザクション中の場合はコミット後)
+	 * 他のサーバーにも変更を通知する。
+	 */
+	public void invalidate() {
+		masterChangeNotifier.publish(TABLE_NAME, null);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					snapshot = null;
+				}
+			});
+		} else {
+			snapshot = null;
+		}
+	}
+
+	/**
+	 * 現在の一覧(確認間隔を過ぎていれば版を確認し、変わっていれば読み込み直す)
+	 *
+	 * @return 一覧
+	 */
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			return load();
+		}
+		long now = System.nanoTime();
+		if (now - current.checkedAt >= TimeUnit.MILLISECONDS.toNanos(checkMillis)) {
+			if (!Objects.equals(current.version, mgpCodeMstSelectMapper.selectMgpCodeMstVersion())) {
+				return load();
+			}
+			current.checkedAt = now;
+		}
+		return current;
+	}
+
+	/**
+	 * 全件を読み込み、保持している一覧を置き換える
+	 * 版を先に取得するため、読み込み中に更新された場合は次回の確認で読み込み直す。
+	 *
+	 * @return 一覧
+	 */
+	private synchronized Snapshot load() {
+		Snapshot current = snapshot;
+		if (current != null && System.nanoTime() - current.checkedAt < TimeUnit.MILLISECONDS.toNanos(checkMillis)) {
+			// 他のスレッドが読み込み済み
+			return current;
+		}
+		String version = mgpCodeMstSelectMapper.selectMgpCodeMstVersion();
+		Map<String, List<MgpCodeMst>> byClass = new LinkedHashMap<String, List<MgpCodeMst>>();
+		for (MgpCodeMst code : mgpCodeMstSelectMapper.selectMgpCodeMstAllValid()) {
+			byClass.computeIfAbsent(code.getClassCode(), k -> new ArrayList<MgpCodeMst>()).add(code);
+		}
+		for (Map.Entry<String, List<MgpCodeMst>> entry : byClass.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		Snapshot loaded = new Snapshot(version, Collections.unmodifiableMap(byClass));
+		snapshot = loaded;
+		LogService.debug(LOG_TITLE, OWN_NAME, "汎用コードマスタ読込処理", "分類 {} 件, 版 {}", byClass.size(), version);
+		return loaded;
+	}
+
+	/**
+	 * 分類コードごとの一覧と版
+	 */
+	private static class Snapshot {
+		/** 版 */
+		final String version;
+		/** 分類コード → 汎用コードマスタ */
+		final Map<String, List<MgpCodeMst>> byClass;
+		/** 版を確認した時刻(System.nanoTime) */
+		volatile long checkedAt = System.nanoTime();
+
+		Snapshot(String version, Map<String, List<MgpCodeMst>> byClass) {
+			this.version = version;
+			this.byClass = byClass;
+		}
+	}
+}
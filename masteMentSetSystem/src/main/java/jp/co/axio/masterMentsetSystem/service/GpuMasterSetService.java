@@ -2,9 +2,18 @@ package jp.co.axio.masterMentsetSystem.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +24,6 @@ import jp.co.axio.masterMentsetSystem.dto.GpuMasterSetDto;
 import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
 import jp.co.axio.masterMentsetSystem.model.MgpCodeMstKey;
 import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstMapper;
-import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 
 /**
  * 汎用コードマスタ設定画面サービスクラス
@@ -36,10 +44,32 @@ public class GpuMasterSetService {
 
     /* 汎用コードマスタ */
     @Autowired
-    MgpCodeMstSelectMapper MgpCodeMstSelectMapper;
+    MgpCodeMstMapper MgpCodeMstMapper;
 
     @Autowired
-    MgpCodeMstMapper MgpCodeMstMapper;
+    CodeMasterCacheService codeMasterCacheService;
+
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+	/** 値の列数(value_1 ～ value_15) */
+	private static final int MAX_VALUE_NO = 15;
+
+	/** 保存時の一括実行件数(この件数ごとにDBへ送信する) */
+	@Value("${config.gpumaster.save.batchSize:1000}")
+	private int saveBatchSize;
+
+	/** 保存用(一括実行) */
+	private SqlSessionTemplate batchSqlSession;
+
+	/**
+	 * 保存用の一括実行セッション作成
+	 * トランザクション中は同じ接続を使用するため、保存処理では一括実行の前に通常のMapperを使用しないこと。
+	 */
+	@PostConstruct
+	public void init() {
+		batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+	}
 
     /**
      * 汎用コード情報検索条件用データ取得 select
@@ -51,7 +81,7 @@ public class GpuMasterSetService {
 
 		Boolean checkflg = false;
 
-		List<MgpCodeMst> classCodeInfo = MgpCodeMstSelectMapper.selectMgpCodeMstSearchByclassCode();
+		List<MgpCodeMst> classCodeInfo = new ArrayList<>(codeMasterCacheService.getList(classCodeId));
 		for(MgpCodeMst mgpCodeMst: classCodeInfo){
 			if (mgpCodeMst.getCodeValue().equals(classCodeId)) {
 				checkflg =true;
@@ -304,7 +334,7 @@ public class GpuMasterSetService {
      * @return 汎用マスタ値情報
      */
     @Transactional
-    public List<GpuMasterSetDto> selectMgpCodeMstSearchByGpuMasterSet (String selectClassCodeValue, String classCodeId) throws Exception{
+    public List<GpuMasterSetDto> selectMgpCodeMstSearchByGpuMasterSet (String selectClassCodeValue, String classCodeId) {
 
         LogService.info("汎用コードマスタ設定画面", "GpuMasterSetService", "値編集のリスト検索処理", "開始");
 		List<GpuMasterSetDto> selectValueLista  = new ArrayList<>();
@@ -312,7 +342,7 @@ public class GpuMasterSetService {
 		if (selectClassCodeValue.equals("0")) {
         	return selectValueLista;
         }
-		List<MgpCodeMst> selectValueList = MgpCodeMstSelectMapper.selectMgpCodeMstSearchByGpuMasterSet(classCodeId);
+		List<MgpCodeMst> selectValueList = codeMasterCacheService.getList(classCodeId);
 
 		GpuMasterSetDto outputDto = null;
 		for(MgpCodeMst MgpCodeMst: selectValueList){
@@ -378,164 +408,106 @@ public class GpuMasterSetService {
 
     /**
      * 汎用コードマスタ登録・更新・削除処理
+     * 変更行を先にまとめ、登録・更新は INSERT ... ON CONFLICT、削除は論理削除として、一括実行(ExecutorType.BATCH)で反映する。
+     * 変更・削除行は画面表示時のバージョンNOと一致する場合のみ反映し、一致しない行があればすべて取り消す。
+     *
+     * @throws OptimisticLockingFailureException 他の端末で更新されていた場合
      */
     @Transactional
     public void saveData(GpuMasterSetForm form, List<GpuMasterSetDto> selectClassCodeList) throws Exception{
         LogService.info("汎用コードマスタ設定画面", "GpuMasterSetService", "汎用コードマスタ登録・更新・削除処理", "開始");
-		for(GpuMasterSetDto editDto: selectClassCodeList){
-		    if(StringUtils.isEmpty(editDto.editClass)){
-			continue;
-		    } else if (editDto.editClass.equals("1")) {
-		    	MgpCodeMstKey MgpCodeMstKey = new MgpCodeMstKey();
-		    	MgpCodeMstKey.setClassCode(editDto.getClassCode());
-		    	MgpCodeMstKey.setCodeValue(editDto.getCodeValue());
-			    MgpCodeMst MgpCodeMstOut = MgpCodeMstMapper.selectByPrimaryKey(MgpCodeMstKey);
-			    if(MgpCodeMstOut != null ) {
-		            editDto.setEditClass("2");
-			    }
-		    }
-		    switch(editDto.editClass){
-		    case "1":
-			// 登録処理
-			MgpCodeMst insertEntity = new MgpCodeMst();
-
-
-			insertEntity.setClassCode(editDto.getClassCode());
-			insertEntity.setCodeValue(editDto.getCodeValue());
-			insertEntity.setGpCodeMstName(editDto.gpCodeMstName);;
-			switch(form.getSelectClassCodeValue()){
+
+		int valueNo = Integer.parseInt(form.getSelectClassCodeValue());
+		if (valueNo < 1 || valueNo > MAX_VALUE_NO) {
+			throw new IllegalArgumentException("値種別が不正です : " + form.getSelectClassCodeValue());
+		}
+
+		// 変更内容(表示順の有無でSQLが異なるため、同じSQLが続くよう表示順のない行は後にまとめる)
+		List<GpuMasterSetDto> upsertList = new ArrayList<GpuMasterSetDto>();
+		List<GpuMasterSetDto> upsertNoOrderList = new ArrayList<GpuMasterSetDto>();
+		List<GpuMasterSetDto> deleteList = new ArrayList<GpuMasterSetDto>();
+		for (GpuMasterSetDto editDto : selectClassCodeList) {
+			if (StringUtils.isEmpty(editDto.editClass)) {
+				continue;
+			}
+			switch (editDto.editClass) {
 			case "1":
-			    insertEntity.setValue1(editDto.getValue());
-			    break;
 			case "2":
-			    insertEntity.setValue2(editDto.getValue());
-			    break;
+				(StringUtils.isNotBlank(editDto.dispOrder) ? upsertList : upsertNoOrderList).add(editDto);
+				break;
 			case "3":
-			    insertEntity.setValue3(editDto.getValue());
-			    break;
-			case "4":
-			    insertEntity.setValue4(editDto.getValue());
-			    break;
-			case "5":
-			    insertEntity.setValue5(editDto.getValue());
-			    break;
-			case "6":
-			    insertEntity.setValue6(editDto.getValue());
-			    break;
-			case "7":
-			    insertEntity.setValue7(editDto.getValue());
-			    break;
-			case "8":
-			    insertEntity.setValue8(editDto.getValue());
-			    break;
-			case "9":
-			    insertEntity.setValue9(editDto.getValue());
-			    break;
-			case "10":
-			    insertEntity.setValue10(editDto.getValue());
-			    break;
-			case "11":
-			    insertEntity.setValue11(editDto.getValue());
-			    break;
-			case "12":
-			    insertEntity.setValue12(editDto.getValue());
-			    break;
-			case "13":
-			    insertEntity.setValue13(editDto.getValue());
-			    break;
-			case "14":
-			    insertEntity.setValue14(editDto.getValue());
-			    break;
-			case "15":
-			    insertEntity.setValue15(editDto.getValue());
-			    break;
+				deleteList.add(editDto);
+				break;
 			}
-
-		    if(StringUtils.isNotBlank(editDto.dispOrder)) {
-				insertEntity.setDispOrder(editDto.dispOrder);
-		    }
-
-			insertEntity.setDeleteFlag("0");
-			insertEntity.setVersionNumber(new Integer("1"));
-			MgpCodeMstMapper.insertSelective(insertEntity);
-			break;
-
-		    case "2":
-				MgpCodeMst updateEntity = new MgpCodeMst();
-
-
-				updateEntity.setClassCode(form.getClassCodeId());
-				updateEntity.setCodeValue(editDto.getCodeValue());
-				updateEntity.setGpCodeMstName(editDto.gpCodeMstName);
-				switch(form.getSelectClassCodeValue()){
-				case "1":
-					updateEntity.setValue1(editDto.getValue());
-				    break;
-				case "2":
-					updateEntity.setValue2(editDto.getValue());
-				    break;
-				case "3":
-					updateEntity.setValue3(editDto.getValue());
-				    break;
-				case "4":
-					updateEntity.setValue4(editDto.getValue());
-				    break;
-				case "5":
-					updateEntity.setValue5(editDto.getValue());
-				    break;
-				case "6":
-					updateEntity.setValue6(editDto.getValue());
-				    break;
-				case "7":
-					updateEntity.setValue7(editDto.getValue());
-				    break;
-				case "8":
-					updateEntity.setValue8(editDto.getValue());
-				    break;
-				case "9":
-					updateEntity.setValue9(editDto.getValue());
-				    break;
-				case "10":
-					updateEntity.setValue10(editDto.getValue());
-				    break;
-				case "11":
-					updateEntity.setValue11(editDto.getValue());
-				    break;
-				case "12":
-					updateEntity.setValue12(editDto.getValue());
-				    break;
-				case "13":
-					updateEntity.setValue13(editDto.getValue());
-				    break;
-				case "14":
-					updateEntity.setValue14(editDto.getValue());
-				    break;
-				case "15":
-					updateEntity.setValue15(editDto.getValue());
-				    break;
-				}
-
-		    if(StringUtils.isNotBlank(editDto.dispOrder)) {
-		    	updateEntity.setDispOrder(editDto.dispOrder);;
-		    }
-			updateEntity.setDeleteFlag("0");
-
-			MgpCodeMstMapper.updateByPrimaryKeySelective(updateEntity);
-			break;
-		    case "3":
-			// 削除処理
+		}
+		upsertList.addAll(upsertNoOrderList);
+
+		MgpCodeMstMapper batchMapper = batchSqlSession.getMapper(MgpCodeMstMapper.class);
+		int pending = 0;
+		for (GpuMasterSetDto editDto : upsertList) {
+			boolean insert = editDto.editClass.equals("1");
+			// 追加行は既存行(削除済みを含む)があれば更新とし、バージョンNOは確認しない
+			batchMapper.upsertGpuMasterSet(insert ? editDto.getClassCode() : form.getClassCodeId(),
+					editDto.getCodeValue(), editDto.gpCodeMstName, valueNo, editDto.getValue(),
+					StringUtils.isNotBlank(editDto.dispOrder) ? editDto.dispOrder : null,
+					insert ? null : editDto.getVersionNumber());
+			if (++pending >= saveBatchSize) {
+				flush();
+				pending = 0;
+			}
+		}
+		for (GpuMasterSetDto editDto : deleteList) {
 			MgpCodeMst deleteEntity = new MgpCodeMst();
-
 			deleteEntity.setClassCode(form.getClassCodeId());
 			deleteEntity.setCodeValue(editDto.getCodeValue());
-			deleteEntity.setDeleteFlag("1");
-			deleteEntity.setVersionNumber(new Integer(editDto.getVersionNumber()+1));
-			MgpCodeMstMapper.updateByPrimaryKeySelective(deleteEntity);
-			break;
-		    }
-
+			deleteEntity.setVersionNumber(editDto.getVersionNumber());
+			batchMapper.updateDeleteFlagByVersion(deleteEntity);
+			if (++pending >= saveBatchSize) {
+				flush();
+				pending = 0;
+			}
 		}
-        LogService.info("汎用コードマスタ設定画面", "GpuMasterSetService", "汎用コードマスタ登録・更新・削除処理", "正常終了");
+		flush();
+
+		// 汎用コードマスタのキャッシュはコミット後に読み込み直す
+		codeMasterCacheService.invalidate();
+        LogService.info("汎用コードマスタ設定画面", "GpuMasterSetService", "汎用コードマスタ登録・更新・削除処理",
+        		"正常終了 : 登録・更新 {} 件, 削除 {} 件", upsertList.size(), deleteList.size());
 	    }
 
+    /**
+     * 一括実行の反映(0件の行があれば他の端末で更新されたものとして例外とする)
+     *
+     * @throws OptimisticLockingFailureException 他の端末で更新されていた場合
+     */
+    private void flush() {
+		List<String> conflicts = new ArrayList<String>();
+		for (BatchResult batchResult : batchSqlSession.flushStatements()) {
+			int[] counts = batchResult.getUpdateCounts();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					conflicts.add(String.valueOf(codeValueOf(batchResult.getParameterObjects().get(i))));
+				}
+			}
+		}
+		if (!conflicts.isEmpty()) {
+			LogService.info("汎用コードマスタ設定画面", "GpuMasterSetService", "汎用コードマスタ登録・更新・削除処理",
+					"異常終了 : 他の端末で更新済み コード値 {}", conflicts);
+			throw new OptimisticLockingFailureException("他の端末で更新されています コード値 = " + conflicts);
+		}
+    }
+
+    /**
+     * 一括実行のパラメータからコード値を取得
+     *
+     * @param parameter パラメータ(MgpCodeMst または @Param のMap)
+     * @return コード値
+     */
+    private static Object codeValueOf(Object parameter) {
+		if (parameter instanceof MgpCodeMst) {
+			return ((MgpCodeMst) parameter).getCodeValue();
+		}
+		return parameter instanceof Map ? ((Map<?, ?>) parameter).get("codeValue") : parameter;
+    }
+
 }
@@ -2,23 +2,32 @@ package jp.co.axio.masterMentsetSystem.service;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
 
-import org.ietf.ldap.LDAPAttribute;
-import org.ietf.ldap.LDAPConnection;
-import org.ietf.ldap.LDAPEntry;
-import org.ietf.ldap.LDAPException;
-import org.ietf.ldap.LDAPSearchResults;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.unboundid.ldap.sdk.BindResult;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+
+import jp.co.axio.masterMentsetSystem.common.LdapConnectionManager;
 import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.MasterChangeNotifier;
+import jp.co.axio.masterMentsetSystem.common.TtlCache;
 import jp.co.axio.masterMentsetSystem.controller.LoginInfo;
 import jp.co.axio.masterMentsetSystem.model.VLoginInfoEntity;
 import jp.co.axio.masterMentsetSystem.repository.VLoginInfoEntityMapper;
@@ -40,40 +49,31 @@ public class LoginService {
 	 * 自処理対象画面名
 	 */
 	private static final String OWN_TITLE = "ログイン処理";
-	/**
-	 * LDAP Protocol Version 3
-	 */
-	private static final int LDAP_V3 = 3; // LDAPv3
-	/**
-	 * ホスト名(application.propertiesより取得)
-	 */
-	@Value("${config.login.ldap.hostname}")
-	private String propLdapHost;
-	/**
-	 * ポート(application.propertiesより取得)
-	 */
-	@Value("${config.login.ldap.port}")
-	private int propPort;
 	/**
 	 * ベースDN(application.propertiesより取得)
 	 */
 	@Value("${config.login.ldap.dc}")
 	private String propDc;
 	/**
-	 * 管理者DN(application.propertiesより取得)
+	 * ベースDN属性(application.propertiesより取得)
 	 */
-	@Value("${config.login.ldap.managerDn}")
-	private String propManagerDn;
+	@Value("${config.login.ldap.propDnAttr}")
+	private String propDnAttr;
 	/**
-	 * 管理者パスワード(application.propertiesより取得)
+	 * キャッシュ件数上限(application.propertiesより取得、0:キャッシュしない)
 	 */
-	@Value("${config.login.ldap.managerPass}")
-	private String propManagerPass;
+	@Value("${config.login.cache.maxSize:1000}")
+	private int propCacheMaxSize;
 	/**
-	 * ベースDN属性(application.propertiesより取得)
+	 * キャッシュ有効期間(秒)(application.propertiesより取得)
 	 */
-	@Value("${config.login.ldap.propDnAttr}")
-	private String propDnAttr;
+	@Value("${config.login.cache.ttlSeconds:60}")
+	private long propCacheTtlSeconds;
+	/**
+	 * 該当なしキャッシュ有効期間(秒)(application.propertiesより取得)
+	 */
+	@Value("${config.login.cache.negativeTtlSeconds:30}")
+	private long propCacheNegativeTtlSeconds;
 	/**
 	 * 管理者フラグ:1
 	 */
@@ -82,6 +82,11 @@ public class LoginService {
 	 * LDAPから取得する有効開始日・有効終了日の日付フォーマット
 	 */
 	private static final String DATE_PATTERN = "yyyy/MM/dd";
+	/**
+	 * LDAP接続(管理者接続プール)
+	 */
+	@Autowired
+	private LdapConnectionManager ldapConnectionManager;
 	/**
 	 * ログイン情報取得用マッパー
 	 */
@@ -92,6 +97,47 @@ public class LoginService {
 	 */
 	@Autowired
 	MessageSource ms;
+	/**
+	 * マスタ変更通知
+	 */
+	@Autowired
+	MasterChangeNotifier masterChangeNotifier;
+	/**
+	 * LDAP事前検索結果キャッシュ(画面ユーザーID → Map<DN, Map<属性名, 属性値>>)
+	 * パスワードの認証(バインド)は毎回LDAPで行う。
+	 */
+	private TtlCache<String, Map<String, Map<String, String>>> preSearchCache;
+	/**
+	 * ログイン情報キャッシュ(ユーザーID → ログイン情報ビューのエンティティリスト)
+	 */
+	private TtlCache<String, List<VLoginInfoEntity>> loginInfoCache;
+
+	/**
+	 * キャッシュ作成
+	 */
+	@PostConstruct
+	public void init() {
+		preSearchCache = new TtlCache<String, Map<String, Map<String, String>>>(propCacheMaxSize, ttlMillis());
+		loginInfoCache = new TtlCache<String, List<VLoginInfoEntity>>(propCacheMaxSize, ttlMillis());
+		// ユーザー・所属はユーザーIDで削除し、組織・役職は該当ユーザーが分からないため全件削除する
+		masterChangeNotifier.subscribe("m_user", this::evictLoginInfo);
+		masterChangeNotifier.subscribe("m_user_organization", this::evictLoginInfo);
+		masterChangeNotifier.subscribe("m_user_org_before", this::evictLoginInfo);
+		masterChangeNotifier.subscribe("m_organization", key -> loginInfoCache.clear());
+		masterChangeNotifier.subscribe("m_position", key -> loginInfoCache.clear());
+	}
+
+	/**
+	 * ログイン情報キャッシュの削除(変更通知の受信時)
+	 * @param userId ユーザーID(MasterChangeNotifier.ALL_KEYSの場合は全件)
+	 */
+	private void evictLoginInfo(String userId) {
+		if (MasterChangeNotifier.ALL_KEYS.equals(userId)) {
+			loginInfoCache.clear();
+		} else {
+			loginInfoCache.remove(userId);
+		}
+	}
 
 	/**
 	 * ログイン認証
@@ -102,124 +148,131 @@ public class LoginService {
 	public LoginInfo authentication(LoginInfo form) throws Exception {
 		LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "開始");
 
-		LDAPConnection lc = new LDAPConnection();
-		try {
-			// 接続
-			ldapConnection(lc);
-
-			// 管理者で認証(バインド)
-			try {
-				if (!ldapBind(lc, propManagerDn, propManagerPass.getBytes())) {
-					// 管理者パスワードは正だが管理者認証できていない場合
-					throw new LoginServiceManagerIsNotBoundException();
-				} else {
-					LogService.info(OWN_TITLE, OWN_NAME, "LDAP管理者認証", "bind成功");
-				}
-			} catch (LDAPException e) {
-				LogService.info(OWN_TITLE, OWN_NAME, "LDAP管理者認証", "bind失敗");
-				lc.disconnect();
-				// 管理者bind()失敗時LDAPException.INVALID_CREDENTIALSが発生するが
-				// (画面には認証エラーと表示させないで)独自のエラーメッセージを設定する
-				if (LDAPException.INVALID_CREDENTIALS == ((LDAPException) e).getResultCode()) {
-					throw new LoginServiceManagerInvalidCredentialsException();
-				} else {
-					// その他のLDAPExceptionはそのまま投げる
-					throw e;
-				}
-			}
-			// LDAP検索絞込条件
-			String preFilter = propDnAttr + "=" + form.getInputId();
-			// LDAP検索で取得する属性名の配列 属性は取得しない
-			String[] attrs = { "axioModelAdminFlag", "axioStartDate", "axioExpireDate", "uid" };
-			// LDAP検索
-			LDAPSearchResults preResults = lc.search(
-					propDc, // 検索ベース
-					LDAPConnection.SCOPE_ONE, // 検索スコープ
-					preFilter,
-					attrs, // 属性は取得しない
-					false // 属性名および属性値の取得
-			);
+		// LDAP検索で取得する属性名の配列
+		String[] attrs = { "axioModelAdminFlag", "axioStartDate", "axioExpireDate", "uid" };
+		// LDAP事前検索(キャッシュ済みの場合はLDAPへ問い合わせない)
+		Map<String, Map<String, String>> preEntryMap = preSearch(form.getInputId(), attrs);
 
-			// 事前検索結果が存在しない場合
-			// search()直後にLDAPSearchResults.getCount()を使用してはいけない
-			// (結果を待たずに)正しくない件数を返す場合がある。
-			// hasMore()使用後であればgetCount()は正しい値を返す。
-			if (!preResults.hasMore()) {
-				// 結果
-				LogService.debug(OWN_TITLE, OWN_NAME, "LDAP事前検索", "エントリ取得結果: 0件");
-				throw new LoginServiceNoEntryException();
-			}
-			// 取得結果エントリから有効期間内のものを抽出
-			//			LDAPEntry preEntry = preResults.next();
-			Map<String, Map<String, String>> validEntryMap = new HashMap<String, Map<String, String>>();
-			while (preResults.hasMore()) {
-				LDAPEntry preEntry = preResults.next();
-				// エントリから情報取り出し
-				Map<String, String> attrMap = getAttributeMap(preEntry, attrs);
-				LogService.debug(OWN_TITLE, OWN_NAME, "LDAP検索", "エントリ取得結果:" + attrMap.toString());
-				// 有効期間チェック
-				LocalDate sysDate = LocalDate.now();
-				if (isValidEntry(attrMap, sysDate)) {
-					// エントリ保持用マップ追加
-					String binddn = preEntry.getDN();
-					validEntryMap.put(binddn, attrMap);
-				}
-			}
-			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP事前検索", "有効エントリ: " + validEntryMap.size() + "件");
-			// 抽出結果が0件の場合
-			if (validEntryMap.size() < 1) {
-				throw new LoginServiceNoValidEntryException();
-			}
-			// 抽出結果が2件以上の場合
-			if (validEntryMap.size() > 1) {
-				throw new LoginServiceTooManyValidEntriesException();
-			}
-			// 以降、有効なエントリ(1件のみ想定)
-			// DN取得
-			String binddn = validEntryMap.keySet().stream().findFirst()
-					// 何らかの理由でDNキーが取得できなかった場合は	NoSuchElementException
-					.orElseThrow();
-			byte[] bindpw = form.getPass().getBytes();
-
-			// 認証(バインド)
-			// パスワード不備でbind()失敗時、LDAPException.INVALID_CREDENTIALSが発生
-			if (!ldapBind(lc, binddn, bindpw)) {
-				LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "bind失敗");
-				throw new LoginServiceUserIsNotBoundException();
-			} else {
-				LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "bind成功");
+		// 事前検索結果が存在しない場合
+		if (preEntryMap.isEmpty()) {
+			// 結果
+			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP事前検索", "エントリ取得結果: 0件");
+			throw new LoginServiceNoEntryException();
+		}
+		// 取得結果エントリから有効期間内のものを抽出
+		// (キャッシュ済みの場合もシステム日付で判定し直す)
+		Map<String, Map<String, String>> validEntryMap = new HashMap<String, Map<String, String>>();
+		LocalDate sysDate = LocalDate.now();
+		for (Map.Entry<String, Map<String, String>> preEntry : preEntryMap.entrySet()) {
+			// 有効期間チェック
+			if (isValidEntry(preEntry.getValue(), sysDate)) {
+				// エントリ保持用マップ追加
+				validEntryMap.put(preEntry.getKey(), preEntry.getValue());
 			}
+		}
+		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP事前検索", "有効エントリ: {}件", validEntryMap.size());
+		// 抽出結果が0件の場合
+		if (validEntryMap.size() < 1) {
+			throw new LoginServiceNoValidEntryException();
+		}
+		// 抽出結果が2件以上の場合
+		if (validEntryMap.size() > 1) {
+			throw new LoginServiceTooManyValidEntriesException();
+		}
+		// 以降、有効なエントリ(1件のみ想定)
+		// DN取得
+		String binddn = validEntryMap.keySet().stream().findFirst()
+				// 何らかの理由でDNキーが取得できなかった場合は	NoSuchElementException
+				.orElseThrow();
 
-			// エントリから情報取り出し
-			Map<String, String> validEntryAttrMap = validEntryMap.get(binddn);
-			String strAdminFlag = validEntryAttrMap.get(attrs[0]);
-			String uid = validEntryAttrMap.get(attrs[3]);
-			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP検索", "エントリ取得結果:" + validEntryAttrMap.toString());
+		// 認証(バインド)
+		// プールの接続とは別の接続で行う
+		// パスワード不備でbind()失敗時、ResultCode.INVALID_CREDENTIALSのLDAPExceptionが発生
+		if (!ldapBind(binddn, form.getPass())) {
+			LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "bind失敗");
+			throw new LoginServiceUserIsNotBoundException();
+		} else {
+			LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "bind成功");
+		}
+
+		// エントリから情報取り出し
+		Map<String, String> validEntryAttrMap = validEntryMap.get(binddn);
+		String strAdminFlag = validEntryAttrMap.get(attrs[0]);
+		String uid = validEntryAttrMap.get(attrs[3]);
+		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP検索", "エントリ取得結果:{}", validEntryAttrMap);
 
-			Boolean isAdmin = STRING_IS_ADMIN.equals(strAdminFlag);
+		Boolean isAdmin = STRING_IS_ADMIN.equals(strAdminFlag);
 
 ////ここから、ダミーソース開始
-//			Boolean isAdmin = true;
-//			String uid =  "91234";
+//		Boolean isAdmin = true;
+//		String uid =  "91234";
 ////ダミーソース完了
 
-			// DBから該当のユーザー情報を取得
-			List<VLoginInfoEntity> vLoginInfoEntityList = selectVLoginInfo(uid);
+		// DBから該当のユーザー情報を取得
+		List<VLoginInfoEntity> vLoginInfoEntityList = selectVLoginInfo(uid);
+
+		// 取得結果が存在しない場合
+		if (vLoginInfoEntityList == null || vLoginInfoEntityList.size() == 0) {
+			throw new LoginServiceNoUserDbRecordException();
+		}
+		// 取得結果が存在する場合、ログイン情報オブジェクト生成して返却
+		LoginInfo loginInfo = createLoginInfo(form.getInputId(), uid, isAdmin, vLoginInfoEntityList);
+		LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "正常終了");
+
+		return loginInfo;
+	}
+
+	/**
+	 * LDAP事前検索
+	 * 画面ユーザーIDに該当するエントリのDNと属性を取得する。
+	 * 結果はキャッシュし、該当なしの場合も短い有効期間でキャッシュする。
+	 * @param  inputId 画面ユーザーID
+	 * @param  attrs   取得する属性の配列
+	 * @return Map<DN, Map<属性名, 属性値>>(該当なしの場合は空)
+	 * @throws Exception
+	 */
+	private Map<String, Map<String, String>> preSearch(String inputId, String[] attrs) throws Exception {
+
+		Map<String, Map<String, String>> cached = preSearchCache.get(inputId);
+		if (cached != null) {
+			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP事前検索", "キャッシュ使用: {}件", cached.size());
+			return cached;
+		}
+
+		// LDAP検索絞込条件
+		Filter preFilter = Filter.createEqualityFilter(propDnAttr, inputId);
 
-			// 取得結果が存在しない場合
-			if (vLoginInfoEntityList == null || vLoginInfoEntityList.size() == 0) {
-				throw new LoginServiceNoUserDbRecordException();
+		// LDAP検索(管理者で認証(バインド)済みのプール接続を使用)
+		SearchResult preResults;
+		try {
+			preResults = ldapConnectionManager.search(
+					propDc, // 検索ベース
+					SearchScope.ONE, // 検索スコープ
+					preFilter,
+					attrs
+			);
+		} catch (LDAPException e) {
+			// 管理者bind失敗時(接続プール作成時)ResultCode.INVALID_CREDENTIALSが発生するが
+			// (画面には認証エラーと表示させないで)独自のエラーメッセージを設定する
+			if (ResultCode.INVALID_CREDENTIALS.equals(e.getResultCode())) {
+				LogService.info(OWN_TITLE, OWN_NAME, "LDAP管理者認証", "bind失敗");
+				throw new LoginServiceManagerInvalidCredentialsException();
+			} else {
+				// その他のLDAPExceptionはそのまま投げる
+				throw e;
 			}
-			// 取得結果が存在する場合、ログイン情報オブジェクト生成して返却
-			LoginInfo loginInfo = createLoginInfo(form.getInputId(), uid, isAdmin, vLoginInfoEntityList);
-			LogService.info(OWN_TITLE, OWN_NAME, "LDAP認証", "正常終了");
-
-			return loginInfo;
-		} finally {
-			// 接続を切断する。
-			lc.disconnect();
-			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP認証", "Disconnected");
 		}
+
+		Map<String, Map<String, String>> preEntryMap = new LinkedHashMap<String, Map<String, String>>();
+		for (SearchResultEntry preEntry : preResults.getSearchEntries()) {
+			// エントリから情報取り出し
+			Map<String, String> attrMap = getAttributeMap(preEntry, attrs);
+			LogService.debug(OWN_TITLE, OWN_NAME, "LDAP検索", "エントリ取得結果:{}", attrMap);
+			preEntryMap.put(preEntry.getDN(), Collections.unmodifiableMap(attrMap));
+		}
+		preEntryMap = Collections.unmodifiableMap(preEntryMap);
+		preSearchCache.put(inputId, preEntryMap, preEntryMap.isEmpty() ? negativeTtlMillis() : ttlMillis());
+		return preEntryMap;
 	}
 
 	/**
@@ -246,41 +299,28 @@ public class LoginService {
 			isValidEntry = true;
 		}
 		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP検索",
-				attrMap.get("uid") + "エントリ有効期間" + (isValidEntry ? "内":"外")
-				+ ": startDate=" + strStartDate + ", endDate=" + strEndDate);
+				"{}エントリ有効期間{}: startDate={}, endDate={}",
+				attrMap.get("uid"), isValidEntry ? "内" : "外", strStartDate, strEndDate);
 		return isValidEntry;
 	}
 
-	/**
-	 * LDAP接続
-	 * @param  lc     LDAP接続
-	 * @throws Exception
-	 */
-	private void ldapConnection(LDAPConnection lc) throws Exception {
-		// LDAP サーバに接続する。ホスト名・ポートはapplication.propertiesから取得。
-		lc.connect(propLdapHost, propPort);
-		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP認証", "Connected to success : " + propLdapHost + ":" + propPort);
-	}
-
 	/**
 	 * LDAP認証
 	 * 指定された DN およびパスワードでバインド(認証)する。
-	 * @param  lc      LDAP接続
 	 * @param  binddn  バインドDN
-	 * @param  bindpw  ユーザのパスワード(sha256)
+	 * @param  bindpw  ユーザのパスワード
 	 * @return boolean true:バインド成功,false:バインド失敗
 	 * @throws Exception
 	 */
-	private boolean ldapBind(LDAPConnection lc, String binddn, byte[] bindpw) throws Exception {
+	private boolean ldapBind(String binddn, String bindpw) throws Exception {
 
-		lc.bind(LoginService.LDAP_V3, binddn, bindpw);
-		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP認証", "Bind success : " + binddn);
+		BindResult result = ldapConnectionManager.bindUser(binddn, bindpw);
+		LogService.debug(OWN_TITLE, OWN_NAME, "LDAP認証", "Bind result : {} {}", binddn, result.getResultCode());
 
-		// LDAP サーバに認証されたかどうかを確認する。
-		// lc.bind() に間違ったパスワードを指定した場合、LDAPException
-		// が throw されるが、その他の理由(期限切れなど)によって認証
-		// されていない可能性もあるため、isBound() メソッドで確認する。
-		return lc.isBound();
+		// 間違ったパスワードを指定した場合、LDAPException
+		// が throw されるが、その他の理由によって認証
+		// されていない可能性もあるため、結果コードで確認する。
+		return ResultCode.SUCCESS.equals(result.getResultCode());
 	}
 
 	/**
@@ -289,16 +329,15 @@ public class LoginService {
 	 * @param  attrs               取得する属性の配列
 	 * @return Map<String, String> Map<属性名, 属性値>
 	 */
-	private Map<String, String> getAttributeMap(LDAPEntry entry, String[] attrs) {
+	private Map<String, String> getAttributeMap(SearchResultEntry entry, String[] attrs) {
 		HashMap<String, String> attrMap = new HashMap<String, String>();
 		//ループ開始
 		for (int i = 0; i < attrs.length; i++) {
-			//String オブジェクトの配列内の属性の値を返す
-			LDAPAttribute attribute = entry.getAttributeSet().getAttribute(attrs[i]);
 			// 属性の値のうち1つ目を取得(各属性の値は1つのみの想定)
+			String value = entry.getAttributeValue(attrs[i]);
 			// Map<属性名, 属性値>に追加
-			if (attribute != null) {
-				attrMap.put(attrs[i], Arrays.asList(attribute.getStringValueArray()).get(0));
+			if (value != null) {
+				attrMap.put(attrs[i], value);
 			} else {
 				// 属性項目未設定時、エラーをならないように
 				attrMap.put(attrs[i], "");
@@ -312,14 +351,47 @@ public class LoginService {
 	 * @param uid ログインユーザーID(ldap.uid, m_user.user_id)
 	 * @return 検索結果
 	 */
-	@Transactional(readOnly = true)
 	private List<VLoginInfoEntity> selectVLoginInfo(String uid) {
-		List<VLoginInfoEntity> result = vLoginInfoEntityMapper.selectLoginInfoByUserId(uid);
+		List<VLoginInfoEntity> result = loginInfoCache.get(uid);
+		if (result != null) {
+			LogService.debug(OWN_TITLE, OWN_NAME, "ログインユーザー情報取得", "キャッシュ使用: {}件", result.size());
+			return result;
+		}
+		result = vLoginInfoEntityMapper.selectLoginInfoByUserId(uid);
 		LogService.debug(OWN_TITLE, OWN_NAME, "ログインユーザー情報取得",
-				"該当ユーザ情報取得結果件数:" + result == null ? "0" : String.valueOf(result.size()));
+				"該当ユーザ情報取得結果件数:{}", result == null ? 0 : result.size());
+		if (result != null) {
+			result = Collections.unmodifiableList(result);
+			loginInfoCache.put(uid, result, result.isEmpty() ? negativeTtlMillis() : ttlMillis());
+		}
 		return result;
 	}
 
+	/**
+	 * キャッシュの有効期間(ミリ秒)
+	 * @return 有効期間
+	 */
+	private long ttlMillis() {
+		return TimeUnit.SECONDS.toMillis(propCacheTtlSeconds);
+	}
+
+	/**
+	 * 該当なしキャッシュの有効期間(ミリ秒)
+	 * @return 有効期間
+	 */
+	private long negativeTtlMillis() {
+		return TimeUnit.SECONDS.toMillis(propCacheNegativeTtlSeconds);
+	}
+
+	/**
+	 * ログイン情報キャッシュの全件削除
+	 * (LDAP・ユーザー情報を更新した直後に反映させる場合に使用)
+	 */
+	public void clearCache() {
+		preSearchCache.clear();
+		loginInfoCache.clear();
+	}
+
 	/**
 	 * ユーザーID、管理者フラグ、DBの取得結果をもとにログイン情報クラスを生成
 	 * @param  inputId    ログイン画面のユーザーID欄入力値(config.login.ldap.propDnAttrで指定した属性の値)
@@ -370,17 +442,6 @@ public class LoginService {
 			super(ms.getMessage("MSTO0009M0003", null, null));
 		}
 	}
-	/**
-	 * LDAP管理者認証失敗時(パスワード不正以外で認証できていない場合)
-	 */
-	private class LoginServiceManagerIsNotBoundException extends LoginServiceException {
-		/**
-		 * コンストラクタ
-		 */
-		LoginServiceManagerIsNotBoundException() {
-			super(ms.getMessage("MSTO0009M0004", null, null));
-		}
-	}
 	/**
 	 * 画面ユーザーIDに紐づくLDAPエントリが0件の場合
 	 */
@@ -0,0 +1,303 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportDeltaDto;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+
+/**
+ * 汎用CSV差分出力サービスクラス
+ * m_gp_csvexport_delta に行がある定義(SQL番号)は、前回出力した位置(update_ts, キー)以降に更新された行のみを出力する。
+ * <ul>
+ * <li>差分ファイル(ファイル名_delta):更新された行のうち、出力条件を満たす行。</li>
+ * <li>削除ファイル(ファイル名_delete):更新された行のうち、出力済みで出力条件を満たさなくなった行のキー。</li>
+ * <li>初回、前回全件出力から全件出力の間隔(日)が経過した場合は、通常のファイル名で全件を出力する。
+ *     物理削除された行は更新日時では検出できないため、全件出力で反映する。</li>
+ * </ul>
+ * 出力位置の確認と出力は同じスナップショット(REPEATABLE READ)で行い、ファイル出力の完了後に同じトランザクションで
+ * 出力位置と出力済みキー(t_gp_csvexport_delta_key)を更新する。
+ * 更新日時はトランザクション開始時の日時のため、遅れてコミットされた行を取りこぼさないよう、
+ * 出力位置は現在日時から想定する最長のトランザクション時間(safetyLagSeconds)を引いた日時までとする。
+ * 差分出力を行うには、db/csvexport_delta.sql のテーブルを作成し、m_gp_csvexport_delta に SQL番号・キー項目を登録する。
+ *
+ * @author axio
+ */
+@Service
+public class MgpCsvExportDeltaService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV出力";
+	/** 自処理名 */
+	private static final String OWN_NAME = "MgpCsvExportDeltaService";
+	/** 更新日時の列名 */
+	private static final String UPDATE_TS = "update_ts";
+	/** 列名・テーブル名として使用できる文字列(SQLに埋め込むため) */
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	/** 出力済みキーのテーブル */
+	private static final String KEY_TABLE = "t_gp_csvexport_delta_key";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/** 出力位置を現在日時から遅らせる秒数(想定する最長のトランザクション時間) */
+	@Value("${config.csvexport.delta.safetyLagSeconds:600}")
+	private int safetyLagSeconds;
+
+	/**
+	 * 差分出力設定の取得
+	 *
+	 * @param sqlNo SQL番号
+	 * @return 差分出力設定(差分出力しない定義の場合null)
+	 */
+	public CsvExportDeltaDto getSetting(Integer sqlNo) {
+		List<CsvExportDeltaDto> list;
+		try {
+			list = jdbcTemplate.query("SELECT sql_no, key_column, full_interval_days, last_update_ts, last_key, last_full_ts"
+					+ " FROM m_gp_csvexport_delta WHERE sql_no = ?", (rs, i) -> {
+						CsvExportDeltaDto dto = new CsvExportDeltaDto();
+						dto.setSqlNo(rs.getInt(1));
+						dto.setKeyColumn(rs.getString(2));
+						dto.setFullIntervalDays(rs.getInt(3));
+						dto.setLastUpdateTs(rs.getTimestamp(4));
+						dto.setLastKey(rs.getString(5));
+						dto.setLastFullTs(rs.getTimestamp(6));
+						return dto;
+					}, sqlNo);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "差分出力設定取得", e.getMessage());
+			return null;
+		}
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * 全件出力するか(初回、全件出力の間隔が経過した場合)
+	 *
+	 * @param delta 差分出力設定
+	 * @param now 実行日時
+	 * @return true:全件出力
+	 */
+	public boolean isFullDue(CsvExportDeltaDto delta, LocalDateTime now) {
+		if (delta.getLastUpdateTs() == null || delta.getLastFullTs() == null) {
+			return true;
+		}
+		return delta.getFullIntervalDays() > 0
+				&& !delta.getLastFullTs().toLocalDateTime().plusDays(delta.getFullIntervalDays()).isAfter(now);
+	}
+
+	/**
+	 * 今回の出力位置(update_ts, キー)の取得
+	 * 現在日時から safetyLagSeconds を引いた日時以前に更新された行の最終位置とする(前回位置より前には戻さない)。
+	 * それより後に更新された行は、実行中のトランザクションが同じ日時の行を後からコミットする可能性があるため次回に出力する。
+	 *
+	 * @param conn 接続(出力と同じトランザクション)
+	 * @param def 汎用CSV出力定義情報
+	 * @param delta 差分出力設定
+	 * @return [update_ts, キー]、対象の行がない場合null
+	 * @throws SQLException
+	 */
+	public Object[] selectHighWatermark(Connection conn, MgpCsvExportDefInfo def, CsvExportDeltaDto delta) throws SQLException {
+		String table = identifier(def.getSqlOutTableName());
+		String key = identifier(delta.getKeyColumn());
+		List<Object> params = new ArrayList<Object>();
+		params.add(safetyLagSeconds);
+		StringBuilder sql = new StringBuilder("SELECT " + UPDATE_TS + ", " + key + "::text FROM " + table
+				+ " WHERE " + UPDATE_TS + " <= localtimestamp - ? * interval '1 second'");
+		if (delta.getLastUpdateTs() != null) {
+			sql.append(" AND (" + UPDATE_TS + ", " + key + "::text) >= (?, ?)");
+			params.add(delta.getLastUpdateTs());
+			params.add(StringUtils.defaultString(delta.getLastKey()));
+		}
+		sql.append(" ORDER BY " + UPDATE_TS + " DESC, " + key + "::text DESC LIMIT 1");
+		try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+			setParameters(ps, params);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? new Object[] { rs.getTimestamp(1), rs.getString(2) } : null;
+			}
+		}
+	}
+
+	/**
+	 * 差分出力のSQL(前回位置より後、今回位置以前に更新された行のうち、出力条件を満たす行)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param delta 差分出力設定
+	 * @return SQL(パラメータは deltaParameters)
+	 */
+	public String deltaSql(MgpCsvExportDefInfo def, CsvExportDeltaDto delta) {
+		return "SELECT " + String.join(", ", columns(def)) + " FROM " + changedRows(def, delta)
+				+ " " + StringUtils.defaultString(def.getSqlWhereDef());
+	}
+
+	/**
+	 * 削除ファイルのSQL(前回位置より後、今回位置以前に更新された行のうち、出力済みで出力条件を満たさなくなった行のキー)
+	 * 出力したことのないキー(出力条件を満たしたことがない行)は含めない。
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param delta 差分出力設定
+	 * @return SQL(パラメータは tombstoneParameters)
+	 */
+	public String tombstoneSql(MgpCsvExportDefInfo def, CsvExportDeltaDto delta) {
+		String key = identifier(delta.getKeyColumn());
+		return "SELECT " + key + " FROM " + changedRows(def, delta)
+				+ " WHERE " + key + "::text IN (SELECT key_value FROM " + KEY_TABLE + " WHERE sql_no = ?)"
+				+ " EXCEPT (SELECT " + key + " FROM " + changedRows(def, delta)
+				+ " " + StringUtils.defaultString(def.getSqlWhereDef()) + ") ORDER BY 1";
+	}
+
+	/**
+	 * 削除ファイルSQLのパラメータ
+	 *
+	 * @param delta 差分出力設定
+	 * @param params 差分出力SQLのパラメータ(deltaParameters)
+	 * @return 差分出力SQLのパラメータ, SQL番号, 差分出力SQLのパラメータ
+	 */
+	public List<Object> tombstoneParameters(CsvExportDeltaDto delta, List<Object> params) {
+		List<Object> list = new ArrayList<Object>(params);
+		list.add(delta.getSqlNo());
+		list.addAll(params);
+		return list;
+	}
+
+	/**
+	 * 差分出力SQLのパラメータ
+	 *
+	 * @param delta 差分出力設定
+	 * @param watermark 今回位置
+	 * @return 前回 update_ts, 前回キー, 今回 update_ts, 今回キー
+	 */
+	public List<Object> deltaParameters(CsvExportDeltaDto delta, Object[] watermark) {
+		return Arrays.asList(delta.getLastUpdateTs(), StringUtils.defaultString(delta.getLastKey()),
+				watermark[0], StringUtils.defaultString((String) watermark[1]));
+	}
+
+	/**
+	 * 出力済みキーの更新(出力と同じトランザクションで、ファイル出力の完了後に呼び出す)
+	 * 全件出力の場合は出力条件を満たすキーで置き換え、差分出力の場合は差分のキーを追加して削除ファイルのキーを除く。
+	 *
+	 * @param conn 接続(出力と同じトランザクション)
+	 * @param def 汎用CSV出力定義情報
+	 * @param delta 差分出力設定
+	 * @param params 差分出力SQLのパラメータ(deltaParameters、全件出力の場合null)
+	 * @throws SQLException
+	 */
+	public void saveExportedKeys(Connection conn, MgpCsvExportDefInfo def, CsvExportDeltaDto delta, List<Object> params)
+			throws SQLException {
+		String key = identifier(delta.getKeyColumn());
+		String where = StringUtils.defaultString(def.getSqlWhereDef());
+		if (params == null) {
+			update(conn, "DELETE FROM " + KEY_TABLE + " WHERE sql_no = ?", Arrays.asList(delta.getSqlNo()));
+			update(conn, "INSERT INTO " + KEY_TABLE + " (sql_no, key_value) SELECT ?::integer, " + key + "::text FROM "
+					+ identifier(def.getSqlOutTableName()) + " " + where + " ON CONFLICT DO NOTHING", Arrays.asList(delta.getSqlNo()));
+			return;
+		}
+		List<Object> deleteParams = new ArrayList<Object>();
+		deleteParams.add(delta.getSqlNo());
+		deleteParams.addAll(params);
+		deleteParams.addAll(params);
+		update(conn, "DELETE FROM " + KEY_TABLE + " WHERE sql_no = ? AND key_value IN (SELECT " + key + "::text FROM "
+				+ changedRows(def, delta) + " EXCEPT (SELECT " + key + "::text FROM " + changedRows(def, delta) + " " + where + "))",
+				deleteParams);
+		List<Object> insertParams = new ArrayList<Object>();
+		insertParams.add(delta.getSqlNo());
+		insertParams.addAll(params);
+		update(conn, "INSERT INTO " + KEY_TABLE + " (sql_no, key_value) SELECT ?::integer, " + key + "::text FROM "
+				+ changedRows(def, delta) + " " + where + " ON CONFLICT DO NOTHING", insertParams);
+	}
+
+	/**
+	 * 出力位置の更新(出力と同じトランザクションで、ファイル出力の完了後に呼び出す)
+	 *
+	 * @param conn 接続(出力と同じトランザクション)
+	 * @param sqlNo SQL番号
+	 * @param watermark 今回位置(null:出力対象なし)
+	 * @param fullTs 全件出力日時(差分出力の場合null)
+	 * @throws SQLException
+	 */
+	public void saveWatermark(Connection conn, Integer sqlNo, Object[] watermark, Timestamp fullTs) throws SQLException {
+		if (watermark != null) {
+			update(conn, "UPDATE m_gp_csvexport_delta SET last_update_ts = ?, last_key = ?, update_ts = now()"
+					+ " WHERE sql_no = ?", Arrays.asList(watermark[0], watermark[1], sqlNo));
+		}
+		if (fullTs != null) {
+			update(conn, "UPDATE m_gp_csvexport_delta SET last_full_ts = ?, update_ts = now() WHERE sql_no = ?",
+					Arrays.asList(fullTs, sqlNo));
+		}
+	}
+
+	/**
+	 * 更新SQLの実行
+	 */
+	private static void update(Connection conn, String sql, List<Object> params) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			setParameters(ps, params);
+			ps.executeUpdate();
+		}
+	}
+
+	/**
+	 * パラメータの設定
+	 */
+	private static void setParameters(PreparedStatement ps, List<Object> params) throws SQLException {
+		for (int i = 0; i < params.size(); i++) {
+			ps.setObject(i + 1, params.get(i));
+		}
+	}
+
+	/**
+	 * 前回位置より後、今回位置以前に更新された行(出力条件で元のテーブル名を参照できるよう同じ別名を付ける)
+	 */
+	private String changedRows(MgpCsvExportDefInfo def, CsvExportDeltaDto delta) {
+		String table = identifier(def.getSqlOutTableName());
+		String position = "(" + UPDATE_TS + ", " + identifier(delta.getKeyColumn()) + "::text)";
+		return "(SELECT * FROM " + table + " WHERE " + position + " > (?, ?) AND " + position + " <= (?, ?)) " + table;
+	}
+
+	/**
+	 * 出力項目(出力項目定義「No,物理名,論理名;…」の物理名、分割出力でも使用)
+	 */
+	static List<String> columns(MgpCsvExportDefInfo def) {
+		List<String> columns = new ArrayList<String>();
+		for (String column : StringUtils.split(StringUtils.defaultString(def.getSqlColumnDef()), ';')) {
+			String[] items = column.split(",", -1);
+			if (items.length > 1) {
+				columns.add(identifier(items[1]));
+			}
+		}
+		if (columns.isEmpty()) {
+			throw new IllegalArgumentException("出力項目がありません sqlNo = " + def.getSqlNo());
+		}
+		return columns;
+	}
+
+	/**
+	 * 列名・テーブル名の確認
+	 *
+	 * @param name 名前
+	 * @return 名前
+	 */
+	static String identifier(String name) {
+		String trimmed = StringUtils.trimToEmpty(name);
+		if (!IDENTIFIER.matcher(trimmed).matches()) {
+			throw new IllegalArgumentException("列名・テーブル名が不正です : " + name);
+		}
+		return trimmed;
+	}
+}
@@ -0,0 +1,98 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportResultDto;
+
+/**
+ * 汎用CSV出力実行履歴サービスクラス
+ * 汎用CSV出力の実行ごとに、処理時間・件数・サイズ・結果を t_gp_csvexport_history に保存する。
+ * システム名ごとの集計で、どのシステムの出力がDBの処理時間を占めているかを確認できる。
+ * テーブルは db/csvexport_history.sql をDB管理者が作成する(テーブルがない場合は履歴を保存しない)。
+ *
+ * @author axio
+ */
+@Service
+public class MgpCsvExportHistoryService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV出力";
+	/** 自処理名 */
+	private static final String OWN_NAME = "MgpCsvExportHistoryService";
+	/** 実行区分(スケジュール) */
+	public static final String TRIGGER_SCHEDULE = "SCHEDULE";
+	/** 実行区分(画面・API) */
+	public static final String TRIGGER_MANUAL = "MANUAL";
+	/** エラーメッセージの保存文字数 */
+	private static final int MAX_ERROR_LENGTH = 1000;
+
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * 実行履歴の保存(保存に失敗しても出力結果には影響させない)
+	 *
+	 * @param result 実行結果
+	 * @param triggerClass 実行区分(SCHEDULE:スケジュール, MANUAL:画面・API)
+	 */
+	public void save(CsvExportResultDto result, String triggerClass) {
+		try {
+			jdbcTemplate.update("INSERT INTO t_gp_csvexport_history (sql_no, system_id, trigger_class, export_mode,"
+					+ " start_ts, end_ts, elapsed_millis, row_count, delete_row_count, bytes, parts, success_flag, error_message)"
+					+ " VALUES (?, ?, ?, ?, now() - ? * interval '1 millisecond', now(), ?, ?, ?, ?, ?, ?, ?)",
+					result.getSqlNo(), result.getSystemId(), triggerClass, result.getExportMode(),
+					result.getElapsedMillis(), result.getElapsedMillis(), result.getRows(), result.getDeleteRows(),
+					result.getBytes(), Math.max(result.getParts(), 1), result.isSuccess() ? "1" : "0",
+					StringUtils.left(result.getErrorMessage(), MAX_ERROR_LENGTH));
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "実行履歴保存", "sqlNo = " + result.getSqlNo() + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * システム名ごとの集計(処理時間の合計の多い順)
+	 *
+	 * @param days 集計日数(現在から遡る)
+	 * @return system_id, runs, failures, total_millis, max_millis, avg_millis, row_count, bytes
+	 */
+	public List<Map<String, Object>> summaryBySystem(int days) {
+		try {
+			return jdbcTemplate.queryForList("SELECT system_id, count(*) AS runs,"
+					+ " count(*) FILTER (WHERE success_flag <> '1') AS failures,"
+					+ " sum(elapsed_millis) AS total_millis, max(elapsed_millis) AS max_millis,"
+					+ " round(avg(elapsed_millis)) AS avg_millis, sum(row_count) AS row_count, sum(bytes) AS bytes"
+					+ " FROM t_gp_csvexport_history WHERE start_ts >= now() - ? * interval '1 day'"
+					+ " GROUP BY system_id ORDER BY total_millis DESC", days);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "実行履歴集計", e.getMessage());
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * 定義ごとの直近の実行履歴
+	 *
+	 * @param sqlNo SQL番号
+	 * @param limit 件数
+	 * @return 実行履歴(新しい順)
+	 */
+	public List<Map<String, Object>> recent(Integer sqlNo, int limit) {
+		try {
+			return jdbcTemplate.queryForList("SELECT history_no, sql_no, system_id, trigger_class, export_mode,"
+					+ " start_ts, end_ts, elapsed_millis, row_count, delete_row_count, bytes, parts, success_flag, error_message"
+					+ " FROM t_gp_csvexport_history WHERE sql_no = ? ORDER BY start_ts DESC LIMIT ?", sqlNo, limit);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "実行履歴取得", e.getMessage());
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,824 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.CsvTranscodingOutputStream;
+import jp.co.axio.masterMentsetSystem.common.CsvWriter;
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportDeltaDto;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportResultDto;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportSplitDto;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfoExample;
+import jp.co.axio.masterMentsetSystem.repository.MgpCsvExportDefInfoMapper;
+
+/**
+ * 汎用CSV出力実行サービスクラス
+ * 汎用CSV出力定義情報(m_gp_csvexport_definfo)の定義どおりにSQLを実行し、ファイルへ出力する。
+ * <ul>
+ * <li>SQLはサーバー側カーソル(自動コミットなし・フェッチサイズ指定)で読み込み、全件をメモリに保持しない。</li>
+ * <li>囲い文字ありの定義は COPY ... TO STDOUT で出力し、JDBCでの1件ずつの変換を行わない。</li>
+ * <li>一時ファイルへ出力し、正常終了時のみ出力ファイル名へ置き換える(出力途中のファイルは見えない)。</li>
+ * <li>複数の定義は csvExportExecutor で並列に実行する。同じ定義の同時実行はエラーとする。</li>
+ * <li>同じ定義を複数のサーバーで同時に実行しないよう、実行中は定義のアドバイザリロックを取得する。</li>
+ * <li>差分出力設定のある定義は、前回出力以降の差分・削除キーのみを出力する(MgpCsvExportDeltaService)。</li>
+ * <li>分割出力設定のある定義は、全件出力を範囲ごとに csvExportPartExecutor で並列に出力する(MgpCsvExportSplitService)。</li>
+ * <li>実行ごとに実行履歴を保存する(MgpCsvExportHistoryService)。</li>
+ * </ul>
+ *
+ * @author axio
+ */
+@Service
+public class MgpCsvExportRunService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV出力";
+	/** 自処理名 */
+	private static final String OWN_NAME = "MgpCsvExportRunService";
+	/** 有効フラグ(有効) */
+	private static final String VALID = "1";
+	/** 出力区分(全件) */
+	private static final String MODE_FULL = "FULL";
+	/** 出力区分(差分) */
+	private static final String MODE_DELTA = "DELTA";
+	/** 差分ファイルのファイル名に付ける文字列 */
+	private static final String DELTA_SUFFIX = "_delta";
+	/** 削除ファイルのファイル名に付ける文字列 */
+	private static final String DELETE_SUFFIX = "_delete";
+	/** 分割ファイル・分割の一時ファイルのファイル名に付ける文字列 */
+	private static final String PART_SUFFIX = "_part%03d";
+	/** 一時ファイルの拡張子 */
+	private static final String TEMP_SUFFIX = ".tmp";
+	/** 除去するスペース(CsvWriterと同じ、\s・全角スペース) */
+	private static final String TRIM_CHARS = "E' \\t\\n\\013\\f\\r\u3000'";
+	/** boolean型の型名(COPYでは t/f に変換する) */
+	private static final String BOOL_TYPE = "bool";
+	/** 定義のロック(pg_try_advisory_lock)の分類キー(SQL番号と組み合わせる) */
+	private static final int LOCK_CLASS = "m_gp_csvexport_definfo".hashCode();
+
+	@Autowired
+	MgpCsvExportDefInfoMapper mgpCsvExportDefInfoMapper;
+
+	@Autowired
+	MgpCsvExportDeltaService mgpCsvExportDeltaService;
+
+	@Autowired
+	MgpCsvExportSplitService mgpCsvExportSplitService;
+
+	@Autowired
+	MgpCsvExportHistoryService mgpCsvExportHistoryService;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	@Qualifier("csvExportExecutor")
+	ThreadPoolTaskExecutor csvExportExecutor;
+
+	@Autowired
+	@Qualifier("csvExportPartExecutor")
+	ThreadPoolTaskExecutor csvExportPartExecutor;
+
+	/** フェッチサイズ(サーバー側カーソルから1回に読み込む件数) */
+	@Value("${config.csvexport.fetchSize:10000}")
+	private int fetchSize;
+
+	/** COPYでの出力を使用するか */
+	@Value("${config.csvexport.copy.enabled:true}")
+	private boolean copyEnabled;
+
+	/** 出力バッファサイズ(バイト) */
+	@Value("${config.csvexport.bufferSize:262144}")
+	private int bufferSize;
+
+	/** 実行中のSQL番号 */
+	private final Set<Integer> running = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 有効な定義をすべて実行する
+	 *
+	 * @return 実行結果(SQL番号順)
+	 */
+	public List<CsvExportResultDto> runAllValid() {
+		MgpCsvExportDefInfoExample example = new MgpCsvExportDefInfoExample();
+		example.createCriteria().andValidFlagEqualTo(VALID);
+		example.setOrderByClause("sql_no");
+		return runAll(mgpCsvExportDefInfoMapper.selectByExample(example));
+	}
+
+	/**
+	 * 指定した定義を実行する
+	 *
+	 * @param sqlNos SQL番号
+	 * @return 実行結果(指定順、定義がない場合は除く)
+	 */
+	public List<CsvExportResultDto> runAll(Integer... sqlNos) {
+		List<MgpCsvExportDefInfo> defs = new ArrayList<MgpCsvExportDefInfo>();
+		for (Integer sqlNo : sqlNos) {
+			MgpCsvExportDefInfo def = mgpCsvExportDefInfoMapper.selectByPrimaryKey(sqlNo);
+			if (def != null) {
+				defs.add(def);
+			}
+		}
+		return runAll(defs);
+	}
+
+	/**
+	 * 定義を並列に実行し、すべての終了を待つ
+	 *
+	 * @param defs 汎用CSV出力定義情報
+	 * @return 実行結果(定義の順)
+	 */
+	public List<CsvExportResultDto> runAll(List<MgpCsvExportDefInfo> defs) {
+
+		LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV一括出力処理", "開始");
+		List<Future<CsvExportResultDto>> futures = new ArrayList<Future<CsvExportResultDto>>();
+		for (MgpCsvExportDefInfo def : defs) {
+			try {
+				futures.add(csvExportExecutor.submit(() -> run(def, MgpCsvExportHistoryService.TRIGGER_MANUAL)));
+			} catch (TaskRejectedException e) {
+				// 待ち件数を超えた場合は要求したスレッドで実行する
+				futures.add(CompletableFuture.completedFuture(run(def, MgpCsvExportHistoryService.TRIGGER_MANUAL)));
+			}
+		}
+		List<CsvExportResultDto> results = new ArrayList<CsvExportResultDto>();
+		boolean allSuccess = true;
+		for (int i = 0; i < futures.size(); i++) {
+			CsvExportResultDto result;
+			try {
+				result = futures.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				result = failed(defs.get(i), e);
+			} catch (ExecutionException e) {
+				result = failed(defs.get(i), e.getCause());
+			}
+			allSuccess &= result.isSuccess();
+			results.add(result);
+		}
+		LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV一括出力処理", allSuccess ? "正常終了" : "異常終了");
+		return results;
+	}
+
+	/**
+	 * 1定義の実行
+	 * 差分出力設定がある定義は、前回出力した位置以降の差分と削除キーを出力する(MgpCsvExportDeltaService)。
+	 * 分割出力設定がある定義の全件出力は、範囲ごとに並列に出力する(MgpCsvExportSplitService)。
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param triggerClass 実行区分(実行履歴に保存する)
+	 * @return 実行結果
+	 */
+	public CsvExportResultDto run(MgpCsvExportDefInfo def, String triggerClass) {
+
+		LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "開始");
+		if (!running.add(def.getSqlNo())) {
+			CsvExportResultDto result = failed(def, null);
+			result.setErrorMessage("実行中のため出力しません");
+			mgpCsvExportHistoryService.save(result, triggerClass);
+			LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "異常終了 : sqlNo = {}, 実行中", def.getSqlNo());
+			return result;
+		}
+		long start = System.nanoTime();
+		LocalDateTime now = LocalDateTime.now();
+		CsvExportResultDto result = new CsvExportResultDto();
+		result.setSqlNo(def.getSqlNo());
+		result.setSystemId(def.getSystemId());
+		// 一時ファイル → 出力ファイル
+		Map<Path, Path> files = new LinkedHashMap<Path, Path>();
+		boolean otherServer = false;
+		try {
+			// 保存済みの定義に末尾の「;」が残っていても副問合せとして囲めるよう、囲む前に1文に整える
+			def.setSqlOutData(MgpCsvExportService.singleStatement(def.getSqlOutData()));
+			CsvExportDeltaDto delta = mgpCsvExportDeltaService.getSetting(def.getSqlNo());
+			boolean full = delta == null || mgpCsvExportDeltaService.isFullDue(delta, now);
+			result.setExportMode(full ? MODE_FULL : MODE_DELTA);
+			CsvExportSplitDto split = full ? mgpCsvExportSplitService.getSetting(def.getSqlNo()) : null;
+			Object[] watermark = null;
+			try (Connection conn = dataSource.getConnection()) {
+				// 複数のサーバーで同じ定義を同時に実行しないよう、接続を返すまでロックする
+				otherServer = !tryLock(conn, def.getSqlNo());
+				if (!otherServer) {
+					try {
+						// PostgreSQLは自動コミットなしの場合のみフェッチサイズ単位で読み込む(サーバー側カーソル)
+						conn.setAutoCommit(false);
+						// 差分出力の場合は出力済みキー・出力位置を同じトランザクションで更新する
+						conn.setReadOnly(delta == null);
+						int isolation = conn.getTransactionIsolation();
+						try {
+							if (delta != null || split != null) {
+								// 出力位置の確認と出力(分割出力の各接続を含む)を同じスナップショットで行う
+								conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+							}
+							if (delta != null) {
+								watermark = mgpCsvExportDeltaService.selectHighWatermark(conn, def, delta);
+							}
+							List<Object> params = null;
+							List<String> ranges = split == null ? Collections.emptyList()
+									: mgpCsvExportSplitService.rangeSqls(conn, def, split);
+							if (!ranges.isEmpty()) {
+								result.setParts(ranges.size());
+								result.setRows(exportParts(conn, def, split, ranges, now, files, result));
+							} else if (full) {
+								Path target = targetPath(def, now, "");
+								result.setFilePath(target.toString());
+								result.setRows(export(conn, def, def.getSqlOutData(), Collections.emptyList(), headerNames(def),
+										tempFile(target, files), true));
+							} else {
+								// 更新日時のある行がない場合は前回位置までとし、ヘッダーのみの差分ファイルを出力する
+								params = mgpCsvExportDeltaService.deltaParameters(delta, watermark != null ? watermark
+										: new Object[] { delta.getLastUpdateTs(), delta.getLastKey() });
+								Path target = targetPath(def, now, DELTA_SUFFIX);
+								result.setFilePath(target.toString());
+								result.setRows(export(conn, def, mgpCsvExportDeltaService.deltaSql(def, delta),
+										params, headerNames(def), tempFile(target, files), false));
+								Path deleteTarget = targetPath(def, now, DELETE_SUFFIX);
+								result.setDeleteFilePath(deleteTarget.toString());
+								result.setDeleteRows(export(conn, def, mgpCsvExportDeltaService.tombstoneSql(def, delta),
+										mgpCsvExportDeltaService.tombstoneParameters(delta, params),
+										headerNames(def) == null ? null : Collections.singletonList(delta.getKeyColumn()),
+										tempFile(deleteTarget, files), false));
+							}
+							if (delta != null) {
+								mgpCsvExportDeltaService.saveExportedKeys(conn, def, delta, params);
+							}
+							moveFiles(files, result);
+							if (delta != null) {
+								// ファイルの配置後にコミットする(コミットに失敗した場合は次回同じ範囲を出力し直す)
+								mgpCsvExportDeltaService.saveWatermark(conn, def.getSqlNo(), watermark, full ? Timestamp.valueOf(now) : null);
+								conn.commit();
+							}
+						} finally {
+							conn.rollback();
+							conn.setTransactionIsolation(isolation);
+							conn.setReadOnly(false);
+							conn.setAutoCommit(true);
+						}
+					} finally {
+						unlock(conn, def.getSqlNo());
+					}
+				}
+			}
+			result.setSuccess(!otherServer);
+		} catch (Exception e) {
+			result.setErrorMessage(e.getMessage());
+			LogService.system(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "失敗した sqlNo = " + def.getSqlNo());
+			LogService.system(ExceptionUtils.getStackTrace(e));
+		} finally {
+			running.remove(def.getSqlNo());
+			for (Path temp : files.keySet()) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					LogService.system(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "一時ファイル削除失敗 " + temp);
+				}
+			}
+		}
+		if (otherServer) {
+			result.setErrorMessage("他のサーバーで実行中のため出力しません");
+			LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "対象外 : sqlNo = {}, 他のサーバーで実行中", def.getSqlNo());
+			if (MgpCsvExportHistoryService.TRIGGER_SCHEDULE.equals(triggerClass)) {
+				// スケジュール実行は各サーバーで同じ時刻に実行するため、実行したサーバーの履歴のみ保存する
+				return result;
+			}
+		}
+		setThroughput(result, System.nanoTime() - start);
+		mgpCsvExportHistoryService.save(result, triggerClass);
+		LogService.info(LOG_TITLE, OWN_NAME, "汎用CSV出力処理",
+				(result.isSuccess() ? "正常終了" : "異常終了") + " : sqlNo = {}, {}, file = {}, 分割 {}, {} 件, 削除 {} 件, {} バイト, {} ms, {} 件/秒, {} MB/秒",
+				def.getSqlNo(), result.getExportMode(), result.getFilePath(), result.getParts(), result.getRows(), result.getDeleteRows(),
+				result.getBytes(), result.getElapsedMillis(), result.getRowsPerSecond(), result.getMbPerSecond());
+		return result;
+	}
+
+	/**
+	 * 定義のロックの取得(セッション単位、接続を閉じた場合も解除される)
+	 *
+	 * @param conn 接続(自動コミットあり)
+	 * @param sqlNo SQL番号
+	 * @return true:取得した、false:他の接続(他のサーバー)がロック中
+	 * @throws SQLException
+	 */
+	private static boolean tryLock(Connection conn, Integer sqlNo) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+			ps.setInt(1, LOCK_CLASS);
+			ps.setInt(2, sqlNo);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() && rs.getBoolean(1);
+			}
+		}
+	}
+
+	/**
+	 * 定義のロックの解除(失敗した場合は記録のみ、接続を閉じた時点で解除される)
+	 *
+	 * @param conn 接続
+	 * @param sqlNo SQL番号
+	 */
+	private static void unlock(Connection conn, Integer sqlNo) {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+			ps.setInt(1, LOCK_CLASS);
+			ps.setInt(2, sqlNo);
+			ps.execute();
+		} catch (SQLException e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "汎用CSV出力処理", "ロック解除失敗 sqlNo = " + sqlNo + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * 一時ファイルを出力ファイルに置き換える
+	 *
+	 * @param files 一時ファイル → 出力ファイル
+	 * @param result 実行結果(出力バイト数を設定する)
+	 * @throws IOException
+	 */
+	private static void moveFiles(Map<Path, Path> files, CsvExportResultDto result) throws IOException {
+		for (Map.Entry<Path, Path> file : files.entrySet()) {
+			Files.move(file.getKey(), file.getValue(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			result.setBytes(result.getBytes() + Files.size(file.getValue()));
+		}
+	}
+
+	/**
+	 * 一時ファイルのパス(出力ファイルと同じフォルダ)
+	 *
+	 * @param target 出力ファイル
+	 * @param files 一時ファイル → 出力ファイル(追加する)
+	 * @return 一時ファイル
+	 * @throws IOException
+	 */
+	private static Path tempFile(Path target, Map<Path, Path> files) throws IOException {
+		Files.createDirectories(target.getParent());
+		Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+		files.put(temp, target);
+		return temp;
+	}
+
+	/**
+	 * 範囲ごとに並列に出力する
+	 * 最初の範囲はこの接続で、それ以外は csvExportPartExecutor で別の接続から同じスナップショットを使用して出力する。
+	 * 分割ファイル出力の場合は範囲ごとのファイル(ファイル名_part001…、それぞれヘッダーあり)、
+	 * それ以外は範囲の順に1ファイルへ結合する。
+	 *
+	 * @param conn 接続(REPEATABLE READ)
+	 * @param def 汎用CSV出力定義情報
+	 * @param split 分割出力設定
+	 * @param ranges 範囲ごとのSQL
+	 * @param now 実行日時
+	 * @param files 一時ファイル → 出力ファイル(追加する)
+	 * @param result 実行結果(出力ファイルを設定する)
+	 * @return 出力件数
+	 * @throws Exception
+	 */
+	private long exportParts(Connection conn, MgpCsvExportDefInfo def, CsvExportSplitDto split, List<String> ranges,
+			LocalDateTime now, Map<Path, Path> files, CsvExportResultDto result) throws Exception {
+
+		String snapshotId = mgpCsvExportSplitService.exportSnapshot(conn);
+		boolean partFiles = "1".equals(split.getPartFileFlag());
+		Path target = targetPath(def, now, "");
+		List<String> header = headerNames(def);
+		List<Path> temps = new ArrayList<Path>();
+		for (int i = 0; i < ranges.size(); i++) {
+			if (partFiles) {
+				temps.add(tempFile(targetPath(def, now, String.format(PART_SUFFIX, i + 1)), files));
+			} else {
+				Files.createDirectories(target.getParent());
+				temps.add(target.resolveSibling(target.getFileName() + String.format(PART_SUFFIX, i + 1) + TEMP_SUFFIX));
+			}
+		}
+		result.setFilePath(partFiles ? files.get(temps.get(0)).toString() : target.toString());
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>();
+			long rows = 0;
+			Exception error = null;
+			try {
+				for (int i = 1; i < ranges.size(); i++) {
+					String sql = ranges.get(i);
+					Path temp = temps.get(i);
+					futures.add(csvExportPartExecutor.submit(() -> exportPart(def, snapshotId, sql, partFiles ? header : null, temp)));
+				}
+				rows += export(conn, def, ranges.get(0), Collections.emptyList(), header, temps.get(0), true);
+			} catch (Exception e) {
+				error = e;
+			}
+			// 他の接続がスナップショットを使用し終わるまで、この接続のトランザクションを終了しない
+			for (Future<Long> future : futures) {
+				try {
+					rows += future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					error = error == null ? e : error;
+				} catch (ExecutionException e) {
+					error = error != null ? error : e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+			if (!partFiles) {
+				concat(temps, tempFile(target, files));
+			}
+			return rows;
+		} finally {
+			if (!partFiles) {
+				for (Path temp : temps) {
+					Files.deleteIfExists(temp);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 1範囲の出力(別の接続で、指定したスナップショットを使用する)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param snapshotId スナップショットID
+	 * @param sql SQL
+	 * @param header ヘッダー(出力しない場合null)
+	 * @param temp 一時ファイル
+	 * @return 出力件数
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private long exportPart(MgpCsvExportDefInfo def, String snapshotId, String sql, List<String> header, Path temp)
+			throws SQLException, IOException {
+
+		try (Connection conn = dataSource.getConnection()) {
+			conn.setAutoCommit(false);
+			conn.setReadOnly(true);
+			int isolation = conn.getTransactionIsolation();
+			conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			try {
+				mgpCsvExportSplitService.importSnapshot(conn, snapshotId);
+				return export(conn, def, sql, Collections.emptyList(), header, temp, true);
+			} finally {
+				conn.rollback();
+				conn.setTransactionIsolation(isolation);
+				conn.setReadOnly(false);
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * ファイルを順に結合する
+	 *
+	 * @param parts 結合するファイル
+	 * @param temp 出力先の一時ファイル
+	 * @throws IOException
+	 */
+	private static void concat(List<Path> parts, Path temp) throws IOException {
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			for (Path part : parts) {
+				try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+					long size = in.size();
+					for (long position = 0; position < size;) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+			}
+			out.force(false);
+		}
+	}
+
+	/**
+	 * SQLを実行し、一時ファイルへ出力する
+	 * COPYで出力できる定義(囲い文字あり、パラメータなし)は COPY ... TO STDOUT で出力し、それ以外はJDBCで1件ずつ出力する。
+	 *
+	 * @param conn 接続
+	 * @param def 汎用CSV出力定義情報
+	 * @param sql SQL
+	 * @param params パラメータ
+	 * @param header ヘッダー(出力しない場合null)
+	 * @param temp 一時ファイル
+	 * @param copyAllowed true:COPYで出力してよい
+	 * @return 出力件数
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private long export(Connection conn, MgpCsvExportDefInfo def, String sql, List<Object> params, List<String> header,
+			Path temp, boolean copyAllowed) throws SQLException, IOException {
+
+		long rows;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel), bufferSize);
+			CsvWriter csv = newCsvWriter(def, os);
+			writeHeader(header, csv);
+			if (copyAllowed && params.isEmpty() && canCopy(def, conn)) {
+				csv.flush();
+				rows = copyOut(def, conn, sql, os);
+			} else {
+				rows = selectOut(conn, sql, params, csv);
+			}
+			csv.flush();
+			channel.force(false);
+		}
+		return rows;
+	}
+
+	/**
+	 * 定義の文字コード・区切り文字・改行コード・囲い文字でCSV出力を作成する
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param os 出力先
+	 * @return CSV出力
+	 */
+	private static CsvWriter newCsvWriter(MgpCsvExportDefInfo def, OutputStream os) {
+		return new CsvWriter(os, charSet(def), separator(def), lineFeed(def), "1".equals(def.getSeparationDefClass()));
+	}
+
+	/**
+	 * JDBCで1件ずつ出力する
+	 *
+	 * @param conn 接続
+	 * @param sql SQL
+	 * @param params パラメータ
+	 * @param csv 出力先
+	 * @return 出力件数
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private long selectOut(Connection conn, String sql, List<Object> params, CsvWriter csv) throws SQLException, IOException {
+
+		long rows = 0;
+		try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			ps.setFetchSize(fetchSize);
+			for (int i = 0; i < params.size(); i++) {
+				ps.setObject(i + 1, params.get(i));
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				int columns = rs.getMetaData().getColumnCount();
+				while (rs.next()) {
+					for (int i = 1; i <= columns; i++) {
+						csv.write(rs.getString(i), i < columns);
+					}
+					csv.newLine();
+					rows++;
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * COPYで出力できるか
+	 * 囲い文字なしはCOPYのCSV形式(必要な項目のみ囲む)と出力が異なるため対象外とする。
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param conn 接続
+	 * @return true:COPYで出力する
+	 * @throws SQLException
+	 */
+	private boolean canCopy(MgpCsvExportDefInfo def, Connection conn) throws SQLException {
+		return copyEnabled && "1".equals(def.getSeparationDefClass()) && conn.isWrapperFor(PGConnection.class);
+	}
+
+	/**
+	 * COPY ... TO STDOUT で出力する
+	 * JDBCでの出力と同じ内容になるよう、各項目を文字列に変換して前後のスペース(半角・全角)を除去し、
+	 * nullは空文字として、すべての項目を「"」で囲む。
+	 * 文字列への変換はJDBC(テキスト形式で受信した値の getString)と同じサーバーの文字列表現(::text)とし、
+	 * 表現の異なる boolean のみ t/f に変換する。
+	 * サーバーからはUTF-8・改行LFで受け取るため、それ以外の場合は文字コード・改行コードを変換しながら出力する。
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param conn 接続
+	 * @param sql SQL
+	 * @param os 出力先
+	 * @return 出力件数
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	private long copyOut(MgpCsvExportDefInfo def, Connection conn, String sql, OutputStream os) throws SQLException, IOException {
+
+		List<String> types = new ArrayList<String>();
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			ResultSetMetaData meta = ps.getMetaData();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				types.add(meta.getColumnTypeName(i));
+			}
+		}
+		String copy = copySql(sql, types, separator(def));
+
+		CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+		String charSet = charSet(def);
+		String lineFeed = lineFeed(def);
+		if (StandardCharsets.UTF_8.equals(Charset.forName(charSet)) && "\n".equals(lineFeed)) {
+			return copyManager.copyOut(copy, os);
+		}
+		CsvTranscodingOutputStream transcoder = new CsvTranscodingOutputStream(os, charSet, lineFeed);
+		long rows = copyManager.copyOut(copy, transcoder);
+		transcoder.finish();
+		return rows;
+	}
+
+	/**
+	 * COPYのSQL(出力SQLを副問合せとして囲み、各項目を文字列に変換する)
+	 *
+	 * @param sql 出力SQL(末尾の「;」を除いたもの)
+	 * @param types 出力SQLの項目の型名
+	 * @param separator 区切り文字
+	 * @return COPYのSQL
+	 */
+	static String copySql(String sql, List<String> types, char separator) {
+
+		StringBuilder select = new StringBuilder("SELECT ");
+		StringBuilder alias = new StringBuilder();
+		for (int i = 1; i <= types.size(); i++) {
+			if (i > 1) {
+				select.append(", ");
+				alias.append(", ");
+			}
+			String column = "c" + i;
+			if (BOOL_TYPE.equals(types.get(i - 1))) {
+				// ::text は true/false となるため、JDBC(getString)と同じ t/f にする
+				select.append("coalesce(CASE WHEN ").append(column).append(" THEN 't' WHEN NOT ").append(column)
+						.append(" THEN 'f' END, '')");
+			} else {
+				select.append("coalesce(btrim(").append(column).append("::text, ").append(TRIM_CHARS).append("), '')");
+			}
+			alias.append(column);
+		}
+		select.append(" FROM (").append(sql).append(") csv_export(").append(alias).append(')');
+		return "COPY (" + select + ") TO STDOUT WITH (FORMAT csv, DELIMITER "
+				+ (separator == '\t' ? "E'\\t'" : "','") + ", FORCE_QUOTE *)";
+	}
+
+	/**
+	 * ヘッダー項目(1:論理名, 2:物理名)
+	 * 出力項目定義は「No,物理名,論理名;…」の形式。
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @return ヘッダー項目、出力しない場合null
+	 */
+	private static List<String> headerNames(MgpCsvExportDefInfo def) {
+
+		int index;
+		if ("1".equals(def.getFileHeaderInfoClass())) {
+			index = 2;
+		} else if ("2".equals(def.getFileHeaderInfoClass())) {
+			index = 1;
+		} else {
+			return null;
+		}
+		List<String> names = new ArrayList<String>();
+		for (String column : StringUtils.split(StringUtils.defaultString(def.getSqlColumnDef()), ';')) {
+			String[] items = column.split(",", -1);
+			if (items.length > index) {
+				names.add(items[index]);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * ヘッダー出力
+	 *
+	 * @param names ヘッダー項目(nullの場合出力しない)
+	 * @param csv 出力先
+	 * @throws IOException
+	 */
+	private static void writeHeader(List<String> names, CsvWriter csv) throws IOException {
+		if (names == null) {
+			return;
+		}
+		for (int i = 0; i < names.size(); i++) {
+			csv.write(names.get(i), i < names.size() - 1);
+		}
+		csv.newLine();
+	}
+
+	/**
+	 * 出力ファイルのパス(ファイル名日付 1:先頭YYYYMMDD_, 2:先頭YYYYMMDDHHMMSS_, 3:後尾_YYYYMMDD, 4:後尾_YYYYMMDDHHMMSS)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param now 実行日時
+	 * @param suffix 拡張子の前に付ける文字列(差分・削除ファイル)
+	 * @return パス
+	 */
+	Path targetPath(MgpCsvExportDefInfo def, LocalDateTime now, String suffix) {
+
+		String date = now.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+		String dateTime = now.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+		StringBuilder name = new StringBuilder();
+		switch (StringUtils.defaultString(def.getFileNamingClass())) {
+		case "1":
+			name.append(date).append('_').append(def.getFileName());
+			break;
+		case "2":
+			name.append(dateTime).append('_').append(def.getFileName());
+			break;
+		case "3":
+			name.append(def.getFileName()).append('_').append(date);
+			break;
+		case "4":
+			name.append(def.getFileName()).append('_').append(dateTime);
+			break;
+		default:
+			name.append(def.getFileName());
+			break;
+		}
+		name.append(suffix).append('.').append(StringUtils.lowerCase(def.getFileClass()));
+		return Paths.get(def.getFileSavePath()).resolve(name.toString());
+	}
+
+	/**
+	 * 文字コード
+	 */
+	private static String charSet(MgpCsvExportDefInfo def) {
+		return StringUtils.isBlank(def.getStrCode()) ? CsvWriter.DEFAULT_CHAR_SET : def.getStrCode();
+	}
+
+	/**
+	 * 区切り文字(1:タブ, 0:カンマ)
+	 */
+	private static char separator(MgpCsvExportDefInfo def) {
+		return "1".equals(def.getDelimiterClass()) ? '\t' : CsvWriter.DEFAULT_SEPARATOR;
+	}
+
+	/**
+	 * 改行コード(1:CR+LF, 2:CR, 0:LF)
+	 */
+	private static String lineFeed(MgpCsvExportDefInfo def) {
+		switch (StringUtils.defaultString(def.getFileCodeFormatClass())) {
+		case "1":
+			return "\r\n";
+		case "2":
+			return "\r";
+		default:
+			return "\n";
+		}
+	}
+
+	/**
+	 * 処理件数/秒・MB/秒の設定
+	 *
+	 * @param result 実行結果
+	 * @param nanos 処理時間(ナノ秒)
+	 */
+	private static void setThroughput(CsvExportResultDto result, long nanos) {
+		result.setElapsedMillis(nanos / 1_000_000);
+		double seconds = Math.max(nanos, 1) / 1e9;
+		result.setRowsPerSecond(Math.round(result.getRows() / seconds * 10) / 10.0);
+		result.setMbPerSecond(Math.round(result.getBytes() / 1048576.0 / seconds * 100) / 100.0);
+	}
+
+	/**
+	 * 実行できなかった定義の結果
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 * @param e 例外
+	 * @return 実行結果
+	 */
+	private static CsvExportResultDto failed(MgpCsvExportDefInfo def, Throwable e) {
+		CsvExportResultDto result = new CsvExportResultDto();
+		result.setSqlNo(def.getSqlNo());
+		result.setSystemId(def.getSystemId());
+		result.setErrorMessage(e == null ? null : e.getMessage());
+		return result;
+	}
+}
@@ -0,0 +1,297 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+import jp.co.axio.masterMentsetSystem.repository.MgpCsvExportDefInfoMapper;
+
+/**
+ * 汎用CSV出力スケジュール実行サービスクラス
+ * m_gp_csvexport_schedule のcron式(秒 分 時 日 月 曜日)に従って、汎用CSV出力定義を実行する。
+ * <ul>
+ * <li>実行時刻になった定義はシステム名ごとの待ち行列に入れ、全体・システム名ごとの同時実行数の上限内で実行する。</li>
+ * <li>待ち行列はシステム名ごとに順番に取り出し、1つのシステムの定義が続けて実行されないようにする。</li>
+ * <li>待ち中・実行中の定義が再び実行時刻になった場合は、新たに待ち行列に入れない(1回の実行にまとめる)。</li>
+ * <li>停止中に過ぎた実行時刻は実行しない(起動後の次の実行時刻から実行する)。</li>
+ * <li>スレッドプールの待ち件数を超えた場合は待ち行列に戻し、スケジュールのスレッドでは実行しない。</li>
+ * <li>複数のサーバーで動作する場合は、実行時に定義のロックを取得できたサーバーのみ実行する(MgpCsvExportRunService)。</li>
+ * </ul>
+ * 実行結果は実行履歴(MgpCsvExportHistoryService)に保存する。
+ * テーブルは db/csvexport_schedule.sql をDB管理者が作成する(テーブルがない場合はスケジュール実行は行わない)。
+ *
+ * @author axio
+ */
+@Service
+public class MgpCsvExportScheduleService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV出力";
+	/** 自処理名 */
+	private static final String OWN_NAME = "MgpCsvExportScheduleService";
+	/** 有効フラグ(有効) */
+	private static final String VALID = "1";
+
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	MgpCsvExportDefInfoMapper mgpCsvExportDefInfoMapper;
+
+	@Autowired
+	MgpCsvExportRunService mgpCsvExportRunService;
+
+	@Autowired
+	@Qualifier("csvExportExecutor")
+	ThreadPoolTaskExecutor csvExportExecutor;
+
+	/** スケジュール実行を行うか */
+	@Value("${config.csvexport.schedule.enabled:false}")
+	private boolean enabled;
+
+	/** 全体の同時実行数 */
+	@Value("${config.csvexport.schedule.maxConcurrent:2}")
+	private int maxConcurrent;
+
+	/** システム名ごとの同時実行数 */
+	@Value("${config.csvexport.schedule.perSystemMaxConcurrent:1}")
+	private int perSystemMaxConcurrent;
+
+	/** SQL番号 → スケジュール */
+	private final Map<Integer, Schedule> schedules = new HashMap<Integer, Schedule>();
+	/** システム名 → 待ち行列(先頭のシステム名から取り出し、取り出したシステム名は末尾へ移す) */
+	private final LinkedHashMap<String, ArrayDeque<MgpCsvExportDefInfo>> queues = new LinkedHashMap<String, ArrayDeque<MgpCsvExportDefInfo>>();
+	/** 待ち中・実行中のSQL番号 */
+	private final Set<Integer> pending = new HashSet<Integer>();
+	/** システム名 → 実行中の件数 */
+	private final Map<String, Integer> runningBySystem = new HashMap<String, Integer>();
+	/** 実行中の件数 */
+	private int running;
+
+	/**
+	 * スケジュールの確認
+	 * スケジュールを読み込み直し、実行時刻になった定義を待ち行列に入れて実行する。
+	 */
+	@Scheduled(fixedDelayString = "${config.csvexport.schedule.pollMillis:30000}",
+			initialDelayString = "${config.csvexport.schedule.pollMillis:30000}")
+	public void poll() {
+		if (!enabled) {
+			return;
+		}
+		List<Map<String, Object>> rows;
+		try {
+			rows = jdbcTemplate.queryForList("SELECT sql_no, cron_expression FROM m_gp_csvexport_schedule"
+					+ " WHERE valid_flag = ?", VALID);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "スケジュール取得", e.getMessage());
+			return;
+		}
+		for (Integer sqlNo : due(rows, new Date())) {
+			MgpCsvExportDefInfo def = mgpCsvExportDefInfoMapper.selectByPrimaryKey(sqlNo);
+			if (def != null && VALID.equals(def.getValidFlag())) {
+				enqueue(def);
+			}
+		}
+		dispatch();
+	}
+
+	/**
+	 * 実行時刻になったSQL番号(次の実行時刻を進める)
+	 *
+	 * @param rows スケジュール(sql_no, cron_expression)
+	 * @param now 現在日時
+	 * @return SQL番号
+	 */
+	private synchronized List<Integer> due(List<Map<String, Object>> rows, Date now) {
+		List<Integer> due = new ArrayList<Integer>();
+		Set<Integer> current = new HashSet<Integer>();
+		for (Map<String, Object> row : rows) {
+			Integer sqlNo = ((Number) row.get("sql_no")).intValue();
+			String cron = StringUtils.trimToEmpty((String) row.get("cron_expression"));
+			current.add(sqlNo);
+			Schedule schedule = schedules.get(sqlNo);
+			if (schedule == null || !schedule.cron.equals(cron)) {
+				try {
+					schedule = new Schedule(cron, now);
+				} catch (IllegalArgumentException e) {
+					// cron式が変わるまで実行しない(ログは変更時に1回のみ)
+					LogService.system(LOG_TITLE, OWN_NAME, "スケジュール取得", "cron式が不正です sqlNo = " + sqlNo + " " + cron);
+					schedules.put(sqlNo, new Schedule(cron));
+					continue;
+				}
+				schedules.put(sqlNo, schedule);
+			}
+			if (schedule.next != null && !schedule.next.after(now)) {
+				due.add(sqlNo);
+				schedule.next = schedule.generator.next(now);
+			}
+		}
+		schedules.keySet().retainAll(current);
+		return due;
+	}
+
+	/**
+	 * 待ち行列に入れる(待ち中・実行中の場合は入れない)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 */
+	private synchronized void enqueue(MgpCsvExportDefInfo def) {
+		if (!pending.add(def.getSqlNo())) {
+			LogService.info(LOG_TITLE, OWN_NAME, "スケジュール実行", "待ち中・実行中のためまとめます sqlNo = {}", def.getSqlNo());
+			return;
+		}
+		queues.computeIfAbsent(StringUtils.defaultString(def.getSystemId()), k -> new ArrayDeque<MgpCsvExportDefInfo>()).add(def);
+	}
+
+	/**
+	 * 同時実行数の上限まで、待ち行列から取り出して実行する
+	 */
+	private void dispatch() {
+		List<MgpCsvExportDefInfo> taken = take();
+		for (int i = 0; i < taken.size(); i++) {
+			MgpCsvExportDefInfo def = taken.get(i);
+			try {
+				csvExportExecutor.execute(() -> execute(def));
+			} catch (TaskRejectedException e) {
+				// スケジュールのスレッドでは実行せず、待ち行列に戻して次の確認・実行終了時に実行する
+				LogService.info(LOG_TITLE, OWN_NAME, "スケジュール実行", "実行待ちが上限のため待ち行列に戻します sqlNo = {}", def.getSqlNo());
+				requeue(taken.subList(i, taken.size()));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 実行できなかった定義を待ち行列の先頭に戻す(同時実行数を戻す)
+	 *
+	 * @param defs 汎用CSV出力定義情報(取り出した順)
+	 */
+	private synchronized void requeue(List<MgpCsvExportDefInfo> defs) {
+		for (int i = defs.size() - 1; i >= 0; i--) {
+			MgpCsvExportDefInfo def = defs.get(i);
+			String systemId = StringUtils.defaultString(def.getSystemId());
+			runningBySystem.computeIfPresent(systemId, (k, v) -> v > 1 ? v - 1 : null);
+			running--;
+			queues.computeIfAbsent(systemId, k -> new ArrayDeque<MgpCsvExportDefInfo>()).addFirst(def);
+		}
+	}
+
+	/**
+	 * 実行する定義を待ち行列から取り出す(システム名を順番に、同時実行数の上限まで)
+	 *
+	 * @return 実行する定義
+	 */
+	private synchronized List<MgpCsvExportDefInfo> take() {
+		List<MgpCsvExportDefInfo> taken = new ArrayList<MgpCsvExportDefInfo>();
+		while (running < maxConcurrent) {
+			String systemId = null;
+			for (Iterator<Map.Entry<String, ArrayDeque<MgpCsvExportDefInfo>>> it = queues.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, ArrayDeque<MgpCsvExportDefInfo>> entry = it.next();
+				if (entry.getValue().isEmpty()) {
+					it.remove();
+				} else if (runningBySystem.getOrDefault(entry.getKey(), 0) < perSystemMaxConcurrent) {
+					systemId = entry.getKey();
+					break;
+				}
+			}
+			if (systemId == null) {
+				break;
+			}
+			ArrayDeque<MgpCsvExportDefInfo> queue = queues.remove(systemId);
+			taken.add(queue.poll());
+			queues.put(systemId, queue);
+			runningBySystem.merge(systemId, 1, Integer::sum);
+			running++;
+		}
+		return taken;
+	}
+
+	/**
+	 * 1定義の実行(終了後に次の定義を実行する)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 */
+	private void execute(MgpCsvExportDefInfo def) {
+		try {
+			mgpCsvExportRunService.run(def, MgpCsvExportHistoryService.TRIGGER_SCHEDULE);
+		} finally {
+			finished(def);
+			dispatch();
+		}
+	}
+
+	/**
+	 * 実行終了(同時実行数を戻す)
+	 *
+	 * @param def 汎用CSV出力定義情報
+	 */
+	private synchronized void finished(MgpCsvExportDefInfo def) {
+		String systemId = StringUtils.defaultString(def.getSystemId());
+		runningBySystem.computeIfPresent(systemId, (k, v) -> v > 1 ? v - 1 : null);
+		running--;
+		pending.remove(def.getSqlNo());
+	}
+
+	/**
+	 * 現在の状態(待ち件数・実行中件数)
+	 *
+	 * @return running, runningBySystem, queued(システム名 → 待ち件数)
+	 */
+	public synchronized Map<String, Object> status() {
+		Map<String, Object> status = new LinkedHashMap<String, Object>();
+		Map<String, Integer> queued = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, ArrayDeque<MgpCsvExportDefInfo>> entry : queues.entrySet()) {
+			queued.put(entry.getKey(), entry.getValue().size());
+		}
+		status.put("enabled", enabled);
+		status.put("running", running);
+		status.put("runningBySystem", new LinkedHashMap<String, Integer>(runningBySystem));
+		status.put("queued", queued);
+		return status;
+	}
+
+	/**
+	 * cron式と次の実行時刻
+	 */
+	private static class Schedule {
+		/** cron式 */
+		final String cron;
+		/** 次の実行時刻の計算(不正なcron式の場合null) */
+		final CronSequenceGenerator generator;
+		/** 次の実行時刻(不正なcron式の場合null) */
+		Date next;
+
+		Schedule(String cron, Date now) {
+			this.cron = cron;
+			this.generator = new CronSequenceGenerator(cron);
+			this.next = generator.next(now);
+		}
+
+		/** 不正なcron式 */
+		Schedule(String cron) {
+			this.cron = cron;
+			this.generator = null;
+		}
+	}
+}
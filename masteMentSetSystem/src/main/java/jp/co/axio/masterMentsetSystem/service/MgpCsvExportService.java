@@ -1,10 +1,15 @@
 package jp.co.axio.masterMentsetSystem.service;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.controller.MgpCsvExportForm;
+import jp.co.axio.masterMentsetSystem.dto.SqlCheckResultDto;
 import jp.co.axio.masterMentsetSystem.dto.TargetViewInfoResultListDto;
 import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
 import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfoExample;
@@ -41,18 +47,29 @@ public class MgpCsvExportService {
     @Autowired
     TargetViewMapper targetViewMapper;
 
-    // application.propertiesより取得
-    @Value("${spring.datasource.url}")
-    private String dbUrl;
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    TargetViewInfoCacheService targetViewInfoCacheService;
 
-    @Value("${spring.datasource.username}")
-    private String dbUser;
+    /** 実行計画の見積り件数 */
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+    /** 実行時間の上限による取り消し(SQLSTATE) */
+    private static final String QUERY_CANCELED = "57014";
+    /** 複数文のSQLのエラーメッセージ */
+    private static final String MULTI_STATEMENT = "SQLは1文のみ指定してください";
+    /** ドル引用符の開始 */
+    private static final Pattern DOLLAR_QUOTE = Pattern.compile("\\$([A-Za-z_][A-Za-z0-9_]*)?\\$");
 
-    @Value("${spring.datasource.password}")
-    private String dbPass;
+    // application.propertiesより取得
+    /** SQLチェックの実行時間の上限(秒) */
+    @Value("${config.csvexport.sqlCheck.timeoutSeconds:30}")
+    private int sqlCheckTimeoutSeconds;
 
-    @Value("${spring.datasource.driver-class-name}")
-    private String dbDriver;
+    /** SQLチェックで実件数を数えるか */
+    @Value("${config.csvexport.sqlCheck.exactCount:true}")
+    private boolean sqlCheckExactCount;
 
     /**
      　　　* 汎用CSV出力定義情報からデータ取得 select
@@ -96,12 +113,11 @@ public class MgpCsvExportService {
     }
 
     /**
-     * 抽出元情報一覧取得
+     * 抽出元情報一覧取得(抽出元の定義が変わるまでキャッシュした結果を返す)
      * @form
      */
-    @Transactional
     public List<TargetViewInfoResultListDto> selectTargetViewInfoSearchResult (String viewName) throws Exception{
-    	List<TargetViewInfoResultListDto> targetViewInfo = targetViewMapper.selectAllByView(viewName);
+    	List<TargetViewInfoResultListDto> targetViewInfo = targetViewInfoCacheService.get(viewName);
 
     	return targetViewInfo;
     }
@@ -154,43 +170,178 @@ public class MgpCsvExportService {
     }
 
     /**
-     * SQL実行できたか判定
-     * @throws Exception
-     * @parm SQL
-     *
+     * SQLチェック(見積り件数・実件数の取得)
+     * 接続プールの接続を使用し、読み取り専用トランザクション・実行時間の上限を設定して実行する(終了時はロールバックする)。
+     * 件数は EXPLAIN の見積り件数を先に取得し、設定した場合のみ count(*) で実件数を数える。
+     * 実件数が時間内に数え終わらなかった場合は見積り件数のみを返す。
+     * @param sql SQL
+     * @return 見積り件数・実件数
+     * @throws Exception SQL誤り等
      */
-    @Transactional
-    public String run(String sql) throws Exception{
+    public SqlCheckResultDto checkSql(String sql) throws Exception {
 
         LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL実行処理", "開始");
-        //変数定義
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        Integer cnt = 0;
-
-            //JDBCドライバをロードする
-            Class.forName(dbDriver);
-
-            //DBへのコネクションを作成する
-            conn = DriverManager.getConnection(dbUrl, dbUser, dbPass);
-
-            //実行するSQL文とパラメータを指定する
-            ps = conn.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            //SELECTを実行する
-            rs = ps.executeQuery();
-
-            if (rs != null) {
-            	rs.last();
-            	cnt = rs.getRow();
+        sql = singleStatement(sql);
+        SqlCheckResultDto checkResult = new SqlCheckResultDto();
+        try (Connection conn = dataSource.getConnection()) {
+            beginReadOnly(conn);
+            try {
+                checkResult.setEstimatedRows(explainRows(conn, sql));
+                if (sqlCheckExactCount) {
+                    checkResult.setExactRows(countRows(conn, sql));
+                }
+            } finally {
+                endReadOnly(conn);
+            }
+        }
+        LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL実行処理", "正常終了");
+        return checkResult;
+    }
+
+    /**
+     * SQL構文チェック(実行計画の作成のみ行い、SQLは実行しない)
+     * @param sql SQL
+     * @throws Exception SQL誤り等
+     */
+    public void validateSql(String sql) throws Exception {
+
+        LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL構文チェック処理", "開始");
+        sql = singleStatement(sql);
+        try (Connection conn = dataSource.getConnection()) {
+            beginReadOnly(conn);
+            try {
+                explainRows(conn, sql);
+            } finally {
+                endReadOnly(conn);
+            }
+        }
+        LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL構文チェック処理", "正常終了");
+    }
+
+    /**
+     * 1文のSQL(末尾の「;」・スペースを除く)
+     * 副問合せとして囲んで実行するため、文字列・引用符付きの名前・コメント以外に「;」があり、
+     * その後に文が続く場合は複数文としてエラーとする。
+     * 定義の保存時・出力時にも使用し、保存するSQL・出力で囲むSQLに末尾の「;」を残さない。
+     * @param sql SQL
+     * @return 末尾の「;」以降を除いたSQL(nullの場合null)
+     * @throws IllegalArgumentException 複数文の場合
+     */
+    static String singleStatement(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int end = -1;
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (end >= 0 && (c == '\'' || c == '"' || c == '$')) {
+                throw new IllegalArgumentException(MULTI_STATEMENT);
+            }
+            if (c == '\'' || c == '"') {
+                // 文字列・引用符付きの名前(重ねた引用符は閉じずに続く、E'～' は「\」でエスケープする)
+                boolean escape = c == '\'' && i > 0 && (sql.charAt(i - 1) == 'E' || sql.charAt(i - 1) == 'e');
+                int j = i + 1;
+                while (j < length && sql.charAt(j) != c) {
+                    j += escape && sql.charAt(j) == '\\' ? 2 : 1;
+                }
+                i = j + 1;
+                continue;
+            }
+            if (c == '-' && sql.startsWith("--", i)) {
+                int close = sql.indexOf('\n', i);
+                i = close < 0 ? length : close + 1;
+                continue;
             }
+            if (c == '/' && sql.startsWith("/*", i)) {
+                int close = sql.indexOf("*/", i + 2);
+                i = close < 0 ? length : close + 2;
+                continue;
+            }
+            if (c == '$' && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)) && sql.charAt(i - 1) != '_')) {
+                // ドル引用符($$～$$、$tag$～$tag$)
+                Matcher m = DOLLAR_QUOTE.matcher(sql).region(i, length);
+                if (m.lookingAt()) {
+                    int close = sql.indexOf(m.group(), m.end());
+                    i = close < 0 ? length : close + m.group().length();
+                    continue;
+                }
+            }
+            if (c == ';') {
+                if (end < 0) {
+                    end = i;
+                }
+            } else if (end >= 0 && !Character.isWhitespace(c)) {
+                throw new IllegalArgumentException(MULTI_STATEMENT);
+            }
+            i++;
+        }
+        return StringUtils.stripEnd(end < 0 ? sql : sql.substring(0, end), null);
+    }
+
+    /**
+     * 読み取り専用トランザクションの開始(実行時間の上限を設定)
+     * @param conn 接続
+     * @throws SQLException
+     */
+    private void beginReadOnly(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET TRANSACTION READ ONLY");
+            // SET LOCAL はトランザクション終了時に元に戻る(プールへ返却後の接続に影響しない)
+            st.execute("SET LOCAL statement_timeout = " + Math.max(1, sqlCheckTimeoutSeconds) * 1000L);
+        }
+    }
+
+    /**
+     * 読み取り専用トランザクションの終了(ロールバックして接続をプールへ返却できる状態に戻す)
+     * @param conn 接続
+     * @throws SQLException
+     */
+    private void endReadOnly(Connection conn) throws SQLException {
+        conn.rollback();
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * 実行計画の見積り件数
+     * @param conn 接続
+     * @param sql SQL
+     * @return 見積り件数(最上位ノードの rows)
+     * @throws SQLException
+     */
+    private long explainRows(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql);
+                ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                Matcher m = PLAN_ROWS.matcher(rs.getString(1));
+                if (m.find()) {
+                    return Long.parseLong(m.group(1));
+                }
+            }
+        }
+        return 0;
+    }
 
-            //クローズ処理
-            if(rs != null) rs.close();
-            if(ps != null) ps.close();
-            if(conn != null) conn.close();
-            LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL実行処理", "正常終了");
-    	return cnt.toString();
+    /**
+     * 実件数(サーバー側で数え、結果をアプリケーションに読み込まない)
+     * @param conn 接続
+     * @param sql SQL
+     * @return 実件数、時間内に数え終わらなかった場合null
+     * @throws SQLException
+     */
+    private Long countRows(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT count(*) FROM (" + sql + ") sql_check");
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (SQLException e) {
+            if (QUERY_CANCELED.equals(e.getSQLState())) {
+                LogService.info("汎用CSV設定画面", "MgpCsvExportService", "SQL実行処理", "件数取得打ち切り(" + sqlCheckTimeoutSeconds + "秒)");
+                return null;
+            }
+            throw e;
+        }
     }
 
     /**
@@ -224,7 +375,7 @@ public class MgpCsvExportService {
 		insertEntity.setSeparationDefClass(form.getSeparationDefClass());
 		insertEntity.setFileHeaderInfoClass(form.getFileHeaderInfoClass());
 		insertEntity.setSqlOutTableName(form.getSqlOutTableName());
-		insertEntity.setSqlOutData(form.getSqlOutData());
+		insertEntity.setSqlOutData(singleStatement(form.getSqlOutData()));
 	    insertEntity.setSqlColumnDef(form.getSqlColumnDef());
 	    insertEntity.setSqlWhereDef(form.getSqlWhereDef());
 
@@ -256,7 +407,7 @@ public class MgpCsvExportService {
 	    updateEntity.setSeparationDefClass(form.getSeparationDefClass());
 	    updateEntity.setFileHeaderInfoClass(form.getFileHeaderInfoClass());
 	    updateEntity.setSqlOutTableName(form.getSqlOutTableName());
-	    updateEntity.setSqlOutData(form.getSqlOutData());
+	    updateEntity.setSqlOutData(singleStatement(form.getSqlOutData()));
 	    updateEntity.setSqlColumnDef(form.getSqlColumnDef());
 	    updateEntity.setSqlWhereDef(form.getSqlWhereDef());
 		updateEntity.setVersionNumber(new Integer(form.getVersionNumber() + 1));
@@ -0,0 +1,265 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.dto.CsvExportSplitDto;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+
+/**
+ * 汎用CSV分割出力サービスクラス
+ * m_gp_csvexport_split に行がある定義(SQL番号)は、全件出力を分割項目の範囲ごとに分け、別々のDB接続で並列に出力する。
+ * <ul>
+ * <li>範囲の境界は出力元の標本(テーブルは TABLESAMPLE、ビューは無作為抽出)の分位点とする。</li>
+ * <li>各接続は pg_export_snapshot で取得したスナップショットを使用し、1接続で出力した場合と同じ内容を出力する。</li>
+ * <li>見積件数が「分割数 × 1分割の最小件数」に満たない場合は分割しない。</li>
+ * <li>範囲ごとのSQLは出力SQL(sqlOutData)の出力元テーブルを範囲で絞り込んだ副問合せに置き換えて作成する。</li>
+ * <li>範囲ごとの出力を結合した結果が1回で出力した結果と一致するのは行単位で出力するSQLのみのため、
+ * 出力SQLに ORDER BY・GROUP BY・HAVING・DISTINCT・集約関数・ウィンドウ関数・LIMIT/OFFSET/FETCH・
+ * UNION/INTERSECT/EXCEPT がある場合は分割しない(文字列・コメント内の記述も対象とし、分割しない側に倒す)。</li>
+ * </ul>
+ * 分割出力を行うには、m_gp_csvexport_split に SQL番号・分割項目を登録する。
+ * テーブルは db/csvexport_split.sql をDB管理者が作成する(テーブルがない場合は分割出力は行わない)。
+ *
+ * @author axio
+ */
+@Service
+public class MgpCsvExportSplitService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV出力";
+	/** 自処理名 */
+	private static final String OWN_NAME = "MgpCsvExportSplitService";
+	/** 分割数の上限 */
+	private static final int MAX_PARTS = 64;
+	/** 実行計画の見積件数 */
+	private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+	/** スナップショットID(SQLに埋め込むため) */
+	private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-F-]+");
+	/** 分割すると結果が変わる記述(判定順) */
+	private static final Map<String, Pattern> UNSPLITTABLE = new LinkedHashMap<String, Pattern>();
+	static {
+		UNSPLITTABLE.put("ORDER BY", Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("GROUP BY", Pattern.compile("\\bgroup\\s+by\\b", Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("HAVING", Pattern.compile("\\bhaving\\b", Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("DISTINCT", Pattern.compile("\\bdistinct\\b", Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("ウィンドウ関数", Pattern.compile("\\bover\\s*\\(|\\bwindow\\b", Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("集約関数", Pattern.compile("\\b(count|sum|avg|min|max|every|bool_and|bool_or|bit_and|bit_or"
+				+ "|\\w+_agg|stddev\\w*|variance|var_pop|var_samp|corr|covar_\\w+|regr_\\w+|mode|percentile_\\w+)\\s*\\(",
+				Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("LIMIT/OFFSET", Pattern.compile("\\blimit\\b|\\boffset\\b|\\bfetch\\s+(first|next)\\b",
+				Pattern.CASE_INSENSITIVE));
+		UNSPLITTABLE.put("UNION/INTERSECT/EXCEPT", Pattern.compile("\\b(union|intersect|except)\\b", Pattern.CASE_INSENSITIVE));
+	}
+
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/** 1分割の最小件数(見積件数がこれに満たない場合は分割数を減らす) */
+	@Value("${config.csvexport.split.minRowsPerPart:100000}")
+	private long minRowsPerPart;
+
+	/** 境界を求める標本の件数(目安) */
+	@Value("${config.csvexport.split.sampleRows:30000}")
+	private long sampleRows;
+
+	/**
+	 * 分割出力設定の取得
+	 *
+	 * @param sqlNo SQL番号
+	 * @return 分割出力設定(分割出力しない定義の場合null)
+	 */
+	public CsvExportSplitDto getSetting(Integer sqlNo) {
+		List<CsvExportSplitDto> list;
+		try {
+			list = jdbcTemplate.query("SELECT sql_no, split_column, parts, part_file_flag"
+					+ " FROM m_gp_csvexport_split WHERE sql_no = ?", (rs, i) -> {
+						CsvExportSplitDto dto = new CsvExportSplitDto();
+						dto.setSqlNo(rs.getInt(1));
+						dto.setSplitColumn(rs.getString(2));
+						dto.setParts(rs.getInt(3));
+						dto.setPartFileFlag(rs.getString(4));
+						return dto;
+					}, sqlNo);
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "分割出力設定取得", e.getMessage());
+			return null;
+		}
+		return list.isEmpty() || list.get(0).getParts() < 2 ? null : list.get(0);
+	}
+
+	/**
+	 * 範囲ごとの出力SQL
+	 * 境界は標本の分位点(重複は除く)で、分割項目がnullの行は最後の範囲に含める。
+	 *
+	 * @param conn 接続(出力と同じトランザクション)
+	 * @param def 汎用CSV出力定義情報
+	 * @param split 分割出力設定
+	 * @return 範囲ごとのSQL(分割項目の順)、分割しない場合は空
+	 * @throws SQLException
+	 */
+	public List<String> rangeSqls(Connection conn, MgpCsvExportDefInfo def, CsvExportSplitDto split) throws SQLException {
+
+		String table = MgpCsvExportDeltaService.identifier(def.getSqlOutTableName());
+		String column = MgpCsvExportDeltaService.identifier(split.getSplitColumn());
+		String sql = StringUtils.defaultString(def.getSqlOutData());
+		String unsplittable = unsplittable(sql);
+		if (unsplittable != null) {
+			LogService.info(LOG_TITLE, OWN_NAME, "分割出力", "対象外 : sqlNo = {}, {} 指定あり", def.getSqlNo(), unsplittable);
+			return Collections.emptyList();
+		}
+		Matcher from = Pattern.compile("\\bfrom\\s+" + table + "(?![A-Za-z0-9_.])", Pattern.CASE_INSENSITIVE).matcher(sql);
+		int start = from.find() ? from.start() : -1;
+		int end = start < 0 ? -1 : from.end();
+		if (start < 0 || from.find()) {
+			LogService.info(LOG_TITLE, OWN_NAME, "分割出力", "対象外 : sqlNo = {}, 出力SQLの出力元を特定できない", def.getSqlNo());
+			return Collections.emptyList();
+		}
+		long estimated = estimateRows(conn, table);
+		int parts = (int) Math.min(Math.min(split.getParts(), MAX_PARTS), estimated / Math.max(minRowsPerPart, 1));
+		if (parts < 2) {
+			return Collections.emptyList();
+		}
+		List<String> bounds = boundaries(conn, table, column, parts, estimated);
+		if (bounds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		// 出力元テーブルを範囲の副問合せに置き換える(出力条件で元のテーブル名を参照できるよう同じ別名を付ける)
+		String select = sql.substring(0, start) + "FROM (SELECT * FROM " + table + " WHERE ";
+		String where = ") " + table + sql.substring(end);
+		List<String> sqls = new ArrayList<String>();
+		for (int i = 0; i <= bounds.size(); i++) {
+			String range;
+			if (i == 0) {
+				range = column + " < " + bounds.get(0);
+			} else if (i < bounds.size()) {
+				range = column + " >= " + bounds.get(i - 1) + " AND " + column + " < " + bounds.get(i);
+			} else {
+				range = "(" + column + " >= " + bounds.get(i - 1) + " OR " + column + " IS NULL)";
+			}
+			sqls.add(select + range + where);
+		}
+		return sqls;
+	}
+
+	/**
+	 * 分割すると結果が変わる記述
+	 * 範囲ごとの出力の結合が1回の出力と一致しない(並び順・グループ・重複除去・件数制限等が範囲ごとになる)記述を返す。
+	 *
+	 * @param sql 出力SQL
+	 * @return 記述の名前、行単位で出力するSQLの場合null
+	 */
+	static String unsplittable(String sql) {
+		for (Map.Entry<String, Pattern> item : UNSPLITTABLE.entrySet()) {
+			if (item.getValue().matcher(sql).find()) {
+				return item.getKey();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 現在のトランザクションのスナップショットを他の接続で使用できるようにする
+	 *
+	 * @param conn 接続(REPEATABLE READ、すべての分割の出力が終わるまでトランザクションを終了しないこと)
+	 * @return スナップショットID
+	 * @throws SQLException
+	 */
+	public String exportSnapshot(Connection conn) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT pg_export_snapshot()"); ResultSet rs = ps.executeQuery()) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	/**
+	 * スナップショットの使用(トランザクションの最初に実行する)
+	 *
+	 * @param conn 接続(自動コミットなし、REPEATABLE READ)
+	 * @param snapshotId スナップショットID
+	 * @throws SQLException
+	 */
+	public void importSnapshot(Connection conn, String snapshotId) throws SQLException {
+		if (!SNAPSHOT_ID.matcher(StringUtils.defaultString(snapshotId)).matches()) {
+			throw new IllegalArgumentException("スナップショットIDが不正です : " + snapshotId);
+		}
+		try (PreparedStatement ps = conn.prepareStatement("SET TRANSACTION SNAPSHOT '" + snapshotId + "'")) {
+			ps.execute();
+		}
+	}
+
+	/**
+	 * 出力元の見積件数(実行計画)
+	 */
+	private static long estimateRows(Connection conn, String table) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("EXPLAIN SELECT 1 FROM " + table);
+				ResultSet rs = ps.executeQuery()) {
+			if (rs.next()) {
+				Matcher m = PLAN_ROWS.matcher(rs.getString(1));
+				if (m.find()) {
+					return Long.parseLong(m.group(1));
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 範囲の境界(標本の分位点を「'値'::型」の形式で返す)
+	 */
+	private List<String> boundaries(Connection conn, String table, String column, int parts, long estimated)
+			throws SQLException {
+
+		String sample;
+		double percent = Math.min(100.0, sampleRows * 100.0 / Math.max(estimated, 1));
+		if (isTable(conn, table)) {
+			sample = table + " TABLESAMPLE SYSTEM (" + percent + ") WHERE ";
+		} else {
+			sample = table + " WHERE random() < " + percent / 100 + " AND ";
+		}
+		StringBuilder fractions = new StringBuilder();
+		for (int i = 1; i < parts; i++) {
+			fractions.append(i > 1 ? ", " : "").append((double) i / parts);
+		}
+		String sql = "SELECT b::text, pg_typeof(b)::text FROM (SELECT DISTINCT b FROM unnest("
+				+ "(SELECT percentile_disc(ARRAY[" + fractions + "]) WITHIN GROUP (ORDER BY " + column + ")"
+				+ " FROM " + sample + column + " IS NOT NULL)) b"
+				+ " WHERE b IS NOT NULL) d ORDER BY b";
+		List<String> bounds = new ArrayList<String>();
+		try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				bounds.add("'" + rs.getString(1).replace("'", "''") + "'::" + rs.getString(2));
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * TABLESAMPLE を使用できるか(テーブル・マテリアライズドビュー)
+	 */
+	private static boolean isTable(Connection conn, String table) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("SELECT relkind FROM pg_class WHERE oid = to_regclass(?)")) {
+			ps.setString(1, table);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() && StringUtils.equalsAny(rs.getString(1), "r", "m", "p");
+			}
+		}
+	}
+}
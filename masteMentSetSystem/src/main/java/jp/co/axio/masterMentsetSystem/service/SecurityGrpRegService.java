@@ -17,6 +17,7 @@ import jp.co.axio.masterMentsetSystem.controller.SecurityGrpBaseParam;
 import jp.co.axio.masterMentsetSystem.controller.SecurityGrpRegForm;
 import jp.co.axio.masterMentsetSystem.model.MGroupEntity;
 import jp.co.axio.masterMentsetSystem.model.MOrganizationAdGroupEntity;
+import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
 import jp.co.axio.masterMentsetSystem.repository.MGroupEntityMapper;
 import jp.co.axio.masterMentsetSystem.repository.MOrganizationAdGroupMapper;
 import jp.co.axio.masterMentsetSystem.repository.MOrganizationEntityMapper;
@@ -40,6 +41,9 @@ public class SecurityGrpRegService {
     @Autowired
     SecurityGrpSetService securityGrpSetService;
 
+    @Autowired
+    CodeMasterCacheService codeMasterCacheService;
+
     // 日付フォーマット
     SimpleDateFormat slashrFormat = new SimpleDateFormat("yyyy/MM/dd");
 
@@ -95,21 +99,17 @@ public class SecurityGrpRegService {
 
         SecurityGrpRegForm newForm = new SecurityGrpRegForm();
         List<SecurityGrpBaseParam> securityGrpBaseParams = new ArrayList<>();
-        List<MOrganizationAdGroupEntity> mOrganizationAdGroupEntities = new ArrayList<>();
         Calendar nowCal = Calendar.getInstance();
 
         newForm = form;
 
-        // 表の初期値検索
-        mOrganizationAdGroupEntities = mOrganizationAdGroupMapper.selectBaseParamInit();
-
-        // 表の初期化
-        for (MOrganizationAdGroupEntity e : mOrganizationAdGroupEntities) {
+        // 表の初期化(汎用コードマスタのグループタイプ)
+        for (MgpCodeMst e : codeMasterCacheService.getListOrderByValue1(SecurityGrpSetService.GROUP_TYPE_CODE)) {
 
             SecurityGrpBaseParam sgbp = new SecurityGrpBaseParam();
 
-            sgbp.setGroupType(e.getGroupType());
-            sgbp.setGroupTypeName(e.getGroupTypeName());
+            sgbp.setGroupType(e.getValue1());
+            sgbp.setGroupTypeName(e.getValue2());
 
             securityGrpBaseParams.add(sgbp);
         }
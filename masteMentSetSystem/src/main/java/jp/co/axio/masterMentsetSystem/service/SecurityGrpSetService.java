@@ -19,6 +19,7 @@ import jp.co.axio.masterMentsetSystem.model.MGroupEntity;
 import jp.co.axio.masterMentsetSystem.model.MOrganizationAdGroupEntity;
 import jp.co.axio.masterMentsetSystem.model.MOrganizationEntity;
 import jp.co.axio.masterMentsetSystem.model.MOrganizationEntityKey;
+import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
 import jp.co.axio.masterMentsetSystem.model.ShMAdgroupEntity;
 import jp.co.axio.masterMentsetSystem.model.VOrganizationADGroupEntity;
 import jp.co.axio.masterMentsetSystem.repository.MGroupEntityMapper;
@@ -51,6 +52,12 @@ public class SecurityGrpSetService {
     @Autowired
     MOrganizationAdGroupMapper mOrganizationAdGroupMapper;
 
+    @Autowired
+    CodeMasterCacheService codeMasterCacheService;
+
+    /** 汎用コードマスタのグループタイプの分類コード */
+    public static final String GROUP_TYPE_CODE = "00100";
+
     // 日付フォーマット
     SimpleDateFormat slashrFormat = new SimpleDateFormat("yyyy/MM/dd");
 
@@ -631,21 +638,20 @@ public class SecurityGrpSetService {
     public SecurityGrpSetForm resetValue(SecurityGrpSetForm form) {
 
         // 表の初期値の取得
-        List<MOrganizationAdGroupEntity> securityGroupBaseLista = new ArrayList<>();
-        securityGroupBaseLista = mOrganizationAdGroupMapper.selectBaseParamInit();
+        List<MgpCodeMst> securityGroupBaseLista = codeMasterCacheService.getListOrderByValue1(GROUP_TYPE_CODE);
 
         // form設定変数
         List<SecurityGrpBaseParam> securityGroupBaseList = new ArrayList<>();
 
         // 値設定
-        for (MOrganizationAdGroupEntity e : securityGroupBaseLista) {
+        for (MgpCodeMst e : securityGroupBaseLista) {
 
             SecurityGrpBaseParam securityGroupBaseParam = new SecurityGrpBaseParam();
 
             // グループタイプ
-            securityGroupBaseParam.setGroupType(e.getGroupType());
+            securityGroupBaseParam.setGroupType(e.getValue1());
             // グループタイプ名
-            securityGroupBaseParam.setGroupTypeName(e.getGroupTypeName());
+            securityGroupBaseParam.setGroupTypeName(e.getValue2());
 
             securityGroupBaseList.add(securityGroupBaseParam);
         }
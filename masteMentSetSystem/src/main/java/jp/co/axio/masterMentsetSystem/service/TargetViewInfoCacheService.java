@@ -0,0 +1,140 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.TtlCache;
+import jp.co.axio.masterMentsetSystem.dto.TargetViewInfoResultListDto;
+import jp.co.axio.masterMentsetSystem.model.OutputScopeMst;
+import jp.co.axio.masterMentsetSystem.model.OutputScopeMstExample;
+import jp.co.axio.masterMentsetSystem.repository.OutputScopeMstMapper;
+import jp.co.axio.masterMentsetSystem.repository.TargetViewMapper;
+
+/**
+ * 抽出元情報(列一覧)キャッシュサービスクラス
+ * information_schema を使用する列一覧の取得は遅いため、抽出元ごとに結果を保持する。
+ * <ul>
+ * <li>保持した結果は、抽出元の定義の版(pg_class・pg_attribute・pg_description の行の変更)が変わった場合に取得し直す。</li>
+ * <li>版の確認は確認間隔ごとに行い、間隔内は確認せずに保持した結果を返す。</li>
+ * <li>起動時に出力対象マスタ(OutputScopeMst)の抽出元をすべて読み込む。</li>
+ * </ul>
+ *
+ * @author axio
+ */
+@Service
+public class TargetViewInfoCacheService implements ApplicationRunner {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "汎用CSV設定画面";
+	/** 自処理名 */
+	private static final String OWN_NAME = "TargetViewInfoCacheService";
+
+	@Autowired
+	TargetViewMapper targetViewMapper;
+
+	@Autowired
+	OutputScopeMstMapper outputScopeMstMapper;
+
+	/** キャッシュ件数上限(0の場合キャッシュしない) */
+	@Value("${config.csvexport.viewInfo.cache.maxSize:200}")
+	private int cacheMaxSize;
+
+	/** 版の確認間隔(ミリ秒、0の場合は毎回確認する) */
+	@Value("${config.csvexport.viewInfo.cache.checkMillis:5000}")
+	private long checkMillis;
+
+	/** 抽出元(小文字) → 列一覧と版 */
+	private TtlCache<String, Entry> cache;
+
+	/**
+	 * キャッシュ作成(版で無効にするため、有効期間は実質無期限とする)
+	 */
+	@PostConstruct
+	public void init() {
+		cache = new TtlCache<String, Entry>(cacheMaxSize, TimeUnit.DAYS.toMillis(3650));
+	}
+
+	/**
+	 * 起動時に出力対象マスタの抽出元の列一覧を読み込む(失敗しても起動は継続し、画面表示時に読み込む)
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		LogService.info(LOG_TITLE, OWN_NAME, "抽出元情報読込処理", "開始");
+		int count = 0;
+		try {
+			for (OutputScopeMst scope : outputScopeMstMapper.selectByExample(new OutputScopeMstExample())) {
+				if (StringUtils.isNotBlank(scope.getOutputScopeTable())) {
+					load(StringUtils.lowerCase(scope.getOutputScopeTable()));
+					count++;
+				}
+			}
+		} catch (Exception e) {
+			LogService.system(LOG_TITLE, OWN_NAME, "抽出元情報読込処理", e.getMessage());
+			LogService.info(LOG_TITLE, OWN_NAME, "抽出元情報読込処理", "異常終了");
+			return;
+		}
+		LogService.info(LOG_TITLE, OWN_NAME, "抽出元情報読込処理", "正常終了 : {} 件", count);
+	}
+
+	/**
+	 * 抽出元の列一覧
+	 *
+	 * @param viewName 抽出元(小文字)
+	 * @return 列一覧(呼び出し元で変更してよい複製)
+	 */
+	public List<TargetViewInfoResultListDto> get(String viewName) {
+		Entry entry = cache.get(viewName);
+		if (entry != null) {
+			long now = System.nanoTime();
+			if (now - entry.checkedAt < TimeUnit.MILLISECONDS.toNanos(checkMillis)
+					|| Objects.equals(entry.version, targetViewMapper.selectViewVersion(viewName))) {
+				entry.checkedAt = now;
+				return new ArrayList<TargetViewInfoResultListDto>(entry.columns);
+			}
+		}
+		return new ArrayList<TargetViewInfoResultListDto>(load(viewName).columns);
+	}
+
+	/**
+	 * 列一覧と版を読み込んで保持する
+	 * 版を先に取得するため、読み込み中に定義が変更された場合は次回の確認で読み込み直す。
+	 *
+	 * @param viewName 抽出元(小文字)
+	 * @return 列一覧と版
+	 */
+	private Entry load(String viewName) {
+		String version = targetViewMapper.selectViewVersion(viewName);
+		Entry entry = new Entry(version, targetViewMapper.selectAllByView(viewName));
+		cache.put(viewName, entry);
+		return entry;
+	}
+
+	/**
+	 * 列一覧と版
+	 */
+	private static class Entry {
+		/** 版(抽出元がない場合null) */
+		final String version;
+		/** 列一覧 */
+		final List<TargetViewInfoResultListDto> columns;
+		/** 版を確認した時刻(System.nanoTime) */
+		volatile long checkedAt = System.nanoTime();
+
+		Entry(String version, List<TargetViewInfoResultListDto> columns) {
+			this.version = version;
+			this.columns = columns;
+		}
+	}
+}
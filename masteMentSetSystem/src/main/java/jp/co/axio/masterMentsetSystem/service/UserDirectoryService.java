@@ -0,0 +1,598 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.NgramIndex;
+import jp.co.axio.masterMentsetSystem.controller.UserListForm;
+import jp.co.axio.masterMentsetSystem.model.VGamenUserEntity;
+import jp.co.axio.masterMentsetSystem.repository.VUserMapper;
+
+/**
+ * ユーザー検索用ディレクトリサービスクラス
+ * V_GAMEN_USERの内容をメモリに保持し、ユーザー検索画面・ユーザーID一覧画面の検索・件数・並び替えを
+ * DBに問い合わせずに行う。
+ * 検索項目は項目ごとの配列で保持し、部分一致検索の項目は2文字のN-gram転置インデックスで候補を絞り込む。
+ * 定期的にユーザーの更新日時(update_ts)が前回より新しいユーザーのみ再読み込みし、
+ * 削除・所属名称の変更等を反映するため一定間隔で全件を読み込み直す。
+ * 保持する項目は検索条件・並び順・一覧表示に使用する項目のみとする(VUserMapper.xml selectUserDirectory)。
+ * 並び替えはSQLと同じく項目値をそのまま比較し(nullは最大値、NULLS指定がある場合はその位置)、同じ値の行はユーザーIDで並べる。
+ * 文字列の比較は照合順序 C(文字コード順)と同じため、DBの照合順序が C・POSIX 以外の場合は並び替えを行わない。
+ * 設定無効、読み込み前、対応していない並び順・照合順序の場合はnullを返すため、呼び出し側はDB検索を行うこと。
+ *
+ * @author axio
+ * @version 1.0
+ */
+@Service
+public class UserDirectoryService {
+
+	/** ログ出力用画面名 */
+	private static final String LOG_TITLE = "ユーザー検索ディレクトリ";
+
+	/** 並び順(「項目 ASC|DESC [NULLS FIRST|LAST]」) */
+	private static final Pattern ORDER_PATTERN = Pattern.compile("^(\\w+) (ASC|DESC)(?: NULLS (FIRST|LAST))?$");
+
+	/** 文字コード順で比較する照合順序 */
+	private static final List<String> CODE_POINT_COLLATIONS = Arrays.asList("C", "POSIX");
+
+	/** ユーザーID昇順 */
+	private static final Order USER_ID_ORDER = new Order("user_id", false, false, false);
+
+	/** 並び替え可能な項目 */
+	private static final Map<String, Function<VGamenUserEntity, String>> SORT_COLUMNS = new HashMap<String, Function<VGamenUserEntity, String>>();
+	static {
+		SORT_COLUMNS.put("user_id", VGamenUserEntity::getUserId);
+		SORT_COLUMNS.put("login_id", VGamenUserEntity::getLoginId);
+		SORT_COLUMNS.put("enrollment_name", VGamenUserEntity::getEnrollmentName);
+		SORT_COLUMNS.put("employment_name", VGamenUserEntity::getEmploymentName);
+		SORT_COLUMNS.put("name_jp", VGamenUserEntity::getNameJp);
+		SORT_COLUMNS.put("name_en", VGamenUserEntity::getNameEn);
+		SORT_COLUMNS.put("name_kana", VGamenUserEntity::getNameKana);
+		SORT_COLUMNS.put("position_name_jp", VGamenUserEntity::getPositionNameJp);
+		SORT_COLUMNS.put("organization_code", VGamenUserEntity::getOrganizationCode);
+		SORT_COLUMNS.put("organization_name_jp", VGamenUserEntity::getOrganizationNameJp);
+		SORT_COLUMNS.put("expansion_attr36", VGamenUserEntity::getExpansionAttr36);
+		SORT_COLUMNS.put("tel_ex", VGamenUserEntity::getTelEx);
+	}
+
+	@Autowired
+	VUserMapper vUserMapper;
+
+	/* メモリ検索を使用するか */
+	@Value("${config.userdirectory.enabled:false}")
+	private boolean enabled;
+
+	/* 全件再読み込み間隔(分) */
+	@Value("${config.userdirectory.fullReloadMinutes:60}")
+	private long fullReloadMinutes;
+
+	/** 現在のスナップショット(読み込み前はnull) */
+	private volatile Snapshot snapshot;
+
+	/** 読み込み済みの更新日時 */
+	private Timestamp watermark;
+
+	/** 前回の全件読み込み日時 */
+	private long lastFullReload;
+
+	/** DBの照合順序が文字コード順か(全件読み込み時に確認する) */
+	private boolean codePointOrder;
+
+	/**
+	 * ディレクトリの利用可否
+	 *
+	 * @return true:メモリ検索可
+	 */
+	public boolean isReady() {
+		return enabled && snapshot != null;
+	}
+
+	/**
+	 * ディレクトリの更新
+	 * 初回・全件再読み込み間隔経過後は全件、それ以外は更新日時が前回より新しいユーザーのみ読み込む。
+	 */
+	@Scheduled(initialDelayString = "${config.userdirectory.initialDelayMillis:10000}",
+			fixedDelayString = "${config.userdirectory.refreshMillis:60000}")
+	public synchronized void refresh() {
+
+		if (!enabled) {
+			return;
+		}
+
+		try {
+			long now = System.currentTimeMillis();
+			boolean full = snapshot == null || now - lastFullReload >= fullReloadMinutes * 60 * 1000;
+
+			// 読み込み前に更新日時を取得する(読み込み中の更新は次回対象)
+			Timestamp newWatermark = vUserMapper.getUserDirectoryWatermark();
+			if (!full && newWatermark != null && watermark != null && !newWatermark.after(watermark)) {
+				return;
+			}
+
+			String process = full ? "全件読み込み" : "差分読み込み";
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), process, "開始");
+
+			if (full) {
+				String collation = vUserMapper.getUserDirectoryCollation();
+				codePointOrder = CODE_POINT_COLLATIONS.contains(collation);
+				if (!codePointOrder) {
+					LogService.info(LOG_TITLE, this.getClass().getSimpleName(), process, "並び替えはDB検索(照合順序 {})", collation);
+				}
+			}
+
+			List<VGamenUserEntity> rows = vUserMapper.selectUserDirectory(full ? null : watermark);
+			Map<String, VGamenUserEntity> users;
+			if (full) {
+				users = new LinkedHashMap<String, VGamenUserEntity>(rows.size() * 2);
+				lastFullReload = now;
+			} else {
+				users = new LinkedHashMap<String, VGamenUserEntity>(snapshot.users);
+			}
+			for (VGamenUserEntity row : rows) {
+				users.put(row.getUserId(), row);
+			}
+
+			snapshot = new Snapshot(users, codePointOrder);
+			watermark = newWatermark;
+
+			LogService.info(LOG_TITLE, this.getClass().getSimpleName(), process, "正常終了 : {}件／全{}件", rows.size(), users.size());
+		} catch (Exception e) {
+			// 読み込みに失敗した場合、前回のスナップショット(無い場合はDB検索)で継続する
+			LogService.system(LOG_TITLE, this.getClass().getSimpleName(), "ディレクトリ読み込み", "異常終了");
+			LogService.system(e.getMessage());
+		}
+	}
+
+	/**
+	 * ユーザー検索画面の一覧(1ページ分)取得
+	 * 検索ヒット件数が未取得の場合、先頭行の検索ヒット件数(totalCount)に設定する。
+	 *
+	 * @param form 画面の入力情報
+	 * @return 一覧(複製)、メモリ検索できない場合null
+	 */
+	public List<VGamenUserEntity> selectUserList(UserListForm form) {
+
+		Snapshot snap = snapshot;
+		if (!enabled || snap == null) {
+			return null;
+		}
+
+		Order order = parseOrder(form.getOrderbyStr());
+		if (order == null || !snap.codePointOrder) {
+			return null;
+		}
+
+		int[] rows = snap.search(form);
+		BitSet hit = new BitSet(snap.rows.length);
+		for (int i : rows) {
+			hit.set(i);
+		}
+
+		int offset = form.getOffset() == null ? 0 : Math.max(form.getOffset(), 0);
+		int limit = form.getCntInt() == null ? rows.length : form.getCntInt();
+
+		// 並び順の行番号を先頭から辿り、一致した行をOFFSET件読み飛ばしてLIMIT件取得する
+		List<VGamenUserEntity> list = new ArrayList<VGamenUserEntity>();
+		int skip = 0;
+		for (int i : snap.order(order)) {
+			if (list.size() >= limit) {
+				break;
+			}
+			if (!hit.get(i)) {
+				continue;
+			}
+			if (skip < offset) {
+				skip++;
+				continue;
+			}
+			list.add(copy(snap.rows[i]));
+		}
+		if (!list.isEmpty() && StringUtils.isBlank(form.getCount())) {
+			list.get(0).setTotalCount(rows.length);
+		}
+
+		return list;
+	}
+
+	/**
+	 * ユーザー検索画面の検索ヒット件数取得
+	 *
+	 * @param form 画面の入力情報
+	 * @return 検索ヒット件数、メモリ検索できない場合null
+	 */
+	public Integer getUserCount(UserListForm form) {
+
+		Snapshot snap = snapshot;
+		if (!enabled || snap == null) {
+			return null;
+		}
+		return snap.search(form).length;
+	}
+
+	/**
+	 * ユーザーID一覧画面の検索(VUserMapper.selectVUserByAuthUserCodeListと同じ条件、ユーザーID順)
+	 *
+	 * @param codeMapList 選択済みコードのマップリスト
+	 * @param searchFlag true:検索条件の検索をする
+	 * @param searchUserCode 検索するユーザーID
+	 * @param searchUserName 検索するユーザー氏名
+	 * @param searchStartDateYmd 検索する有効基準日
+	 * @return 検索結果(複製)、メモリ検索できない場合null
+	 */
+	public List<VGamenUserEntity> selectVUserByAuthUserCodeList(List<Map<String, String>> codeMapList
+																, boolean searchFlag
+																, String searchUserCode
+																, String searchUserName
+																, String searchStartDateYmd) {
+
+		Snapshot snap = snapshot;
+		if (!enabled || snap == null || !snap.codePointOrder) {
+			return null;
+		}
+
+		long refDate = Long.MIN_VALUE;
+		if (StringUtils.isNotEmpty(searchStartDateYmd)) {
+			try {
+				SimpleDateFormat df = new SimpleDateFormat("yyyy/MM/dd");
+				df.setLenient(false);
+				refDate = df.parse(searchStartDateYmd).getTime();
+			} catch (ParseException e) {
+				// DBの日付変換エラーと同じ扱いにするため、DB検索に任せる
+				return null;
+			}
+		}
+
+		BitSet hit = new BitSet(snap.rows.length);
+
+		// 選択済みのユーザー
+		for (Map<String, String> codeMap : codeMapList) {
+			Integer row = codeMap == null ? null : snap.rowByUserId.get(codeMap.get("userCode"));
+			if (row != null) {
+				hit.set(row);
+			}
+		}
+
+		// 検索条件
+		if (searchFlag) {
+			int[] cand = Snapshot.narrow(null, snap.userIdIndex.candidates(searchUserCode));
+			cand = Snapshot.narrow(cand, snap.nameJpIndex.candidates(searchUserName));
+			int size = cand == null ? snap.rows.length : cand.length;
+			for (int n = 0; n < size; n++) {
+				int i = cand == null ? n : cand[n];
+				if (contains(snap.userId[i], searchUserCode)
+						&& contains(snap.nameJp[i], searchUserName)
+						&& (refDate == Long.MIN_VALUE
+							|| (snap.startDate[i] <= refDate && refDate <= snap.endDate[i]))) {
+					hit.set(i);
+				}
+			}
+		}
+
+		List<VGamenUserEntity> list = new ArrayList<VGamenUserEntity>(hit.cardinality());
+		for (int i : snap.order(USER_ID_ORDER)) {
+			if (hit.get(i)) {
+				list.add(copy(snap.rows[i]));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 並び順の解析
+	 * UserService(「user_id ASC|DESC」、「項目 ASC NULLS LAST, user_id ASC」、「項目 DESC NULLS FIRST, user_id DESC」)、
+	 * UserGeneralService(「項目 ASC|DESC, user_id ASC」)の並び順に対応する。NULLSの指定がない場合はSQLと同じくnullを最大値とする。
+	 *
+	 * @param orderbyStr 並び順
+	 * @return 並び順、メモリで並び替えできない場合null
+	 */
+	private static Order parseOrder(String orderbyStr) {
+
+		String[] terms = StringUtils.defaultString(orderbyStr, "user_id ASC").split(",");
+		if (terms.length > 2) {
+			return null;
+		}
+		Matcher m = ORDER_PATTERN.matcher(terms[0].trim());
+		if (!m.matches() || !SORT_COLUMNS.containsKey(m.group(1))) {
+			return null;
+		}
+		String column = m.group(1);
+		boolean desc = "DESC".equals(m.group(2));
+		boolean nullsFirst = m.group(3) == null ? desc : "FIRST".equals(m.group(3));
+		boolean userIdDesc = false;
+		if (terms.length == 2) {
+			Matcher tie = ORDER_PATTERN.matcher(terms[1].trim());
+			if ("user_id".equals(column) || !tie.matches() || !"user_id".equals(tie.group(1)) || tie.group(3) != null) {
+				return null;
+			}
+			userIdDesc = "DESC".equals(tie.group(2));
+		} else if ("user_id".equals(column)) {
+			userIdDesc = desc;
+		}
+		return new Order(column, desc, nullsFirst, userIdDesc);
+	}
+
+	/**
+	 * 部分一致判定(検索文字列が空の場合は一致)
+	 *
+	 * @param value 項目値
+	 * @param query 検索文字列
+	 * @return true:一致
+	 */
+	private static boolean contains(String value, String query) {
+		if (query == null || query.isEmpty()) {
+			return true;
+		}
+		return value != null && value.contains(query);
+	}
+
+	/**
+	 * 画面表示用の複製(画面側で表示項目を編集するため)
+	 *
+	 * @param src 保持している行
+	 * @return 複製
+	 */
+	private static VGamenUserEntity copy(VGamenUserEntity src) {
+		VGamenUserEntity dto = new VGamenUserEntity();
+		BeanUtils.copyProperties(src, dto);
+		return dto;
+	}
+
+	/**
+	 * 文字コード順の比較(照合順序 C と同じ)
+	 * サロゲートペア(U+10000以上)は U+E000～U+FFFF より後とする。
+	 *
+	 * @param a 文字列
+	 * @param b 文字列
+	 * @return 比較結果
+	 */
+	static int compareCodePoints(String a, String b) {
+		int n = Math.min(a.length(), b.length());
+		for (int i = 0; i < n; i++) {
+			char x = a.charAt(i);
+			char y = b.charAt(i);
+			if (x != y) {
+				boolean sx = Character.isSurrogate(x);
+				if (sx != Character.isSurrogate(y)) {
+					return sx ? 1 : -1;
+				}
+				return x - y;
+			}
+		}
+		return a.length() - b.length();
+	}
+
+	/**
+	 * 並び順(項目、nullの位置、同じ値の行のユーザーIDの向き)
+	 */
+	private static class Order {
+
+		final String column;
+		final boolean desc;
+		final boolean nullsFirst;
+		final boolean userIdDesc;
+
+		Order(String column, boolean desc, boolean nullsFirst, boolean userIdDesc) {
+			this.column = column;
+			this.desc = desc;
+			this.nullsFirst = nullsFirst;
+			this.userIdDesc = userIdDesc;
+		}
+
+		/**
+		 * 並び替え結果の保持キー
+		 *
+		 * @return 「項目 ASC|DESC NULLS FIRST|LAST, user_id ASC|DESC」
+		 */
+		String key() {
+			return column + (desc ? " DESC" : " ASC") + (nullsFirst ? " NULLS FIRST" : " NULLS LAST")
+					+ ", user_id" + (userIdDesc ? " DESC" : " ASC");
+		}
+	}
+
+	/**
+	 * ディレクトリのスナップショット(作成後は変更しない)
+	 */
+	private static class Snapshot {
+
+		/** ユーザーID → 行 */
+		final Map<String, VGamenUserEntity> users;
+		/** 行 */
+		final VGamenUserEntity[] rows;
+		/** ユーザーID → 行番号 */
+		final Map<String, Integer> rowByUserId;
+
+		/* 検索項目 */
+		final String[] userId;
+		final String[] loginId;
+		final String[] nameJp;
+		final String[] orgNameJp;
+		final String[] surnameEn;
+		final String[] givennameEn;
+		final String[] tel;
+		final String[] telEx;
+		/* 有効期間(nullの場合は比較対象外となる値) */
+		final long[] startDate;
+		final long[] endDate;
+
+		/** 並び順 → 行番号 */
+		final Map<String, int[]> orders = new ConcurrentHashMap<String, int[]>();
+
+		/** DBの照合順序が文字コード順か(並び替えの可否) */
+		final boolean codePointOrder;
+
+		/* 部分一致検索用インデックス */
+		final NgramIndex userIdIndex;
+		final NgramIndex loginIdIndex;
+		final NgramIndex nameJpIndex;
+		final NgramIndex orgNameJpIndex;
+		final NgramIndex surnameEnIndex;
+		final NgramIndex givennameEnIndex;
+
+		Snapshot(Map<String, VGamenUserEntity> users, boolean codePointOrder) {
+
+			this.users = users;
+			this.codePointOrder = codePointOrder;
+			int size = users.size();
+			rows = users.values().toArray(new VGamenUserEntity[size]);
+			rowByUserId = new HashMap<String, Integer>(size * 2);
+
+			userId = new String[size];
+			loginId = new String[size];
+			nameJp = new String[size];
+			orgNameJp = new String[size];
+			surnameEn = new String[size];
+			givennameEn = new String[size];
+			tel = new String[size];
+			telEx = new String[size];
+			startDate = new long[size];
+			endDate = new long[size];
+
+			for (int i = 0; i < size; i++) {
+				VGamenUserEntity row = rows[i];
+				userId[i] = row.getUserId();
+				loginId[i] = row.getLoginId();
+				nameJp[i] = row.getNameJp();
+				orgNameJp[i] = row.getOrganizationNameJp();
+				surnameEn[i] = row.getSurnameEn();
+				givennameEn[i] = row.getGivennameEn();
+				tel[i] = row.getTel();
+				telEx[i] = row.getTelEx();
+				// DBのbetween、>= と同じく、nullは一致しない
+				startDate[i] = row.getStartDate() == null ? Long.MAX_VALUE : row.getStartDate().getTime();
+				endDate[i] = row.getEndDate() == null ? Long.MIN_VALUE : row.getEndDate().getTime();
+				rowByUserId.put(userId[i], i);
+			}
+
+			userIdIndex = new NgramIndex(userId);
+			loginIdIndex = new NgramIndex(loginId);
+			nameJpIndex = new NgramIndex(nameJp);
+			orgNameJpIndex = new NgramIndex(orgNameJp);
+			surnameEnIndex = new NgramIndex(surnameEn);
+			givennameEnIndex = new NgramIndex(givennameEn);
+		}
+
+		/**
+		 * ユーザー検索画面の検索(VUserMapper.xml userListWhereと同じ条件)
+		 *
+		 * @param form 画面の入力情報
+		 * @return 一致した行番号(昇順)
+		 */
+		int[] search(UserListForm form) {
+
+			String id = StringUtils.defaultString(form.getUserId());
+
+			// インデックスで候補を絞り込む
+			int[] cand = null;
+			if (!id.isEmpty()) {
+				int[] byId = userIdIndex.candidates(id);
+				int[] byLogin = loginIdIndex.candidates(id);
+				cand = narrow(cand, byId == null || byLogin == null ? null : NgramIndex.union(byId, byLogin));
+			}
+			cand = narrow(cand, nameJpIndex.candidates(form.getUserName()));
+			cand = narrow(cand, orgNameJpIndex.candidates(form.getOrgName()));
+			cand = narrow(cand, surnameEnIndex.candidates(form.getSurnameEn()));
+			cand = narrow(cand, givennameEnIndex.candidates(form.getGivennameEn()));
+
+			boolean validOnly = form.getInvUserFlg() != null && !"ON".equals(form.getInvUserFlg());
+			long now = System.currentTimeMillis();
+
+			// 候補を実際の値と照合する
+			int size = cand == null ? rows.length : cand.length;
+			int[] result = new int[size];
+			int n = 0;
+			for (int k = 0; k < size; k++) {
+				int i = cand == null ? k : cand[k];
+				if (!id.isEmpty() && !id.equals(userId[i]) && !id.equals(loginId[i])) {
+					continue;
+				}
+				// 外線番号・内線番号の項目の対応はSQLと同じ
+				if (!contains(nameJp[i], form.getUserName())
+						|| !contains(orgNameJp[i], form.getOrgName())
+						|| !contains(surnameEn[i], form.getSurnameEn())
+						|| !contains(givennameEn[i], form.getGivennameEn())
+						|| !contains(telEx[i], form.getTel())
+						|| !contains(tel[i], form.getTelEx())) {
+					continue;
+				}
+				if (validOnly && endDate[i] < now) {
+					continue;
+				}
+				result[n++] = i;
+			}
+			return n == size ? result : Arrays.copyOf(result, n);
+		}
+
+		/**
+		 * 並び順の行番号取得(VUserMapper.xml userListKeysetOrder、UserGeneralServiceの並び順と同じ)
+		 * 項目値は加工せずに文字コード順で比較し、nullは指定した位置に、同じ値の行はユーザーIDで並べる。
+		 * 並び順ごとに初回のみ並び替え、以降は保持した結果を使用する。
+		 *
+		 * @param order 並び順
+		 * @return 並び順の行番号
+		 */
+		int[] order(Order order) {
+
+			return orders.computeIfAbsent(order.key(), key -> {
+				Function<VGamenUserEntity, String> getter = SORT_COLUMNS.get(order.column);
+				String[] values = new String[rows.length];
+				Integer[] sorted = new Integer[rows.length];
+				for (int i = 0; i < rows.length; i++) {
+					values[i] = getter.apply(rows[i]);
+					sorted[i] = i;
+				}
+				Comparator<String> byValue = UserDirectoryService::compareCodePoints;
+				if (order.desc) {
+					byValue = byValue.reversed();
+				}
+				byValue = order.nullsFirst ? Comparator.nullsFirst(byValue) : Comparator.nullsLast(byValue);
+				Comparator<String> byUserId = UserDirectoryService::compareCodePoints;
+				if (order.userIdDesc) {
+					byUserId = byUserId.reversed();
+				}
+				Comparator<Integer> comparator = Comparator.comparing((Integer i) -> values[i], byValue);
+				Arrays.sort(sorted, comparator.thenComparing(i -> userId[i], byUserId));
+
+				int[] result = new int[rows.length];
+				for (int i = 0; i < rows.length; i++) {
+					result[i] = sorted[i];
+				}
+				return result;
+			});
+		}
+
+		/**
+		 * 候補の絞り込み
+		 *
+		 * @param cand 現在の候補(null:全件)
+		 * @param other 追加の候補(null:絞り込みなし)
+		 * @return 絞り込み後の候補(null:全件)
+		 */
+		static int[] narrow(int[] cand, int[] other) {
+			if (other == null) {
+				return cand;
+			}
+			return cand == null ? other : NgramIndex.intersect(cand, other);
+		}
+	}
+}
@@ -15,7 +15,6 @@ import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.controller.UserListForm;
 import jp.co.axio.masterMentsetSystem.model.MgpCodeMst;
 import jp.co.axio.masterMentsetSystem.model.VGamenUserEntity;
-import jp.co.axio.masterMentsetSystem.repository.MgpCodeMstSelectMapper;
 import jp.co.axio.masterMentsetSystem.repository.VUserMapper;
 import jp.co.axio.masterMentsetSystem.util.StringUtil;
 
@@ -32,7 +31,10 @@ public class UserGeneralService {
 	VUserMapper vUserMapper;
 
 	@Autowired
-	MgpCodeMstSelectMapper mgpCodeMstMapper;
+	UserDirectoryService userDirectoryService;
+
+	@Autowired
+	CodeMasterCacheService codeMasterCacheService;
 
     @Value("${config.userlist.maxcount}")
     private String maxCount;
@@ -64,118 +66,105 @@ public class UserGeneralService {
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー一覧取得", "開始");
 
 		// 汎用コードマスタに定義した役職コード一覧を取得する
-		List<MgpCodeMst> mgpCodeList = mgpCodeMstMapper.selectMgpCodeMstSearchByGpuMasterSet(POSITION_CODE);
+		List<MgpCodeMst> mgpCodeList = codeMasterCacheService.getList(POSITION_CODE);
 
 		// 最大表示件数の設定
 		form.setCntInt(Integer.parseInt(form.getCntSelected()));
 
-		if ("OK".equals(form.getCountCheck())) {
-			// 画面再表示する時、confirmが非表示
-			form.setPopupShowFlg("OFF");
-			// 件数確認済みをクリア
-			form.setCountCheck("");
-            // 並び順設定
-			setOrderCondition(form);
-
-			List<VGamenUserEntity> userList = vUserMapper.selectUserList(form);
-
-			if (userList != null && userList.size() > 0) {
-
-				form.setZeroCntFlg("OFF");
-				form.setDetailList(userList);
-				form.setCsvFlg("ON");
-				// 前後ページ制御、件数メッセージ設定
-				this.setPageNo(form);
-
-				// 表示項目の編集
-				for (int i = 0; i < userList.size(); i++) {
-					// 所属部署の後ろ、派遣元会社情報を追加する
-					if (StringUtil.isNotBlank(userList.get(i).getExpansionAttr37())) {
-						userList.get(i).setOrganizationNameJp(userList.get(i).getOrganizationNameJp()
-								+ " " + userList.get(i).getExpansionAttr37());
-					}
-					// 汎用コードマスタに定義した役職コードのみ、役職名称を出力する
-					boolean notFoundFlag = true;
-					for (int j = 0; j < mgpCodeList.size(); j++) {
-						if ((mgpCodeList.get(j).getValue1()).equals(userList.get(i).getPositionCode())) {
-							notFoundFlag = false;
-							break;
-						}
-					}
-					if (notFoundFlag) {
-						// 役職名称が非表示
-						userList.get(i).setPositionNameJp("");
-					}
-				}
-			} else {
-				form.setZeroCntFlg("ON");
-				form.setPrePageFlg("OFF");
-				form.setNextPageFlg("OFF");
-				form.setCsvFlg("OFF");
+		// 件数確認済み(confirm表示後の再検索、ページ移動、並び順変更)
+		boolean countChecked = "OK".equals(form.getCountCheck());
+
+		// 画面再表示する時、confirmが非表示
+		form.setPopupShowFlg("OFF");
+		// 件数確認済みをクリア
+		form.setCountCheck("");
+        // 並び順設定
+		setOrderCondition(form);
+
+		// 一覧と検索ヒット件数を1回の検索で取得する
+		// (ユーザー検索ディレクトリで検索できる場合はメモリから取得する)
+		List<VGamenUserEntity> userList = userDirectoryService.selectUserList(form);
+		if (userList == null) {
+			userList = vUserMapper.selectUserList(form);
+		}
+		int count = this.getUserCount(form, userList);
+		form.setCount(String.valueOf(count));
+
+	    // ワーニング上限件数
+		int maxcnt = Integer.valueOf(maxCount);
+
+		if (!countChecked && count > maxcnt) {
+			// 件数確認ポップアップ画面表示
+			form.setPopupShowFlg("ON");
+			form.setPopupMsg(ms.getMessage("MSTO0013M0006", new String[] { String.valueOf(maxcnt) }, null));
+			// 件数検索済み
+			form.setCountCheck("OK");
+		} else if (userList != null && userList.size() > 0) {
+
+			form.setZeroCntFlg("OFF");
+			if (!countChecked) {
+				form.setPageNo("1");
 			}
-		} else {
-			// 該当するユーザ件数の確認
-			String userCount = this.getUserCount(form);
-			int num = Integer.parseInt(userCount);
-		    // ワーニング上限件数
-			int maxcnt = Integer.valueOf(maxCount);
-
-			if (num > maxcnt) {
-				// 件数確認ポップアップ画面表示
-				form.setPopupShowFlg("ON");
-				form.setPopupMsg(ms.getMessage("MSTO0013M0006", new String[] { String.valueOf(maxcnt) }, null));
-				// 件数検索済み
-				form.setCountCheck("OK");
-			} else {
-				// confirm未表示
-				form.setPopupShowFlg("OFF");
-				// 件数確認済みフラグをクリア
-				form.setCountCheck("");
-	            // 並び順設定
-				setOrderCondition(form);
-
-				List<VGamenUserEntity> userList = vUserMapper.selectUserList(form);
-
-				if (userList != null && userList.size() > 0) {
-
-					form.setZeroCntFlg("OFF");
-					form.setPageNo("1");
-					form.setDetailList(userList);
-					form.setCsvFlg("ON");
-					// 前後ページ制御、件数メッセージ設定
-					this.setPageNo(form);
-
-					// 表示項目の編集
-					for (int i = 0; i < userList.size(); i++) {
-						// 所属部署の後ろ、派遣元会社情報を追加する
-						if (StringUtil.isNotBlank(userList.get(i).getExpansionAttr37())) {
-							userList.get(i).setOrganizationNameJp(userList.get(i).getOrganizationNameJp()
-									+ " " + userList.get(i).getExpansionAttr37());
-						}
-						// 汎用コードマスタに定義した役職コードのみ、役職名称を出力する
-						boolean notFoundFlag = true;
-						for (int j = 0; j < mgpCodeList.size(); j++) {
-							if ((mgpCodeList.get(j).getValue1()).equals(userList.get(i).getPositionCode())) {
-								notFoundFlag = false;
-								break;
-							}
-						}
-						if (notFoundFlag) {
-							// 役職名称が非表示
-							userList.get(i).setPositionNameJp("");
-						}
+			form.setDetailList(userList);
+			form.setCsvFlg("ON");
+			// 前後ページ制御、件数メッセージ設定
+			this.setPageNo(form, count);
+
+			// 表示項目の編集
+			for (int i = 0; i < userList.size(); i++) {
+				// 所属部署の後ろ、派遣元会社情報を追加する
+				if (StringUtil.isNotBlank(userList.get(i).getExpansionAttr37())) {
+					userList.get(i).setOrganizationNameJp(userList.get(i).getOrganizationNameJp()
+							+ " " + userList.get(i).getExpansionAttr37());
+				}
+				// 汎用コードマスタに定義した役職コードのみ、役職名称を出力する
+				boolean notFoundFlag = true;
+				for (int j = 0; j < mgpCodeList.size(); j++) {
+					if ((mgpCodeList.get(j).getValue1()).equals(userList.get(i).getPositionCode())) {
+						notFoundFlag = false;
+						break;
 					}
-				} else {
-					form.setZeroCntFlg("ON");
-					form.setPrePageFlg("OFF");
-					form.setNextPageFlg("OFF");
-					form.setCsvFlg("OFF");
+				}
+				if (notFoundFlag) {
+					// 役職名称が非表示
+					userList.get(i).setPositionNameJp("");
 				}
 			}
+		} else {
+			form.setZeroCntFlg("ON");
+			form.setPrePageFlg("OFF");
+			form.setNextPageFlg("OFF");
+			form.setCsvFlg("OFF");
 		}
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー一覧取得", "正常終了");
 	}
 
+	/**
+	* 検索ヒット件数取得
+	* 前回の検索で取得済みの件数(値が不正な場合は使用しない)、一覧検索時に取得した件数(count(*) over())の順に使用し、
+	* どちらも無い場合のみ件数を検索する。
+	* @param form 画面の入力情報
+	* @param userList 一覧検索結果
+	* @return 検索ヒット件数
+	*/
+	private int getUserCount(UserListForm form, List<VGamenUserEntity> userList) throws Exception {
+
+		Integer carried = UserService.carriedCount(form, userList);
+		if (carried != null) {
+			return carried;
+		}
+
+		if (userList == null || userList.isEmpty()) {
+			if (form.getOffset() == null || form.getOffset() <= 0) {
+				return 0;
+			}
+		} else if (userList.get(0).getTotalCount() != null) {
+			return userList.get(0).getTotalCount();
+		}
+
+		return Integer.parseInt(this.getUserCount(form));
+	}
+
 	/**
 	* ユーザー件数取得
 	* @param form 画面の入力情報
@@ -185,7 +174,8 @@ public class UserGeneralService {
 	public String getUserCount(UserListForm form) throws Exception {
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー件数取得", "開始");
 
-		String count = vUserMapper.getUserCount(form);
+		Integer cachedCount = userDirectoryService.getUserCount(form);
+		String count = cachedCount != null ? String.valueOf(cachedCount) : vUserMapper.getUserCount(form);
 
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー件数取得", "正常終了");
 		return count;
@@ -194,21 +184,16 @@ public class UserGeneralService {
 	/**
 	 * 表示件数メッセージ作成
 	 *
-	 * @param requestParams
-	 * @throws Exception
-	 * @throws NumberFormatException
+	 * @param form
+	 * @param count 検索結果件数
 	 *
 	 *  */
-	private void setPageNo(UserListForm form) throws NumberFormatException, Exception {
+	private void setPageNo(UserListForm form, int count) {
         // 最初ページ番号
 		int fristPage = 0;
 		// 最後ページ番号
 		int lastpage = 0;
 
-		// 検索結果件数
-		String userCount = this.getUserCount(form);
-		int count = Integer.parseInt(userCount);
-
 		// 選択したページ件数
 		int maxCnt = Integer.parseInt(form.getCntSelected());
 
@@ -1,12 +1,15 @@
 package jp.co.axio.masterMentsetSystem.service;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.text.SimpleDateFormat;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -17,11 +20,11 @@ import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jp.co.axio.masterMentsetSystem.common.CsvWriter;
 import jp.co.axio.masterMentsetSystem.common.LogService;
 import jp.co.axio.masterMentsetSystem.controller.UserListForm;
 import jp.co.axio.masterMentsetSystem.model.VGamenUserEntity;
 import jp.co.axio.masterMentsetSystem.repository.VUserMapper;
-import jp.co.axio.masterMentsetSystem.util.StringUtil;
 
 /**
  * ユーザーサービスクラス
@@ -35,17 +38,27 @@ public class UserService {
 	@Autowired
 	VUserMapper vUserMapper;
 
+	@Autowired
+	UserDirectoryService userDirectoryService;
+
     @Value("${config.userlist.maxcount}")
     private String maxCount;
 
-	/* デフォルト改行コード */
-    public static final String DEFAULT_LINEFEED = "\r\n";
-    /* デフォルト文字コード */
-    public static final String DEFAULT_CHAR_SET = "MS932";
-	/* デフォルトセパレータ */
-    public static final String DEFAULT_SEPARATOR = ",";
-    /** ダブルクオーテーション */
-    public static final String DOUBLE_QUO = "\"";
+    @Value("${config.userlist.pagingMode:keyset}")
+    private String pagingMode;
+
+    /** CSV日付フォーマット */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    /** ページング方式：キーセット(並び順項目＋ユーザーIDで続きを取得) */
+    public static final String PAGING_MODE_KEYSET = "keyset";
+    /** ページトークン：次のページ */
+    private static final String TOKEN_NEXT = "N";
+    /** ページトークン：前のページ */
+    private static final String TOKEN_PREV = "P";
+    /** ページトークン：区切り文字 */
+    private static final String TOKEN_SEPARATOR = "\u0000";
+    // ページトークン 並び順項目値(null以外)の接頭辞
+    private static final String SORT_VALUE_PREFIX = "=";
 
     /**
 	 * メッセージソース
@@ -62,70 +75,259 @@ public class UserService {
 	public void selectUserList(UserListForm form) throws Exception {
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー一覧取得", "開始");
 
-		if ("OK".equals(form.getCountCheck())) {
-			// 画面再表示する時、confirmが非表示
-			form.setPopupShowFlg("OFF");
-			// 件数確認済みをクリア
-			form.setCountCheck("");
-            // 並び順設定
-			setOrderCondition(form);
-
-			List<VGamenUserEntity> userList = vUserMapper.selectUserList(form);
-
-			if (userList != null && userList.size() > 0) {
-
-				form.setZeroCntFlg("OFF");
-				form.setDetailList(userList);
-				form.setCsvFlg("ON");
-				// 前後ページ制御、件数メッセージ設定
-				this.setPageNo(form);
-			} else {
-				form.setZeroCntFlg("ON");
-				form.setPrePageFlg("OFF");
-				form.setNextPageFlg("OFF");
-				form.setCsvFlg("OFF");
+		// 件数確認済み(confirm表示後の再検索、ページ移動、並び順変更)
+		boolean countChecked = "OK".equals(form.getCountCheck());
+
+		// 画面再表示する時、confirmが非表示
+		form.setPopupShowFlg("OFF");
+		// 件数確認済みをクリア
+		form.setCountCheck("");
+        // 並び順設定
+		setOrderCondition(form);
+
+		// 一覧と検索ヒット件数を1回の検索で取得する
+		List<VGamenUserEntity> userList = this.selectUserPage(form);
+		int count = this.getUserCount(form, userList);
+		form.setCount(String.valueOf(count));
+
+	    // ワーニング上限件数
+		int maxcnt = Integer.valueOf(maxCount);
+
+		if (!countChecked && count > maxcnt) {
+			// 件数確認ポップアップ画面表示
+			form.setPopupShowFlg("ON");
+			form.setPopupMsg(ms.getMessage("MSTO0013M0006", new String[] { String.valueOf(maxcnt) }, null));
+			// 件数検索済み
+			form.setCountCheck("OK");
+		} else if (userList != null && userList.size() > 0) {
+
+			form.setZeroCntFlg("OFF");
+			if (!countChecked) {
+				form.setPageNo("1");
 			}
+			form.setDetailList(userList);
+			form.setCsvFlg("ON");
+			// 前後ページ制御、件数メッセージ設定
+			this.setPageNo(form, count);
 		} else {
-			// 該当するユーザ件数の確認
-			String userCount = this.getUserCount(form);
-			int num = Integer.parseInt(userCount);
-		    // ワーニング上限件数
-			int maxcnt = Integer.valueOf(maxCount);
-
-			if (num > maxcnt) {
-				// 件数確認ポップアップ画面表示
-				form.setPopupShowFlg("ON");
-				form.setPopupMsg(ms.getMessage("MSTO0013M0006", new String[] { String.valueOf(maxcnt) }, null));
-				// 件数検索済み
-				form.setCountCheck("OK");
-			} else {
-				// confirm未表示
-				form.setPopupShowFlg("OFF");
-				// 件数確認済みフラグをクリア
-				form.setCountCheck("");
-	            // 並び順設定
-				setOrderCondition(form);
+			form.setZeroCntFlg("ON");
+			form.setPrePageFlg("OFF");
+			form.setNextPageFlg("OFF");
+			form.setCsvFlg("OFF");
+		}
+		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー一覧取得", "正常終了");
+	}
+
+	/**
+	* ユーザー情報一覧(1ページ分)取得
+	* キーセット方式の場合、ページトークン(前ページの先頭行／最終行の並び順項目＋ユーザーID)の続きから取得する。
+	* ページトークンが無効(並び順変更後など)の場合、OFFSET方式で取得する。
+	* ユーザー検索ディレクトリが利用できる場合はメモリから取得する(OFFSET方式)。
+	* @param form 画面の入力情報
+	* @return List<VGamenUserEntity> 取得結果
+	*/
+	private List<VGamenUserEntity> selectUserPage(UserListForm form) {
+
+		// ユーザー検索ディレクトリ(メモリ)で検索できる場合、DBに問い合わせない
+		List<VGamenUserEntity> cachedList = userDirectoryService.selectUserList(form);
+		if (cachedList != null) {
+			setPageToken(form, cachedList);
+			return cachedList;
+		}
+
+		if (!PAGING_MODE_KEYSET.equals(pagingMode)) {
+			return vUserMapper.selectUserList(form);
+		}
+
+		String order = form.getSeekOrder();
+		boolean backward = false;
+
+		form.setSeekOperator(null);
+		form.setSeekValue(null);
+		form.setSeekUserId(null);
+
+		if (StringUtils.isNotBlank(form.getPageToken())) {
+			String[] token = decodePageToken(form.getPageToken());
 
+			if (token == null || !(form.getSeekColumn() + " " + order).equals(token[1])) {
+				// 並び順が変わった場合、OFFSET方式で取得
 				List<VGamenUserEntity> userList = vUserMapper.selectUserList(form);
+				setPageToken(form, userList);
+				return userList;
+			}
 
-				if (userList != null && userList.size() > 0) {
-
-					form.setZeroCntFlg("OFF");
-					form.setPageNo("1");
-					form.setDetailList(userList);
-					form.setCsvFlg("ON");
-					// 前後ページ制御、件数メッセージ設定
-					this.setPageNo(form);
-
-				} else {
-					form.setZeroCntFlg("ON");
-					form.setPrePageFlg("OFF");
-					form.setNextPageFlg("OFF");
-					form.setCsvFlg("OFF");
-				}
+			// 前のページは逆順で取得し、取得後に並び替える
+			backward = TOKEN_PREV.equals(token[0]);
+			boolean asc = "ASC".equals(order);
+			form.setSeekOperator(asc != backward ? ">" : "<");
+			form.setSeekValue(decodeSortValue(token[2]));
+			form.setSeekUserId(token[3]);
+			if (backward) {
+				form.setSeekOrder(asc ? "DESC" : "ASC");
 			}
 		}
-		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー一覧取得", "正常終了");
+
+		List<VGamenUserEntity> userList = vUserMapper.selectUserListByKeyset(form);
+		form.setSeekOrder(order);
+
+		if (backward && userList != null) {
+			Collections.reverse(userList);
+		}
+		setPageToken(form, userList);
+
+		return userList;
+	}
+
+	/**
+	* 前後ページのページトークン設定
+	* @param form 画面の入力情報
+	* @param userList 表示中の一覧
+	*/
+	private void setPageToken(UserListForm form, List<VGamenUserEntity> userList) {
+
+		form.setPageToken(null);
+
+		if (userList == null || userList.isEmpty()) {
+			form.setPrePageToken(null);
+			form.setNextPageToken(null);
+			return;
+		}
+
+		form.setPrePageToken(encodePageToken(TOKEN_PREV, form, userList.get(0)));
+		form.setNextPageToken(encodePageToken(TOKEN_NEXT, form, userList.get(userList.size() - 1)));
+	}
+
+	/**
+	* ページトークン作成
+	* 移動方向、並び順、並び順項目値、ユーザーIDを連結してBase64(URL)で符号化する
+	* 並び順項目値はnullと空文字を区別するため、null以外は先頭に「=」を付ける
+	* @param direction 移動方向
+	* @param form 画面の入力情報
+	* @param dto 基準行
+	* @return ページトークン
+	*/
+	private String encodePageToken(String direction, UserListForm form, VGamenUserEntity dto) {
+
+		String token = direction
+				+ TOKEN_SEPARATOR + form.getSeekColumn() + " " + form.getSeekOrder()
+				+ TOKEN_SEPARATOR + encodeSortValue(getSortValue(form.getSeekColumn(), dto))
+				+ TOKEN_SEPARATOR + dto.getUserId();
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	* ページトークン解析
+	* @param pageToken ページトークン
+	* @return [移動方向, 並び順, 並び順項目値, ユーザーID]、不正な場合null
+	*/
+	private String[] decodePageToken(String pageToken) {
+
+		try {
+			String token = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+			String[] values = token.split(TOKEN_SEPARATOR, -1);
+
+			return values.length == 4 && (values[2].isEmpty() || values[2].startsWith(SORT_VALUE_PREFIX)) ? values : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	* ページトークンの並び順項目値の符号化
+	* @param value 並び順項目値
+	* @return null:空文字、null以外:「=」＋値
+	*/
+	private static String encodeSortValue(String value) {
+		return value == null ? "" : SORT_VALUE_PREFIX + value;
+	}
+
+	/**
+	* ページトークンの並び順項目値の復号
+	* @param value 符号化した並び順項目値
+	* @return 並び順項目値(null可)
+	*/
+	private static String decodeSortValue(String value) {
+		return value.isEmpty() ? null : value.substring(SORT_VALUE_PREFIX.length());
+	}
+
+	/**
+	* 並び順項目値取得
+	* @param column 並び順項目
+	* @param dto 対象行
+	* @return 並び順項目値
+	*/
+	private String getSortValue(String column, VGamenUserEntity dto) {
+
+		switch (column) {
+		case "enrollment_name":
+			return dto.getEnrollmentName();
+		case "login_id":
+			return dto.getLoginId();
+		case "employment_name":
+			return dto.getEmploymentName();
+		case "name_jp":
+			return dto.getNameJp();
+		case "position_name_jp":
+			return dto.getPositionNameJp();
+		case "organization_name_jp":
+			return dto.getOrganizationNameJp();
+		default:
+			return dto.getUserId();
+		}
+	}
+
+	/**
+	* 検索ヒット件数取得
+	* 前回の検索で取得済みの件数(値が不正な場合は使用しない)、一覧検索時に取得した件数(count(*) over())の順に使用し、
+	* どちらも無い場合のみ件数を検索する。
+	* @param form 画面の入力情報
+	* @param userList 一覧検索結果
+	* @return 検索ヒット件数
+	*/
+	private int getUserCount(UserListForm form, List<VGamenUserEntity> userList) throws Exception {
+
+		Integer carried = carriedCount(form, userList);
+		if (carried != null) {
+			return carried;
+		}
+
+		if (userList == null || userList.isEmpty()) {
+			if (form.getOffset() == null || form.getOffset() <= 0) {
+				return 0;
+			}
+		} else if (userList.get(0).getTotalCount() != null) {
+			return userList.get(0).getTotalCount();
+		}
+
+		return Integer.parseInt(this.getUserCount(form));
+	}
+
+	/**
+	* 前回の検索で取得済みの検索ヒット件数
+	* 画面の hidden 項目から送られる値のため、数値でない・負数・表示する行数に満たない場合は使用しない。
+	* @param form 画面の入力情報
+	* @param userList 一覧検索結果
+	* @return 検索ヒット件数、使用できない場合null
+	*/
+	static Integer carriedCount(UserListForm form, List<VGamenUserEntity> userList) {
+
+		String count = form.getCount();
+		if (StringUtils.isBlank(count)) {
+			return null;
+		}
+		int value;
+		try {
+			value = Integer.parseInt(count.trim());
+		} catch (NumberFormatException e) {
+			value = -1;
+		}
+		int shown = (form.getOffset() == null ? 0 : Math.max(form.getOffset(), 0)) + (userList == null ? 0 : userList.size());
+		if (value < 0 || value < shown) {
+			LogService.debug("ユーザー検索一覧画面", "UserList", "ユーザー件数取得", "取得済み件数不正のため再取得 : {}", count);
+			return null;
+		}
+		return value;
 	}
 
 	/**
@@ -137,205 +339,151 @@ public class UserService {
 	public String getUserCount(UserListForm form) throws Exception {
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー件数取得", "開始");
 
-		String count = vUserMapper.getUserCount(form);
+		Integer cachedCount = userDirectoryService.getUserCount(form);
+		String count = cachedCount != null ? String.valueOf(cachedCount) : vUserMapper.getUserCount(form);
 
 		LogService.info("ユーザー検索一覧画面", "UserList", "ユーザー件数取得", "正常終了");
 		return count;
 	}
 
 	/**
-	* ユーザー情報一覧検索
+	* ユーザー情報一覧CSV出力
+	* 検索結果をサーバー側カーソルで読み込みながら、出力先へ直接書き込む。
 	* @param form 画面の入力情報
-	* @return List<VUserListEntity> 取得結果
+	* @param os 出力先
 	*/
-	@Transactional
-	public File getCsvFile(UserListForm form , String fileName) throws Exception {
+	@Transactional(readOnly = true)
+	public void writeCsv(UserListForm form, OutputStream os) throws Exception {
 		LogService.info("ユーザー検索一覧画面", "form", "CSVダウンロードファイル作成", "開始");
 
-		OutputStreamWriter fw = null;
-		File downloadFile = null;
-
-		try {
-			// CSVファイルを開く
-			fw = new OutputStreamWriter(new FileOutputStream(fileName), DEFAULT_CHAR_SET);
-
-			fw.write(makeCsvHeader());
+		CsvWriter csv = new CsvWriter(os);
 
-			List<VGamenUserEntity> userList = vUserMapper.getCsvList(form);
+		writeCsvHeader(csv);
 
-			// ユーザ詳細情報をCSVに出力
-			for (VGamenUserEntity vo : userList) {
-				fw.write(makeOutputUserLine(vo));
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-
-		} finally {
+		// ユーザ詳細情報をCSVに出力
+		vUserMapper.getCsvList(form, context -> {
 			try {
-				// CSVファイルを出力する。
-				if (fw != null) {
-					fw.close();
-				}
+				writeUserLine(csv, context.getResultObject());
 			} catch (IOException e) {
-				e.printStackTrace();
+				throw new UncheckedIOException(e);
 			}
-		}
+		});
 
-		downloadFile = new File(fileName);
+		csv.flush();
 
 		LogService.info("ユーザー検索一覧画面", "form", "CSVダウンロードファイル作成", "正常終了");
-		return downloadFile;
 	}
 
     /**
-    *
-    * @param val
-    * @param addTab
-    * @return
-    */
-    private String getOutText(String val,boolean addComma){
-    	if(StringUtil.isNullBlank(val)){
-    		val = "";
-    	}
-
-    	String retVal = StringUtil.trimSpace(val);
-
-		// 「"」がある場合、前に「"」を付ける
-		// 　データ：ｘｘｘ"AAA"	⇒ｘｘｘ""AAA""
-		retVal = retVal.replaceAll("\"", "\"\"");
-		// データ前後、無条件に「"」を付ける
-		// 　データ：ｘｘｘｙｙｙ	⇒"ｘｘｘｙｙｙ"
-		retVal = DOUBLE_QUO + retVal + DOUBLE_QUO;
-
-    	if(addComma){
-    		retVal = retVal + DEFAULT_SEPARATOR;
-    	}
-
-    	return  retVal;
-    }
-
-    /**
-     * CSV、タイトル作成
+     * CSV、タイトル出力
      *
-     * @param csvData
-     * @return
+     * @param csv
+     * @throws IOException
      */
-    private String makeCsvHeader(){
-
-    	StringBuffer text = new StringBuffer();
+    private void writeCsvHeader(CsvWriter csv) throws IOException {
 
 		// 状態
-    	text.append(getOutText("状態", true));
+    	csv.write("状態", true);
     	// ユーザーID
-    	text.append(getOutText("ユーザーID", true));
+    	csv.write("ユーザーID", true);
     	// ログインID
-    	text.append(getOutText("ログインID", true));
+    	csv.write("ログインID", true);
     	// 雇用名称
-    	text.append(getOutText("雇用名称", true));
+    	csv.write("雇用名称", true);
         // 氏名
-    	text.append(getOutText("氏名", true));
+    	csv.write("氏名", true);
     	// 英語姓
-    	text.append(getOutText("英語姓", true));
+    	csv.write("英語姓", true);
     	// 英語名
-    	text.append(getOutText("英語名", true));
+    	csv.write("英語名", true);
     	// 所属部コード
-    	text.append(getOutText("所属部コード", true));
+    	csv.write("所属部コード", true);
         // 所属部署
-    	text.append(getOutText("所属部署", true));
+    	csv.write("所属部署", true);
     	// 役職コード
-    	text.append(getOutText("役職コード", true));
+    	csv.write("役職コード", true);
     	// 役職名
-    	text.append(getOutText("役職名", true));
+    	csv.write("役職名", true);
         // 有効開始日
-    	text.append(getOutText("有効開始日", true));
+    	csv.write("有効開始日", true);
     	// 有効終了日
-    	text.append(getOutText("有効終了日", true));
+    	csv.write("有効終了日", true);
     	// 会社コード
-    	text.append(getOutText("会社コード", true));
+    	csv.write("会社コード", true);
     	// メールアドレス（メイン）
-    	text.append(getOutText("メールアドレス（メイン）", true));
+    	csv.write("メールアドレス（メイン）", true);
     	// メールアドレス（サブ）
-    	text.append(getOutText("メールアドレス（サブ）", true));
+    	csv.write("メールアドレス（サブ）", true);
     	// 外線番号
-    	text.append(getOutText("外線番号", true));
+    	csv.write("外線番号", true);
     	// 内線番号
-    	text.append(getOutText("内線番号", false));
+    	csv.write("内線番号", false);
         // 行末、改行
-    	text.append(DEFAULT_LINEFEED);
-
-    	return text.toString();
+    	csv.newLine();
     }
 
     /**
-     * CSV、行作成
+     * CSV、行出力
      *
-     * @param csvData
-     * @return
+     * @param csv
+     * @param dto
+     * @throws IOException
      */
-    private String makeOutputUserLine(VGamenUserEntity dto){
-
-    	StringBuffer text = new StringBuffer();
+    private void writeUserLine(CsvWriter csv, VGamenUserEntity dto) throws IOException {
 
 		// 状態
-    	text.append(getOutText(dto.getEnrollmentName(), true));
+    	csv.write(dto.getEnrollmentName(), true);
     	// ユーザーID
-    	text.append(getOutText(dto.getUserId(), true));
+    	csv.write(dto.getUserId(), true);
     	// ログインID
-    	text.append(getOutText(dto.getLoginId(), true));
+    	csv.write(dto.getLoginId(), true);
     	// 雇用名称
-    	text.append(getOutText(dto.getEmploymentName(), true));
+    	csv.write(dto.getEmploymentName(), true);
         // 氏名
-    	text.append(getOutText(dto.getNameJp(), true));
+    	csv.write(dto.getNameJp(), true);
     	// 英語姓
-    	text.append(getOutText(dto.getSurnameEn(), true));
+    	csv.write(dto.getSurnameEn(), true);
     	// 英語名
-    	text.append(getOutText(dto.getGivennameEn(), true));
+    	csv.write(dto.getGivennameEn(), true);
     	// 所属部コード
-    	text.append(getOutText(dto.getOrganizationCode(), true));
+    	csv.write(dto.getOrganizationCode(), true);
         // 所属部署
-    	text.append(getOutText(dto.getOrganizationNameJp(), true));
+    	csv.write(dto.getOrganizationNameJp(), true);
     	// 役職コード
-    	text.append(getOutText(dto.getPositionCode(), true));
+    	csv.write(dto.getPositionCode(), true);
     	// 役職名
-    	text.append(getOutText(dto.getPositionNameJp(), true));
+    	csv.write(dto.getPositionNameJp(), true);
         // 有効開始日
-    	text.append(getOutText(dateToString(dto.getStartDate()), true));
+    	csv.write(dateToString(dto.getStartDate()), true);
     	// 有効終了日
-    	text.append(getOutText(dateToString(dto.getEndDate()), true));
+    	csv.write(dateToString(dto.getEndDate()), true);
     	// 会社コード
-    	text.append(getOutText(dto.getCompanyCode(), true));
+    	csv.write(dto.getCompanyCode(), true);
     	// メールアドレス（メイン）
-    	text.append(getOutText(dto.getMailaddrNotification(), true));
+    	csv.write(dto.getMailaddrNotification(), true);
     	// メールアドレス（サブ）
-    	text.append(getOutText(dto.getMailaddr(), true));
+    	csv.write(dto.getMailaddr(), true);
     	// 外線番号
-    	text.append(getOutText(dto.getTel(), true));
+    	csv.write(dto.getTel(), true);
     	// 内線番号
-    	text.append(getOutText(dto.getTelEx(), false));
+    	csv.write(dto.getTelEx(), false);
         // 行末、改行
-    	text.append(DEFAULT_LINEFEED);
-
-    	return text.toString();
+    	csv.newLine();
     }
 
 	/**
 	 * 表示件数メッセージ作成
 	 *
-	 * @param requestParams
-	 * @throws Exception
-	 * @throws NumberFormatException
+	 * @param form
+	 * @param count 検索結果件数
 	 *
 	 *  */
-	private void setPageNo(UserListForm form) throws NumberFormatException, Exception {
+	private void setPageNo(UserListForm form, int count) {
         // 最初ページ番号
 		int fristPage = 0;
 		// 最後ページ番号
 		int lastpage = 0;
 
-		// 検索結果件数
-		String userCount = this.getUserCount(form);
-		int count = Integer.parseInt(userCount);
-
 		if (count > 0) {
 			// 最初ページ番号
 			fristPage = 1;
@@ -401,8 +549,7 @@ public class UserService {
     	String result = "";
 
     	if (dt != null) {
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd");
-			result = sdf.format(dt);
+			result = DATE_FORMAT.format(dt.toInstant().atZone(ZoneId.systemDefault()));
     	}
 
     	return result;
@@ -441,23 +588,32 @@ public class UserService {
 		nameList.add("position_name_jp");
 		nameList.add("organization_name_jp");
 
-		StringBuffer buffer = new StringBuffer();
+		// 並び順(初期はユーザーID順)、最初に指定した項目で並べる
+		form.setSeekColumn("user_id");
+		form.setSeekOrder("ASC");
 
-		for (int i = 0; i < sortList.size(); i++) {
+		for (int i = 0; i < sortList.size() && i < nameList.size(); i++) {
             if(StringUtils.isNoneBlank(sortList.get(i))) {
-            	// 空白以外、並び順を設定する。
-    			buffer.append(nameList.get(i)).append(" ").append(sortList.get(i));
+    			form.setSeekColumn(nameList.get(i));
+    			form.setSeekOrder("DESC".equals(sortList.get(i)) ? "DESC" : "ASC");
+    			break;
             }
 		}
 
-		// 初期はユーザーID順
-		if (StringUtils.isBlank(buffer.toString())) {
-			buffer.append("user_id ASC");
-		} else if ((buffer.toString()).indexOf("user_id") < 0) {
-			// 追加順：ユーザーIDの順
-			buffer.append(", user_id ASC");
-		}
+		form.setOrderbyStr(keysetOrder(form.getSeekColumn(), form.getSeekOrder()));
+	}
 
-		form.setOrderbyStr(buffer.toString());
+	/**
+	* 並び順(VUserMapper.xml userListKeysetOrderと同じ)
+	* 並び順項目がnullの行は最大値として扱い、同じ値の行はユーザーIDを同じ向きで並べる。
+	* @param column 並び順項目
+	* @param order ASC|DESC
+	* @return 並び順
+	*/
+	private static String keysetOrder(String column, String order) {
+		if ("user_id".equals(column)) {
+			return "user_id " + order;
+		}
+		return "DESC".equals(order) ? column + " DESC NULLS FIRST, user_id DESC" : column + " ASC NULLS LAST, user_id ASC";
 	}
 }
@@ -1,22 +1,35 @@
 package jp.co.axio.masterMentsetSystem.service;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jp.co.axio.masterMentsetSystem.common.CsvWriter;
 import jp.co.axio.masterMentsetSystem.common.LogService;
+import jp.co.axio.masterMentsetSystem.common.MasterChangeNotifier;
 import jp.co.axio.masterMentsetSystem.controller.UserSetForm;
 import jp.co.axio.masterMentsetSystem.dto.UserAnnCmbOrgDto;
 import jp.co.axio.masterMentsetSystem.dto.UserCareerInfoDto;
@@ -29,7 +42,6 @@ import jp.co.axio.masterMentsetSystem.dto.UserSysDto;
 import jp.co.axio.masterMentsetSystem.model.MUserOrgBeforeEntity;
 import jp.co.axio.masterMentsetSystem.model.VGamenUserEntity;
 import jp.co.axio.masterMentsetSystem.repository.VUserMapper;
-import jp.co.axio.masterMentsetSystem.util.StringUtil;
 
 /**
  * ユーザーサービスクラス
@@ -46,6 +58,28 @@ public class UserSetService {
 	@Autowired
 	UserSetOtherService userSetOtherService;
 
+	@Autowired
+	MasterChangeNotifier masterChangeNotifier;
+
+	@Autowired
+	@Qualifier("userDetailExecutor")
+	ThreadPoolTaskExecutor userDetailExecutor;
+
+	/** 読み取り専用トランザクション */
+	private final TransactionTemplate readOnlyTransaction;
+
+	/* ユーザー詳細の検索タイムアウト(ミリ秒) */
+	private final long sectionTimeout;
+
+	public UserSetService(PlatformTransactionManager transactionManager,
+			@Value("${config.userdetail.timeoutMillis:10000}") long sectionTimeout) {
+		this.sectionTimeout = sectionTimeout;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		// 検索の取り消しでは実行中のSQLは止まらないため、トランザクションのタイムアウト(MyBatisがSQLのタイムアウトに設定する)も指定する
+		this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(sectionTimeout + 999)));
+	}
+
 	// 権限区分 固定、「-」
 	private static final String SYS_AUTH_TYPE_NONE = "-";
     // ONフラグ
@@ -54,129 +88,197 @@ public class UserSetService {
 	private static final String SYS_AUTH_YES = "有";
 	// 権限区分 固定、「有」
 	private static final String SYS_AUTH_NO = "無";
-    // デフォルト文字コード
-    public static final String DEFAULT_CHAR_SET = "MS932";
     // 無効フラグ
 	private static final String INACTIVE = "1";
-	/* デフォルト改行コード */
-    public static final String DEFAULT_LINEFEED = "\r\n";
-    /** ダブルクオーテーション */
-    public static final String DOUBLE_QUO = "\"";
-	/* デフォルトセパレータ */
-    public static final String DEFAULT_SEPARATOR = ",";
+	// 所属テーブル(変更通知のテーブル名)
+	private static final String MUSER_ORG_BEFORE = "m_user_org_before";
 	/**
 	* ユーザー詳細情報取得
+	* 互いに依存しない各タブの検索を並列に実行し(読み取り専用トランザクション)、
+	* 区分ごとの所要時間をログ出力・画面情報(sectionTimes)に設定する。
 	* @param form 画面の入力情報
 	* @return List<VUserListEntity> 取得結果
 	*/
-	@Transactional
 	public UserDetailDto getUserDetail(UserSetForm form, String userId) throws Exception {
 		LogService.info("ユーザー詳細画面", "UserDetailDto", "ユーザー詳細情報取得", "開始");
 
-		UserDetailDto res = null;
+		Map<String, Long> times = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeout);
 
-		VGamenUserEntity vo = new VGamenUserEntity();
-
-		vo.setUserId(userId);
-
-		vo = vUserMapper.getUser(vo);
-
-		if (vo != null) {
-			res = new UserDetailDto();
-
-			// 名前（日本語）
-			res.setNameJp(vo.getNameJp());
-			// 名前（英語）
-			res.setNameEn(vo.getSurnameEn() + " " + vo.getGivennameEn());
-			// 在籍区分
-			res.setEnrollmentName(vo.getEnrollmentName());
-			// 社員番号
-			res.setUserId(vo.getUserId());
-			// 雇用区分
-			res.setEmploymentName(vo.getEmploymentName());
-			// 役職
-			res.setPositionNameJp(vo.getPositionNameJp());
-			// 部署名
-			res.setOrganizationNameJp(vo.getOrganizationNameJp());
-			// 会社コード
-			res.setCompanyCode(vo.getCompanyCode());
-			// 外線番号
-			res.setTelEx(vo.getTelEx());
-			// 内線番号
-			res.setTel(vo.getTel());
-			// 有効開始日
-			res.setStartDate(dateToString(vo.getStartDate()));
-			// 退職予定日
-			res.setEndDate(dateToString(vo.getEndDate()));
-			// ドメインアカウント
-			res.setLoginId(vo.getLoginId());
-			// 利用言語
-			res.setLangName(vo.getLangName());
-			// メールアドレス（メイン）
-			res.setMailaddrNotification(vo.getMailaddrNotification());
-			// メールアドレス（サブ）
-			res.setMailaddr(vo.getMailaddr());
-
-			form.setUserDetailDto(res);
+		// セキュリティーグループ一覧、発令兼務一覧、手動兼務一覧、セレクトリスト、経歴情報一覧は並列に取得する
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		Future<List<UserGrpDto>> grpFuture = submitSection("userGrp", times, futures, () -> vUserMapper.getUserGrp(userId));
+		Future<List<UserAnnCmbOrgDto>> annFuture = submitSection("annCmbOrg", times, futures, () -> vUserMapper.getAnnCmbOrg(userId));
+		Future<List<UserManCmbOrgDto>> manFuture = submitSection("manCmbOrg", times, futures, () -> vUserMapper.getManCmbOrg(userId));
+		Future<List<UserPositionInfoDto>> posFuture = submitSection("posList", times, futures, () -> vUserMapper.getPosList());
+		Future<List<UserCareerInfoDto>> careerFuture = submitSection("careerInfo", times, futures, () -> vUserMapper.getCareerInfo(userId));
 
-			/**
-			 * 権限情報
-			 * 拡張枠
-			 */
-			// システム一覧
-			// form.setUserSysList(getSysList(vo));
-		}
-
-		// セキュリティーグループ一覧
-		List<UserGrpDto> userGrpList = new ArrayList<UserGrpDto>();
-
-		userGrpList = vUserMapper.getUserGrp(userId);
+		UserDetailDto res = null;
 
-		form.setUserGrpList(userGrpList);
+		try {
+			// ユーザー情報は呼び出し元スレッドで取得
+			VGamenUserEntity param = new VGamenUserEntity();
+
+			param.setUserId(userId);
+
+			VGamenUserEntity vo = runSection("user", times, () -> vUserMapper.getUser(param));
+
+			if (vo != null) {
+				res = new UserDetailDto();
+
+				// 名前（日本語）
+				res.setNameJp(vo.getNameJp());
+				// 名前（英語）
+				res.setNameEn(vo.getSurnameEn() + " " + vo.getGivennameEn());
+				// 在籍区分
+				res.setEnrollmentName(vo.getEnrollmentName());
+				// 社員番号
+				res.setUserId(vo.getUserId());
+				// 雇用区分
+				res.setEmploymentName(vo.getEmploymentName());
+				// 役職
+				res.setPositionNameJp(vo.getPositionNameJp());
+				// 部署名
+				res.setOrganizationNameJp(vo.getOrganizationNameJp());
+				// 会社コード
+				res.setCompanyCode(vo.getCompanyCode());
+				// 外線番号
+				res.setTelEx(vo.getTelEx());
+				// 内線番号
+				res.setTel(vo.getTel());
+				// 有効開始日
+				res.setStartDate(dateToString(vo.getStartDate()));
+				// 退職予定日
+				res.setEndDate(dateToString(vo.getEndDate()));
+				// ドメインアカウント
+				res.setLoginId(vo.getLoginId());
+				// 利用言語
+				res.setLangName(vo.getLangName());
+				// メールアドレス（メイン）
+				res.setMailaddrNotification(vo.getMailaddrNotification());
+				// メールアドレス（サブ）
+				res.setMailaddr(vo.getMailaddr());
+
+				form.setUserDetailDto(res);
+
+				/**
+				 * 権限情報
+				 * 拡張枠
+				 */
+				// システム一覧
+				// form.setUserSysList(getSysList(vo));
+			}
 
-		// 発令兼務一覧
-		List<UserAnnCmbOrgDto> userAnnCmbOrgInfoList = new ArrayList<UserAnnCmbOrgDto>();
+			// セキュリティーグループ一覧
+			form.setUserGrpList(waitSection("userGrp", grpFuture, deadline));
 
-		userAnnCmbOrgInfoList = vUserMapper.getAnnCmbOrg(userId);
+			// 発令兼務一覧
+			form.setUserAnnCmbOrgInfoList(waitSection("annCmbOrg", annFuture, deadline));
 
-		form.setUserAnnCmbOrgInfoList(userAnnCmbOrgInfoList);
+			// 手動兼務一覧
+			form.setUserManCmbOrgInfoList(waitSection("manCmbOrg", manFuture, deadline));
 
-		// 手動兼務一覧
-		List<UserManCmbOrgDto> userManCmbOrgInfoList = new ArrayList<UserManCmbOrgDto>();
+			// セレクトリスト取得
+			List<UserPositionInfoDto> userPositionInfoList = waitSection("posList", posFuture, deadline);
 
-		userManCmbOrgInfoList = vUserMapper.getManCmbOrg(userId);
+			userPositionInfoList.add(0, new UserPositionInfoDto());
 
-		form.setUserManCmbOrgInfoList(userManCmbOrgInfoList);
+			form.setUserPositionInfoList(userPositionInfoList);
 
-		// セレクトリスト取得
-		List<UserPositionInfoDto> userPositionInfoList = new ArrayList<UserPositionInfoDto>();
+			// 経歴情報一覧
+			List<UserCareerInfoDto> userCareerInfoList = waitSection("careerInfo", careerFuture, deadline);
+			// 前履歴の終了日を再編集、及び退職ケースの編集
+			modifyEndDate(userCareerInfoList);
 
-		userPositionInfoList = vUserMapper.getPosList();
+			form.setUserCareerInfoList(userCareerInfoList);
 
-		userPositionInfoList.add(0, new UserPositionInfoDto());
+			/**
+			 * その他属性は拡張属性のため、デフォルトは最小限の情報のみ出力
+			 */
 
-		form.setUserPositionInfoList(userPositionInfoList);
+			// ユーザその他リスト取得
+			List<UserOtherInfoDto> userOtherInfoList = userSetOtherService.userOtherInfoList(vo);
 
-		// 経歴情報一覧
-		List<UserCareerInfoDto> userCareerInfoList = new ArrayList<UserCareerInfoDto>();
-		userCareerInfoList = vUserMapper.getCareerInfo(userId);
-		// 前履歴の終了日を再編集、及び退職ケースの編集
-		modifyEndDate(userCareerInfoList);
+			form.setUserOtherInfoList(userOtherInfoList);
+		} finally {
+			// 異常終了・タイムアウトの場合、残りの検索を取り消す
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+		}
 
-		form.setUserCareerInfoList(userCareerInfoList);
+		// 区分ごとの所要時間(Server-Timing形式)
+		StringBuilder sectionTimes = new StringBuilder();
+		synchronized (times) {
+			for (Map.Entry<String, Long> time : times.entrySet()) {
+				if (sectionTimes.length() > 0) {
+					sectionTimes.append(", ");
+				}
+				sectionTimes.append(time.getKey()).append(";dur=").append(time.getValue());
+			}
+		}
+		form.setSectionTimes(sectionTimes.toString());
 
-		/**
-		 * その他属性は拡張属性のため、デフォルトは最小限の情報のみ出力
-		 */
+		LogService.info("ユーザー詳細画面", "UserDetailDto", "ユーザー詳細情報取得", "正常終了 : {}", sectionTimes);
 
-		// ユーザその他リスト取得
-		List<UserOtherInfoDto> userOtherInfoList = userSetOtherService.userOtherInfoList(vo);
+		return res;
+	}
 
-		form.setUserOtherInfoList(userOtherInfoList);
+	/**
+	 * 区分の検索をスレッドプールで開始する
+	 *
+	 * @param name 区分名
+	 * @param times 区分ごとの所要時間
+	 * @param futures 開始した検索
+	 * @param query 検索処理
+	 * @return 検索結果
+	 */
+	private <T> Future<T> submitSection(String name, Map<String, Long> times, List<Future<?>> futures, Supplier<T> query) {
+		Future<T> future = userDetailExecutor.submit(() -> runSection(name, times, query));
+		futures.add(future);
+		return future;
+	}
 
-		LogService.info("ユーザー詳細画面", "UserDetailDto", "ユーザー詳細情報取得", "正常終了");
+	/**
+	 * 区分の検索を読み取り専用トランザクションで実行し、所要時間を記録する
+	 *
+	 * @param name 区分名
+	 * @param times 区分ごとの所要時間
+	 * @param query 検索処理
+	 * @return 検索結果
+	 */
+	private <T> T runSection(String name, Map<String, Long> times, Supplier<T> query) {
+		long start = System.nanoTime();
+		try {
+			return readOnlyTransaction.execute(status -> query.get());
+		} finally {
+			long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			times.put(name, ms);
+			LogService.debug("ユーザー詳細画面", "UserDetailDto", "ユーザー詳細情報取得", "{} : {}ms", name, ms);
+		}
+	}
 
-		return res;
+	/**
+	 * 区分の検索結果を待つ
+	 *
+	 * @param name 区分名
+	 * @param future 検索結果
+	 * @param deadline 待ち合わせ期限(System.nanoTime)
+	 * @return 検索結果
+	 * @throws Exception 検索失敗、タイムアウト
+	 */
+	private <T> T waitSection(String name, Future<T> future, long deadline) throws Exception {
+		try {
+			return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			LogService.system("ユーザー詳細画面", "UserDetailDto", "ユーザー詳細情報取得", "タイムアウト : " + name);
+			throw e;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
 	}
 
 	/**
@@ -229,6 +331,8 @@ public class UserSetService {
 		Calendar nowCal = Calendar.getInstance();
         // 操作者ID取得
 		String userId = form.getUserDetailDto().getUserId();
+		// 所属を変更したか
+		boolean changed = false;
 
         // 画面情報取得
 		List<UserManCmbOrgDto> newlist = new ArrayList<UserManCmbOrgDto>();
@@ -266,6 +370,7 @@ public class UserSetService {
 				deleteVo.setUpdateTs(nowCal.getTime());
 
 				vUserMapper.delUserOrgBefore(deleteVo);
+				changed = true;
 			}
 		}
 
@@ -306,6 +411,7 @@ public class UserSetService {
 				insVo.setConcurrencyOrder(null);
 
 				vUserMapper.insUserOrgBefore(insVo);
+				changed = true;
 			}
 		}
 
@@ -342,274 +448,256 @@ public class UserSetService {
 			// 更新処理を行う
 			if (updateFlg) {
 				vUserMapper.updUserOrgBefore(updateVo);
+				changed = true;
 			}
 		}
 
+		if (changed) {
+			// 他のサーバーのログイン情報キャッシュを無効にする(コミット時に送信される)
+			masterChangeNotifier.publish(MUSER_ORG_BEFORE, userId);
+		}
+
 		LogService.info("ユーザー詳細画面", "UserSetForm", "ユーザー詳細保存", "正常終了");
 
 		return res;
 	}
 
 	/**
-	* ユーザー情報一覧検索
+	* ユーザー詳細情報CSV出力
 	* @param form 画面の入力情報
-	* @return List<VUserListEntity> 取得結果
+	* @param os 出力先
 	*/
-	@Transactional
-	public File getCsvFile(UserSetForm form , String fileName) throws Exception {
+	public void writeCsv(UserSetForm form, OutputStream os) throws Exception {
 		LogService.info("ユーザー検索一覧画面", "form", "CSVダウンロードファイル作成", "開始");
 
-		OutputStreamWriter fw = null;
-		File downloadFile = null;
-
-		try {
-			// CSVファイルを開く
-			fw = new OutputStreamWriter(new FileOutputStream(fileName), DEFAULT_CHAR_SET);
+		CsvWriter csv = new CsvWriter(os);
 
-			fw.write(makeOutputUserLine(form));
+		writeUserDetail(csv, form);
 
-		} catch (Exception e) {
-			e.printStackTrace();
-
-		} finally {
-			try {
-				// CSVファイルを出力する。
-				if (fw != null) {
-					fw.close();
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-
-		downloadFile = new File(fileName);
+		csv.flush();
 
 		LogService.info("ユーザー検索一覧画面", "form", "CSVダウンロードファイル作成", "正常終了");
-		return downloadFile;
 	}
 
     /**
-     * CSV、行作成
+     * CSV、詳細情報出力
      *
-     * @param csvData
-     * @return
+     * @param csv
+     * @param form
+     * @throws IOException
      */
-    private String makeOutputUserLine(UserSetForm form){
-
-    	StringBuffer text = new StringBuffer();
+    private void writeUserDetail(CsvWriter csv, UserSetForm form) throws IOException {
 
     	UserDetailDto userDetailDto = form.getUserDetailDto();
 
-		text.append(getOutText("基本情報", false));
-    	text.append(DEFAULT_LINEFEED);
+		csv.write("基本情報", false);
+    	csv.newLine();
 
-    	text.append(getOutText("氏名(日本語)", true));
-    	text.append(getOutText(userDetailDto.getNameJp(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("氏名(日本語)", true);
+    	csv.write(userDetailDto.getNameJp(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("氏名（英語）", true));
-    	text.append(getOutText(userDetailDto.getNameEn(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("氏名（英語）", true);
+    	csv.write(userDetailDto.getNameEn(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("在籍区分", true));
-    	text.append(getOutText(userDetailDto.getEnrollmentName(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("在籍区分", true);
+    	csv.write(userDetailDto.getEnrollmentName(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("社員番号", true));
-    	text.append(getOutText(userDetailDto.getUserId(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("社員番号", true);
+    	csv.write(userDetailDto.getUserId(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("雇用区分", true));
-    	text.append(getOutText(userDetailDto.getEmploymentName(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("雇用区分", true);
+    	csv.write(userDetailDto.getEmploymentName(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("役職", true));
-    	text.append(getOutText(userDetailDto.getPositionNameJp(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("役職", true);
+    	csv.write(userDetailDto.getPositionNameJp(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("部署名", true));
-    	text.append(getOutText(userDetailDto.getOrganizationNameJp(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("部署名", true);
+    	csv.write(userDetailDto.getOrganizationNameJp(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("内線番号", true));
-    	text.append(getOutText(userDetailDto.getTelEx(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("内線番号", true);
+    	csv.write(userDetailDto.getTelEx(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("外線番号", true));
-    	text.append(getOutText(userDetailDto.getTel(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("外線番号", true);
+    	csv.write(userDetailDto.getTel(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("入社日", true));
-    	text.append(getOutText(userDetailDto.getStartDate(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("入社日", true);
+    	csv.write(userDetailDto.getStartDate(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("退職日", true));
-    	text.append(getOutText(userDetailDto.getEndDate(), false));
-    	text.append(DEFAULT_LINEFEED);
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("退職日", true);
+    	csv.write(userDetailDto.getEndDate(), false);
+    	csv.newLine();
+    	csv.newLine();
 
     	// 権限情報
-    	text.append(getOutText("権限情報", false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("権限情報", false);
+    	csv.newLine();
 
-    	text.append(getOutText("ドメインアカウント", true));
-    	text.append(getOutText(userDetailDto.getLoginId(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("ドメインアカウント", true);
+    	csv.write(userDetailDto.getLoginId(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("利用言語", true));
-    	text.append(getOutText(userDetailDto.getLangName(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("利用言語", true);
+    	csv.write(userDetailDto.getLangName(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("メールアドレス（メイン）", true));
-    	text.append(getOutText(userDetailDto.getMailaddrNotification(), false));
-    	text.append(DEFAULT_LINEFEED);
+    	csv.write("メールアドレス（メイン）", true);
+    	csv.write(userDetailDto.getMailaddrNotification(), false);
+    	csv.newLine();
 
-    	text.append(getOutText("メールアドレス（サブ）", true));
-    	text.append(getOutText(userDetailDto.getMailaddr(), false));
-    	text.append(DEFAULT_LINEFEED);
-		text.append(DEFAULT_LINEFEED);
+    	csv.write("メールアドレス（サブ）", true);
+    	csv.write(userDetailDto.getMailaddr(), false);
+    	csv.newLine();
+		csv.newLine();
 
 
 		/**
 		 * 拡張枠
 		 */
 		// 利用システム一覧
-		// text.append(getOutText("利用システム一覧", true));
-		// text.append(DEFAULT_LINEFEED);
+		// csv.write("利用システム一覧", true);
+		// csv.newLine();
 
-		// text.append(getOutText("No", true));
-		// text.append(getOutText("利用システム", true));
-		// text.append(getOutText("権限種別", true));
-		// text.append(getOutText("区分", true));
-		// text.append(DEFAULT_LINEFEED);
+		// csv.write("No", true);
+		// csv.write("利用システム", true);
+		// csv.write("権限種別", true);
+		// csv.write("区分", true);
+		// csv.newLine();
 
 		// List<UserSysDto> userSysList = form.getUserSysList();
 
 		// for (int i = 0; i < userSysList.size(); i++) {
 
-		// 	text.append(getOutText(String.valueOf(i + 1), true));
-		// 	text.append(getOutText(userSysList.get(i).getSysName(), true));
-		// 	text.append(getOutText(userSysList.get(i).getAuth(), true));
-		// 	text.append(getOutText(userSysList.get(i).getType(), true));
-		// 	text.append(DEFAULT_LINEFEED);
+		// 	csv.write(String.valueOf(i + 1), true);
+		// 	csv.write(userSysList.get(i).getSysName(), true);
+		// 	csv.write(userSysList.get(i).getAuth(), true);
+		// 	csv.write(userSysList.get(i).getType(), true);
+		// 	csv.newLine();
 		// }
 
 		// セキュリティグループ一覧
-		text.append(getOutText("セキュリティグループ一覧", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("セキュリティグループ一覧", false);
+		csv.newLine();
 
-		text.append(getOutText("No", true));
-		text.append(getOutText("セキュリティグループ	", true));
-		text.append(getOutText("権限種別", true));
-		text.append(getOutText("区分", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("No", true);
+		csv.write("セキュリティグループ	", true);
+		csv.write("権限種別", true);
+		csv.write("区分", false);
+		csv.newLine();
 
 		List<UserGrpDto> userGrpList = form.getUserGrpList();
 
 		for (int i = 0; i < userGrpList.size(); i++) {
-			text.append(getOutText(String.valueOf(i + 1), true));
-			text.append(getOutText(userGrpList.get(i).getGroupNameJp(), true));
-			text.append(getOutText(userGrpList.get(i).getGroupType(), true));
-			text.append(getOutText(userGrpList.get(i).getRootType(), false));
-			text.append(DEFAULT_LINEFEED);
+			csv.write(String.valueOf(i + 1), true);
+			csv.write(userGrpList.get(i).getGroupNameJp(), true);
+			csv.write(userGrpList.get(i).getGroupType(), true);
+			csv.write(userGrpList.get(i).getRootType(), false);
+			csv.newLine();
 		}
 
-		text.append(DEFAULT_LINEFEED);
+		csv.newLine();
 
 		// 兼務情報
-		text.append(getOutText("兼務情報", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("兼務情報", false);
+		csv.newLine();
 
 		// 発令兼務一覧
-		text.append(getOutText("発令兼務一覧", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("発令兼務一覧", false);
+		csv.newLine();
 
-		text.append(getOutText("No", true));
-		text.append(getOutText("会社コード	", true));
-		text.append(getOutText("部署コード", true));
-		text.append(getOutText("部署名", true));
-		text.append(getOutText("兼務順", true));
-		text.append(getOutText("役職", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("No", true);
+		csv.write("会社コード	", true);
+		csv.write("部署コード", true);
+		csv.write("部署名", true);
+		csv.write("兼務順", true);
+		csv.write("役職", false);
+		csv.newLine();
 
 		List<UserAnnCmbOrgDto> userAnnCmbOrgInfoList = form.getUserAnnCmbOrgInfoList();
 
 		for (int i = 0; i < userAnnCmbOrgInfoList.size(); i++) {
-			text.append(getOutText(String.valueOf(i + 1), true));
-			text.append(getOutText(userAnnCmbOrgInfoList.get(i).getCompanyCode(), true));
-			text.append(getOutText(userAnnCmbOrgInfoList.get(i).getOrganizationCode(), true));
-			text.append(getOutText(userAnnCmbOrgInfoList.get(i).getOrganizationNameJp(), true));
-			text.append(getOutText("-", true));
-			text.append(getOutText(userAnnCmbOrgInfoList.get(i).getPositionNameJp(), false));
-			text.append(DEFAULT_LINEFEED);
+			csv.write(String.valueOf(i + 1), true);
+			csv.write(userAnnCmbOrgInfoList.get(i).getCompanyCode(), true);
+			csv.write(userAnnCmbOrgInfoList.get(i).getOrganizationCode(), true);
+			csv.write(userAnnCmbOrgInfoList.get(i).getOrganizationNameJp(), true);
+			csv.write("-", true);
+			csv.write(userAnnCmbOrgInfoList.get(i).getPositionNameJp(), false);
+			csv.newLine();
 		}
 
 		// 手動兼務一覧
-		text.append(getOutText("手動兼務一覧", true));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("手動兼務一覧", true);
+		csv.newLine();
 
-		text.append(getOutText("No", true));
-		text.append(getOutText("会社コード	", true));
-		text.append(getOutText("部署コード", true));
-		text.append(getOutText("部署名", true));
-		text.append(getOutText("役職", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("No", true);
+		csv.write("会社コード	", true);
+		csv.write("部署コード", true);
+		csv.write("部署名", true);
+		csv.write("役職", false);
+		csv.newLine();
 
 		List<UserManCmbOrgDto> userManCmbOrgInfoList = form.getUserManCmbOrgInfoList();
 
 		for (int i = 0; i < userManCmbOrgInfoList.size(); i++) {
-			text.append(getOutText(String.valueOf(i + 1), true));
-			text.append(getOutText(userManCmbOrgInfoList.get(i).getCompanyCode(), true));
-			text.append(getOutText(userManCmbOrgInfoList.get(i).getOrganizationCode(), true));
-			text.append(getOutText(userManCmbOrgInfoList.get(i).getOrganizationNameJp(), true));
-			text.append(getOutText(userManCmbOrgInfoList.get(i).getPositionNameJp(), false));
-			text.append(DEFAULT_LINEFEED);
+			csv.write(String.valueOf(i + 1), true);
+			csv.write(userManCmbOrgInfoList.get(i).getCompanyCode(), true);
+			csv.write(userManCmbOrgInfoList.get(i).getOrganizationCode(), true);
+			csv.write(userManCmbOrgInfoList.get(i).getOrganizationNameJp(), true);
+			csv.write(userManCmbOrgInfoList.get(i).getPositionNameJp(), false);
+			csv.newLine();
 		}
 
-		text.append(DEFAULT_LINEFEED);
+		csv.newLine();
 
 		// 経歴情報一覧
-		text.append(getOutText("経歴情報一覧", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("経歴情報一覧", false);
+		csv.newLine();
 
-		text.append(getOutText("No", true));
-		text.append(getOutText("部署名", true));
-		text.append(getOutText("有効開始日", true));
-		text.append(getOutText("有効終了日", true));
-		text.append(getOutText("役職", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("No", true);
+		csv.write("部署名", true);
+		csv.write("有効開始日", true);
+		csv.write("有効終了日", true);
+		csv.write("役職", false);
+		csv.newLine();
 
 		List<UserCareerInfoDto> userCareerInfoList = form.getUserCareerInfoList();
 
 		for (int i = 0; i < userCareerInfoList.size(); i++) {
-			text.append(getOutText(String.valueOf(i + 1), true));
-			text.append(getOutText(userCareerInfoList.get(i).getOrganizationNameJp(), true));
-			text.append(getOutText(userCareerInfoList.get(i).getStartDate(), true));
-			text.append(getOutText(userCareerInfoList.get(i).getEndDate(), true));
-			text.append(getOutText(userCareerInfoList.get(i).getPositionNameJp(), false));
-			text.append(DEFAULT_LINEFEED);
+			csv.write(String.valueOf(i + 1), true);
+			csv.write(userCareerInfoList.get(i).getOrganizationNameJp(), true);
+			csv.write(userCareerInfoList.get(i).getStartDate(), true);
+			csv.write(userCareerInfoList.get(i).getEndDate(), true);
+			csv.write(userCareerInfoList.get(i).getPositionNameJp(), false);
+			csv.newLine();
 
 		}
 
-		text.append(DEFAULT_LINEFEED);
+		csv.newLine();
 
 		// その他情報一覧
-		text.append(getOutText("その他情報一覧", true));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("その他情報一覧", true);
+		csv.newLine();
 
-		text.append(getOutText("項目名", true));
-		text.append(getOutText("値", false));
-		text.append(DEFAULT_LINEFEED);
+		csv.write("項目名", true);
+		csv.write("値", false);
+		csv.newLine();
 
 		List<UserOtherInfoDto> userOtherInfoList = form.getUserOtherInfoList();
 
 		for (UserOtherInfoDto vo:userOtherInfoList) {
-			text.append(getOutText(vo.getColumnName(), true));
-			text.append(getOutText(vo.getValueValue(), false));
-			text.append(DEFAULT_LINEFEED);
+			csv.write(vo.getColumnName(), true);
+			csv.write(vo.getValueValue(), false);
+			csv.newLine();
 		}
-
-		return text.toString();
     }
 
 	/**
@@ -658,33 +746,6 @@ public class UserSetService {
 		}
 	}
 
-   /**
-    *
-    * @param val
-    * @param addTab
-    * @return
-    */
-    private String getOutText(String val,boolean addComma){
-    	if(StringUtil.isNullBlank(val)){
-    		val = "";
-    	}
-
-    	String retVal = StringUtil.trimSpace(val);
-
-		// 「"」がある場合、前に「"」を付ける
-		// 　データ：ｘｘｘ"AAA"	⇒ｘｘｘ""AAA""
-		retVal = retVal.replaceAll("\"", "\"\"");
-		// データ前後、無条件に「"」を付ける
-		// 　データ：ｘｘｘｙｙｙ	⇒"ｘｘｘｙｙｙ"
-		retVal = DOUBLE_QUO + retVal + DOUBLE_QUO;
-
-    	if(addComma){
-    		retVal = retVal + DEFAULT_SEPARATOR;
-    	}
-
-    	return  retVal;
-    }
-
     /**
      * 日付型を日付文字列（yyyy/MM/dd）に変換する。
      *
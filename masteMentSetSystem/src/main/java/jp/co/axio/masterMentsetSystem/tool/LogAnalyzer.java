@@ -0,0 +1,1002 @@
+/*******************************************************************
+ * 汎用マスタ管理システム
+ * ログ集計ツール
+ *
+ * @author axio
+ ********************************************************************/
+package jp.co.axio.masterMentsetSystem.tool;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ログ集計ツール(コマンドライン)
+ * LogService が出力した general.log / trace.log / sys.log (ローテート済みの *.yyyy-MM-dd.N.log を含む)を読み込み、
+ * 処理時間の分布・画面ごとの処理件数・異常終了率・時間のかかった処理・運用ログの例外件数を集計する。
+ * <ul>
+ * <li>ファイルはメモリマップで読み込み、ファイルごとに並列で集計する(1ファイルの大きさに関わらず使用メモリは一定)。</li>
+ * <li>general.log の「開始」と「正常終了」「異常終了」は (画面名, クラス名, 処理名) ごとに、終了をその直前の未終了の開始と組にする。
+ *     ログにスレッド・セッションの情報がないため、処理ごとに1つの流れとみなし、組にした開始より前の未終了の開始は
+ *     終了のログが出なかったもの(後の開始に置き換えられた)として未終了件数に数える。
+ *     同じ処理が同時に実行された場合は未終了件数が増えるが、無関係の開始と組にして処理時間を長く集計することはない。</li>
+ * <li>ログの日時は秒単位のため、処理時間も秒単位(0秒は1秒未満)となる。</li>
+ * <li>ローテートしたファイルをまたぐ開始・終了は、ファイルの順(ローテート日・連番)に引き継いで組にする。</li>
+ * </ul>
+ * Spring には依存しないため、クラスファイルのみで実行できる。
+ * <pre>
+ * java -cp WEB-INF/classes jp.co.axio.masterMentsetSystem.tool.LogAnalyzer [オプション] ログフォルダまたはファイル...
+ *   --from yyyy/MM/dd   この日以降のログのみ集計
+ *   --to yyyy/MM/dd     この日以前のログのみ集計
+ *   --top N             時間のかかった処理・一覧の表示件数(既定 20)
+ *   --threads N         並列数(既定 CPU数)
+ *   --charset NAME      ログの文字コード(既定 UTF-8、Windowsの既定で出力したログは MS932)
+ * </pre>
+ */
+public class LogAnalyzer {
+
+	/** ログファイル名(種類, ローテート日, 連番) */
+	private static final Pattern FILE_NAME = Pattern.compile("(general|trace|sys)(?:\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+))?\\.log");
+	/** メモリマップの最大範囲 */
+	private static final long WINDOW = 1L << 30;
+	/** 処理時間の分布の上限(秒、超えたものは上限に数える) */
+	private static final int MAX_SECONDS = 3600;
+	/** 開始から終了までの最大時間(秒、これを超えた開始は組にせず未終了とする) */
+	private static final long MAX_PENDING_SECONDS = 1800;
+	/** 1処理あたりの未終了の開始の保持上限(超えた場合は古いものから未終了とする) */
+	private static final int MAX_PENDING = 10000;
+	/** 日時の表示形式 */
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+	/** ログの種類 */
+	enum LogType {
+		GENERAL, TRACE, SYS
+	}
+
+	/** 実行オプション */
+	private Charset charset = StandardCharsets.UTF_8;
+	private long fromSecond = Long.MIN_VALUE;
+	private long toSecond = Long.MAX_VALUE;
+	private int top = 20;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private final List<Path> inputs = new ArrayList<Path>();
+
+	/**
+	 * 実行
+	 *
+	 * @param args 引数
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+
+		LogAnalyzer analyzer = new LogAnalyzer();
+		if (!analyzer.parseArgs(args)) {
+			System.err.println("usage: LogAnalyzer [--from yyyy/MM/dd] [--to yyyy/MM/dd] [--top N] [--threads N] [--charset NAME] <log dir or file>...");
+			System.exit(2);
+		}
+		analyzer.run(System.out);
+	}
+
+	/**
+	 * 引数の解析
+	 *
+	 * @param args 引数
+	 * @return false:引数誤り
+	 */
+	boolean parseArgs(String[] args) {
+		DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			boolean hasValue = i + 1 < args.length;
+			if ("--from".equals(arg) && hasValue) {
+				fromSecond = LocalDate.parse(args[++i], dateFormat).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+			} else if ("--to".equals(arg) && hasValue) {
+				toSecond = LocalDate.parse(args[++i], dateFormat).plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) - 1;
+			} else if ("--top".equals(arg) && hasValue) {
+				top = Integer.parseInt(args[++i]);
+			} else if ("--threads".equals(arg) && hasValue) {
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			} else if ("--charset".equals(arg) && hasValue) {
+				charset = Charset.forName(args[++i]);
+			} else if (arg.startsWith("--")) {
+				return false;
+			} else {
+				inputs.add(Paths.get(arg));
+			}
+		}
+		return !inputs.isEmpty();
+	}
+
+	/**
+	 * 集計・結果出力
+	 *
+	 * @param out 出力先
+	 * @throws Exception
+	 */
+	void run(PrintStream out) throws Exception {
+
+		long begin = System.nanoTime();
+		List<LogFile> files = findFiles();
+		if (files.isEmpty()) {
+			out.println("ログファイルがありません: " + inputs);
+			return;
+		}
+		Result total = analyze(files);
+		long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+
+		new Report(total, top, out).print(files, elapsedMillis);
+	}
+
+	/**
+	 * 集計(ファイルごとに並列に集計し、ファイルの順に合算する)
+	 *
+	 * @param files 対象ファイル(findFiles の順)
+	 * @return 集計結果
+	 * @throws Exception
+	 */
+	Result analyze(List<LogFile> files) throws Exception {
+
+		Result total = new Result(top);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (LogFile file : files) {
+				futures.add(executor.submit(() -> new FileParser(file, charset, fromSecond, toSecond, top).parse()));
+			}
+			for (Future<Result> future : futures) {
+				total.merge(future.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		total.finish();
+		return total;
+	}
+
+	/**
+	 * 対象ファイルの一覧(種類、ローテート日・連番の順)
+	 *
+	 * @return ファイル一覧
+	 * @throws IOException
+	 */
+	List<LogFile> findFiles() throws IOException {
+		List<LogFile> files = new ArrayList<LogFile>();
+		for (Path input : inputs) {
+			if (Files.isDirectory(input)) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(input)) {
+					for (Path path : stream) {
+						LogFile file = LogFile.of(path);
+						if (file != null) {
+							files.add(file);
+						}
+					}
+				}
+			} else {
+				LogFile file = LogFile.of(input);
+				if (file != null) {
+					files.add(file);
+				}
+			}
+		}
+		files.sort(Comparator.comparing((LogFile f) -> f.type).thenComparing(f -> f.order));
+		return files;
+	}
+
+	/**
+	 * ログファイル
+	 */
+	static class LogFile {
+		final Path path;
+		final LogType type;
+		/** 並び順(ローテート日・連番、ローテート前のファイルは最後) */
+		final String order;
+
+		LogFile(Path path, LogType type, String order) {
+			this.path = path;
+			this.type = type;
+			this.order = order;
+		}
+
+		/**
+		 * ファイル名からログファイルを判定
+		 *
+		 * @param path パス
+		 * @return ログファイル、対象外の場合null
+		 */
+		static LogFile of(Path path) {
+			Matcher m = FILE_NAME.matcher(path.getFileName().toString());
+			if (!m.matches() || !Files.isRegularFile(path)) {
+				return null;
+			}
+			LogType type = LogType.valueOf(m.group(1).toUpperCase());
+			String order = m.group(2) == null ? "9999-99-99" : m.group(2) + String.format(".%06d", Integer.parseInt(m.group(3)));
+			return new LogFile(path, type, order);
+		}
+	}
+
+	/**
+	 * 1ファイルの集計
+	 * 行をバイト列のまま解析し、(画面名, クラス名, 処理名) の文字列は種類ごとに1回だけ生成する。
+	 */
+	static class FileParser {
+
+		private final LogFile file;
+		private final Charset charset;
+		private final long fromSecond;
+		private final long toSecond;
+		private final Result result;
+
+		private final byte[] start;
+		private final byte[] normalEnd;
+		private final byte[] abnormalEnd;
+		private final byte[] causedBy;
+
+		/** (画面名, クラス名, 処理名) のバイト列 → 集計 */
+		private final KeyTable<Operation> operations = new KeyTable<Operation>();
+		/** 例外の種類のバイト列 → 件数 */
+		private final KeyTable<long[]> exceptions = new KeyTable<long[]>();
+
+		/** 日時の解析結果の再利用(同じ日付の場合) */
+		private long cachedDayBytes = -1;
+		private long cachedDaySecond;
+
+		FileParser(LogFile file, Charset charset, long fromSecond, long toSecond, int top) {
+			this.file = file;
+			this.charset = charset;
+			this.fromSecond = fromSecond;
+			this.toSecond = toSecond;
+			this.result = new Result(top);
+			this.start = "開始".getBytes(charset);
+			this.normalEnd = "正常終了".getBytes(charset);
+			this.abnormalEnd = "異常終了".getBytes(charset);
+			this.causedBy = "Caused by: ".getBytes(charset);
+		}
+
+		/**
+		 * 集計
+		 *
+		 * @return 集計結果
+		 * @throws IOException
+		 */
+		Result parse() throws IOException {
+			result.files++;
+			try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+				long size = channel.size();
+				result.bytes += size;
+				long position = 0;
+				while (position < size) {
+					long length = Math.min(WINDOW, size - position);
+					MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+					int limit = (int) length;
+					// 範囲の最後の行が途中で切れている場合は次の範囲で読む
+					if (position + length < size) {
+						int last = limit - 1;
+						while (last >= 0 && buf.get(last) != '\n') {
+							last--;
+						}
+						if (last >= 0) {
+							limit = last + 1;
+						}
+					}
+					parseLines(buf, limit);
+					position += limit;
+				}
+			}
+			// 前後のファイルと組にする開始・終了
+			for (Operation op : operations.values()) {
+				if (op.ended || !op.pending.isEmpty()) {
+					result.carries.put(op.stats.key(), new Carry(op.headEndSecond, op.headEndError, op.ended, op.pending));
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * 範囲内の行の解析
+		 *
+		 * @param buf バッファ
+		 * @param limit 解析する長さ
+		 */
+		private void parseLines(MappedByteBuffer buf, int limit) {
+			int lineStart = 0;
+			for (int i = 0; i < limit; i++) {
+				if (buf.get(i) == '\n') {
+					int lineEnd = i > lineStart && buf.get(i - 1) == '\r' ? i - 1 : i;
+					parseLine(buf, lineStart, lineEnd);
+					lineStart = i + 1;
+				}
+			}
+			if (lineStart < limit) {
+				parseLine(buf, lineStart, limit);
+			}
+		}
+
+		/**
+		 * 1行の解析
+		 *
+		 * @param buf バッファ
+		 * @param from 行の先頭
+		 * @param to 行の末尾(改行を含まない)
+		 */
+		private void parseLine(MappedByteBuffer buf, int from, int to) {
+			result.lines++;
+			long second = parseTime(buf, from, to);
+			if (second == Long.MIN_VALUE) {
+				// 日時のない行(スタックトレース等)
+				if (file.type == LogType.SYS) {
+					int p = skipSpaces(buf, from, to);
+					if (startsWith(buf, p, to, causedBy)) {
+						countException(buf, p + causedBy.length, to);
+					}
+				}
+				return;
+			}
+			if (second < fromSecond || second > toSecond) {
+				return;
+			}
+			result.records++;
+			result.minSecond = Math.min(result.minSecond, second);
+			result.maxSecond = Math.max(result.maxSecond, second);
+
+			// 日時,画面名,クラス名,処理名,結果
+			int c1 = from + 19;
+			int c2 = indexOf(buf, c1 + 1, to, (byte) ',');
+			int c3 = c2 < 0 ? -1 : indexOf(buf, c2 + 1, to, (byte) ',');
+			int c4 = c3 < 0 ? -1 : indexOf(buf, c3 + 1, to, (byte) ',');
+			if (c4 < 0) {
+				// 日時,例外メッセージ
+				if (file.type == LogType.SYS) {
+					countException(buf, c1 + 1, to);
+				}
+				return;
+			}
+
+			Operation op = operations.get(buf, c1 + 1, c4);
+			if (op == null) {
+				op = new Operation(result.stats(decode(buf, c1 + 1, c2), decode(buf, c2 + 1, c3), decode(buf, c3 + 1, c4)));
+				operations.put(buf, c1 + 1, c4, op);
+			}
+			op.stats.lines++;
+			op.stats.bytes += to - from + 1;
+
+			if (file.type == LogType.SYS) {
+				op.stats.systemErrors++;
+				return;
+			}
+			if (file.type != LogType.GENERAL) {
+				return;
+			}
+
+			int r = c4 + 1;
+			if (startsWith(buf, r, to, start)) {
+				op.stats.starts++;
+				op.throughput(second);
+				if (op.pending.size() >= MAX_PENDING) {
+					op.pending.pollFirst();
+					op.stats.unmatched++;
+				}
+				op.pending.addLast(second);
+			} else {
+				boolean normal = indexOf(buf, r, to, normalEnd) >= 0;
+				boolean abnormal = !normal && indexOf(buf, r, to, abnormalEnd) >= 0;
+				if (!normal && !abnormal) {
+					return;
+				}
+				// 終了しないまま時間の経った開始(異常終了のログが出なかったもの)は読み捨てる
+				while (!op.pending.isEmpty() && second - op.pending.peekFirst() > MAX_PENDING_SECONDS) {
+					op.pending.pollFirst();
+					op.stats.unmatched++;
+				}
+				Long started = op.pending.pollLast();
+				boolean first = !op.ended;
+				op.ended = true;
+				if (started == null) {
+					if (first) {
+						// ファイル内の最初の終了は前のファイルの開始と組にする(合算時)
+						op.headEndSecond = second;
+						op.headEndError = !normal;
+					} else {
+						op.stats.orphanEnds++;
+					}
+					return;
+				}
+				// 組にした開始より前の開始は、後の開始に置き換えられたものとして読み捨てる
+				op.stats.unmatched += op.pending.size();
+				op.pending.clear();
+				op.stats.record(second - started, !normal);
+				result.offerSlow(new Slow(op.stats, started, second - started, !normal));
+			}
+		}
+
+		/**
+		 * 先頭の日時(yyyy/MM/dd HH:mm:ss)の解析
+		 *
+		 * @return エポック秒(UTCとして計算)、日時でない場合Long.MIN_VALUE
+		 */
+		private long parseTime(MappedByteBuffer buf, int from, int to) {
+			if (to - from < 20 || buf.get(from + 4) != '/' || buf.get(from + 7) != '/' || buf.get(from + 10) != ' '
+					|| buf.get(from + 13) != ':' || buf.get(from + 16) != ':' || buf.get(from + 19) != ',') {
+				return Long.MIN_VALUE;
+			}
+			int year = digits(buf, from, 4);
+			int month = digits(buf, from + 5, 2);
+			int day = digits(buf, from + 8, 2);
+			int hour = digits(buf, from + 11, 2);
+			int minute = digits(buf, from + 14, 2);
+			int sec = digits(buf, from + 17, 2);
+			if ((year | month | day | hour | minute | sec) < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+				return Long.MIN_VALUE;
+			}
+			long dayKey = year * 10000L + month * 100 + day;
+			if (dayKey != cachedDayBytes) {
+				try {
+					cachedDaySecond = LocalDate.of(year, month, day).toEpochDay() * 86400L;
+				} catch (RuntimeException e) {
+					return Long.MIN_VALUE;
+				}
+				cachedDayBytes = dayKey;
+			}
+			return cachedDaySecond + hour * 3600L + minute * 60L + sec;
+		}
+
+		/**
+		 * 例外の種類(「:」の前まで)を数える
+		 */
+		private void countException(MappedByteBuffer buf, int from, int to) {
+			int end = indexOf(buf, from, to, (byte) ':');
+			if (end < 0) {
+				end = to;
+			}
+			// 例外クラス名らしいもの(空白を含まない)のみ数える
+			for (int i = from; i < end; i++) {
+				if (buf.get(i) == ' ') {
+					return;
+				}
+			}
+			if (end == from) {
+				return;
+			}
+			long[] count = exceptions.get(buf, from, end);
+			if (count == null) {
+				count = result.exception(decode(buf, from, end));
+				exceptions.put(buf, from, end, count);
+			}
+			count[0]++;
+		}
+
+		private String decode(MappedByteBuffer buf, int from, int to) {
+			byte[] bytes = new byte[to - from];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buf.get(from + i);
+			}
+			return new String(bytes, charset);
+		}
+
+		private static int digits(MappedByteBuffer buf, int from, int length) {
+			int value = 0;
+			for (int i = 0; i < length; i++) {
+				int d = buf.get(from + i) - '0';
+				if (d < 0 || d > 9) {
+					return -1;
+				}
+				value = value * 10 + d;
+			}
+			return value;
+		}
+
+		private static int skipSpaces(MappedByteBuffer buf, int from, int to) {
+			while (from < to && (buf.get(from) == ' ' || buf.get(from) == '\t')) {
+				from++;
+			}
+			return from;
+		}
+
+		private static int indexOf(MappedByteBuffer buf, int from, int to, byte b) {
+			for (int i = from; i < to; i++) {
+				if (buf.get(i) == b) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static int indexOf(MappedByteBuffer buf, int from, int to, byte[] pattern) {
+			for (int i = from; i + pattern.length <= to; i++) {
+				if (startsWith(buf, i, to, pattern)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean startsWith(MappedByteBuffer buf, int from, int to, byte[] pattern) {
+			if (to - from < pattern.length) {
+				return false;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				if (buf.get(from + i) != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 1ファイル内の処理の状態(未終了の開始、分単位の処理件数)
+	 */
+	static class Operation {
+		final OperationStats stats;
+		/** 未終了の開始日時(開始順) */
+		final ArrayDeque<Long> pending = new ArrayDeque<Long>();
+		/** ファイル内に終了があったか */
+		boolean ended;
+		/** ファイル内の最初の終了がファイル内の開始と組にならなかった場合、その日時 */
+		long headEndSecond = Long.MIN_VALUE;
+		/** 上記の終了が異常終了か */
+		boolean headEndError;
+		/** 集計中の分 */
+		long minute = Long.MIN_VALUE;
+		/** 集計中の分の開始件数 */
+		long minuteCount;
+
+		Operation(OperationStats stats) {
+			this.stats = stats;
+		}
+
+		/**
+		 * 分単位の開始件数の集計(ログは時刻順のため、分が変わった時点で最大値を更新する)
+		 */
+		void throughput(long second) {
+			long m = second / 60;
+			if (m != minute) {
+				minute = m;
+				minuteCount = 0;
+			}
+			minuteCount++;
+			if (minuteCount > stats.peakPerMinute) {
+				stats.peakPerMinute = minuteCount;
+				stats.peakMinute = m * 60;
+			}
+		}
+	}
+
+	/**
+	 * ファイルをまたいで組にする開始・終了(ファイルごと、合算中は前のファイルまでの未終了の開始)
+	 */
+	static class Carry {
+		/** ファイル内の最初の終了がファイル内の開始と組にならなかった場合、その日時 */
+		final long headEndSecond;
+		/** 上記の終了が異常終了か */
+		final boolean headEndError;
+		/** ファイル内に終了があったか(前のファイルまでの未終了の開始は、組にしたもの以外を読み捨てる) */
+		final boolean ended;
+		/** 未終了の開始日時(開始順) */
+		final ArrayDeque<Long> pending;
+
+		Carry(long headEndSecond, boolean headEndError, boolean ended, ArrayDeque<Long> pending) {
+			this.headEndSecond = headEndSecond;
+			this.headEndError = headEndError;
+			this.ended = ended;
+			this.pending = pending;
+		}
+	}
+
+	/**
+	 * (画面名, クラス名, 処理名) ごとの集計
+	 */
+	static class OperationStats {
+		final String screen;
+		final String page;
+		final String process;
+
+		long lines;
+		long bytes;
+		long starts;
+		long completed;
+		long errors;
+		long unmatched;
+		long orphanEnds;
+		long systemErrors;
+		long totalSeconds;
+		long maxSeconds;
+		long peakPerMinute;
+		long peakMinute;
+		final long[] histogram = new long[MAX_SECONDS + 1];
+
+		OperationStats(String screen, String page, String process) {
+			this.screen = screen;
+			this.page = page;
+			this.process = process;
+		}
+
+		void record(long seconds, boolean error) {
+			completed++;
+			if (error) {
+				errors++;
+			}
+			totalSeconds += seconds;
+			maxSeconds = Math.max(maxSeconds, seconds);
+			histogram[(int) Math.min(Math.max(seconds, 0), MAX_SECONDS)]++;
+		}
+
+		void merge(OperationStats o) {
+			lines += o.lines;
+			bytes += o.bytes;
+			starts += o.starts;
+			completed += o.completed;
+			errors += o.errors;
+			unmatched += o.unmatched;
+			orphanEnds += o.orphanEnds;
+			systemErrors += o.systemErrors;
+			totalSeconds += o.totalSeconds;
+			maxSeconds = Math.max(maxSeconds, o.maxSeconds);
+			if (o.peakPerMinute > peakPerMinute) {
+				peakPerMinute = o.peakPerMinute;
+				peakMinute = o.peakMinute;
+			}
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] += o.histogram[i];
+			}
+		}
+
+		long percentile(double p) {
+			if (completed == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(p * completed);
+			long cumulative = 0;
+			for (int i = 0; i < histogram.length; i++) {
+				cumulative += histogram[i];
+				if (cumulative >= rank) {
+					return i;
+				}
+			}
+			return MAX_SECONDS;
+		}
+
+		String name() {
+			return screen + " / " + page + " / " + process;
+		}
+
+		String key() {
+			return screen + '\t' + page + '\t' + process;
+		}
+	}
+
+	/**
+	 * 時間のかかった処理
+	 */
+	static class Slow {
+		final OperationStats op;
+		final long startSecond;
+		final long seconds;
+		final boolean error;
+
+		Slow(OperationStats op, long startSecond, long seconds, boolean error) {
+			this.op = op;
+			this.startSecond = startSecond;
+			this.seconds = seconds;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * 集計結果(ファイルごと、全体)
+	 */
+	static class Result {
+		private final int top;
+		long files;
+		long bytes;
+		long lines;
+		long records;
+		long minSecond = Long.MAX_VALUE;
+		long maxSecond = Long.MIN_VALUE;
+		/** 「画面名\tクラス名\t処理名」 → 集計 */
+		final Map<String, OperationStats> operations = new HashMap<String, OperationStats>();
+		/** 例外の種類 → 件数 */
+		final Map<String, long[]> exceptions = new HashMap<String, long[]>();
+		/** 「画面名\tクラス名\t処理名」 → ファイルをまたいで組にする開始・終了 */
+		final Map<String, Carry> carries = new HashMap<String, Carry>();
+		/** 時間のかかった処理(上位N件、最小のものが先頭) */
+		final PriorityQueue<Slow> slowest = new PriorityQueue<Slow>(Comparator.comparingLong((Slow s) -> s.seconds));
+
+		Result(int top) {
+			this.top = top;
+		}
+
+		OperationStats stats(String screen, String page, String process) {
+			OperationStats stats = new OperationStats(screen, page, process);
+			return operations.computeIfAbsent(stats.key(), k -> stats);
+		}
+
+		long[] exception(String name) {
+			return exceptions.computeIfAbsent(name, k -> new long[1]);
+		}
+
+		void offerSlow(Slow slow) {
+			if (slowest.size() < top) {
+				slowest.add(slow);
+			} else if (top > 0 && slowest.peek().seconds < slow.seconds) {
+				slowest.poll();
+				slowest.add(slow);
+			}
+		}
+
+		void merge(Result o) {
+			files += o.files;
+			bytes += o.bytes;
+			lines += o.lines;
+			records += o.records;
+			minSecond = Math.min(minSecond, o.minSecond);
+			maxSecond = Math.max(maxSecond, o.maxSecond);
+			Map<OperationStats, OperationStats> moved = new HashMap<OperationStats, OperationStats>();
+			for (Map.Entry<String, OperationStats> e : o.operations.entrySet()) {
+				OperationStats mine = operations.get(e.getKey());
+				if (mine == null) {
+					operations.put(e.getKey(), e.getValue());
+					mine = e.getValue();
+				} else {
+					mine.merge(e.getValue());
+				}
+				moved.put(e.getValue(), mine);
+			}
+			for (Map.Entry<String, long[]> e : o.exceptions.entrySet()) {
+				exception(e.getKey())[0] += e.getValue()[0];
+			}
+			for (Slow s : o.slowest) {
+				offerSlow(new Slow(moved.get(s.op), s.startSecond, s.seconds, s.error));
+			}
+			// ファイルの順に合算するため、前のファイルまでの未終了の開始と、このファイルの最初の終了を組にする
+			for (Map.Entry<String, Carry> e : o.carries.entrySet()) {
+				Carry next = e.getValue();
+				OperationStats stats = operations.get(e.getKey());
+				Carry open = carries.computeIfAbsent(e.getKey(), k -> new Carry(Long.MIN_VALUE, false, false, new ArrayDeque<Long>()));
+				if (next.headEndSecond != Long.MIN_VALUE) {
+					while (!open.pending.isEmpty() && next.headEndSecond - open.pending.peekFirst() > MAX_PENDING_SECONDS) {
+						open.pending.pollFirst();
+						stats.unmatched++;
+					}
+					Long started = open.pending.pollLast();
+					if (started == null) {
+						stats.orphanEnds++;
+					} else {
+						stats.record(next.headEndSecond - started, next.headEndError);
+						offerSlow(new Slow(stats, started, next.headEndSecond - started, next.headEndError));
+					}
+				}
+				if (next.ended) {
+					stats.unmatched += open.pending.size();
+					open.pending.clear();
+				}
+				open.pending.addAll(next.pending);
+				while (open.pending.size() > MAX_PENDING) {
+					open.pending.pollFirst();
+					stats.unmatched++;
+				}
+			}
+		}
+
+		/**
+		 * 合算の終了(最後まで終了しなかった開始を未終了件数に数える)
+		 */
+		void finish() {
+			for (Map.Entry<String, Carry> e : carries.entrySet()) {
+				operations.get(e.getKey()).unmatched += e.getValue().pending.size();
+				e.getValue().pending.clear();
+			}
+		}
+	}
+
+	/**
+	 * 結果出力
+	 */
+	static class Report {
+		private final Result result;
+		private final int top;
+		private final PrintStream out;
+
+		Report(Result result, int top, PrintStream out) {
+			this.result = result;
+			this.top = top;
+			this.out = out;
+		}
+
+		void print(List<LogFile> files, long elapsedMillis) {
+			out.println("== 対象ファイル");
+			for (LogFile f : files) {
+				out.println("  " + f.path);
+			}
+			out.printf("  %d files, %,d bytes, %,d lines (%,d records), %,d ms%n",
+					result.files, result.bytes, result.lines, result.records, elapsedMillis);
+			if (result.records > 0) {
+				out.println("  期間: " + time(result.minSecond) + " - " + time(result.maxSecond));
+			}
+
+			List<OperationStats> ops = new ArrayList<OperationStats>(result.operations.values());
+
+			out.println();
+			out.println("== 処理時間(秒、合計時間の多い順)");
+			out.printf("%8s %6s %6s %5s %5s %5s %6s %8s %6s  %s%n",
+					"count", "errors", "err%", "p50", "p95", "p99", "max", "total", "unend", "画面 / クラス / 処理");
+			ops.stream().filter(o -> o.completed > 0 || o.unmatched > 0)
+					.sorted(Comparator.comparingLong((OperationStats o) -> o.totalSeconds).reversed()
+							.thenComparing(Comparator.comparingLong((OperationStats o) -> o.completed).reversed()))
+					.limit(top)
+					.forEach(o -> out.printf("%8d %6d %5.1f%% %5d %5d %5d %6d %8d %6d  %s%n",
+							o.completed, o.errors, rate(o.errors, o.completed),
+							o.percentile(0.50), o.percentile(0.95), o.percentile(0.99), o.maxSeconds,
+							o.totalSeconds, o.unmatched, o.name()));
+
+			out.println();
+			out.println("== 画面ごとの処理件数(開始件数)");
+			out.printf("%8s %8s %6s %8s  %s%n", "starts", "per hour", "errors", "peak/min", "画面");
+			Map<String, long[]> screens = new HashMap<String, long[]>();
+			for (OperationStats o : ops) {
+				long[] s = screens.computeIfAbsent(o.screen, k -> new long[2]);
+				s[0] += o.starts;
+				s[1] += o.errors;
+			}
+			double hours = Math.max(1.0, (result.maxSecond - result.minSecond) / 3600.0);
+			Map<String, Long> peaks = new HashMap<String, Long>();
+			for (OperationStats o : ops) {
+				peaks.merge(o.screen, o.peakPerMinute, Math::max);
+			}
+			screens.entrySet().stream().filter(e -> e.getValue()[0] > 0)
+					.sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+					.limit(top)
+					.forEach(e -> out.printf("%8d %8.1f %6d %8d  %s%n",
+							e.getValue()[0], e.getValue()[0] / hours, e.getValue()[1], peaks.get(e.getKey()), e.getKey()));
+
+			out.println();
+			out.println("== 時間のかかった処理");
+			List<Slow> slow = new ArrayList<Slow>(result.slowest);
+			slow.sort(Comparator.comparingLong((Slow s) -> s.seconds).reversed());
+			for (Slow s : slow) {
+				out.printf("%6d s  %s  %s%s%n", s.seconds, time(s.startSecond), s.op.name(), s.error ? "  (異常終了)" : "");
+			}
+
+			out.println();
+			out.println("== 運用ログ(sys.log)の件数");
+			ops.stream().filter(o -> o.systemErrors > 0)
+					.sorted(Comparator.comparingLong((OperationStats o) -> o.systemErrors).reversed())
+					.limit(top)
+					.forEach(o -> out.printf("%8d  %s%n", o.systemErrors, o.name()));
+			out.println("-- 例外の種類");
+			result.exceptions.entrySet().stream()
+					.sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+					.limit(top)
+					.forEach(e -> out.printf("%8d  %s%n", e.getValue()[0], e.getKey()));
+
+			out.println();
+			out.println("== ログ出力量(行数の多い順)");
+			ops.stream().sorted(Comparator.comparingLong((OperationStats o) -> o.lines).reversed())
+					.limit(top)
+					.forEach(o -> out.printf("%8d %10d  %s%n", o.lines, o.bytes, o.name()));
+		}
+
+		private static double rate(long n, long total) {
+			return total == 0 ? 0.0 : n * 100.0 / total;
+		}
+
+		private static String time(long second) {
+			return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).format(TIME_FORMAT);
+		}
+	}
+
+	/**
+	 * バイト列をキーとするハッシュ表(検索時に文字列・配列を生成しない)
+	 *
+	 * @param <V> 値
+	 */
+	static class KeyTable<V> {
+		private byte[][] keys = new byte[64][];
+		private int[] hashes = new int[64];
+		private Object[] values = new Object[64];
+		private int size;
+
+		@SuppressWarnings("unchecked")
+		V get(MappedByteBuffer buf, int from, int to) {
+			int hash = hash(buf, from, to);
+			int mask = keys.length - 1;
+			for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+				if (hashes[i] == hash && equals(keys[i], buf, from, to)) {
+					return (V) values[i];
+				}
+			}
+			return null;
+		}
+
+		void put(MappedByteBuffer buf, int from, int to, V value) {
+			if ((size + 1) * 2 > keys.length) {
+				resize();
+			}
+			byte[] key = new byte[to - from];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = buf.get(from + i);
+			}
+			insert(key, hash(buf, from, to), value);
+			size++;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<V> values() {
+			List<V> list = new ArrayList<V>(size);
+			for (Object v : values) {
+				if (v != null) {
+					list.add((V) v);
+				}
+			}
+			return list;
+		}
+
+		private void insert(byte[] key, int hash, Object value) {
+			int mask = keys.length - 1;
+			int i = hash & mask;
+			while (keys[i] != null) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			hashes[i] = hash;
+			values[i] = value;
+		}
+
+		private void resize() {
+			byte[][] oldKeys = keys;
+			int[] oldHashes = hashes;
+			Object[] oldValues = values;
+			keys = new byte[oldKeys.length * 2][];
+			hashes = new int[oldKeys.length * 2];
+			values = new Object[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					insert(oldKeys[i], oldHashes[i], oldValues[i]);
+				}
+			}
+		}
+
+		private static int hash(MappedByteBuffer buf, int from, int to) {
+			int h = 1;
+			for (int i = from; i < to; i++) {
+				h = 31 * h + buf.get(i);
+			}
+			return h ^ (h >>> 16);
+		}
+
+		private static boolean equals(byte[] key, MappedByteBuffer buf, int from, int to) {
+			if (key.length != to - from) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (key[i] != buf.get(from + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -1226,4 +1226,29 @@ public class StringUtil extends StringUtils {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * LIKE検索(部分一致)のパターンを作成する
+     * 「\」「%」「_」をエスケープし、前後に「%」を付ける
+     * <BR>
+     * [A%B]→[%A\%B%]
+     *
+     * @param str 検索文字列
+     * @return String LIKEパターン（引数がnullの場合はnull）
+     */
+    public static String toLikeContains(String str) {
+
+        if (str == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(str.length() + 8).append('%');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+}
@@ -0,0 +1,21 @@
+-- 汎用CSV差分出力のテーブル
+-- 差分出力を使用する場合に、DB管理者が psql 等で実行する(アプリケーションからは実行しない)
+-- 設定・出力位置・出力済みキーの更新は MgpCsvExportDeltaService が行う
+
+-- 差分出力設定・出力済み位置(差分出力する定義の SQL番号・キー項目を登録する)
+CREATE TABLE IF NOT EXISTS m_gp_csvexport_delta (
+    sql_no integer PRIMARY KEY,
+    key_column varchar(63) NOT NULL,
+    full_interval_days integer NOT NULL DEFAULT 7,
+    last_update_ts timestamp,
+    last_key text,
+    last_full_ts timestamp,
+    update_ts timestamp NOT NULL DEFAULT now()
+);
+
+-- 出力済みキー(直近の出力で出力条件を満たしていたキー、削除ファイルはこのキーに限る)
+CREATE TABLE IF NOT EXISTS t_gp_csvexport_delta_key (
+    sql_no integer NOT NULL,
+    key_value text NOT NULL,
+    PRIMARY KEY (sql_no, key_value)
+);
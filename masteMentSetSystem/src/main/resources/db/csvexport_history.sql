@@ -0,0 +1,22 @@
+-- 汎用CSV出力実行履歴のテーブル
+-- DB管理者が psql 等で実行する(アプリケーションからは実行しない、テーブルがない場合は履歴を保存しない)
+-- 保存は MgpCsvExportHistoryService が行う
+
+CREATE TABLE IF NOT EXISTS t_gp_csvexport_history (
+    history_no bigserial PRIMARY KEY,
+    sql_no integer NOT NULL,
+    system_id varchar(100),
+    trigger_class varchar(10) NOT NULL,
+    export_mode varchar(10),
+    start_ts timestamp NOT NULL,
+    end_ts timestamp NOT NULL,
+    elapsed_millis bigint NOT NULL,
+    row_count bigint NOT NULL,
+    delete_row_count bigint NOT NULL,
+    bytes bigint NOT NULL,
+    parts integer NOT NULL,
+    success_flag char(1) NOT NULL,
+    error_message text
+);
+CREATE INDEX IF NOT EXISTS t_gp_csvexport_history_start_ts_idx ON t_gp_csvexport_history (start_ts);
+CREATE INDEX IF NOT EXISTS t_gp_csvexport_history_sql_no_idx ON t_gp_csvexport_history (sql_no, start_ts);
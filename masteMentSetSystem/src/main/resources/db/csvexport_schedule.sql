@@ -0,0 +1,11 @@
+-- 汎用CSV出力スケジュールのテーブル
+-- スケジュール実行(config.csvexport.schedule.enabled=true)を使用する場合に、DB管理者が psql 等で実行する(アプリケーションからは実行しない)
+-- 読み込みは MgpCsvExportScheduleService が行う
+
+-- スケジュール(cron式は「秒 分 時 日 月 曜日」)
+CREATE TABLE IF NOT EXISTS m_gp_csvexport_schedule (
+    sql_no integer PRIMARY KEY,
+    cron_expression varchar(100) NOT NULL,
+    valid_flag char(1) NOT NULL DEFAULT '1',
+    update_ts timestamp NOT NULL DEFAULT now()
+);
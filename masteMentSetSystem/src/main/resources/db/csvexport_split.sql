@@ -0,0 +1,12 @@
+-- 汎用CSV分割出力のテーブル
+-- 分割出力を使用する場合に、DB管理者が psql 等で実行する(アプリケーションからは実行しない)
+-- 読み込みは MgpCsvExportSplitService が行う
+
+-- 分割出力設定(分割出力する定義の SQL番号・分割項目を登録する)
+CREATE TABLE IF NOT EXISTS m_gp_csvexport_split (
+    sql_no integer PRIMARY KEY,
+    split_column varchar(63) NOT NULL,
+    parts integer NOT NULL DEFAULT 4,
+    part_file_flag char(1) NOT NULL DEFAULT '0',
+    update_ts timestamp NOT NULL DEFAULT now()
+);
@@ -0,0 +1,53 @@
+-- マスタ変更通知(NOTIFY master_changed, 'テーブル名:キー')トリガー
+-- 画面以外(SQL・連携処理等)でマスタを更新する運用の場合に、DB管理者が psql 等で実行する(アプリケーションからは実行しない)
+-- 受信は MasterChangeNotifier が行う。キーはトリガーの引数で指定した列の値(文単位のトリガーとしないため、1行ごとに通知する)
+-- 同じトランザクション内の同じ内容の通知は1件にまとめられる
+
+CREATE OR REPLACE FUNCTION master_changed_notify() RETURNS trigger AS $$
+DECLARE
+    rec jsonb;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        rec := to_jsonb(OLD);
+    ELSE
+        rec := to_jsonb(NEW);
+    END IF;
+    PERFORM pg_notify('master_changed', TG_TABLE_NAME || ':' || coalesce(rec ->> TG_ARGV[0], '*'));
+    IF TG_OP = 'UPDATE' AND to_jsonb(OLD) ->> TG_ARGV[0] IS DISTINCT FROM rec ->> TG_ARGV[0] THEN
+        PERFORM pg_notify('master_changed', TG_TABLE_NAME || ':' || coalesce(to_jsonb(OLD) ->> TG_ARGV[0], '*'));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 汎用コードマスタ(分類コード)
+DROP TRIGGER IF EXISTS m_gp_code_mst_changed ON m_gp_code_mst;
+CREATE TRIGGER m_gp_code_mst_changed AFTER INSERT OR UPDATE OR DELETE ON m_gp_code_mst
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('class_code');
+
+-- ユーザー・所属(ユーザーID)
+DROP TRIGGER IF EXISTS m_user_changed ON m_user;
+CREATE TRIGGER m_user_changed AFTER INSERT OR UPDATE OR DELETE ON m_user
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('user_id');
+DROP TRIGGER IF EXISTS m_user_organization_changed ON m_user_organization;
+CREATE TRIGGER m_user_organization_changed AFTER INSERT OR UPDATE OR DELETE ON m_user_organization
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('user_id');
+DROP TRIGGER IF EXISTS m_user_org_before_changed ON m_user_org_before;
+CREATE TRIGGER m_user_org_before_changed AFTER INSERT OR UPDATE OR DELETE ON m_user_org_before
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('user_id');
+
+-- 組織・役職
+DROP TRIGGER IF EXISTS m_organization_changed ON m_organization;
+CREATE TRIGGER m_organization_changed AFTER INSERT OR UPDATE OR DELETE ON m_organization
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('organization_code');
+DROP TRIGGER IF EXISTS m_position_changed ON m_position;
+CREATE TRIGGER m_position_changed AFTER INSERT OR UPDATE OR DELETE ON m_position
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('position_code');
+
+-- ルール・グループ(現在キャッシュしている処理はないが、今後キャッシュする場合に備えて通知する)
+DROP TRIGGER IF EXISTS m_rule_changed ON m_rule;
+CREATE TRIGGER m_rule_changed AFTER INSERT OR UPDATE OR DELETE ON m_rule
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('rule_id');
+DROP TRIGGER IF EXISTS m_group_changed ON m_group;
+CREATE TRIGGER m_group_changed AFTER INSERT OR UPDATE OR DELETE ON m_group
+    FOR EACH ROW EXECUTE PROCEDURE master_changed_notify('group_id');
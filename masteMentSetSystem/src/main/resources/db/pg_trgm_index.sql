@@ -0,0 +1,37 @@
+-- 部分一致検索(LIKE '%xxx%')用 pg_trgm GINインデックス
+-- 書き込みを止めないよう CONCURRENTLY で作成する(トランザクション外で1文ずつ、DB管理者が psql 等で実行する)
+-- アプリケーションからは実行しない。起動時に TrigramIndexManager が作成状況を確認してログに出力する
+-- 作成に失敗した(INVALID の)インデックスは DROP INDEX CONCURRENTLY してから作成し直す
+-- V_GAMEN_USER はビューのため、参照元テーブルに作成する
+
+-- pg_trgm 拡張(登録にはスーパーユーザー等の権限が必要)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ユーザー検索画面
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_name_jp_trgm_idx ON m_user USING gin (name_jp gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_surname_en_trgm_idx ON m_user USING gin (surname_en gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_givenname_en_trgm_idx ON m_user USING gin (givenname_en gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_tel_trgm_idx ON m_user USING gin (tel gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_tel_ex_trgm_idx ON m_user USING gin (tel_ex gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_user_id_trgm_idx ON m_user USING gin (user_id gin_trgm_ops);
+
+-- 組織検索
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_organization_name_jp_trgm_idx ON m_organization USING gin (organization_name_jp gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_organization_name_en_trgm_idx ON m_organization USING gin (organization_name_en gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_organization_code_trgm_idx ON m_organization USING gin (organization_code gin_trgm_ops);
+
+-- グループ検索
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_group_group_id_trgm_idx ON m_group USING gin (group_id gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_group_name_jp_trgm_idx ON m_group USING gin (group_name_jp gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_group_name_en_trgm_idx ON m_group USING gin (group_name_en gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_group_note_trgm_idx ON m_group USING gin (note gin_trgm_ops);
+
+-- ルール検索
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_rule_rule_id_trgm_idx ON m_rule USING gin (rule_id gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_rule_rule_name_trgm_idx ON m_rule USING gin (rule_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_rule_note_trgm_idx ON m_rule USING gin (note gin_trgm_ops);
+
+-- セキュリティグループ検索
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_adgroup_adgroup_id_trgm_idx ON m_adgroup USING gin (adgroup_id gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_adgroup_group_name_trgm_idx ON m_adgroup USING gin (group_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_adgroup_note_trgm_idx ON m_adgroup USING gin (note gin_trgm_ops);
@@ -0,0 +1,8 @@
+-- ユーザー検索画面の並び順(キーセット方式のページング)用インデックス
+-- 並び順項目＋ユーザーIDの範囲を索引順に読むため、(項目, user_id) の複合インデックスを作成する
+-- 書き込みを止めないよう CONCURRENTLY で作成する(トランザクション外で1文ずつ、DB管理者が psql 等で実行する)
+-- V_GAMEN_USER はビューのため参照元テーブルに作成する。在籍区分・雇用区分・役職・部署名は結合先の名称のため対象外
+-- (ユーザーIDの並び順は主キーを使用する)
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_name_jp_user_id_idx ON m_user (name_jp, user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS m_user_login_id_user_id_idx ON m_user (login_id, user_id);
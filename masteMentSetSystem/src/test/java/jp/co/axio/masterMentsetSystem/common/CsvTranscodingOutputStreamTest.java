@@ -0,0 +1,103 @@
+package jp.co.axio.masterMentsetSystem.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CSV文字コード変換出力のテスト
+ * COPY ... TO STDOUT (FORMAT csv, FORCE_QUOTE *) の出力(UTF-8・改行LF)を変換した結果が、
+ * 同じ値を CsvWriter(JDBCでの出力)で出力した結果と一致することを確認する。
+ * 受信の区切りで文字が分断される場合を含めるため、1～数バイトずつに分けて書き込む。
+ */
+class CsvTranscodingOutputStreamTest {
+
+	/** 出力する値(COPYでは前後のスペース除去・nullの空文字化を済ませた値) */
+	private static final List<String[]> ROWS = Arrays.asList(
+			new String[] { "1", "山田　太郎", "t" },
+			new String[] { "2", "a\"b\"\"c", "" },
+			new String[] { "3", "改行\nあり\r\n項目", "f" },
+			new String[] { "4", "区切り,文字\tタブ", "①髙﨑～" },
+			new String[] { "5", "変換不可😀文字", "\"" });
+
+	/** 書き込みの分割バイト数 */
+	private static final int[] CHUNKS = { 1, 2, 3, 5, 7, 16384, Integer.MAX_VALUE };
+
+	@Test
+	void ms932Crlf() throws IOException {
+		assertSameAsCsvWriter("MS932", ',', "\r\n");
+	}
+
+	@Test
+	void shiftJisTabCr() throws IOException {
+		assertSameAsCsvWriter("Shift_JIS", '\t', "\r");
+	}
+
+	@Test
+	void utf8Crlf() throws IOException {
+		assertSameAsCsvWriter("UTF-8", ',', "\r\n");
+	}
+
+	@Test
+	void largeOutputAcrossBuffers() throws IOException {
+		// 変換バッファ(16384バイト)を超え、複数回に分けて変換される場合
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("あいう\"えお");
+		}
+		String[] row = { sb.toString(), "末尾" };
+		assertSameAsCsvWriter(Arrays.asList(row, row), "MS932", ',', "\r\n");
+	}
+
+	private static void assertSameAsCsvWriter(String charSet, char separator, String lineFeed) throws IOException {
+		assertSameAsCsvWriter(ROWS, charSet, separator, lineFeed);
+	}
+
+	private static void assertSameAsCsvWriter(List<String[]> rows, String charSet, char separator, String lineFeed)
+			throws IOException {
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		try (CsvWriter csv = new CsvWriter(expected, charSet, separator, lineFeed, true)) {
+			for (String[] row : rows) {
+				for (int i = 0; i < row.length; i++) {
+					csv.write(row[i], i < row.length - 1);
+				}
+				csv.newLine();
+			}
+		}
+
+		byte[] copy = copyOutput(rows, separator);
+		for (int chunk : CHUNKS) {
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			CsvTranscodingOutputStream transcoder = new CsvTranscodingOutputStream(actual, charSet, lineFeed);
+			for (int off = 0; off < copy.length; off += chunk) {
+				transcoder.write(copy, off, Math.min(chunk, copy.length - off));
+			}
+			transcoder.finish();
+			assertArrayEquals(expected.toByteArray(), actual.toByteArray(), charSet + " chunk = " + chunk);
+		}
+	}
+
+	/**
+	 * COPY (FORMAT csv, FORCE_QUOTE *) の出力(すべての項目を囲み、「"」は「""」、改行LF)
+	 */
+	private static byte[] copyOutput(List<String[]> rows, char separator) {
+		StringBuilder sb = new StringBuilder();
+		for (String[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					sb.append(separator);
+				}
+				sb.append('"').append(row[i].replace("\"", "\"\"")).append('"');
+			}
+			sb.append('\n');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
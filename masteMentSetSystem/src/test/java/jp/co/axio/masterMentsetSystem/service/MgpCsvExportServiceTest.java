@@ -0,0 +1,67 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import jp.co.axio.masterMentsetSystem.controller.MgpCsvExportForm;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+import jp.co.axio.masterMentsetSystem.repository.MgpCsvExportDefInfoMapper;
+
+/**
+ * 汎用CSV設定画面サービスのSQLチェック(1文の判定)・定義保存のテスト
+ */
+class MgpCsvExportServiceTest {
+
+	@Test
+	void trailingSemicolonIsRemoved() {
+		assertEquals("SELECT * FROM m_user", MgpCsvExportService.singleStatement("SELECT * FROM m_user ; \r\n"));
+		assertEquals("SELECT 1", MgpCsvExportService.singleStatement("SELECT 1;;"));
+		assertEquals("SELECT 1", MgpCsvExportService.singleStatement("SELECT 1 \n"));
+		assertEquals("SELECT 1", MgpCsvExportService.singleStatement("SELECT 1; -- コメント\n/* ; */"));
+	}
+
+	@Test
+	void semicolonInLiteralOrCommentIsKept() {
+		String sql = "SELECT 'a;b', \"c;d\", E'\\';', $$;$$, $t$;$t$ FROM m_user -- ;\nWHERE a = 'x'';' /* ; */";
+		assertEquals(sql, MgpCsvExportService.singleStatement(sql + ";"));
+		assertEquals("SELECT a$b$ FROM t WHERE c = $1", MgpCsvExportService.singleStatement("SELECT a$b$ FROM t WHERE c = $1;"));
+	}
+
+	@Test
+	void multipleStatementsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> MgpCsvExportService.singleStatement("SELECT 1; DELETE FROM m_user"));
+		assertThrows(IllegalArgumentException.class, () -> MgpCsvExportService.singleStatement("SELECT 1;'x'"));
+		assertThrows(IllegalArgumentException.class, () -> MgpCsvExportService.singleStatement("SELECT 1; /* */ SELECT 2;"));
+	}
+
+	@Test
+	void savedSqlCanBeWrappedForExport() throws Exception {
+		MgpCsvExportService service = new MgpCsvExportService();
+		service.mgpCsvExportDefInfoMapper = mock(MgpCsvExportDefInfoMapper.class);
+		MgpCsvExportForm form = new MgpCsvExportForm();
+		form.editFlg = "1";
+		form.setSqlOutData("SELECT user_id, valid FROM m_user ;\r\n");
+		service.saveData(form);
+
+		ArgumentCaptor<MgpCsvExportDefInfo> saved = ArgumentCaptor.forClass(MgpCsvExportDefInfo.class);
+		verify(service.mgpCsvExportDefInfoMapper).insertSelective(saved.capture());
+		assertEquals("SELECT user_id, valid FROM m_user", saved.getValue().getSqlOutData());
+
+		// 出力時は保存済みの定義(「;」付きで保存されたものを含む)を1文に整えてから副問合せとして囲む
+		for (String sql : Arrays.asList(saved.getValue().getSqlOutData(), "SELECT user_id, valid FROM m_user;")) {
+			String copy = MgpCsvExportRunService.copySql(MgpCsvExportService.singleStatement(sql),
+					Arrays.asList("varchar", "bool"), ',');
+			assertEquals("COPY (SELECT coalesce(btrim(c1::text, E' \\t\\n\\013\\f\\r\u3000'), ''),"
+					+ " coalesce(CASE WHEN c2 THEN 't' WHEN NOT c2 THEN 'f' END, '')"
+					+ " FROM (SELECT user_id, valid FROM m_user) csv_export(c1, c2))"
+					+ " TO STDOUT WITH (FORMAT csv, DELIMITER ',', FORCE_QUOTE *)", copy);
+		}
+	}
+}
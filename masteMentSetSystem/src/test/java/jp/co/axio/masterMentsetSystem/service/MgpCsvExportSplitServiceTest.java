@@ -0,0 +1,91 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.sql.Connection;
+
+import org.junit.jupiter.api.Test;
+
+import jp.co.axio.masterMentsetSystem.dto.CsvExportSplitDto;
+import jp.co.axio.masterMentsetSystem.model.MgpCsvExportDefInfo;
+
+/**
+ * 汎用CSV分割出力サービスの分割可否(行単位で出力するSQLのみ分割する)のテスト
+ */
+class MgpCsvExportSplitServiceTest {
+
+	@Test
+	void rowLocalSelectIsSplittable() {
+		assertNull(MgpCsvExportSplitService.unsplittable("SELECT user_id, user_name FROM m_user WHERE valid_flag = '1'"));
+		assertNull(MgpCsvExportSplitService.unsplittable(
+				"SELECT u.user_id, coalesce(u.mode_name, '') AS limited, upper(u.orderer) FROM m_user u"));
+	}
+
+	@Test
+	void orderByIsRefused() {
+		assertEquals("ORDER BY", MgpCsvExportSplitService.unsplittable("SELECT * FROM m_user ORDER BY user_id"));
+	}
+
+	@Test
+	void groupByIsRefused() {
+		assertEquals("GROUP BY", MgpCsvExportSplitService.unsplittable("SELECT org FROM m_user GROUP\n BY org"));
+	}
+
+	@Test
+	void havingIsRefused() {
+		assertEquals("HAVING", MgpCsvExportSplitService.unsplittable("SELECT 1 FROM m_user HAVING true"));
+	}
+
+	@Test
+	void distinctIsRefused() {
+		assertEquals("DISTINCT", MgpCsvExportSplitService.unsplittable("SELECT DISTINCT org FROM m_user"));
+		assertEquals("DISTINCT", MgpCsvExportSplitService.unsplittable("SELECT distinct on (org) org, user_id FROM m_user"));
+	}
+
+	@Test
+	void aggregatesAreRefused() {
+		assertEquals("集約関数", MgpCsvExportSplitService.unsplittable("SELECT count(*) FROM m_user"));
+		assertEquals("集約関数", MgpCsvExportSplitService.unsplittable("SELECT SUM (amount) FROM t_sales"));
+		assertEquals("集約関数", MgpCsvExportSplitService.unsplittable("SELECT string_agg(user_id, ',') FROM m_user"));
+		assertEquals("集約関数", MgpCsvExportSplitService.unsplittable("SELECT max(update_date) FROM m_user"));
+	}
+
+	@Test
+	void windowFunctionsAreRefused() {
+		assertEquals("ウィンドウ関数", MgpCsvExportSplitService.unsplittable(
+				"SELECT user_id, row_number() OVER (PARTITION BY org) FROM m_user"));
+		assertEquals("ウィンドウ関数", MgpCsvExportSplitService.unsplittable(
+				"SELECT user_id, rank() OVER w FROM m_user WINDOW w AS (PARTITION BY org)"));
+	}
+
+	@Test
+	void limitAndOffsetAreRefused() {
+		assertEquals("LIMIT/OFFSET", MgpCsvExportSplitService.unsplittable("SELECT * FROM m_user LIMIT 100"));
+		assertEquals("LIMIT/OFFSET", MgpCsvExportSplitService.unsplittable("SELECT * FROM m_user OFFSET 10"));
+		assertEquals("LIMIT/OFFSET", MgpCsvExportSplitService.unsplittable("SELECT * FROM m_user FETCH FIRST 5 ROWS ONLY"));
+	}
+
+	@Test
+	void setOperationsAreRefused() {
+		assertEquals("UNION/INTERSECT/EXCEPT", MgpCsvExportSplitService.unsplittable(
+				"SELECT user_id FROM m_user UNION ALL SELECT user_id FROM m_user_org_before"));
+	}
+
+	@Test
+	void refusedSqlIsNotSplit() throws Exception {
+		MgpCsvExportDefInfo def = new MgpCsvExportDefInfo();
+		def.setSqlNo(1);
+		def.setSqlOutTableName("m_user");
+		def.setSqlOutData("SELECT org, count(*) FROM m_user GROUP BY org");
+		CsvExportSplitDto split = new CsvExportSplitDto();
+		split.setSplitColumn("user_id");
+		split.setParts(4);
+		Connection conn = mock(Connection.class);
+		assertTrue(new MgpCsvExportSplitService().rangeSqls(conn, def, split).isEmpty());
+		verifyNoInteractions(conn);
+	}
+}
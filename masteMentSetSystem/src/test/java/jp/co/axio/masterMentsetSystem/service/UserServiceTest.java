@@ -0,0 +1,123 @@
+package jp.co.axio.masterMentsetSystem.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+
+import jp.co.axio.masterMentsetSystem.controller.UserListForm;
+import jp.co.axio.masterMentsetSystem.model.VGamenUserEntity;
+import jp.co.axio.masterMentsetSystem.repository.VUserMapper;
+
+/**
+ * ユーザーサービスのCSV出力(検索結果を1件ずつ出力先へ書き込む)のテスト
+ */
+class UserServiceTest {
+
+	/** ヘッダー行 */
+	private static final String HEADER = "\"状態\",\"ユーザーID\",\"ログインID\",\"雇用名称\",\"氏名\",\"英語姓\",\"英語名\","
+			+ "\"所属部コード\",\"所属部署\",\"役職コード\",\"役職名\",\"有効開始日\",\"有効終了日\",\"会社コード\","
+			+ "\"メールアドレス（メイン）\",\"メールアドレス（サブ）\",\"外線番号\",\"内線番号\"\r\n";
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void writeCsvStreamsRows() throws Exception {
+		UserService service = new UserService();
+		service.vUserMapper = mock(VUserMapper.class);
+		UserListForm form = new UserListForm();
+		VGamenUserEntity[] rows = {
+				user("U0001", "山田　太郎", "2020-04-01", "9999-12-31"),
+				user("U0002", "a\"b,c", null, null),
+				user("U0003", "髙橋 ①", "2021-10-01", "2022-03-31") };
+
+		doAnswer(invocation -> {
+			ResultHandler<VGamenUserEntity> handler = invocation.getArgument(1);
+			ResultContext<VGamenUserEntity> context = mock(ResultContext.class);
+			for (VGamenUserEntity row : rows) {
+				when(context.getResultObject()).thenReturn(row);
+				handler.handleResult(context);
+			}
+			return null;
+		}).when(service.vUserMapper).getCsvList(same(form), any(ResultHandler.class));
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		service.writeCsv(form, os);
+
+		String expected = HEADER
+				+ "\"在籍\",\"U0001\",\"LU0001\",\"正社員\",\"山田　太郎\",\"\",\"\",\"1000\",\"総務部\",\"P01\",\"部長\","
+				+ "\"2020/04/01\",\"9999/12/31\",\"C01\",\"U0001@example.com\",\"\",\"03-0000-0000\",\"1234\"\r\n"
+				+ "\"在籍\",\"U0002\",\"LU0002\",\"正社員\",\"a\"\"b,c\",\"\",\"\",\"1000\",\"総務部\",\"P01\",\"部長\","
+				+ "\"\",\"\",\"C01\",\"U0002@example.com\",\"\",\"03-0000-0000\",\"1234\"\r\n"
+				+ "\"在籍\",\"U0003\",\"LU0003\",\"正社員\",\"髙橋 ①\",\"\",\"\",\"1000\",\"総務部\",\"P01\",\"部長\","
+				+ "\"2021/10/01\",\"2022/03/31\",\"C01\",\"U0003@example.com\",\"\",\"03-0000-0000\",\"1234\"\r\n";
+		assertEquals(expected, new String(os.toByteArray(), "MS932"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void writeCsvWritesWhileReading() throws Exception {
+		// 検索結果をすべて読み込んでから書き込むのではなく、読み込みながら出力先へ書き込む
+		UserService service = new UserService();
+		service.vUserMapper = mock(VUserMapper.class);
+		UserListForm form = new UserListForm();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		int rows = 5000;
+		int[] writtenBeforeLast = { 0 };
+
+		doAnswer(invocation -> {
+			ResultHandler<VGamenUserEntity> handler = invocation.getArgument(1);
+			ResultContext<VGamenUserEntity> context = mock(ResultContext.class);
+			for (int i = 0; i < rows; i++) {
+				if (i == rows - 1) {
+					writtenBeforeLast[0] = os.size();
+				}
+				when(context.getResultObject()).thenReturn(user(String.format("U%05d", i), "氏名", "2020-04-01", null));
+				handler.handleResult(context);
+			}
+			return null;
+		}).when(service.vUserMapper).getCsvList(same(form), any(ResultHandler.class));
+
+		service.writeCsv(form, os);
+
+		assertTrue(writtenBeforeLast[0] > 0, "最後の行を読み込む前に出力されていない");
+		String csv = new String(os.toByteArray(), "MS932");
+		assertTrue(csv.startsWith(HEADER));
+		assertEquals(rows + 1, csv.split("\r\n", -1).length - 1);
+	}
+
+	private static VGamenUserEntity user(String userId, String name, String startDate, String endDate) {
+		VGamenUserEntity user = new VGamenUserEntity();
+		user.setEnrollmentName("在籍");
+		user.setUserId(userId);
+		user.setLoginId("L" + userId);
+		user.setEmploymentName("正社員");
+		user.setNameJp(name);
+		user.setOrganizationCode("1000");
+		user.setOrganizationNameJp("総務部");
+		user.setPositionCode("P01");
+		user.setPositionNameJp("部長");
+		user.setStartDate(date(startDate));
+		user.setEndDate(date(endDate));
+		user.setCompanyCode("C01");
+		user.setMailaddrNotification(userId + "@example.com");
+		user.setTel("03-0000-0000");
+		user.setTelEx("1234");
+		return user;
+	}
+
+	private static Date date(String value) {
+		return value == null ? null : Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+}
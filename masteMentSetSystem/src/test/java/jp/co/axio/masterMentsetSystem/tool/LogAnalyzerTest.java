@@ -0,0 +1,68 @@
+package jp.co.axio.masterMentsetSystem.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ログ集計ツールの開始・終了の組のテスト
+ * test/resources/logAnalyzer のログ(general.2023-12-06.0.log → general.log の順)を集計する。
+ */
+class LogAnalyzerTest {
+
+	private static LogAnalyzer.Result result;
+
+	@BeforeAll
+	static void analyze() throws Exception {
+		LogAnalyzer analyzer = new LogAnalyzer();
+		assertTrue(analyzer.parseArgs(new String[] { "--threads", "2",
+				Paths.get(LogAnalyzerTest.class.getResource("/logAnalyzer").toURI()).toString() }));
+		result = analyzer.analyze(analyzer.findFiles());
+	}
+
+	private static LogAnalyzer.OperationStats stats(String screen, String page, String process) {
+		return result.operations.get(screen + '\t' + page + '\t' + process);
+	}
+
+	@Test
+	void endIsPairedWithMostRecentStart() {
+		// 14:21:11, 14:27:21, 14:42:46 の開始は終了せず、14:42:52 の開始が同じ秒に異常終了する
+		LogAnalyzer.OperationStats login = stats("ログイン画面", "LoginController", "ログイン処理");
+		assertEquals(4, login.starts);
+		assertEquals(1, login.completed);
+		assertEquals(1, login.errors);
+		assertEquals(0, login.maxSeconds);
+		assertEquals(3, login.unmatched);
+		assertEquals(0, login.orphanEnds);
+		assertTrue(result.slowest.stream().allMatch(s -> s.seconds < 60));
+	}
+
+	@Test
+	void startWithoutEndIsUnmatched() {
+		LogAnalyzer.OperationStats ldap = stats("ログイン処理", "LoginService", "LDAP認証");
+		assertEquals(1, ldap.starts);
+		assertEquals(0, ldap.completed);
+		assertEquals(1, ldap.unmatched);
+	}
+
+	@Test
+	void startIsCarriedAcrossRolledFiles() {
+		LogAnalyzer.OperationStats export = stats("汎用CSV出力", "MgpCsvExportRunService", "汎用CSV出力処理");
+		assertEquals(1, export.completed);
+		assertEquals(5, export.maxSeconds);
+		assertEquals(0, export.unmatched);
+		assertEquals(0, export.orphanEnds);
+	}
+
+	@Test
+	void everyEndedStartIsPaired() {
+		LogAnalyzer.OperationStats init = stats("ログイン画面", "LoginController", "初期処理");
+		assertEquals(init.starts, init.completed);
+		assertEquals(0, init.unmatched);
+		assertEquals(0, init.orphanEnds);
+	}
+}